@@ -0,0 +1,202 @@
+/*
+  FcpTransferBenchmark.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import frost.AppHome;
+import frost.fcp.FcpHandler;
+import frost.fcp.NodeAddress;
+import frost.fcp.fcp07.messagetransfer.MessageTransferHandler;
+import frost.fcp.fcp07.messagetransfer.MessageTransferTask;
+import frost.fileTransfer.FreenetPriority;
+
+/**
+ * End-to-end throughput of the FCP layer against the in-process FcpNodeSimulator
+ * from the test sources, without a live node. One operation is one transferred key.
+ *
+ * Messages (16 KiB) and file lists (512 KiB) are fetched like FcpHandler07 does it,
+ * over the shared message socket. fileListDownloadPooled fetches the file lists over
+ * pooled FcpConnections instead, as used when the shared socket is disabled.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FcpTransferBenchmark {
+
+	private static final int BATCH_SIZE = 100;
+	private static final int MESSAGE_SIZE = 16 * 1024;
+	private static final int FILELIST_SIZE = 512 * 1024;
+	private static final int FILELIST_COUNT = 16;
+
+	// latency of the simulated node for each request
+	@Param({ "0", "20" })
+	private int latencyMillis;
+
+	private FcpNodeSimulator simulator;
+	private MessageTransferHandler handler;
+	private FcpConnectionPool pool;
+	private File tempDir;
+	private File uploadFile;
+
+	private final AtomicLong idCounter = new AtomicLong();
+
+	@Setup(Level.Trial)
+	public void setup() throws Throwable {
+		AppHome.init();
+
+		simulator = new FcpNodeSimulator();
+		simulator.setLatency(latencyMillis, latencyMillis / 2);
+		simulator.setKeepInsertedData(false);
+		final Random random = new Random(1);
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			final byte[] data = new byte[MESSAGE_SIZE];
+			random.nextBytes(data);
+			simulator.insert(getMessageKey(i), data);
+		}
+		for (int i = 0; i < FILELIST_COUNT; i++) {
+			final byte[] data = new byte[FILELIST_SIZE];
+			random.nextBytes(data);
+			simulator.insert(getFileListKey(i), data);
+		}
+
+		final NodeAddress na = simulator.getNodeAddress();
+		handler = new MessageTransferHandler(na, new FcpNodeHealth(na, 1000));
+		handler.start();
+		pool = new FcpConnectionPool(na, 8, 60000);
+
+		tempDir = Files.createTempDirectory("fcpbench").toFile();
+		uploadFile = new File(tempDir, "upload.xml");
+		final byte[] data = new byte[MESSAGE_SIZE];
+		random.nextBytes(data);
+		Files.write(uploadFile.toPath(), data);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.close();
+		simulator.close();
+		for (final File f : tempDir.listFiles()) {
+			f.delete();
+		}
+		tempDir.delete();
+	}
+
+	private static String getMessageKey(final int i) {
+		return "KSK@frost/message/bench/2026.10.18-board-" + i + ".xml";
+	}
+
+	private static String getFileListKey(final int i) {
+		return "KSK@frost/filelist/bench-" + i;
+	}
+
+	private File getTargetFile() {
+		return new File(tempDir, "get-" + idCounter.incrementAndGet() + ".tmp");
+	}
+
+	private void runBatch(final List<MessageTransferTask> tasks, final Blackhole bh) throws Exception {
+		for (final MessageTransferTask task : tasks) {
+			handler.enqueueTask(task);
+		}
+		for (final MessageTransferTask task : tasks) {
+			task.getFinishedFuture().get(60, TimeUnit.SECONDS);
+			if (task.isModeDownload()) {
+				bh.consume(task.getFcpResultGet().isSuccess());
+				task.getFile().delete();
+			} else {
+				bh.consume(task.getFcpResultPut().isSuccess());
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void messageDownload(final Blackhole bh) throws Exception {
+		final List<MessageTransferTask> tasks = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			tasks.add(new MessageTransferTask("get-" + idCounter.incrementAndGet(), getMessageKey(i), getTargetFile(),
+					FreenetPriority.HIGH, FcpHandler.MAX_MESSAGE_SIZE_07, 0));
+		}
+		runBatch(tasks, bh);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FILELIST_COUNT)
+	public void fileListDownload(final Blackhole bh) throws Exception {
+		final List<MessageTransferTask> tasks = new ArrayList<>(FILELIST_COUNT);
+		for (int i = 0; i < FILELIST_COUNT; i++) {
+			tasks.add(new MessageTransferTask("get-" + idCounter.incrementAndGet(), getFileListKey(i), getTargetFile(),
+					FreenetPriority.HIGH, FcpHandler.MAX_FILELIST_SIZE_07, 0));
+		}
+		runBatch(tasks, bh);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void fileListDownloadPooled(final Blackhole bh) throws Exception {
+		final File target = getTargetFile();
+		final FcpConnection connection = pool.acquire();
+		try {
+			final int i = (int) (idCounter.get() % FILELIST_COUNT);
+			bh.consume(connection.getKeyToFile(FcpHandler.TYPE_MESSAGE, getFileListKey(i), target,
+					FcpHandler.MAX_FILELIST_SIZE_07, 0, null).isSuccess());
+		} finally {
+			connection.close();
+			target.delete();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void messageUpload(final Blackhole bh) throws Exception {
+		final List<MessageTransferTask> tasks = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			final long id = idCounter.incrementAndGet();
+			tasks.add(new MessageTransferTask("put-" + id, "KSK@frost/message/bench/upload-" + id + ".xml", uploadFile,
+					FreenetPriority.HIGH));
+		}
+		runBatch(tasks, bh);
+	}
+}
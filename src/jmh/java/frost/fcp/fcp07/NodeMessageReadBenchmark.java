@@ -0,0 +1,125 @@
+/*
+  NodeMessageReadBenchmark.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the byte-at-a-time reader used for plain BufferedInputStreams
+ * with the buffer scanning reader of FcpInputStream, using a stream of
+ * global queue messages like the persistent connection receives them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NodeMessageReadBenchmark {
+
+	@Param({ "1000" })
+	private int messageCount;
+
+	private byte[] stream;
+
+	@Setup
+	public void setup() {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < messageCount; i++) {
+			final String id = "Frost-" + i + "-7216354912873561234";
+			if (i % 10 == 0) {
+				sb.append("PersistentGet\n")
+					.append("Identifier=").append(id).append('\n')
+					.append("URI=CHK@Jd8Bq1k3n0Ih4TqXfM~VpO9zYbWq3a1n4mZl2c8D0nE,3Rk8h7sLqP0bVfXy~uGtR1eZaKcN5mJwQ9oP2iT4lS8,AAMC--8/file-")
+					.append(i).append(".zip\n")
+					.append("Verbosity=-1\n")
+					.append("ReturnType=disk\n")
+					.append("Filename=/home/frost/downloads/file-").append(i).append(".zip\n")
+					.append("TempFilename=/home/frost/downloads/file-").append(i).append(".zip-f\n")
+					.append("PriorityClass=3\n")
+					.append("Persistence=forever\n")
+					.append("Global=true\n")
+					.append("MaxRetries=-1\n")
+					.append("Started=true\n")
+					.append("EndMessage\n");
+			} else {
+				sb.append("SimpleProgress\n")
+					.append("Identifier=").append(id).append('\n')
+					.append("Total=").append(1000 + i).append('\n')
+					.append("Required=").append(500 + i).append('\n')
+					.append("Failed=0\n")
+					.append("FatallyFailed=0\n")
+					.append("Succeeded=").append(i % 500).append('\n')
+					.append("LastProgress=1760000000000\n")
+					.append("FinalizedTotal=true\n")
+					.append("Global=true\n")
+					.append("EndMessage\n");
+			}
+		}
+		stream = sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public void bytewise(final Blackhole bh) {
+		final BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(stream));
+		consume(in, bh);
+	}
+
+	@Benchmark
+	public void fcpInputStream(final Blackhole bh) {
+		final FcpInputStream in = new FcpInputStream(new ByteArrayInputStream(stream));
+		consume(in, bh);
+	}
+
+	private static void consume(final BufferedInputStream in, final Blackhole bh) {
+		while (true) {
+			final NodeMessage nm = NodeMessage.readMessage(in);
+			if (nm == null) {
+				break;
+			}
+			// the typical access pattern of FcpPersistentQueue
+			bh.consume(nm.getStringValue("Identifier"));
+			if (nm.isMessageName("SimpleProgress")) {
+				bh.consume(nm.getIntValue("Succeeded"));
+				bh.consume(nm.getIntValue("Required"));
+				bh.consume(nm.getIntValue("Total"));
+				bh.consume(nm.getBoolValue("FinalizedTotal"));
+			} else {
+				bh.consume(nm.getStringValue("URI"));
+				bh.consume(nm.getIntValue("PriorityClass"));
+			}
+		}
+	}
+}
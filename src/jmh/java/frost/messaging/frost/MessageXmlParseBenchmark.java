@@ -0,0 +1,139 @@
+/*
+  MessageXmlParseBenchmark.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.messaging.frost;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Element;
+
+import frost.util.XMLTools;
+
+/**
+ * Compares the DOM parsing of a message file, as MessageXmlFile did it before, with the
+ * streaming MessageXmlReader, using a signed message with file and board attachments.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageXmlParseBenchmark {
+
+	private static final String[] CDATA_VALUES = { "MessageId", "InReplyTo", "From", "Subject", "Date",
+			"Time", "pubKey", "recipient", "Board", "Body", "SignatureV2", "signatureStatus" };
+
+	@Param({ "2000" })
+	private int bodyLength;
+
+	@Param({ "4" })
+	private int attachmentCount;
+
+	private byte[] data;
+
+	@Setup
+	public void setup() {
+		final StringBuilder body = new StringBuilder();
+		while (body.length() < bodyLength) {
+			body.append("----- frost@Jd8Bq1k3n0Ih4TqXfM ----- 2026.10.18 - 12:00:00GMT -----\n")
+				.append("Quoted text of the previous message, and a line of the reply.\n\n");
+		}
+
+		final StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<FrostMessage>\n");
+		cdata(sb, "MessageId", "3Rk8h7sLqP0bVfXy-uGtR1eZaKcN5mJwQ9oP2iT4lS8");
+		cdata(sb, "InReplyTo", "Jd8Bq1k3n0Ih4TqXfM-VpO9zYbWq3a1n4mZl2c8D0nE,3Rk8h7sLqP0bVfXy-uGtR1eZaKcN5mJw");
+		text(sb, "IdLinePos", "0");
+		text(sb, "IdLineLen", "68");
+		cdata(sb, "From", "frost@Jd8Bq1k3n0Ih4TqXfM-VpO9zYbWq3a1n4mZl2c8");
+		cdata(sb, "Subject", "Re: Streaming parser");
+		cdata(sb, "Date", "2026.10.18");
+		cdata(sb, "Time", "12:00:00GMT");
+		cdata(sb, "Body", body.toString());
+		cdata(sb, "Board", "frost");
+		cdata(sb, "pubKey", "CHK@Jd8Bq1k3n0Ih4TqXfM~VpO9zYbWq3a1n4mZl2c8D0nE,3Rk8h7sLqP0bVfXy~uGtR1eZaKcN5mJwQ9oP2iT4lS8");
+		cdata(sb, "SignatureV2", "dGhpcyBpcyBub3QgYSByZWFsIHNpZ25hdHVyZSwgYnV0IGl0IGhhcyB0aGUgc2l6ZSBvZiBvbmU=");
+		sb.append("<AttachmentList>\n");
+		for (int i = 0; i < attachmentCount; i++) {
+			if (i % 2 == 0) {
+				sb.append("<Attachment type=\"file\"><File>");
+				cdata(sb, "name", "file-" + i + ".zip");
+				cdata(sb, "key", "CHK@Jd8Bq1k3n0Ih4TqXfM~VpO9zYbWq3a1n4mZl2c8D0nE,3Rk8h7sLqP0bVfXy~uGtR1eZaKcN5mJwQ9oP2iT4lS8,AAMC--8");
+				text(sb, "size", Integer.toString(1000000 + i));
+				sb.append("</File></Attachment>\n");
+			} else {
+				sb.append("<Attachment type=\"board\">");
+				cdata(sb, "Name", "board-" + i);
+				cdata(sb, "pubKey", "SSK@Jd8Bq1k3n0Ih4TqXfM~VpO9zYbWq3a1n4mZl2c8D0nE,3Rk8h7sLqP0bVfXy~uGtR1eZaKcN5mJwQ9oP2iT4lS8,AQABAAE");
+				cdata(sb, "description", "A board");
+				sb.append("</Attachment>\n");
+			}
+		}
+		sb.append("</AttachmentList>\n</FrostMessage>\n");
+		data = sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void cdata(final StringBuilder sb, final String name, final String value) {
+		sb.append('<').append(name).append("><![CDATA[").append(value).append("]]></").append(name).append(">\n");
+	}
+
+	private static void text(final StringBuilder sb, final String name, final String value) {
+		sb.append('<').append(name).append('>').append(value).append("</").append(name).append(">\n");
+	}
+
+	@Benchmark
+	public void dom(final Blackhole bh) throws Exception {
+		final Element root = XMLTools.parseXmlData(data).getDocumentElement();
+		for (final String name : CDATA_VALUES) {
+			bh.consume(XMLTools.getChildElementsCDATAValue(root, name));
+		}
+		bh.consume(XMLTools.getChildElementsTextValue(root, "IdLinePos"));
+		bh.consume(XMLTools.getChildElementsTextValue(root, "IdLineLen"));
+		final List<Element> l = XMLTools.getChildElementsByTagName(root, "AttachmentList");
+		final AttachmentList<Attachment> attachments = new AttachmentList<Attachment>();
+		attachments.loadXMLElement(l.get(0));
+		bh.consume(attachments);
+	}
+
+	@Benchmark
+	public void stax(final Blackhole bh) throws Exception {
+		final MessageXmlReader reader = MessageXmlReader.read(new ByteArrayInputStream(data));
+		for (final String name : CDATA_VALUES) {
+			bh.consume(reader.getValue(name));
+		}
+		bh.consume(reader.getValue("IdLinePos"));
+		bh.consume(reader.getValue("IdLineLen"));
+		bh.consume(reader.getAttachments());
+	}
+}
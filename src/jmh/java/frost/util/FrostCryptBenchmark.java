@@ -0,0 +1,124 @@
+/*
+  FrostCryptBenchmark.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of one thread with all available threads calling the
+ * same FrostCrypt instance, like the message and file list downloads do with
+ * Core.getCrypto(). Use -t to measure other thread counts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FrostCryptBenchmark {
+
+	@Param({ "4000" })
+	private int messageLength;
+
+	private FrostCrypt crypt;
+	private String publicKey;
+	private String privateKey;
+
+	private byte[] message;
+	private String signature;
+	private byte[] encrypted;
+
+	@Setup
+	public void setup() {
+		crypt = new FrostCrypt();
+		final String[] keys = crypt.generateKeys();
+		privateKey = keys[0];
+		publicKey = keys[1];
+
+		final StringBuilder sb = new StringBuilder();
+		while (sb.length() < messageLength) {
+			sb.append("A line of a signed message body. ");
+		}
+		message = sb.toString().getBytes(StandardCharsets.UTF_8);
+		signature = crypt.detachedSign(message, privateKey);
+		encrypted = crypt.encrypt(message, publicKey);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public boolean verifySingleThread() {
+		return crypt.detachedVerify(message, publicKey, signature);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public boolean verifyAllThreads() {
+		return crypt.detachedVerify(message, publicKey, signature);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public String signSingleThread() {
+		return crypt.detachedSign(message, privateKey);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public String signAllThreads() {
+		return crypt.detachedSign(message, privateKey);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public byte[] decryptSingleThread() {
+		return crypt.decrypt(encrypted, privateKey);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public byte[] decryptAllThreads() {
+		return crypt.decrypt(encrypted, privateKey);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public String sha256SingleThread() {
+		return crypt.computeChecksumSHA256(message);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public String sha256AllThreads() {
+		return crypt.computeChecksumSHA256(message);
+	}
+}
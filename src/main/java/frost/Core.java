@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import frost.fcp.FcpHandler;
 import frost.fcp.fcp07.FcpConnection;
+import frost.fcp.fcp07.FcpMetrics;
 import frost.fcp.fcp07.NodeMessage;
 import frost.fileTransfer.FileSharingManager;
 import frost.fileTransfer.FileTransferManager;
@@ -49,10 +50,12 @@ import frost.messaging.frost.UnsentMessagesManager;
 import frost.messaging.frost.threads.FileAttachmentUploadThread;
 import frost.storage.StorageManager;
 import frost.storage.perst.AbstractFrostStorage;
+import frost.storage.perst.FileHashStorage;
 import frost.storage.perst.FrostFilesStorage;
 import frost.storage.perst.IndexSlotsStorage;
 import frost.storage.perst.SharedFilesCHKKeyStorage;
 import frost.storage.perst.TrackDownloadKeysStorage;
+import frost.storage.perst.VerifiedSignatureStorage;
 import frost.storage.perst.filelist.FileListStorage;
 import frost.storage.perst.identities.IdentitiesStorage;
 import frost.storage.perst.messagearchive.ArchiveMessageStorage;
@@ -60,6 +63,7 @@ import frost.storage.perst.messages.MessageContentStorage;
 import frost.storage.perst.messages.MessageStorage;
 import frost.util.CleanUp;
 import frost.util.FrostCrypt;
+import frost.util.JmxUtil;
 import frost.util.Mixed;
 import frost.util.gui.JDialogWithDetails;
 import frost.util.gui.MiscToolkit;
@@ -131,7 +135,7 @@ public class Core {
 
         final List<String> nodes = new ArrayList<String>();
 
-        // earlier we supported multiple nodes, so check if there is more than one node
+        // more than one node: requests are balanced over all nodes
         if( nodesUnparsed != null ) {
             final String[] _nodes = nodesUnparsed.split(",");
             for( final String element : _nodes ) {
@@ -149,16 +153,12 @@ public class Core {
         }
 
         if (nodes.size() > 1) {
-            MiscToolkit.showMessage(
-                    "Frost doesn' support multiple Freenet nodes and will use the first configured node.",
-                    JOptionPane.ERROR_MESSAGE,
-                    "Warning: Using first configured node");
-            frostSettings.setValue(Settings.FREENET_FCP_ADDRESS, nodes.get(0));
+            logger.info("Using {} Freenet nodes, the global queue is on node {}", nodes.size(), nodes.get(0));
         }
 
-        // init the factory with configured node
+        // init the factory with configured nodes
         try {
-            FcpHandler.initializeFcp(nodes.get(0));
+            FcpHandler.initializeFcp(nodes);
         } catch(final Exception ex) {
             MiscToolkit.showMessage(
                     ex.getMessage(),
@@ -412,6 +412,8 @@ public class Core {
         IdentitiesStorage.inst().initStorage();
         FileListStorage.inst().initStorage();
         TrackDownloadKeysStorage.inst().initStorage();
+        FileHashStorage.inst().initStorage();
+        VerifiedSignatureStorage.inst().initStorage();
 
         splashscreen.setText(language.getString("Splashscreen.message.2"));
         splashscreen.setProgress(40);
@@ -427,6 +429,8 @@ public class Core {
             System.exit(1);
         }
 
+        JmxUtil.registerMBean(crypto, "frost:type=FrostCrypt");
+
         getIdentitiesManager().initialize();
 
         String title = "Frost";
@@ -530,6 +534,18 @@ public class Core {
         timer.schedule(cleaner, gcMinutes * 60L * 1000L, gcMinutes * 60L * 1000L);
         cleaner = null;
 
+        // initialize the task that logs the FCP metrics
+        final long metricsSeconds = frostSettings.getInteger(Settings.FCP2_METRICS_LOG_INTERVAL);
+        if (metricsSeconds > 0) {
+            final TimerTask metricsLogger = new TimerTask() {
+                @Override
+                public void run() {
+                    FcpMetrics.getInstance().logStatistics();
+                }
+            };
+            timer.schedule(metricsLogger, metricsSeconds * 1000L, metricsSeconds * 1000L);
+        }
+
         // initialize the task that saves data
         final StorageManager saver = new StorageManager(frostSettings);
 
@@ -555,6 +571,8 @@ public class Core {
         saver.addExitSavable(IdentitiesStorage.inst());
         saver.addExitSavable(FileListStorage.inst());
         saver.addExitSavable(TrackDownloadKeysStorage.inst());
+        saver.addExitSavable(FileHashStorage.inst());
+        saver.addExitSavable(VerifiedSignatureStorage.inst());
 
         // invoke the mainframe ticker (board updates, clock, ...)
         mainframe.startTickerThread();
@@ -114,6 +114,8 @@ public class Settings implements ExitSavable {
 	public static final String PERST_PAGEPOOLSIZE_MESSAGES = "perst.pagepoolsizeKiB.messages";
 	public static final String PERST_PAGEPOOLSIZE_MESSAGECONTENTS = "perst.pagepoolsizeKiB.messagecontents";
 	public static final String PERST_PAGEPOOLSIZE_TRACKDOWNLOADKEYS = "perst.pagepoolsizeKiB.trackdownloadkeys";
+	public static final String PERST_PAGEPOOLSIZE_FILEHASHES = "perst.pagepoolsizeKiB.filehashes";
+	public static final String PERST_PAGEPOOLSIZE_VERIFIEDSIGNATURES = "perst.pagepoolsizeKiB.verifiedsignatures";
 
 	public static final String FREENET_FCP_ADDRESS = "availableNodes";
 	public static final String FCP2_USE_DDA = "fcp2.useDDA";
@@ -137,10 +139,47 @@ public class Settings implements ExitSavable {
 	// If false, we start the requests with a FCP2:MaxRetries of 1 and try them
 	// again during each board update. (default)
 	public static final String FCP2_QUICKLY_FAIL_ON_ADNF = "fcp2.quicklyFailOnAdnf"; // not in gui dialog!
+	public static final String FCP2_MESSAGE_DOWNLOAD_LOOKAHEAD = "fcp2.messageDownloadLookahead"; // not in gui dialog!
+	public static final String FCP2_MAX_CONCURRENT_REQUESTS = "fcp2.maxConcurrentRequests"; // not in gui dialog!
 
 	// If true, Frost will use early encode when uploading new messages
 	public static final String FCP2_USE_EARLY_ENCODE = "fcp2.useEarlyEncode";
 
+	// If true, the SHA-256 of direct downloads of shared files is computed while
+	// receiving and compared with the SHA of the file list entry
+	public static final String FCP2_VERIFY_SHARED_FILE_SHA = "fcp2.verifySharedFileSha"; // not in gui dialog!
+
+	// Maximum number of pooled FCP connections for gets, puts and key generation,
+	// and the seconds after that an idle connection is closed
+	public static final String FCP2_CONNECTION_POOL_SIZE = "fcp2.connectionPoolSize"; // not in gui dialog!
+	public static final String FCP2_CONNECTION_POOL_IDLE_TIMEOUT = "fcp2.connectionPoolIdleTimeout"; // not in gui dialog!
+
+	// Seconds a node is avoided after repeated failures if more than one node is configured,
+	// doubles with each further failure
+	public static final String FCP2_NODE_FAILURE_BACKOFF = "fcp2.nodeFailureBackoff"; // not in gui dialog!
+
+	// Maximum number of message requests that are sent at the same time over the
+	// shared message connection, more requests wait until one finished
+	public static final String FCP2_MESSAGE_TRANSFER_WINDOW = "fcp2.messageTransferWindow"; // not in gui dialog!
+
+	// Number of threads that process the received messages of a persistent connection,
+	// and the number of messages each thread queues before reading from the node pauses
+	public static final String FCP2_LISTENER_THREADS = "fcp2.listenerThreads"; // not in gui dialog!
+	public static final String FCP2_LISTENER_QUEUE_SIZE = "fcp2.listenerQueueSize"; // not in gui dialog!
+
+	// Seconds between two log lines with the FCP metrics, 0 disables the log line
+	public static final String FCP2_METRICS_LOG_INTERVAL = "fcp2.metricsLogInterval"; // not in gui dialog!
+
+	// Maximum number of times per second the progress of the global queue requests is passed
+	// to the upload and download tables, newer progress of a request replaces the waiting one.
+	// 0 passes every message at once
+	public static final String FCP2_PERSISTENT_UPDATE_RATE = "fcp2.persistentUpdateRate"; // not in gui dialog!
+
+	// Number of threads that transfer the data of direct uploads and downloads between Frost and the node,
+	// and the limit of all direct transfers together in KiB/s, 0 is unlimited
+	public static final String FCP2_DIRECT_TRANSFER_THREADS = "fcp2.directTransferThreads"; // not in gui dialog!
+	public static final String FCP2_DIRECT_TRANSFER_BANDWIDTH = "fcp2.directTransferBandwidth"; // not in gui dialog!
+
 	public static final String AUTO_SAVE_INTERVAL = "autoSaveInterval";
 	public static final String AUTO_SAVE_LOCAL_IDENTITIES = "autoSaveLocalIdentities";
 	public static final String FILESHARING_DISABLE = "disableFilesharing";
@@ -172,6 +211,8 @@ public class Settings implements ExitSavable {
 	public static final String UPLOAD_WAITTIME = "uploadRetriesWaitTime";
 	public static final String UPLOAD_MAX_THREADS = "uploadThreads";
 	public static final String UPLOAD_REMOVE_NOT_EXISTING_FILES = "uploadRemoveNotExistingFiles";
+	public static final String UPLOAD_CHK_GENERATION_THREADS = "uploadChkGenerationThreads"; // not in gui dialog!
+	public static final String UPLOAD_SHA_THREADS = "uploadShaThreads"; // not in gui dialog!
 
 	public static final String DOWNLOAD_MAX_THREADS = "downloadThreads";
 	public static final String DOWNLOAD_MAX_RETRIES = "downloadMaxRetries";
@@ -203,6 +244,7 @@ public class Settings implements ExitSavable {
 	public static final String MAX_MESSAGE_DISPLAY = "maxMessageDisplay";
 	public static final String MAX_MESSAGE_DOWNLOAD = "maxMessageDownload";
 	public static final String MESSAGE_UPLOAD_DISABLED = "messageUploadDisabled";
+	public static final String MESSAGE_PROCESSING_THREADS = "messageProcessingThreads"; // not in gui dialog!
 
 	public static final String SEARCH_MAX_RESULTS = "maxSearchResults";
 	public static final String SEARCH_HIDE_BAD = "hideBadFiles";
@@ -237,6 +279,7 @@ public class Settings implements ExitSavable {
 	public static final String BOARD_AUTOUPDATE_ENABLED = "automaticUpdate";
 	public static final String BOARD_AUTOUPDATE_CONCURRENT_UPDATES = "automaticUpdate.concurrentBoardUpdates";
 	public static final String BOARD_AUTOUPDATE_MIN_INTERVAL = "automaticUpdate.boardsMinimumUpdateInterval";
+	public static final String BOARD_AUTOUPDATE_MAX_INTERVAL = "automaticUpdate.boardsMaximumUpdateInterval"; // not in gui dialog!
 
 	public static final String BOARD_UPDATE_VISUALIZATION_ENABLED = "boardUpdateVisualization";
 	public static final String BOARD_UPDATE_VISUALIZATION_BGCOLOR_SELECTED = "boardUpdatingSelectedBackgroundColor";
@@ -930,13 +973,27 @@ public class Settings implements ExitSavable {
 
         defaults.put(FCP2_SET_TARGET_FILENAME_FOR_MANUAL_PUT, "true");
         defaults.put(FCP2_QUICKLY_FAIL_ON_ADNF, "false");
+        defaults.put(FCP2_MESSAGE_DOWNLOAD_LOOKAHEAD, "4");
+        defaults.put(FCP2_MAX_CONCURRENT_REQUESTS, "16");
 
         defaults.put(FCP2_USE_EARLY_ENCODE, "true");
+        defaults.put(FCP2_VERIFY_SHARED_FILE_SHA, "true");
+        defaults.put(FCP2_CONNECTION_POOL_SIZE, "32");
+        defaults.put(FCP2_CONNECTION_POOL_IDLE_TIMEOUT, "300");
+        defaults.put(FCP2_NODE_FAILURE_BACKOFF, "30");
+        defaults.put(FCP2_MESSAGE_TRANSFER_WINDOW, "200");
+        defaults.put(FCP2_LISTENER_THREADS, "4");
+        defaults.put(FCP2_LISTENER_QUEUE_SIZE, "1000");
+        defaults.put(FCP2_METRICS_LOG_INTERVAL, "300");
+        defaults.put(FCP2_PERSISTENT_UPDATE_RATE, "4");
+        defaults.put(FCP2_DIRECT_TRANSFER_THREADS, "3");
+        defaults.put(FCP2_DIRECT_TRANSFER_BANDWIDTH, "0");
 
         defaults.put(ALTERNATE_EDITOR_COMMAND, fn + "path" + fs + "to" + fs + "editor" + " %f");
         defaults.put(BOARD_AUTOUPDATE_ENABLED, "true");
         defaults.put(BOARD_AUTOUPDATE_CONCURRENT_UPDATES, "6"); // no. of concurrent updating boards in auto update
         defaults.put(BOARD_AUTOUPDATE_MIN_INTERVAL, "45"); // time in min to wait between start of updates for 1 board
+        defaults.put(BOARD_AUTOUPDATE_MAX_INTERVAL, "720"); // time in min between updates of a board without new messages
 
         defaults.put(BOARD_UPDATE_VISUALIZATION_ENABLED, "true");
         defaults.put(BOARD_UPDATE_VISUALIZATION_BGCOLOR_NOT_SELECTED, new Color(233, 233, 233)); // "type.color(233,233,233)"
@@ -1010,6 +1067,8 @@ public class Settings implements ExitSavable {
         defaults.put(AUTO_SAVE_LOCAL_IDENTITIES, "true");
 
         defaults.put(MESSAGE_UPLOAD_DISABLED, "false");
+        // 0 = one thread per core, at most 4
+        defaults.put(MESSAGE_PROCESSING_THREADS, "0");
 
         defaults.put(MESSAGE_EXPIRE_DAYS, "90");
         defaults.put(MESSAGE_EXPIRATION_MODE, "KEEP"); // KEEP or ARCHIVE or DELETE, default KEEP
@@ -1055,6 +1114,9 @@ public class Settings implements ExitSavable {
         defaults.put(UPLOAD_MAX_RETRIES, "5");
         defaults.put(UPLOAD_WAITTIME, "5");
         defaults.put(UPLOAD_REMOVE_NOT_EXISTING_FILES, "true");
+        defaults.put(UPLOAD_CHK_GENERATION_THREADS, "2");
+        // 0 = one thread per core, at most 4; use 1 if the shared files are on a rotating disk
+        defaults.put(UPLOAD_SHA_THREADS, "0");
 
         defaults.put(SHOW_THREADS, "true");
         defaults.put(HANDLE_OWN_MESSAGES_AS_NEW_DISABLED, "false");
@@ -1087,6 +1149,8 @@ public class Settings implements ExitSavable {
         defaults.put(PERST_PAGEPOOLSIZE_MESSAGES,           "6144");
         defaults.put(PERST_PAGEPOOLSIZE_MESSAGECONTENTS,    "4096");
         defaults.put(PERST_PAGEPOOLSIZE_TRACKDOWNLOADKEYS,  "1024");
+        defaults.put(PERST_PAGEPOOLSIZE_FILEHASHES,         "1024");
+        defaults.put(PERST_PAGEPOOLSIZE_VERIFIEDSIGNATURES, "1024");
 
         defaults.put(PERST_COMPACT_STORAGES, "false");
         defaults.put(PERST_EXPORT_STORAGES,  "false");
@@ -21,6 +21,8 @@ package frost.fcp;
 import java.io.File;
 import java.io.IOException;
 import java.net.ConnectException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import frost.fileTransfer.download.FrostDownloadItem;
 import frost.fileTransfer.upload.FrostUploadItem;
@@ -39,17 +41,28 @@ public abstract class FcpHandler {
         return instance;
     }
 
-    public static void initializeFcp(final String node) throws UnsupportedOperationException, Exception {
+    /**
+     * @param nodes  the configured nodes (host:port or host), the first node holds the global queue
+     */
+    public static void initializeFcp(final List<String> nodes) throws UnsupportedOperationException, Exception {
     	// Currently hardcoded to version 0.7 (The only existing version)
         instance = new FcpHandler07();
-        instance.initialize(node);
+        instance.initialize(nodes);
         FreenetKeys.initializeFor07();
     }
 
-    public abstract void initialize(String node) throws Exception;
+    public abstract void initialize(List<String> nodes) throws Exception;
 
+    /**
+     * @return the first configured node, used for the global queue of persistent requests
+     */
     public abstract NodeAddress getFreenetNode();
 
+    /**
+     * @return all configured nodes, requests are balanced over these nodes
+     */
+    public abstract List<NodeAddress> getFreenetNodes();
+
     /**
      * Invoked when the node is online.
      */
@@ -125,6 +138,57 @@ public abstract class FcpHandler {
             boolean createTempFile,
             FrostDownloadItem dlItem);
 
+    /**
+     * Starts to retrieve a file from Freenet without waiting for the result.
+     * Parameters are the same as for getFile.
+     *
+     * This implementation runs the request in the calling thread and returns a completed future,
+     * subclasses that are able to run requests asynchronously override it.
+     *
+     * @return the future of the result, the result is null on error
+     */
+    public CompletableFuture<FcpResultGet> getFileAsync(
+            final int type,
+            final String key,
+            final Long size,
+            final File target,
+            final int maxSize,
+            final int maxRetries)
+    {
+        return CompletableFuture.completedFuture(getFile(type, key, size, target, maxSize, maxRetries));
+    }
+
+    /**
+     * Retrieves a small key like a message into memory, no file is written.
+     *
+     * @param key The key to retrieve.
+     * @param maxSize  the maximum size of the data, the request fails for larger data
+     * @return null on error, or FcpResults, the data of a successful request is in FcpResultGet.getData()
+     */
+    public abstract FcpResultGet getData(
+            int type,
+            String key,
+            int maxSize,
+            int maxRetries);
+
+    /**
+     * Starts to retrieve a small key into memory without waiting for the result.
+     * Parameters are the same as for getData.
+     *
+     * This implementation runs the request in the calling thread and returns a completed future,
+     * subclasses that are able to run requests asynchronously override it.
+     *
+     * @return the future of the result, the result is null on error
+     */
+    public CompletableFuture<FcpResultGet> getDataAsync(
+            final int type,
+            final String key,
+            final int maxSize,
+            final int maxRetries)
+    {
+        return CompletableFuture.completedFuture(getData(type, key, maxSize, maxRetries));
+    }
+
     /**
      * Inserts a file into freenet.
      * The maximum file size for a KSK/SSK direct insert is 32kb! (metadata + data!!!)
@@ -155,6 +219,22 @@ public abstract class FcpHandler {
             boolean doMime,
             FrostUploadItem ulItem);
 
+    /**
+     * Starts to insert a file into freenet without waiting for the result.
+     * Parameters are the same as for putFile.
+     *
+     * This implementation runs the request in the calling thread and returns a completed future,
+     * subclasses that are able to run requests asynchronously override it.
+     */
+    public CompletableFuture<FcpResultPut> putFileAsync(
+            final int type,
+            final String uri,
+            final File file,
+            final boolean doMime)
+    {
+        return CompletableFuture.completedFuture(putFile(type, uri, file, doMime));
+    }
+
     public abstract String generateCHK(File file) throws Throwable;
 
     public abstract BoardKeyPair generateBoardKeyPair() throws IOException, ConnectException;
@@ -21,6 +21,12 @@ package frost.fcp;
 import java.io.File;
 import java.io.IOException;
 import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +36,8 @@ import frost.Settings;
 import frost.fcp.fcp07.FcpConnection;
 import frost.fcp.fcp07.FcpFactory;
 import frost.fcp.fcp07.FcpInsert;
+import frost.fcp.fcp07.FcpMetrics;
+import frost.fcp.fcp07.FcpNodeSelector;
 import frost.fcp.fcp07.FcpRequest;
 import frost.fcp.fcp07.FcpSocket;
 import frost.fcp.fcp07.messagetransfer.MessageTransferHandler;
@@ -42,11 +50,13 @@ public class FcpHandler07 extends FcpHandler {
 
 	private static final Logger logger = LoggerFactory.getLogger(FcpHandler07.class);
 
-    private MessageTransferHandler msgTransferConnection = null;
+    // one shared message connection per node
+    private FcpNodeSelector<MessageTransferHandler> msgTransferConnections = null;
 
     @Override
-    public void initialize(final String node) throws Exception {
-        FcpFactory.init(node); // init the factory with configured nodes
+    public void initialize(final List<String> nodes) throws Exception {
+        FcpFactory.init(nodes); // init the factory with configured nodes
+        FcpMetrics.getInstance().register();
     }
 
     /**
@@ -55,11 +65,19 @@ public class FcpHandler07 extends FcpHandler {
     @Override
     public void goneOnline() {
         if( Core.frostSettings.getBoolean(Settings.FCP2_USE_ONE_CONNECTION_FOR_MESSAGES) ) {
-            try {
-                msgTransferConnection = new MessageTransferHandler();
-                msgTransferConnection.start();
-            } catch (final Throwable e) {
-                logger.error("Initialization of MessageTransferConnection failed", e);
+            final List<MessageTransferHandler> handlers = new ArrayList<MessageTransferHandler>();
+            for( final NodeAddress na : FcpFactory.getFreenetNodes() ) {
+                try {
+                    final MessageTransferHandler handler = new MessageTransferHandler(na, FcpFactory.getNodeHealth(na));
+                    handler.start();
+                    handlers.add(handler);
+                    FcpMetrics.getInstance().addInFlightCounter(handler::getActiveTaskCount);
+                } catch (final Throwable e) {
+                    logger.error("Initialization of MessageTransferConnection to {}:{} failed", na.getHostName(), na.getPort(), e);
+                }
+            }
+            if( !handlers.isEmpty() ) {
+                msgTransferConnections = new FcpNodeSelector<MessageTransferHandler>(handlers, MessageTransferHandler::getHealth);
             }
         }
     }
@@ -69,6 +87,52 @@ public class FcpHandler07 extends FcpHandler {
         return FcpFactory.getFreenetNode();
     }
 
+    @Override
+    public List<NodeAddress> getFreenetNodes() {
+        return FcpFactory.getFreenetNodes();
+    }
+
+    /**
+     * Sends the task to the message connection of the least loaded healthy node. If the
+     * connection is lost before the node answered, the task is repeated on another node.
+     *
+     * @param newTask  creates the task, each try needs a new task
+     * @param tried    the connections that were already tried
+     */
+    private CompletableFuture<MessageTransferTask> runMessageTask(
+            final Supplier<MessageTransferTask> newTask,
+            final Set<MessageTransferHandler> tried)
+    {
+        final Set<MessageTransferHandler> exclude = new HashSet<MessageTransferHandler>(tried);
+        for( final MessageTransferHandler handler : msgTransferConnections.getNodes() ) {
+            if( !handler.isConnected() ) {
+                exclude.add(handler);
+            }
+        }
+        final MessageTransferHandler handler = msgTransferConnections.select(exclude);
+        final MessageTransferTask task = newTask.get();
+        if( handler == null ) {
+            logger.error("No connected node for message transfer");
+            task.setFailed();
+            task.setFinished();
+            return task.getFinishedFuture();
+        }
+
+        // enqueue task, it is sent when the window has room
+        handler.enqueueTask(task);
+
+        return task.getFinishedFuture().thenCompose(finishedTask -> {
+            if( !finishedTask.isFailed() || tried.size() + 1 >= msgTransferConnections.getNodes().size() ) {
+                return CompletableFuture.completedFuture(finishedTask);
+            }
+            logger.warn("Message transfer to {}:{} failed, trying next node", handler.getNodeAddress().getHostName(),
+                    handler.getNodeAddress().getPort());
+            final Set<MessageTransferHandler> nextTried = new HashSet<MessageTransferHandler>(tried);
+            nextTried.add(handler);
+            return runMessageTask(newTask, nextTried);
+        });
+    }
+
     @Override
     public FcpResultGet getFile(
             final int type,
@@ -80,35 +144,110 @@ public class FcpHandler07 extends FcpHandler {
             final boolean createTempFile,
             final FrostDownloadItem dlItem)
     {
+        if( type == FcpHandler.TYPE_MESSAGE && msgTransferConnections != null ) {
+            // use the shared socket, wait for the task to finish
+            return getFileAsync(type, key, size, targetFile, maxSize, maxRetries).join();
+        }
+
         // unused by 07: htl, doRedirect, fastDownload,
         key = FcpConnection.stripSlashes(key);
         final int cnt = count++;
         final long l = System.currentTimeMillis();
-        final FcpResultGet result;
-        if( type == FcpHandler.TYPE_MESSAGE && msgTransferConnection != null ) {
-            // use the shared socket
-            logger.debug("GET_START(S)({}): {}", cnt, key);
-            final String id = "get-" + FcpSocket.getNextFcpId();
-            final FreenetPriority prio = Core.frostSettings.getPriority(Settings.FCP2_DEFAULT_PRIO_MESSAGE_DOWNLOAD);
-            final MessageTransferTask task = new MessageTransferTask(id, key, targetFile, prio, maxSize, maxRetries);
-
-            // enqueue task
-            msgTransferConnection.enqueueTask(task);
-            // wait for task to finish
-            task.waitForFinished();
-
-            result = task.getFcpResultGet();
-
-            logger.debug("GET_END(S)({}): {}, duration = {}", cnt, key, System.currentTimeMillis() - l);
-        } else {
-            // use a new socket
-            logger.debug("GET_START(N)({}): {}", cnt, key);
-            result = FcpRequest.getFile(type, key, size, targetFile, maxSize, maxRetries, createTempFile, dlItem);
-            logger.debug("GET_END(N)({}): {}, duration = {}", cnt, key, System.currentTimeMillis() - l);
+        // use a new socket
+        logger.debug("GET_START(N)({}): {}", cnt, key);
+        final FcpResultGet result = FcpRequest.getFile(type, key, size, targetFile, maxSize, maxRetries, createTempFile, dlItem);
+        logger.debug("GET_END(N)({}): {}, duration = {}", cnt, key, System.currentTimeMillis() - l);
+        return result;
+    }
+
+    /**
+     * Messages are sent over the shared socket if it is enabled, the future completes
+     * in the receive thread of the shared socket.
+     */
+    @Override
+    public CompletableFuture<FcpResultGet> getFileAsync(
+            final int type,
+            String key,
+            final Long size,
+            final File targetFile,
+            final int maxSize,
+            final int maxRetries)
+    {
+        if( type != FcpHandler.TYPE_MESSAGE || msgTransferConnections == null ) {
+            return super.getFileAsync(type, key, size, targetFile, maxSize, maxRetries);
+        }
+
+        key = FcpConnection.stripSlashes(key);
+        final int cnt = count++;
+        final long l = System.currentTimeMillis();
+        final String logKey = key;
+
+        // use the shared socket
+        logger.debug("GET_START(S)({}): {}", cnt, key);
+        final FreenetPriority prio = Core.frostSettings.getPriority(Settings.FCP2_DEFAULT_PRIO_MESSAGE_DOWNLOAD);
+        final Supplier<MessageTransferTask> newTask = () -> new MessageTransferTask(
+                "get-" + FcpSocket.getNextFcpId(), logKey, targetFile, prio, maxSize, maxRetries);
+
+        return runMessageTask(newTask, new HashSet<MessageTransferHandler>()).thenApply(finishedTask -> {
+            logger.debug("GET_END(S)({}): {}, duration = {}", cnt, logKey, System.currentTimeMillis() - l);
+            return finishedTask.getFcpResultGet();
+        });
+    }
+
+    @Override
+    public FcpResultGet getData(
+            final int type,
+            String key,
+            final int maxSize,
+            final int maxRetries)
+    {
+        if( type == FcpHandler.TYPE_MESSAGE && msgTransferConnections != null ) {
+            // use the shared socket, wait for the task to finish
+            return getDataAsync(type, key, maxSize, maxRetries).join();
         }
+
+        key = FcpConnection.stripSlashes(key);
+        final int cnt = count++;
+        final long l = System.currentTimeMillis();
+        // use a new socket
+        logger.debug("GET_START(N)({}): {}", cnt, key);
+        final FcpResultGet result = FcpRequest.getData(type, key, maxSize, maxRetries);
+        logger.debug("GET_END(N)({}): {}, duration = {}", cnt, key, System.currentTimeMillis() - l);
         return result;
     }
 
+    /**
+     * Messages are sent over the shared socket if it is enabled, the data is received
+     * into the result in the receive thread of the shared socket.
+     */
+    @Override
+    public CompletableFuture<FcpResultGet> getDataAsync(
+            final int type,
+            String key,
+            final int maxSize,
+            final int maxRetries)
+    {
+        if( type != FcpHandler.TYPE_MESSAGE || msgTransferConnections == null ) {
+            return super.getDataAsync(type, key, maxSize, maxRetries);
+        }
+
+        key = FcpConnection.stripSlashes(key);
+        final int cnt = count++;
+        final long l = System.currentTimeMillis();
+        final String logKey = key;
+
+        // use the shared socket
+        logger.debug("GET_START(S)({}): {}", cnt, key);
+        final FreenetPriority prio = Core.frostSettings.getPriority(Settings.FCP2_DEFAULT_PRIO_MESSAGE_DOWNLOAD);
+        final Supplier<MessageTransferTask> newTask = () -> new MessageTransferTask(
+                "get-" + FcpSocket.getNextFcpId(), logKey, null, prio, maxSize, maxRetries);
+
+        return runMessageTask(newTask, new HashSet<MessageTransferHandler>()).thenApply(finishedTask -> {
+            logger.debug("GET_END(S)({}): {}, duration = {}", cnt, logKey, System.currentTimeMillis() - l);
+            return finishedTask.getFcpResultGet();
+        });
+    }
+
     int count = 0;
 
     @Override
@@ -119,30 +258,17 @@ public class FcpHandler07 extends FcpHandler {
             final boolean doMime,
             final FrostUploadItem ulItem)
     {
+        if( type == FcpHandler.TYPE_MESSAGE && msgTransferConnections != null ) {
+            // use the shared socket, wait for the task to finish
+            return putFileAsync(type, key, sourceFile, doMime).join();
+        }
+
         key = FcpConnection.stripSlashes(key);
         final int cnt = count++;
         final long l = System.currentTimeMillis();
-        final FcpResultPut result;
-        if( type == FcpHandler.TYPE_MESSAGE && msgTransferConnection != null ) {
-            // use the shared socket
-            logger.debug("PUT_START(S)({}): {}", cnt, key);
-            final String id = "get-" + FcpSocket.getNextFcpId();
-            final FreenetPriority prio = Core.frostSettings.getPriority(Settings.FCP2_DEFAULT_PRIO_MESSAGE_UPLOAD);
-            final MessageTransferTask task = new MessageTransferTask(id, key, sourceFile, prio);
-
-            // enqueue task
-            msgTransferConnection.enqueueTask(task);
-            // wait for task to finish
-            task.waitForFinished();
-
-            result = task.getFcpResultPut();
-
-            logger.debug("PUT_END(S)({}): {}, duration = {}", cnt, key, System.currentTimeMillis() - l);
-        } else {
-            logger.debug("PUT_START(N)({}): {}", cnt, key);
-            result = FcpInsert.putFile(type, key, sourceFile, doMime, ulItem);
-            logger.debug("PUT_END(N)({}): {}, duration = {}", cnt, key, System.currentTimeMillis() - l);
-        }
+        logger.debug("PUT_START(N)({}): {}", cnt, key);
+        final FcpResultPut result = FcpInsert.putFile(type, key, sourceFile, doMime, ulItem);
+        logger.debug("PUT_END(N)({}): {}, duration = {}", cnt, key, System.currentTimeMillis() - l);
 
         if( result == null ) {
             return FcpResultPut.ERROR_RESULT;
@@ -151,6 +277,39 @@ public class FcpHandler07 extends FcpHandler {
         }
     }
 
+    /**
+     * Messages are sent over the shared socket if it is enabled, the future completes
+     * in the receive thread of the shared socket.
+     */
+    @Override
+    public CompletableFuture<FcpResultPut> putFileAsync(
+            final int type,
+            String key,
+            final File sourceFile,
+            final boolean doMime)
+    {
+        if( type != FcpHandler.TYPE_MESSAGE || msgTransferConnections == null ) {
+            return super.putFileAsync(type, key, sourceFile, doMime);
+        }
+
+        key = FcpConnection.stripSlashes(key);
+        final int cnt = count++;
+        final long l = System.currentTimeMillis();
+        final String logKey = key;
+
+        // use the shared socket
+        logger.debug("PUT_START(S)({}): {}", cnt, key);
+        final FreenetPriority prio = Core.frostSettings.getPriority(Settings.FCP2_DEFAULT_PRIO_MESSAGE_UPLOAD);
+        final Supplier<MessageTransferTask> newTask = () -> new MessageTransferTask(
+                "put-" + FcpSocket.getNextFcpId(), logKey, sourceFile, prio);
+
+        return runMessageTask(newTask, new HashSet<MessageTransferHandler>()).thenApply(finishedTask -> {
+            logger.debug("PUT_END(S)({}): {}, duration = {}", cnt, logKey, System.currentTimeMillis() - l);
+            final FcpResultPut result = finishedTask.getFcpResultPut();
+            return (result == null) ? FcpResultPut.ERROR_RESULT : result;
+        });
+    }
+
     @Override
     public String generateCHK(final File file) throws IOException, ConnectException {
 
@@ -158,9 +317,11 @@ public class FcpHandler07 extends FcpHandler {
         if (connection == null) {
             return null;
         }
-        final String chkkey = connection.generateCHK(file);
-        connection.close();
-        return chkkey;
+        try {
+            return connection.generateCHK(file);
+        } finally {
+            connection.close();
+        }
     }
 
     @Override
@@ -171,8 +332,12 @@ public class FcpHandler07 extends FcpHandler {
             return null;
         }
 
-        final String[] keyPair = connection.getKeyPair();
-        connection.close();
+        final String[] keyPair;
+        try {
+            keyPair = connection.getKeyPair();
+        } finally {
+            connection.close();
+        }
         if( keyPair == null ) {
             return null;
         }
@@ -30,6 +30,7 @@ public class FcpResultGet {
     private String codeDescription = null;
     private String redirectURI = null;
     private boolean isFatal = false;
+    private byte[] data = null;
 
     public static FcpResultGet RESULT_FAILED = new FcpResultGet(false);
 
@@ -37,6 +38,14 @@ public class FcpResultGet {
         this.isSuccess = isSuccess;
     }
 
+    /**
+     * Result of a successful request whose data was received into memory.
+     */
+    public FcpResultGet(final byte[] data) {
+        this.isSuccess = true;
+        this.data = data;
+    }
+
     public FcpResultGet(final boolean isSuccess, final int rc, final String cd, final boolean fatal, final String redirectUri) {
         this.isSuccess = isSuccess;
         returnCode = rc;
@@ -64,4 +73,11 @@ public class FcpResultGet {
     public String getRedirectURI() {
         return redirectURI;
     }
+
+    /**
+     * @return the received data if the key was requested into memory, else null
+     */
+    public byte[] getData() {
+        return data;
+    }
 }
@@ -0,0 +1,300 @@
+/*
+  NodeRequestScheduler.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import frost.Core;
+import frost.Settings;
+import frost.util.JmxUtil;
+import frost.util.LatencyHistogram;
+
+/**
+ * Shared budget of the requests for messages, file pointers, file requests and file lists.
+ *
+ * At most maxConcurrentRequests of these requests run at once, the others wait in one queue
+ * per RequestClass. A free slot goes to the first class with waiting requests, unless a
+ * request waited longer than MAX_WAIT_MILLIS, then the request that waits longest goes
+ * first. Within a class the owners (e.g. boards) take turns.
+ *
+ * File downloads of the download table are not counted, they have their own thread limit.
+ */
+public class NodeRequestScheduler implements NodeRequestSchedulerMBean {
+
+	/**
+	 * In the order of their priority, highest first.
+	 */
+	public enum RequestClass {
+		MESSAGE_TODAY,
+		MESSAGE_UPLOAD,
+		FILE_REQUEST,
+		FILE_POINTER,
+		MESSAGE_BACKLOAD,
+		FILE_LIST
+	}
+
+	// a request that waited this long starts before requests of higher classes
+	private static final long MAX_WAIT_MILLIS = 60L * 1000L;
+
+	private static NodeRequestScheduler instance = null;
+
+	private static class Ticket {
+		final RequestClass requestClass;
+		final String owner;
+		final long queuedMillis = System.currentTimeMillis();
+		final CompletableFuture<Void> granted = new CompletableFuture<Void>();
+
+		Ticket(final RequestClass requestClass, final String owner) {
+			this.requestClass = requestClass;
+			this.owner = owner;
+		}
+	}
+
+	// for each class: owner to its waiting requests, the next owner first
+	private final List<LinkedHashMap<String, ArrayDeque<Ticket>>> queues =
+			new ArrayList<LinkedHashMap<String, ArrayDeque<Ticket>>>();
+	private final int[] queuedCounts = new int[RequestClass.values().length];
+	private final long[] startedCounts = new long[RequestClass.values().length];
+	private final LatencyHistogram[] waitLatencies = new LatencyHistogram[RequestClass.values().length];
+
+	private final long maxWaitMillis;
+	private int maxConcurrentRequests;
+	private int runningRequests = 0;
+	private int queuedRequests = 0;
+
+	// starts the granted async requests, the calling thread may not block
+	private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+		final Thread t = new Thread(r, "NodeRequestScheduler");
+		t.setDaemon(true);
+		return t;
+	});
+
+	public static synchronized NodeRequestScheduler inst() {
+		if (instance == null) {
+			instance = new NodeRequestScheduler(Core.frostSettings.getInteger(Settings.FCP2_MAX_CONCURRENT_REQUESTS));
+			JmxUtil.registerMBean(instance, "frost:type=NodeRequests");
+		}
+		return instance;
+	}
+
+	public NodeRequestScheduler(final int maxConcurrentRequests) {
+		this(maxConcurrentRequests, MAX_WAIT_MILLIS);
+	}
+
+	NodeRequestScheduler(final int maxConcurrentRequests, final long maxWaitMillis) {
+		this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+		this.maxWaitMillis = maxWaitMillis;
+		for (int i = 0; i < RequestClass.values().length; i++) {
+			queues.add(new LinkedHashMap<String, ArrayDeque<Ticket>>());
+			waitLatencies[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Runs the request in the calling thread when it is its turn.
+	 *
+	 * @return the result of the request, or null if the thread was interrupted while it waited
+	 */
+	public <T> T run(final RequestClass requestClass, final String owner, final Supplier<T> request) {
+		final Ticket ticket = enqueue(requestClass, owner);
+		try {
+			ticket.granted.get();
+		} catch (final InterruptedException e) {
+			withdraw(ticket);
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (final ExecutionException e) {
+			// never completed exceptionally
+		}
+		try {
+			return request.get();
+		} finally {
+			release(ticket);
+		}
+	}
+
+	/**
+	 * Starts the request when it is its turn, the slot is free again when the returned future completes.
+	 *
+	 * Cancelling the returned future withdraws the request if it was not started yet. A request
+	 * that was started keeps its slot until it is finished, its result is dropped.
+	 */
+	public <T> CompletableFuture<T> submit(final RequestClass requestClass, final String owner,
+			final Supplier<CompletableFuture<T>> request) {
+		final Ticket ticket = enqueue(requestClass, owner);
+		final CompletableFuture<T> started = ticket.granted.thenComposeAsync(v -> request.get(), executor);
+		// the release must not depend on the returned future, a cancelled stage skips its actions
+		started.whenComplete((r, t) -> release(ticket));
+		final CompletableFuture<T> result = started.thenApply(r -> r);
+		result.whenComplete((r, t) -> {
+			if (t instanceof CancellationException) {
+				removeQueued(ticket);
+			}
+		});
+		return result;
+	}
+
+	private synchronized Ticket enqueue(final RequestClass requestClass, final String owner) {
+		final Ticket ticket = new Ticket(requestClass, (owner != null) ? owner : "");
+		final Map<String, ArrayDeque<Ticket>> queue = queues.get(requestClass.ordinal());
+		ArrayDeque<Ticket> ownerQueue = queue.get(ticket.owner);
+		if (ownerQueue == null) {
+			ownerQueue = new ArrayDeque<Ticket>();
+			queue.put(ticket.owner, ownerQueue);
+		}
+		ownerQueue.add(ticket);
+		queuedCounts[requestClass.ordinal()]++;
+		queuedRequests++;
+		dispatch();
+		return ticket;
+	}
+
+	private synchronized void release(final Ticket ticket) {
+		runningRequests--;
+		dispatch();
+	}
+
+	/**
+	 * Removes a request that was not started, or releases its slot if it was started meanwhile.
+	 */
+	private synchronized void withdraw(final Ticket ticket) {
+		if (!removeQueued(ticket)) {
+			release(ticket);
+		}
+	}
+
+	/**
+	 * Removes a request that was not started.
+	 *
+	 * @return false if the request was started already
+	 */
+	private synchronized boolean removeQueued(final Ticket ticket) {
+		if (ticket.granted.isDone()) {
+			return false;
+		}
+		final Map<String, ArrayDeque<Ticket>> queue = queues.get(ticket.requestClass.ordinal());
+		final ArrayDeque<Ticket> ownerQueue = queue.get(ticket.owner);
+		if (ownerQueue != null && ownerQueue.remove(ticket)) {
+			if (ownerQueue.isEmpty()) {
+				queue.remove(ticket.owner);
+			}
+			queuedCounts[ticket.requestClass.ordinal()]--;
+			queuedRequests--;
+		}
+		return true;
+	}
+
+	private void dispatch() {
+		while (runningRequests < maxConcurrentRequests && queuedRequests > 0) {
+			final Ticket ticket = pollNext();
+			queuedCounts[ticket.requestClass.ordinal()]--;
+			queuedRequests--;
+			startedCounts[ticket.requestClass.ordinal()]++;
+			runningRequests++;
+			waitLatencies[ticket.requestClass.ordinal()].record(System.currentTimeMillis() - ticket.queuedMillis, true);
+			// only async actions depend on the ticket, so this is safe under the lock
+			ticket.granted.complete(null);
+		}
+	}
+
+	private Ticket pollNext() {
+		// the request that waits longest, each owner queue is in arrival order
+		Ticket oldest = null;
+		for (final Map<String, ArrayDeque<Ticket>> queue : queues) {
+			for (final ArrayDeque<Ticket> ownerQueue : queue.values()) {
+				final Ticket head = ownerQueue.peekFirst();
+				if (oldest == null || head.queuedMillis < oldest.queuedMillis) {
+					oldest = head;
+				}
+			}
+		}
+		if (System.currentTimeMillis() - oldest.queuedMillis > maxWaitMillis) {
+			return pollOwner(queues.get(oldest.requestClass.ordinal()), oldest.owner);
+		}
+		for (final LinkedHashMap<String, ArrayDeque<Ticket>> queue : queues) {
+			final Iterator<String> i = queue.keySet().iterator();
+			if (i.hasNext()) {
+				return pollOwner(queue, i.next());
+			}
+		}
+		return null; // not reached, queuedRequests > 0
+	}
+
+	/**
+	 * Takes the next request of the owner and moves the owner to the end of the turn.
+	 */
+	private static Ticket pollOwner(final LinkedHashMap<String, ArrayDeque<Ticket>> queue, final String owner) {
+		final ArrayDeque<Ticket> ownerQueue = queue.remove(owner);
+		final Ticket ticket = ownerQueue.pollFirst();
+		if (!ownerQueue.isEmpty()) {
+			queue.put(owner, ownerQueue);
+		}
+		return ticket;
+	}
+
+////////////////////////////////////////////////////////////////////////////////////////////////
+//  NodeRequestSchedulerMBean interface ////////////////////////////////////////////////////////
+////////////////////////////////////////////////////////////////////////////////////////////////
+
+	public synchronized int getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+
+	public synchronized void setMaxConcurrentRequests(final int max) {
+		maxConcurrentRequests = Math.max(1, max);
+		dispatch();
+	}
+
+	public synchronized int getRunningRequests() {
+		return runningRequests;
+	}
+
+	public synchronized int getQueuedRequests() {
+		return queuedRequests;
+	}
+
+	public synchronized long getStartedRequests() {
+		long sum = 0;
+		for (final long c : startedCounts) {
+			sum += c;
+		}
+		return sum;
+	}
+
+	public synchronized String[] getQueueDepths() {
+		final RequestClass[] classes = RequestClass.values();
+		final String[] result = new String[classes.length];
+		for (int i = 0; i < classes.length; i++) {
+			result[i] = classes[i] + " queued=" + queuedCounts[i] + " owners=" + queues.get(i).size()
+					+ " started=" + startedCounts[i] + " wait: " + waitLatencies[i];
+		}
+		return result;
+	}
+}
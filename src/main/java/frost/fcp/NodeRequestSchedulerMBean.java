@@ -0,0 +1,40 @@
+/*
+  NodeRequestSchedulerMBean.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp;
+
+/**
+ * JMX view of the requests for messages and small files, registered as frost:type=NodeRequests.
+ */
+public interface NodeRequestSchedulerMBean {
+
+	public int getMaxConcurrentRequests();
+
+	public void setMaxConcurrentRequests(int max);
+
+	public int getRunningRequests();
+
+	public int getQueuedRequests();
+
+	public long getStartedRequests();
+
+	/**
+	 * @return one line per request class with its queue depth and wait times
+	 */
+	public String[] getQueueDepths();
+}
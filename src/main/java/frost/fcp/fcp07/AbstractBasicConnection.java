@@ -18,9 +18,7 @@
 */
 package frost.fcp.fcp07;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.util.List;
@@ -60,6 +58,7 @@ public abstract class AbstractBasicConnection {
      * Writes a message to the socket. Ensures that only 1 thread writes at any time (writeSocketLock).
      * Appends EndMessage to the specified message lines.
      * @param message     the message to send
+     * @return true if an error occurred
      */
     public boolean sendMessage(final List<String> message) {
 
@@ -80,9 +79,40 @@ public abstract class AbstractBasicConnection {
         }
     }
 
+    /**
+     * Writes many messages to the socket and flushes once, the messages are sent with
+     * a few large writes instead of one write per message.
+     * Ensures that only 1 thread writes at any time (writeSocketLock).
+     * Appends EndMessage to each message.
+     * @param messages    the messages to send
+     * @return true if an error occurred
+     */
+    public boolean sendMessages(final List<List<String>> messages) {
+
+        writeSocketLock.lock();
+        try {
+            logger.debug("### SEND >>>>>>> (FcpMultiRequestConnection.sendMessages) {} messages", messages.size());
+            for( final List<String> message : messages ) {
+                for( final String msgLine : message ) {
+                    fcpSocket.getFcpOut().println(msgLine);
+                    logger.debug("{}", msgLine);
+                }
+                fcpSocket.getFcpOut().println("EndMessage");
+                logger.debug("*EndMessage*");
+            }
+            final boolean isError = fcpSocket.getFcpOut().checkError();
+            logger.debug("### SEND <<<<<<< isError = {}", isError);
+            return isError;
+        } finally {
+            writeSocketLock.unlock();
+        }
+    }
+
 	/**
 	 * Writes a message together with data from the specified source file to the
 	 * socket. Ensures that only 1 thread writes at any time (writeSocketLock).
+	 * The file data is transferred channel to channel without copying it through
+	 * the heap, see FcpSocket.sendFile().
 	 * 
 	 * @param message    the message to send
 	 * @param sourceFile file containing the data to be send
@@ -96,23 +126,15 @@ public abstract class AbstractBasicConnection {
 				logger.debug("{}", msgLine);
 			}
 
-			fcpSocket.getFcpOut().println("DataLength=" + Long.toString(sourceFile.length()));
+			final long dataLength = sourceFile.length();
+			fcpSocket.getFcpOut().println("DataLength=" + Long.toString(dataLength));
 			fcpSocket.getFcpOut().println("Data");
 			fcpSocket.getFcpOut().flush();
 
 			// send file
-			try (BufferedInputStream fileInput = new BufferedInputStream(new FileInputStream(sourceFile));) {
-				while (true) {
-					final int d = fileInput.read();
-					if (d < 0) {
-						break; // EOF
-					}
-					fcpSocket.getFcpRawOut().write(d);
-				}
-			}
-			fcpSocket.getFcpRawOut().flush();
+			final FcpTransferStatistics stats = fcpSocket.sendFile(sourceFile, dataLength);
 
-			logger.debug("### SEND_DATA <<<<<<<");
+			logger.debug("### SEND_DATA <<<<<<< {}", stats);
 			return false; // no error
 		} catch (final Throwable t) {
 			logger.error("Error sending file to socket", t);
@@ -140,13 +162,8 @@ public abstract class AbstractBasicConnection {
             fcpSocket.getFcpOut().println("DataLength="+Integer.toString(data.length));
             fcpSocket.getFcpOut().println("Data");
 
-            fcpSocket.getFcpOut().flush();
-
             // send data
-            for (final byte b : data) {
-                fcpSocket.getFcpRawOut().write(b);
-            }
-            fcpSocket.getFcpRawOut().flush();
+            fcpSocket.sendData(data);
 
             logger.debug("### SEND_DATA <<<<<<<");
             return false; // no error
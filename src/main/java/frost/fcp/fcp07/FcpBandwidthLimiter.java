@@ -0,0 +1,88 @@
+/*
+  FcpBandwidthLimiter.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket that limits the payload bytes per second of all transfers that share it.
+ *
+ * The bucket holds at most one second of tokens. A transfer takes the tokens for a chunk
+ * before it is sent or after it was received, if the bucket runs empty the transfer sleeps
+ * until the tokens it took are paid back. Concurrent transfers share the rate.
+ */
+public class FcpBandwidthLimiter {
+
+	private static final int MIN_CHUNK_SIZE = 16 * 1024;
+
+	private long bytesPerSecond;
+	private double tokens;
+	private long lastRefillNanos;
+
+	/**
+	 * @param bytesPerSecond  the rate, 0 or less disables the limit
+	 */
+	public FcpBandwidthLimiter(final long bytesPerSecond) {
+		setBytesPerSecond(bytesPerSecond);
+	}
+
+	public synchronized void setBytesPerSecond(final long newBytesPerSecond) {
+		bytesPerSecond = Math.max(0, newBytesPerSecond);
+		tokens = bytesPerSecond;
+		lastRefillNanos = System.nanoTime();
+	}
+
+	public synchronized long getBytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+	public synchronized boolean isLimited() {
+		return bytesPerSecond > 0;
+	}
+
+	/**
+	 * @return the chunk size for a transfer, about 1/8 of the rate so the transfers are smooth
+	 */
+	public synchronized int getChunkSize(final int maxChunkSize) {
+		if (bytesPerSecond <= 0) {
+			return maxChunkSize;
+		}
+		return (int) Math.min(maxChunkSize, Math.max(MIN_CHUNK_SIZE, bytesPerSecond / 8));
+	}
+
+	/**
+	 * Takes the tokens for the bytes, waits if the bucket is in debt.
+	 */
+	public void acquire(final long bytes) throws InterruptedException {
+		final long waitNanos;
+		synchronized (this) {
+			if (bytesPerSecond <= 0) {
+				return;
+			}
+			final long now = System.nanoTime();
+			tokens = Math.min(bytesPerSecond, tokens + (now - lastRefillNanos) * bytesPerSecond / 1e9);
+			lastRefillNanos = now;
+			tokens -= bytes;
+			waitNanos = (tokens < 0) ? (long) (-tokens * 1e9 / bytesPerSecond) : 0;
+		}
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+}
@@ -18,11 +18,7 @@
 */
 package frost.fcp.fcp07;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.net.ConnectException;
@@ -54,6 +50,14 @@ public class FcpConnection {
 
     private final FcpSocket fcpSocket;
 
+    // the pool this connection is returned to on close(), or null
+    private final FcpConnectionPool pool;
+
+    // true while a request was sent and its final answer was not yet received
+    private boolean requestInProgress = false;
+    // true if the node closed the connection while we waited for an answer
+    private boolean connectionLost = false;
+
     /**
      * Create a connection to a host using FCP
      *
@@ -63,14 +67,50 @@ public class FcpConnection {
      * @exception IOException if there is a problem with the connection to the FCP host.
      */
     public FcpConnection(final NodeAddress na) throws UnknownHostException, IOException {
+        this(na, null);
+    }
+
+    FcpConnection(final NodeAddress na, final FcpConnectionPool pool) throws UnknownHostException, IOException {
         fcpSocket = new FcpSocket(na);
+        this.pool = pool;
     }
 
+    /**
+     * Closes the connection, or returns it to the pool it was taken from.
+     * Must be called exactly once by the user of the connection.
+     */
     public void close() {
+        if( pool != null ) {
+            pool.release(this);
+        } else {
+            fcpSocket.close();
+        }
+    }
+
+    void closeSocket() {
         fcpSocket.close();
     }
 
+    /**
+     * A connection can be used for another request if the last request was completed
+     * and the socket is still usable.
+     */
+    boolean isReusable() {
+        return !requestInProgress && !connectionLost && fcpSocket.isUsable();
+    }
+
+    /**
+     * The last request failed because of the node or the connection: it was aborted by an
+     * IOException, or the connection was closed before the final answer was received.
+     * A connection that is only not reusable, e.g. because of unexpected pending data,
+     * did not fail.
+     */
+    boolean isRequestFailed() {
+        return requestInProgress || connectionLost;
+    }
+
     protected void sendMessage(final List<String> msg) {
+        requestInProgress = true;
         logger.debug("### SEND >>>>>>>>> (FcpConnection)");
         for (final String msgLine : msg) {
             logger.debug("{}", msgLine);
@@ -81,11 +121,33 @@ public class FcpConnection {
         logger.debug("### SEND <<<<<<<<< (FcpConnection)");
     }
 
+    /**
+     * Reads the next message for the request with the given identifier. Late messages of
+     * a previous request on this connection are skipped.
+     *
+     * @return the message, or null if the socket was closed
+     */
+    private NodeMessage readMessage(final String identifier) {
+        while(true) {
+            final NodeMessage nodeMsg = NodeMessage.readMessage(fcpSocket.getFcpIn());
+            if( nodeMsg == null ) {
+                connectionLost = true;
+                return null;
+            }
+            final String msgIdentifier = nodeMsg.getStringValue("Identifier");
+            if( msgIdentifier == null || msgIdentifier.equals(identifier) ) {
+                return nodeMsg;
+            }
+            logger.debug("Skipped message of a previous request: {}", nodeMsg);
+        }
+    }
+
     /**
      * Retrieves the specified key and saves it to the file specified.
      *
      * @param publicKey  the key to be retrieved
-     * @param filename  the filename to which the data should be saved
+     * @param filename  the filename to which the data should be saved, or null to
+     *                  receive the data of a message into the results
      * @return the results filled with metadata
      */
     public FcpResultGet getKeyToFile(
@@ -107,7 +169,7 @@ public class FcpConnection {
 		logger.debug("KeyType =   {}", key.getKeyType());
 
         final boolean useDDA;
-        if( type == FcpHandler.TYPE_MESSAGE ) {
+        if( type == FcpHandler.TYPE_MESSAGE || targetFile == null ) {
             useDDA = false;
         } else {
             final File downloadDir = targetFile.getParentFile();
@@ -124,7 +186,8 @@ public class FcpConnection {
         msg.add("IgnoreDS=false");
         msg.add("DSOnly=false");
         msg.add("URI=" + key);
-        msg.add("Identifier=get-" + FcpSocket.getNextFcpId() );
+        final String identifier = "get-" + FcpSocket.getNextFcpId();
+        msg.add("Identifier=" + identifier);
         if( maxRetries <= 0 ) {
             maxRetries = 1;
         }
@@ -170,6 +233,7 @@ public class FcpConnection {
         }
 
         msg.add("EndMessage");
+        final long startMillis = System.currentTimeMillis();
         sendMessage(msg);
 
         // receive and process node messages
@@ -178,8 +242,9 @@ public class FcpConnection {
         String codeDescription = null;
         boolean isFatal = false;
         String redirectURI = null;
+        byte[] data = null;
         while(true) {
-            final NodeMessage nodeMsg = NodeMessage.readMessage(fcpSocket.getFcpIn());
+            final NodeMessage nodeMsg = readMessage(identifier);
             if( nodeMsg == null ) {
                 // socket closed
                 break;
@@ -199,22 +264,24 @@ public class FcpConnection {
                 // data follow, first get datalength
                 final long dataLength = nodeMsg.getLongValue("DataLength");
 
-				long bytesWritten = 0;
-				try (BufferedOutputStream fileOut = new BufferedOutputStream(new FileOutputStream(targetFile));) {
-					final byte[] b = new byte[4096];
-					long bytesLeft = dataLength;
-					int count;
-					while (bytesLeft > 0) {
-						count = fcpSocket.getFcpIn().read(b, 0, ((bytesLeft > b.length) ? b.length : (int) bytesLeft));
-						if (count < 0) {
-							break;
-						} else {
-							bytesLeft -= count;
-						}
-						fileOut.write(b, 0, count);
-						bytesWritten += count;
-					}
-				}
+                final long bytesWritten;
+                if( targetFile == null && (dataLength < 0 || dataLength > FcpHandler.MAX_MESSAGE_SIZE_07) ) {
+                    logger.error("*GET** Invalid DataLength {} of data received into memory, request failed.", dataLength);
+                    if( dataLength < 0 ) {
+                        // the payload can't be found in the stream, the connection is not usable anymore
+                        connectionLost = true;
+                    } else {
+                        fcpSocket.skipData(dataLength);
+                    }
+                    break;
+                }
+                if( targetFile == null ) {
+                    data = fcpSocket.receiveData((int) dataLength);
+                    bytesWritten = (data != null) ? data.length : 0;
+                } else {
+                    final FcpTransferStatistics stats = fcpSocket.receiveFile(targetFile, dataLength, null);
+                    bytesWritten = stats.getTransferredBytes();
+                }
 
                 logger.debug("*GET** Wrote {} of {} bytes to file.", bytesWritten, dataLength);
                 if( bytesWritten == dataLength ) {
@@ -286,16 +353,19 @@ public class FcpConnection {
             }
         }
 
-        close();
+        requestInProgress = false;
+        FcpMetrics.getInstance().requestFinished(true, type, prio, System.currentTimeMillis() - startMillis, isSuccess);
 
         FcpResultGet result = null;
 
         if( !isSuccess ) {
             // failure
-            if( targetFile.isFile() ) {
+            if( targetFile != null && targetFile.isFile() ) {
                 targetFile.delete();
             }
             result = new FcpResultGet(false, returnCode, codeDescription, isFatal, redirectURI);
+        } else if( data != null ) {
+            result = new FcpResultGet(data);
         } else {
             // success
             result = new FcpResultGet(true);
@@ -333,7 +403,8 @@ public class FcpConnection {
         final List<String> msg = new ArrayList<String>(20);
         msg.add("ClientPut");
         msg.add("URI=" + keyString);
-        msg.add("Identifier=put-" + FcpSocket.getNextFcpId() );
+        final String identifier = "put-" + FcpSocket.getNextFcpId();
+        msg.add("Identifier=" + identifier);
         msg.add("Verbosity=-1"); // receive SimpleProgress
         msg.add("MaxRetries=3");
         if ((ulItem != null) && !ulItem.getCompress()) {
@@ -352,11 +423,12 @@ public class FcpConnection {
                 msg.add("TargetFilename=" + sourceFile.getName());
             }
         }
+        final FreenetPriority prio;
 		if( getChkOnly ) {
 		    msg.add("GetCHKOnly=true");
 		    msg.add("PriorityClass=3");
+		    prio = null;
 		} else {
-            final FreenetPriority prio;
             if( type == FcpHandler.TYPE_FILE ) {
             	if (doMime) {
             	    msg.add("Metadata.ContentType=" + DefaultMIMETypes.guessMIMEType(sourceFile.getAbsolutePath()));
@@ -382,6 +454,7 @@ public class FcpConnection {
 
 		msg.add("Persistence=connection");
 
+        final long startMillis = System.currentTimeMillis();
         if (useDDA) {
             // direct file access
             msg.add("UploadFrom=disk");
@@ -391,22 +464,14 @@ public class FcpConnection {
 
 		} else {
             // send data
+		    final long dataLength = sourceFile.length();
 		    msg.add("UploadFrom=direct");
-		    msg.add("DataLength=" + Long.toString(sourceFile.length()));
+		    msg.add("DataLength=" + Long.toString(dataLength));
 		    msg.add("Data");
             sendMessage(msg);
 
 			// write complete file to socket
-			try (BufferedInputStream fileInput = new BufferedInputStream(new FileInputStream(sourceFile));) {
-				while (true) {
-					final int d = fileInput.read();
-					if (d < 0) {
-						break; // EOF
-					}
-					fcpSocket.getFcpRawOut().write(d);
-				}
-			}
-			fcpSocket.getFcpRawOut().flush();
+			fcpSocket.sendFile(sourceFile, dataLength);
 		}
 
         // receive and process node messages
@@ -416,7 +481,7 @@ public class FcpConnection {
         boolean isFatal = false;
         String chkKey = null;
         while(true) {
-            final NodeMessage nodeMsg = NodeMessage.readMessage(fcpSocket.getFcpIn());
+            final NodeMessage nodeMsg = readMessage(identifier);
             if( nodeMsg == null ) {
                 break;
             }
@@ -425,18 +490,25 @@ public class FcpConnection {
             logger.debug("{}", nodeMsg);
 
             if( getChkOnly == true && nodeMsg.isMessageName("URIGenerated") ) {
-                isSuccess = true;
+                // the node still sends PutSuccessful, read it to leave the connection clean for the next request
                 chkKey = nodeMsg.getStringValue("URI");
-                break;
+                continue;
             }
-            if( getChkOnly == false && nodeMsg.isMessageName("PutSuccessful") ) {
+            if( nodeMsg.isMessageName("PutSuccessful") ) {
                 isSuccess = true;
-                chkKey = nodeMsg.getStringValue("URI");
-                if( ulItem != null && ulItem.getTotalBlocks() > 0 ) {
+                if( getChkOnly == false || chkKey == null ) {
+                    chkKey = nodeMsg.getStringValue("URI");
+                }
+                if( getChkOnly == false && ulItem != null && ulItem.getTotalBlocks() > 0 ) {
                     ulItem.setDoneBlocks(ulItem.getTotalBlocks());
                 }
                 break;
             }
+            if( getChkOnly == true && chkKey != null && nodeMsg.isMessageName("PutFailed") ) {
+                // the key was already generated
+                isSuccess = true;
+                break;
+            }
             if( nodeMsg.isMessageName("PutFailed") ) {
                 // get error code
                 returnCode = nodeMsg.getIntValue("Code");
@@ -480,7 +552,10 @@ public class FcpConnection {
             }
         }
 
-        close();
+        requestInProgress = false;
+        if( !getChkOnly ) {
+            FcpMetrics.getInstance().requestFinished(false, type, prio, System.currentTimeMillis() - startMillis, isSuccess);
+        }
 
         if( !isSuccess ) {
             // failure
@@ -523,14 +598,15 @@ public class FcpConnection {
 
         final List<String> msg = new ArrayList<String>();
         msg.add("GenerateSSK");
-        msg.add("Identifier=genssk-" + FcpSocket.getNextFcpId());
+        final String identifier = "genssk-" + FcpSocket.getNextFcpId();
+        msg.add("Identifier=" + identifier);
         msg.add("EndMessage");
         sendMessage(msg);
 
         // receive and process node messages
         String[] result = null;
         while(true) {
-            final NodeMessage nodeMsg = NodeMessage.readMessage(fcpSocket.getFcpIn());
+            final NodeMessage nodeMsg = readMessage(identifier);
             if( nodeMsg == null ) {
                 break;
             }
@@ -569,7 +645,7 @@ public class FcpConnection {
             // any other message means error here
             break;
         }
-        close();
+        requestInProgress = false;
         return result;
     }
 
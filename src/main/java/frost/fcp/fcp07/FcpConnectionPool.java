@@ -0,0 +1,314 @@
+/*
+  FcpConnectionPool.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import frost.fcp.NodeAddress;
+
+/**
+ * Bounded pool of FcpConnections to one node that already finished the
+ * ClientHello/NodeHello handshake.
+ *
+ * A connection is returned to the pool by FcpConnection.close(). It is kept
+ * if its last request was completed and the socket is still usable, idle
+ * connections are checked again before they are handed out and closed after
+ * the idle timeout. If all connections are in use, acquire() waits until one
+ * is returned.
+ *
+ * Each connection that is handed out counts as open request in the FcpNodeHealth
+ * of the node. A connection whose request failed because of an IOException or a
+ * lost connection counts as failed request, a connection that is only not reusable
+ * is closed without counting a failure.
+ */
+public class FcpConnectionPool implements FcpConnectionPoolMBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(FcpConnectionPool.class);
+
+	private final NodeAddress nodeAddress;
+	private final int maxConnections;
+	private final long idleTimeoutMillis;
+	private final FcpNodeHealth health;
+
+	// most recently used connection first
+	private final Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+	// connections in use and the time they were handed out
+	private final Map<FcpConnection, Long> usedConnections = new IdentityHashMap<>();
+	private int openingConnections = 0;
+	// connections whose socket is checked outside of the lock, between idle and used
+	private int checkingConnections = 0;
+	private boolean closed = false;
+
+	private final AtomicLong handshakes = new AtomicLong();
+	private final AtomicLong reuses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong waits = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	/**
+	 * @param maxConnections     the maximum number of open connections, idle and in use
+	 * @param idleTimeoutMillis  idle connections are closed after this time
+	 */
+	public FcpConnectionPool(final NodeAddress nodeAddress, final int maxConnections, final long idleTimeoutMillis) {
+		this(nodeAddress, maxConnections, idleTimeoutMillis, new FcpNodeHealth(nodeAddress, 0));
+	}
+
+	/**
+	 * @param health  receives the open requests, latency and failures of the pooled connections
+	 */
+	public FcpConnectionPool(final NodeAddress nodeAddress, final int maxConnections, final long idleTimeoutMillis,
+			final FcpNodeHealth health) {
+		this.nodeAddress = nodeAddress;
+		this.maxConnections = Math.max(1, maxConnections);
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.health = health;
+	}
+
+	public NodeAddress getNodeAddress() {
+		return nodeAddress;
+	}
+
+	public FcpNodeHealth getHealth() {
+		return health;
+	}
+
+	/**
+	 * Returns an idle connection, or opens a new one if the pool is not full.
+	 * Waits for a returned connection if the pool is full.
+	 *
+	 * @throws IOException if a new connection could not be opened
+	 */
+	public FcpConnection acquire() throws IOException {
+		final long start = System.nanoTime();
+		boolean waited = false;
+		while (true) {
+			FcpConnection candidate = null;
+			synchronized (this) {
+				while (true) {
+					if (closed) {
+						throw new IOException("Connection pool is closed");
+					}
+					evictExpired();
+					if (!idleConnections.isEmpty()) {
+						candidate = idleConnections.pollFirst().connection;
+						checkingConnections++;
+						break;
+					}
+					if (usedConnections.size() + openingConnections + checkingConnections < maxConnections) {
+						openingConnections++;
+						break;
+					}
+					waited = true;
+					try {
+						wait();
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while waiting for a FCP connection");
+					}
+				}
+			}
+			if (candidate == null) {
+				// a new connection is opened below
+				break;
+			}
+			// the socket is checked outside of the lock, like the handshake
+			final boolean reusable = candidate.isReusable();
+			synchronized (this) {
+				checkingConnections--;
+				if (reusable && !closed) {
+					usedConnections.put(candidate, System.currentTimeMillis());
+					health.requestStarted();
+					reuses.incrementAndGet();
+					if (waited) {
+						recordWait(System.nanoTime() - start);
+					}
+					return candidate;
+				}
+				notifyAll();
+			}
+			evict(candidate);
+		}
+		if (waited) {
+			recordWait(System.nanoTime() - start);
+		}
+
+		// the handshake is done outside of the lock
+		FcpConnection connection = null;
+		try {
+			connection = new FcpConnection(nodeAddress, this);
+			handshakes.incrementAndGet();
+			logger.debug("Opened new FCP connection: {}", this);
+		} finally {
+			synchronized (this) {
+				openingConnections--;
+				if (connection != null) {
+					usedConnections.put(connection, System.currentTimeMillis());
+					health.requestStarted();
+				} else {
+					health.connectFailed();
+					notifyAll();
+				}
+			}
+		}
+		return connection;
+	}
+
+	/**
+	 * Called by FcpConnection.close(). Keeps the connection for reuse or closes it.
+	 */
+	void release(final FcpConnection connection) {
+		final boolean check;
+		synchronized (this) {
+			final Long acquired = usedConnections.remove(connection);
+			if (acquired == null) {
+				logger.warn("FcpConnection was returned to the pool twice");
+				return;
+			}
+			final boolean failed = connection.isRequestFailed();
+			health.requestFinished(!failed, System.currentTimeMillis() - acquired.longValue());
+			check = !closed && !failed;
+			if (check) {
+				checkingConnections++;
+			} else {
+				notifyAll();
+			}
+		}
+		if (check) {
+			// the socket is checked outside of the lock
+			final boolean reusable = connection.isReusable();
+			synchronized (this) {
+				checkingConnections--;
+				notifyAll();
+				if (!closed && reusable) {
+					idleConnections.addFirst(new IdleConnection(connection));
+					evictExpired();
+					return;
+				}
+			}
+		}
+		evict(connection);
+	}
+
+	/**
+	 * Closes all idle connections. Connections in use are closed when they are returned.
+	 */
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			for (final IdleConnection idle : idleConnections) {
+				idle.connection.closeSocket();
+			}
+			idleConnections.clear();
+			notifyAll();
+		}
+	}
+
+	private void evictExpired() {
+		final long now = System.currentTimeMillis();
+		for (final Iterator<IdleConnection> i = idleConnections.descendingIterator(); i.hasNext();) {
+			final IdleConnection idle = i.next();
+			if (now - idle.idleSince < idleTimeoutMillis) {
+				break;
+			}
+			i.remove();
+			evict(idle.connection);
+		}
+	}
+
+	private void evict(final FcpConnection connection) {
+		connection.closeSocket();
+		evictions.incrementAndGet();
+	}
+
+	private void recordWait(final long nanos) {
+		waits.incrementAndGet();
+		totalWaitNanos.addAndGet(nanos);
+		maxWaitNanos.accumulateAndGet(nanos, Math::max);
+	}
+
+	public synchronized int getIdleCount() {
+		return idleConnections.size();
+	}
+
+	public synchronized int getUsedCount() {
+		return usedConnections.size();
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * @return the number of new connections, each one needed a ClientHello/NodeHello handshake
+	 */
+	public long getHandshakeCount() {
+		return handshakes.get();
+	}
+
+	public long getReuseCount() {
+		return reuses.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return how often acquire() had to wait because the pool was full
+	 */
+	public long getWaitCount() {
+		return waits.get();
+	}
+
+	public long getTotalWaitMillis() {
+		return totalWaitNanos.get() / 1000000L;
+	}
+
+	public long getMaxWaitMillis() {
+		return maxWaitNanos.get() / 1000000L;
+	}
+
+	@Override
+	public String toString() {
+		return "FcpConnectionPool " + nodeAddress.getHostName() + ":" + nodeAddress.getPort() + " used=" + getUsedCount()
+				+ " idle=" + getIdleCount() + " max=" + maxConnections + " handshakes=" + getHandshakeCount()
+				+ " reuses=" + getReuseCount() + " evictions=" + getEvictionCount() + " waits=" + getWaitCount()
+				+ " waitMillis=" + getTotalWaitMillis() + " maxWaitMillis=" + getMaxWaitMillis();
+	}
+
+	private static class IdleConnection {
+		final FcpConnection connection;
+		final long idleSince = System.currentTimeMillis();
+
+		IdleConnection(final FcpConnection connection) {
+			this.connection = connection;
+		}
+	}
+}
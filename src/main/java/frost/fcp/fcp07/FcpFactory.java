@@ -19,24 +19,37 @@
 package frost.fcp.fcp07;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.ConnectException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import frost.Core;
+import frost.Settings;
 import frost.fcp.NodeAddress;
+import frost.util.JmxUtil;
 import frost.util.Mixed;
 
 public class FcpFactory {
 
 	private static final Logger logger = LoggerFactory.getLogger(FcpFactory.class);
 
-    private static NodeAddress freenetNode = null;
+    private static List<NodeAddress> freenetNodes = Collections.emptyList();
+
+    // one pool per node, the selector chooses the pool for a new connection
+    private static FcpNodeSelector<FcpConnectionPool> poolSelector = null;
 
     /**
-     * This method creates an instance of FcpConnection and handles errors.
+     * This method returns a pooled instance of FcpConnection and handles errors.
+     * The caller must close() the connection to return it to the pool.
      * Returns either the connection, or null on any error.
      */
     public static FcpConnection getFcpConnectionInstance() throws ConnectException {
@@ -54,6 +67,11 @@ public class FcpFactory {
             } catch (final ConnectException e) {
                 /*  IOException ConnectException: Connection refused: connect  */
                 logger.error("FcpConnection.getFcpConnectionInstance: ConnectException, this was try {}/{}", tries + 1, maxTries, e);
+            } catch (final InterruptedIOException e) {
+                // interrupted while waiting for a pooled connection, keep the interrupt for the caller
+                logger.warn("FcpConnection.getFcpConnectionInstance: interrupted while waiting for a connection");
+                Thread.currentThread().interrupt();
+                break;
             } catch (final IOException e) {
                 logger.error("FcpConnection.getFcpConnectionInstance: IOException, this was try {}/{}", tries + 1, maxTries, e);
             } catch (final Throwable e) {
@@ -61,7 +79,9 @@ public class FcpFactory {
                 break;
             }
             tries++;
-            Mixed.wait(tries * 1250);
+            if (connection == null && tries < maxTries) {
+                Mixed.wait(tries * 1250);
+            }
         }
         if (connection == null) {
             logger.error("FcpConnection.getFcpConnectionInstance: Could not connect to node!");
@@ -71,43 +91,112 @@ public class FcpFactory {
     }
 
     /**
-     * @return  Returns a list of available NodeAddress objects.
+     * @return  Returns the first configured node, it holds the global queue of persistent requests.
      */
     public static NodeAddress getFreenetNode() {
-        return freenetNode;
+        return freenetNodes.isEmpty() ? null : freenetNodes.get(0);
+    }
+
+    /**
+     * @return  Returns a list of available NodeAddress objects.
+     */
+    public static List<NodeAddress> getFreenetNodes() {
+        return freenetNodes;
     }
 
     /**
      * Process provided List of string (host:port or host) and create InetAddress objects for each.
      */
-    public static void init(final String node) throws Exception {
-        final String nodeName = node;
-        final NodeAddress na;
-        if( nodeName.indexOf(":") < 0 ) {
-            InetAddress ia = null;
-            ia = InetAddress.getByName(nodeName);
-            na = new NodeAddress(ia, 9481, ia.getHostName(), ia.getHostAddress());
-        } else {
-            final String[] splitNodeName = nodeName.split(":");
-            final InetAddress ia = InetAddress.getByName(splitNodeName[0]);
-            final int port = Integer.parseInt(splitNodeName[1]);
-            na = new NodeAddress(ia, port, ia.getHostName(), ia.getHostAddress());
+    public static void init(final List<String> nodes) throws Exception {
+        final List<NodeAddress> addresses = new ArrayList<NodeAddress>();
+        for( final String node : nodes ) {
+            final String nodeName = node.trim();
+            if( nodeName.length() == 0 ) {
+                continue;
+            }
+            final NodeAddress na;
+            if( nodeName.indexOf(":") < 0 ) {
+                InetAddress ia = null;
+                ia = InetAddress.getByName(nodeName);
+                na = new NodeAddress(ia, 9481, ia.getHostName(), ia.getHostAddress());
+            } else {
+                final String[] splitNodeName = nodeName.split(":");
+                final InetAddress ia = InetAddress.getByName(splitNodeName[0]);
+                final int port = Integer.parseInt(splitNodeName[1]);
+                na = new NodeAddress(ia, port, ia.getHostName(), ia.getHostAddress());
+            }
+            addresses.add(na);
+        }
+        if( addresses.isEmpty() ) {
+            throw new Exception("No Freenet node configured");
+        }
+        freenetNodes = Collections.unmodifiableList(addresses);
+
+        if( poolSelector != null ) {
+            for( final FcpConnectionPool pool : poolSelector.getNodes() ) {
+                pool.close();
+            }
         }
-        freenetNode = na;
+        final long backoffMillis = Core.frostSettings.getInteger(Settings.FCP2_NODE_FAILURE_BACKOFF) * 1000L;
+        final List<FcpConnectionPool> pools = new ArrayList<FcpConnectionPool>();
+        for( final NodeAddress na : addresses ) {
+            final FcpConnectionPool pool = new FcpConnectionPool(
+                    na,
+                    Core.frostSettings.getInteger(Settings.FCP2_CONNECTION_POOL_SIZE),
+                    Core.frostSettings.getInteger(Settings.FCP2_CONNECTION_POOL_IDLE_TIMEOUT) * 1000L,
+                    new FcpNodeHealth(na, backoffMillis));
+            pools.add(pool);
+            final String node = FcpMetrics.getNodeProperty(na);
+            JmxUtil.registerMBean(pool, "frost:type=FcpConnectionPool,node=" + node);
+            JmxUtil.registerMBean(pool.getHealth(), "frost:type=FcpNodeHealth,node=" + node);
+        }
+        poolSelector = new FcpNodeSelector<FcpConnectionPool>(pools, FcpConnectionPool::getHealth);
     }
 
-    protected static synchronized FcpConnection getConnection()  throws IOException, Error {
+    /**
+     * @return the connection pool of the first node with its statistics, or null before init()
+     */
+    public static FcpConnectionPool getConnectionPool() {
+        return (poolSelector == null) ? null : poolSelector.getNodes().get(0);
+    }
 
-        FcpConnection con = null;
+    /**
+     * @return the connection pools of all nodes, or an empty list before init()
+     */
+    public static List<FcpConnectionPool> getConnectionPools() {
+        return (poolSelector == null) ? Collections.<FcpConnectionPool>emptyList() : poolSelector.getNodes();
+    }
 
-        final NodeAddress selectedNode = freenetNode;
+    /**
+     * @return the health of the node, shared by its connection pool and message transfer handler
+     */
+    public static FcpNodeHealth getNodeHealth(final NodeAddress na) {
+        for( final FcpConnectionPool pool : getConnectionPools() ) {
+            if( pool.getNodeAddress() == na ) {
+                return pool.getHealth();
+            }
+        }
+        return null;
+    }
 
-        logger.info("Using node {} port {}", selectedNode.getHost().getHostAddress(), selectedNode.getPort());
-        try {
-            con = new FcpConnection(selectedNode);
-        } catch (final IOException e) {
-            throw e;
+    protected static FcpConnection getConnection()  throws IOException, Error {
+        // not synchronized, the pool waits if all connections are in use.
+        // try the best node first and fail over to the other nodes
+        final Set<FcpConnectionPool> failedPools = new HashSet<FcpConnectionPool>();
+        IOException lastException = null;
+        FcpConnectionPool pool;
+        while( (pool = poolSelector.select(failedPools)) != null ) {
+            try {
+                return pool.acquire();
+            } catch (final InterruptedIOException e) {
+                throw e;
+            } catch (final IOException e) {
+                logger.warn("Could not connect to node {}:{}", pool.getNodeAddress().getHostName(),
+                        pool.getNodeAddress().getPort(), e);
+                failedPools.add(pool);
+                lastException = e;
+            }
         }
-        return con;
+        throw lastException;
     }
 }
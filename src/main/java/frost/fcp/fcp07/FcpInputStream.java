@@ -0,0 +1,247 @@
+/*
+  FcpInputStream.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buffered input stream of a FCP socket that is able to parse node messages
+ * directly from its internal buffer.
+ *
+ * Lines are located by scanning the buffer in bulk, known message and field
+ * names are mapped to shared String instances and values are kept as raw
+ * bytes inside the NodeMessage until they are requested.
+ *
+ * Binary data that follows a message ending with 'Data' stays in the buffer
+ * and is read through the usual InputStream methods.
+ */
+public class FcpInputStream extends BufferedInputStream {
+
+	private static final Logger logger = LoggerFactory.getLogger(FcpInputStream.class);
+
+	public static final int DEFAULT_BUFFER_SIZE = 32 * 1024;
+
+	private static final byte[] END_MESSAGE = "EndMessage".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] DATA = "Data".getBytes(StandardCharsets.US_ASCII);
+
+	// holds a line that spans the end of the buffer
+	private byte[] lineBuf = new byte[256];
+	private int lineLen = 0;
+
+	public FcpInputStream(final InputStream in) {
+		this(in, DEFAULT_BUFFER_SIZE);
+	}
+
+	public FcpInputStream(final InputStream in, final int size) {
+		super(in, size);
+	}
+
+	/**
+	 * Reads the next message from the stream.
+	 *
+	 * @return the message, or null if the stream was closed before a complete
+	 *         message was received
+	 */
+	public synchronized NodeMessage readMessage() throws IOException {
+		NodeMessage result = null;
+		long wireBytes = 0;
+		while (true) {
+			if (pos >= count && fillBuffer() < 0) {
+				// unexpected socket close
+				return null;
+			}
+
+			final byte[] b = getBufIfOpen();
+			int eol = -1;
+			for (int i = pos; i < count; i++) {
+				if (b[i] == '\n') {
+					eol = i;
+					break;
+				}
+			}
+
+			if (eol < 0) {
+				// no complete line in buffer, remember the part we have
+				appendToLineBuf(b, pos, count - pos);
+				wireBytes += count - pos;
+				pos = count;
+				continue;
+			}
+
+			wireBytes += eol + 1 - pos;
+
+			final byte[] line;
+			final int off;
+			int len;
+			if (lineLen > 0) {
+				appendToLineBuf(b, pos, eol - pos);
+				line = lineBuf;
+				off = 0;
+				len = lineLen;
+				lineLen = 0;
+			} else {
+				line = b;
+				off = pos;
+				len = eol - pos;
+			}
+			pos = eol + 1;
+
+			if (len > 0 && line[off + len - 1] == '\r') {
+				len--;
+			}
+			if (isBlank(line, off, len)) {
+				continue;
+			}
+
+			if (result == null) {
+				result = new NodeMessage(FcpNameTable.lookup(line, off, len));
+				continue;
+			}
+
+			if (equals(line, off, len, DATA)) {
+				result.setEnd("Data");
+				result.setFcpInStream(this); // remember stream for receive of data
+				result.setWireBytes(wireBytes);
+				return result;
+			}
+
+			if (equals(line, off, len, END_MESSAGE)) {
+				result.setEnd("EndMessage");
+				result.setWireBytes(wireBytes);
+				return result;
+			}
+
+			final int eq = indexOf(line, off, len, (byte) '=');
+			if (eq < 0) {
+				final String tmp = new String(line, off, len, StandardCharsets.UTF_8);
+				logger.error("no '=' in message line. This shouldn't happen. FIXME. : {} -> {}", tmp, tmp.length());
+				result.addItem("Unknown", tmp);
+			} else {
+				final String key = FcpNameTable.lookup(line, off, eq - off);
+				result.addRawItem(key, line, eq + 1, off + len - eq - 1);
+			}
+		}
+	}
+
+	/**
+	 * Writes bytes that are already buffered to the target channel, used to
+	 * receive the start of a payload before the rest is read from the socket
+	 * channel.
+	 *
+	 * @param maxBytes  the maximum number of bytes to transfer
+	 * @param digest    updated with the transferred bytes, or null
+	 * @return the number of bytes transferred
+	 */
+	public synchronized int transferBuffered(final WritableByteChannel target, final long maxBytes,
+			final MessageDigest digest) throws IOException {
+		final int n = (int) Math.min(count - pos, maxBytes);
+		if (n <= 0) {
+			return 0;
+		}
+		final byte[] b = getBufIfOpen();
+		if (digest != null) {
+			digest.update(b, pos, n);
+		}
+		final ByteBuffer bb = ByteBuffer.wrap(b, pos, n);
+		while (bb.hasRemaining()) {
+			target.write(bb);
+		}
+		pos += n;
+		return n;
+	}
+
+	/**
+	 * Refills the empty buffer from the underlying stream.
+	 * Returns the number of bytes read, or -1 on end of stream.
+	 */
+	private int fillBuffer() throws IOException {
+		final byte[] b = getBufIfOpen();
+		if (markpos >= 0) {
+			// someone set a mark, let the superclass handle the buffer
+			final int c = super.read();
+			if (c >= 0) {
+				pos--;
+			}
+			return c;
+		}
+		final int n = in.read(b, 0, b.length);
+		if (n > 0) {
+			pos = 0;
+			count = n;
+		}
+		return n;
+	}
+
+	private byte[] getBufIfOpen() throws IOException {
+		final byte[] b = buf;
+		if (b == null) {
+			throw new IOException("Stream closed");
+		}
+		return b;
+	}
+
+	private void appendToLineBuf(final byte[] b, final int off, final int len) {
+		if (lineLen + len > lineBuf.length) {
+			final byte[] newBuf = new byte[Math.max(lineBuf.length * 2, lineLen + len)];
+			System.arraycopy(lineBuf, 0, newBuf, 0, lineLen);
+			lineBuf = newBuf;
+		}
+		System.arraycopy(b, off, lineBuf, lineLen, len);
+		lineLen += len;
+	}
+
+	private static boolean isBlank(final byte[] b, final int off, final int len) {
+		for (int i = off; i < off + len; i++) {
+			if ((b[i] & 0xff) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean equals(final byte[] b, final int off, final int len, final byte[] other) {
+		if (len != other.length) {
+			return false;
+		}
+		for (int i = 0; i < len; i++) {
+			if (b[off + i] != other[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(final byte[] b, final int off, final int len, final byte c) {
+		for (int i = off; i < off + len; i++) {
+			if (b[i] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -76,8 +76,11 @@ public class FcpInsert {
                 return FcpResultPut.NO_CONNECTION_RESULT;
             }
 
-            final FcpResultPut result = connection.putKeyFromFile(type, uri, file, false, doMime, ulItem);
-            return result;
+            try {
+                return connection.putKeyFromFile(type, uri, file, false, doMime, ulItem);
+            } finally {
+                connection.close();
+            }
 
         } catch( final UnknownHostException e ) {
 			logger.error("UnknownHostException", e);
@@ -108,8 +111,11 @@ public class FcpInsert {
             if( connection == null ) {
                 return null;
             }
-            final String generatedCHK = connection.generateCHK(file);
-            return generatedCHK;
+            try {
+                return connection.generateCHK(file);
+            } finally {
+                connection.close();
+            }
 
         } catch( final UnknownHostException e ) {
 			logger.error("UnknownHostException", e);
@@ -19,6 +19,7 @@
 package frost.fcp.fcp07;
 
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.util.Collections;
@@ -30,6 +31,8 @@ import javax.swing.event.EventListenerList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import frost.Core;
+import frost.Settings;
 import frost.fcp.NodeAddress;
 import frost.util.Mixed;
 
@@ -39,6 +42,8 @@ public class FcpListenThreadConnection extends AbstractBasicConnection {
 
     private ReceiveThread receiveThread;
 
+    private final NodeMessageDispatcher dispatcher;
+
     private final EventListenerList listenerList = new EventListenerList();
 
     private final Set<String> checkedDirectories = Collections.synchronizedSet(new HashSet<String>());
@@ -54,6 +59,11 @@ public class FcpListenThreadConnection extends AbstractBasicConnection {
     protected FcpListenThreadConnection(final NodeAddress na) throws UnknownHostException, IOException {
         super(na);
 
+        dispatcher = new NodeMessageDispatcher(
+                na.getHostIp() + ":" + na.getPort(),
+                Core.frostSettings.getInteger(Settings.FCP2_LISTENER_THREADS),
+                Core.frostSettings.getInteger(Settings.FCP2_LISTENER_QUEUE_SIZE));
+
         notifyConnected();
 
         receiveThread = new ReceiveThread(fcpSocket.getFcpIn());
@@ -67,6 +77,33 @@ public class FcpListenThreadConnection extends AbstractBasicConnection {
     public BufferedInputStream getFcpSocketIn() {
         return fcpSocket.getFcpIn();
     }
+
+    /**
+     * Receives the payload of a message that ended with 'Data' into the target file.
+     * Must only be called by a NodeMessageListener while it handles this message,
+     * these messages are handled in the receive thread.
+     */
+    public FcpTransferStatistics receiveFile(final File targetFile, final long dataLength) throws IOException {
+        return fcpSocket.receiveFile(targetFile, dataLength, null);
+    }
+
+    /**
+     * Receives the payload of a message that ended with 'Data' into memory.
+     * Same restrictions as for receiveFile().
+     *
+     * @return the payload, or null if the socket was closed before all data was received
+     */
+    public byte[] receiveData(final int dataLength) throws IOException {
+        return fcpSocket.receiveData(dataLength);
+    }
+
+    /**
+     * Reads and discards the payload of a message that ended with 'Data'.
+     * Same restrictions as for receiveFile().
+     */
+    public long skipData(final long dataLength) throws IOException {
+        return fcpSocket.skipData(dataLength);
+    }
     
     public Set<String> getCheckedDirectories() {
         return checkedDirectories;
@@ -112,6 +149,45 @@ public class FcpListenThreadConnection extends AbstractBasicConnection {
         listenerList.remove(NodeMessageListener.class, l);
     }
 
+    /**
+     * Hands a received message to the listeners. Messages with an Identifier are processed
+     * by the dispatcher in the order of their Identifier.
+     * Messages without Identifier are processed after all previous messages. Messages
+     * followed by data are processed in the receive thread, the data must be read before
+     * the next message.
+     */
+    protected void dispatchNodeMessage(final NodeMessage nodeMsg) {
+        final String id = nodeMsg.getStringValue("Identifier");
+        try {
+            if( id == null ) {
+                dispatcher.awaitAll();
+                handleNodeMessage(nodeMsg);
+            } else if( "Data".equals(nodeMsg.getMessageEnd()) ) {
+                dispatcher.awaitIdentifier(id);
+                handleNodeMessage(nodeMsg);
+            } else {
+                dispatcher.dispatch(id, () -> handleNodeMessage(nodeMsg));
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            handleNodeMessage(nodeMsg);
+        }
+    }
+
+    /**
+     * @return the number of received messages that wait for the listeners
+     */
+    public int getQueuedMessageCount() {
+        return dispatcher.getQueuedCount();
+    }
+
+    /**
+     * @return how often reading from the node paused because the listeners were too slow
+     */
+    public long getReceiveBlockedCount() {
+        return dispatcher.getBlockedCount();
+    }
+
     protected void handleNodeMessage(final NodeMessage nodeMsg) {
         final String id = nodeMsg.getStringValue("Identifier");
         // Guaranteed to return a non-null array
@@ -167,12 +243,19 @@ public class FcpListenThreadConnection extends AbstractBasicConnection {
                     break; // socket closed
                 } else {
                     // notify listeners
-                    handleNodeMessage(nodeMsg);
+                    dispatchNodeMessage(nodeMsg);
                 }
             }
 
             logger.error("Socket closed, ReceiveThread ended, trying to reconnect");
 
+            // listeners must process all received messages before they are disconnected
+            try {
+                dispatcher.awaitAll();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
             reconnect();
         }
     }
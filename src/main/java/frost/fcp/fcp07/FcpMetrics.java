@@ -0,0 +1,311 @@
+/*
+  FcpMetrics.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import frost.fcp.FcpHandler;
+import frost.fcp.NodeAddress;
+import frost.fileTransfer.FreenetPriority;
+import frost.util.JmxUtil;
+import frost.util.LatencyHistogram;
+
+/**
+ * Counters of the FCP layer: messages and bytes per message name, request durations
+ * per request type and priority, failure codes, open sockets and requests in flight.
+ *
+ * Messages are counted by FcpSocket and NodeMessage when they pass the socket, request
+ * durations by FcpConnection and the MessageTransferHandler. The counters are published
+ * through JMX and logged periodically by logStatistics().
+ */
+public class FcpMetrics implements FcpMetricsMBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(FcpMetrics.class);
+
+	public static final String OBJECT_NAME = "frost:type=FcpMetrics";
+
+	private static final int CODE_DATA_NOT_FOUND = 13;
+	private static final int CODE_ALL_DATA_NOT_FOUND = 28;
+
+	private static final FcpMetrics instance = new FcpMetrics();
+
+	private static class MessageCounter {
+		final LongAdder messagesSent = new LongAdder();
+		final LongAdder bytesSent = new LongAdder();
+		final LongAdder messagesReceived = new LongAdder();
+		final LongAdder bytesReceived = new LongAdder();
+	}
+
+	private final Map<String, MessageCounter> messageCounters = new ConcurrentHashMap<String, MessageCounter>();
+	private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+	private final Map<String, LongAdder> errorCodes = new ConcurrentHashMap<String, LongAdder>();
+
+	private final LongAdder dataNotFound = new LongAdder();
+	private final LongAdder allDataNotFound = new LongAdder();
+	private final LongAdder protocolErrors = new LongAdder();
+
+	private final AtomicInteger openConnections = new AtomicInteger();
+	private final List<IntSupplier> inFlightCounters = new CopyOnWriteArrayList<IntSupplier>();
+
+	public static FcpMetrics getInstance() {
+		return instance;
+	}
+
+	private FcpMetrics() {
+	}
+
+	/**
+	 * Registers the metrics at the platform MBean server.
+	 */
+	public void register() {
+		JmxUtil.registerMBean(this, OBJECT_NAME);
+	}
+
+	/**
+	 * @return the value for the key property 'node' of an ObjectName
+	 */
+	public static String getNodeProperty(final NodeAddress na) {
+		return ObjectName.quote(na.getHostName() + ":" + na.getPort());
+	}
+
+	private MessageCounter getMessageCounter(final String messageName) {
+		final String name = (messageName == null) ? "Unknown" : messageName;
+		MessageCounter counter = messageCounters.get(name);
+		if (counter == null) {
+			counter = messageCounters.computeIfAbsent(name, k -> new MessageCounter());
+		}
+		return counter;
+	}
+
+	/**
+	 * @param bytes  the bytes of the message lines without payload
+	 */
+	void messageSent(final String messageName, final long bytes) {
+		final MessageCounter counter = getMessageCounter(messageName);
+		counter.messagesSent.increment();
+		counter.bytesSent.add(bytes);
+	}
+
+	void payloadSent(final String messageName, final long bytes) {
+		getMessageCounter(messageName).bytesSent.add(bytes);
+	}
+
+	/**
+	 * Counts the message and the failure codes of GetFailed, PutFailed and ProtocolError.
+	 *
+	 * @param bytes  the bytes of the message lines without payload
+	 */
+	void messageReceived(final NodeMessage msg, final long bytes) {
+		final String name = msg.getMessageName();
+		final MessageCounter counter = getMessageCounter(name);
+		counter.messagesReceived.increment();
+		counter.bytesReceived.add(bytes);
+
+		final boolean isProtocolError = "ProtocolError".equals(name);
+		if (isProtocolError || "GetFailed".equals(name) || "PutFailed".equals(name)) {
+			// a missing or invalid code must not break the reading of the message
+			final int code = msg.getIntValue("Code", -1);
+			if (isProtocolError) {
+				protocolErrors.increment();
+			} else if (code == CODE_DATA_NOT_FOUND && "GetFailed".equals(name)) {
+				dataNotFound.increment();
+			} else if (code == CODE_ALL_DATA_NOT_FOUND && "GetFailed".equals(name)) {
+				allDataNotFound.increment();
+			}
+			errorCodes.computeIfAbsent(name + "." + code, k -> new LongAdder()).increment();
+		}
+	}
+
+	void payloadReceived(final String messageName, final long bytes) {
+		getMessageCounter(messageName).bytesReceived.add(bytes);
+	}
+
+	void connectionOpened() {
+		openConnections.incrementAndGet();
+	}
+
+	void connectionClosed() {
+		openConnections.decrementAndGet();
+	}
+
+	/**
+	 * Adds a source of requests in flight, e.g. the active tasks of a shared message connection.
+	 * The used connections of the connection pools are always counted.
+	 */
+	public void addInFlightCounter(final IntSupplier counter) {
+		inFlightCounters.add(counter);
+	}
+
+	/**
+	 * Records the duration of a finished request.
+	 *
+	 * @param isDownload  true for a get, false for a put
+	 * @param type        FcpHandler.TYPE_MESSAGE or FcpHandler.TYPE_FILE
+	 */
+	public void requestFinished(final boolean isDownload, final int type, final FreenetPriority prio,
+			final long millis, final boolean success) {
+		final String key = (isDownload ? "get." : "put.")
+				+ ((type == FcpHandler.TYPE_MESSAGE) ? "message." : "file.")
+				+ ((prio == null) ? "default" : prio.name());
+		LatencyHistogram histogram = latencies.get(key);
+		if (histogram == null) {
+			histogram = latencies.computeIfAbsent(key, k -> new LatencyHistogram());
+		}
+		histogram.record(millis, success);
+	}
+
+	public LatencyHistogram getLatencyHistogram(final String key) {
+		return latencies.get(key);
+	}
+
+	public long getMessagesSent(final String messageName) {
+		final MessageCounter counter = messageCounters.get(messageName);
+		return (counter == null) ? 0 : counter.messagesSent.sum();
+	}
+
+	public long getMessagesReceived(final String messageName) {
+		final MessageCounter counter = messageCounters.get(messageName);
+		return (counter == null) ? 0 : counter.messagesReceived.sum();
+	}
+
+////////////////////////////////////////////////////////////////////////////////////////////////
+//  FcpMetricsMBean interface //////////////////////////////////////////////////////////////////
+////////////////////////////////////////////////////////////////////////////////////////////////
+
+	public long getMessagesSent() {
+		long sum = 0;
+		for (final MessageCounter counter : messageCounters.values()) {
+			sum += counter.messagesSent.sum();
+		}
+		return sum;
+	}
+
+	public long getMessagesReceived() {
+		long sum = 0;
+		for (final MessageCounter counter : messageCounters.values()) {
+			sum += counter.messagesReceived.sum();
+		}
+		return sum;
+	}
+
+	public long getBytesSent() {
+		long sum = 0;
+		for (final MessageCounter counter : messageCounters.values()) {
+			sum += counter.bytesSent.sum();
+		}
+		return sum;
+	}
+
+	public long getBytesReceived() {
+		long sum = 0;
+		for (final MessageCounter counter : messageCounters.values()) {
+			sum += counter.bytesReceived.sum();
+		}
+		return sum;
+	}
+
+	public int getOpenConnections() {
+		return openConnections.get();
+	}
+
+	public int getInFlightRequests() {
+		int sum = 0;
+		for (final FcpConnectionPool pool : FcpFactory.getConnectionPools()) {
+			sum += pool.getUsedCount();
+		}
+		for (final IntSupplier counter : inFlightCounters) {
+			sum += counter.getAsInt();
+		}
+		return sum;
+	}
+
+	public long getDataNotFoundCount() {
+		return dataNotFound.sum();
+	}
+
+	public long getAllDataNotFoundCount() {
+		return allDataNotFound.sum();
+	}
+
+	public long getProtocolErrorCount() {
+		return protocolErrors.sum();
+	}
+
+	public String[] getMessageStatistics() {
+		final List<String> result = new ArrayList<String>();
+		for (final Map.Entry<String, MessageCounter> e : new TreeMap<String, MessageCounter>(messageCounters).entrySet()) {
+			final MessageCounter c = e.getValue();
+			result.add(e.getKey() + " sent=" + c.messagesSent.sum() + " bytesSent=" + c.bytesSent.sum()
+					+ " received=" + c.messagesReceived.sum() + " bytesReceived=" + c.bytesReceived.sum());
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	public String[] getLatencyStatistics() {
+		final List<String> result = new ArrayList<String>();
+		for (final Map.Entry<String, LatencyHistogram> e : new TreeMap<String, LatencyHistogram>(latencies).entrySet()) {
+			result.add(e.getKey() + " " + e.getValue());
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	public String[] getErrorCodeStatistics() {
+		final List<String> result = new ArrayList<String>();
+		for (final Map.Entry<String, LongAdder> e : new TreeMap<String, LongAdder>(errorCodes).entrySet()) {
+			result.add(e.getKey() + "=" + e.getValue().sum());
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	/**
+	 * Logs all counters in one line of key=value pairs, the totals are cumulative since startup.
+	 */
+	public void logStatistics() {
+		final StringBuilder sb = new StringBuilder(512);
+		sb.append("FCP metrics: openConnections=").append(getOpenConnections())
+			.append(" inFlight=").append(getInFlightRequests())
+			.append(" messagesSent=").append(getMessagesSent())
+			.append(" messagesReceived=").append(getMessagesReceived())
+			.append(" bytesSent=").append(getBytesSent())
+			.append(" bytesReceived=").append(getBytesReceived())
+			.append(" dnf=").append(getDataNotFoundCount())
+			.append(" adnf=").append(getAllDataNotFoundCount())
+			.append(" protocolErrors=").append(getProtocolErrorCount());
+		for (final Map.Entry<String, LatencyHistogram> e : new TreeMap<String, LatencyHistogram>(latencies).entrySet()) {
+			sb.append(' ').append(e.getKey()).append("={").append(e.getValue()).append('}');
+		}
+		for (final FcpConnectionPool pool : FcpFactory.getConnectionPools()) {
+			sb.append(" pool[").append(pool).append("] health[").append(pool.getHealth()).append(']');
+		}
+		logger.info("{}", sb);
+	}
+}
@@ -0,0 +1,74 @@
+/*
+  FcpMetricsMBean.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+/**
+ * JMX view of the FCP metrics, registered as frost:type=FcpMetrics.
+ */
+public interface FcpMetricsMBean {
+
+	public long getMessagesSent();
+
+	public long getMessagesReceived();
+
+	/**
+	 * @return bytes of all sent messages including their payload
+	 */
+	public long getBytesSent();
+
+	/**
+	 * @return bytes of all received messages including their payload
+	 */
+	public long getBytesReceived();
+
+	public int getOpenConnections();
+
+	/**
+	 * @return the requests that wait for an answer of the node on pooled connections
+	 *         and shared message connections
+	 */
+	public int getInFlightRequests();
+
+	/**
+	 * @return received GetFailed messages with code 13 (data not found)
+	 */
+	public long getDataNotFoundCount();
+
+	/**
+	 * @return received GetFailed messages with code 28 (all data not found)
+	 */
+	public long getAllDataNotFoundCount();
+
+	public long getProtocolErrorCount();
+
+	/**
+	 * @return one line per message name with messages and bytes in both directions
+	 */
+	public String[] getMessageStatistics();
+
+	/**
+	 * @return one line per request kind, type and priority with count and percentiles
+	 */
+	public String[] getLatencyStatistics();
+
+	/**
+	 * @return one line per failure message and code, e.g. "GetFailed.13=42"
+	 */
+	public String[] getErrorCodeStatistics();
+}
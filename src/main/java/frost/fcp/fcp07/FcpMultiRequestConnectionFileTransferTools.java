@@ -18,14 +18,13 @@
 */
 package frost.fcp.fcp07;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,10 +41,29 @@ public class FcpMultiRequestConnectionFileTransferTools {
 
     private final FcpListenThreadConnection fcpPersistentConnection;
 
+    // shared by all direct transfers, null if unlimited
+    private volatile FcpBandwidthLimiter directTransferLimiter = null;
+
     public FcpMultiRequestConnectionFileTransferTools(final FcpListenThreadConnection fcpPersistentConnection) {
         this.fcpPersistentConnection = fcpPersistentConnection;
     }
 
+    /**
+     * Sets the limiter that is shared by the sockets of all following direct puts and gets.
+     */
+    public void setDirectTransferLimiter(final FcpBandwidthLimiter limiter) {
+        directTransferLimiter = limiter;
+    }
+
+    private FcpSocket createDirectTransferSocket(final Consumer<FcpTransferStatistics> transferListener) {
+        final FcpSocket newSocket = FcpSocket.create(fcpPersistentConnection.getNodeAddress());
+        if( newSocket != null ) {
+            newSocket.setBandwidthLimiter(directTransferLimiter);
+            newSocket.setTransferListener(transferListener);
+        }
+        return newSocket;
+    }
+
     public FcpListenThreadConnection getFcpPersistentConnection() {
         return fcpPersistentConnection;
     }
@@ -54,12 +72,31 @@ public class FcpMultiRequestConnectionFileTransferTools {
      * No answer from node is expected.
      */
     public void changeRequestPriority(final String id, final FreenetPriority newPrio) {
+        fcpPersistentConnection.sendMessage(getChangeRequestPriorityMessage(id, newPrio));
+    }
+
+    /**
+     * Changes the priority of many requests with one write to the socket.
+     * No answer from node is expected.
+     */
+    public void changeRequestPriority(final List<String> ids, final FreenetPriority newPrio) {
+        if( ids.isEmpty() ) {
+            return;
+        }
+        final List<List<String>> messages = new ArrayList<List<String>>(ids.size());
+        for( final String id : ids ) {
+            messages.add(getChangeRequestPriorityMessage(id, newPrio));
+        }
+        fcpPersistentConnection.sendMessages(messages);
+    }
+
+    private List<String> getChangeRequestPriorityMessage(final String id, final FreenetPriority newPrio) {
         final List<String> msg = new LinkedList<String>();
         msg.add("ModifyPersistentRequest");
         msg.add("Global=true");
         msg.add("Identifier="+id);
         msg.add("PriorityClass=" + newPrio.getNumber());
-        fcpPersistentConnection.sendMessage(msg);
+        return msg;
     }
 
     /**
@@ -128,6 +165,42 @@ public class FcpMultiRequestConnectionFileTransferTools {
         final File downloadDir = targetFile.getParentFile();
         final boolean isDda = TestDDAHelper.isDDAPossiblePersistent(FcpSocket.DDAModes.WANT_DOWNLOAD, downloadDir, fcpPersistentConnection);
 
+        fcpPersistentConnection.sendMessage(getPersistentGetMessage(key, id, targetFile, priority, isDda));
+
+        return isDda;
+    }
+
+    /**
+     * Starts many persistent gets like startPersistentGet, the messages are sent with
+     * one write to the socket. Use PersistentGetRequest.isDda() to check how the
+     * request was started.
+     */
+    public void startPersistentGets(final List<PersistentGetRequest> requests) {
+        if( requests.isEmpty() ) {
+            return;
+        }
+        final List<List<String>> messages = new ArrayList<List<String>>(requests.size());
+        for( final PersistentGetRequest request : requests ) {
+            // TestDDA result is cached per directory, only the first request of a directory may ask the node
+            final File downloadDir = request.getTargetFile().getParentFile();
+            request.isDda = TestDDAHelper.isDDAPossiblePersistent(FcpSocket.DDAModes.WANT_DOWNLOAD, downloadDir, fcpPersistentConnection);
+            messages.add(getPersistentGetMessage(
+                    request.getKey(),
+                    request.getId(),
+                    request.getTargetFile(),
+                    request.getPriority(),
+                    request.isDda));
+        }
+        fcpPersistentConnection.sendMessages(messages);
+    }
+
+    private List<String> getPersistentGetMessage(
+            final String key,
+            final String id,
+            final File targetFile,
+            final FreenetPriority priority,
+            final boolean isDda)
+    {
         final List<String> msg = new LinkedList<String>();
         msg.add("ClientGet");
         msg.add("IgnoreDS=false");
@@ -153,9 +226,43 @@ public class FcpMultiRequestConnectionFileTransferTools {
              msg.add("ReturnType=direct");
         }
 
-        fcpPersistentConnection.sendMessage(msg);
+        return msg;
+    }
 
-        return isDda;
+    /**
+     * Parameters of a persistent get for startPersistentGets().
+     */
+    public static class PersistentGetRequest {
+        private final String key;
+        private final String id;
+        private final File targetFile;
+        private final FreenetPriority priority;
+        private boolean isDda = false;
+
+        public PersistentGetRequest(final String key, final String id, final File targetFile, final FreenetPriority priority) {
+            this.key = key;
+            this.id = id;
+            this.targetFile = targetFile;
+            this.priority = priority;
+        }
+        public String getKey() {
+            return key;
+        }
+        public String getId() {
+            return id;
+        }
+        public File getTargetFile() {
+            return targetFile;
+        }
+        public FreenetPriority getPriority() {
+            return priority;
+        }
+        /**
+         * @return true when the download was started using DDA, false if it is using DIRECT
+         */
+        public boolean isDda() {
+            return isDda;
+        }
     }
 
     public void listPersistentRequests() {
@@ -207,6 +314,8 @@ public class FcpMultiRequestConnectionFileTransferTools {
      * Adds a file to the global queue DIRECT, means the file is transferred into the node completely.
      * Returns the first NodeMessage sent by the node after the transfer (PersistentPut or any error message).
      * After this method was called this connection is unuseable.
+     *
+     * @param transferListener  gets the statistics of the transfer when it starts, may be null
      */
     public NodeMessage startDirectPersistentPut(
             final String id,
@@ -216,17 +325,19 @@ public class FcpMultiRequestConnectionFileTransferTools {
             final boolean setTargetFileName,
             final boolean compress,
             final FreenetCompatibilityMode freenetCompatibilityMode,
-            final FreenetPriority prio)
+            final FreenetPriority prio,
+            final Consumer<FcpTransferStatistics> transferListener)
     throws IOException
     {
-        final FcpSocket newSocket = FcpSocket.create(fcpPersistentConnection.getNodeAddress());
+        final FcpSocket newSocket = createDirectTransferSocket(transferListener);
         if( newSocket == null ) {
             return null;
         }
 
+        final long dataLength = sourceFile.length();
         final List<String> msg = getDefaultPutMessage(id, sourceFile, fileName, doMime, setTargetFileName, compress, freenetCompatibilityMode, prio);
         msg.add("UploadFrom=direct");
-        msg.add("DataLength=" + Long.toString(sourceFile.length()));
+        msg.add("DataLength=" + Long.toString(dataLength));
         msg.add("Data");
 
         for( final String line : msg ) {
@@ -235,16 +346,14 @@ public class FcpMultiRequestConnectionFileTransferTools {
         newSocket.getFcpOut().flush();
 
 		// write complete file to socket
-		try (BufferedInputStream fileInput = new BufferedInputStream(new FileInputStream(sourceFile));) {
-			while (true) {
-				final int d = fileInput.read();
-				if (d < 0) {
-					break; // EOF
-				}
-				newSocket.getFcpRawOut().write(d);
-			}
+		final FcpTransferStatistics stats;
+		try {
+			stats = newSocket.sendFile(sourceFile, dataLength);
+		} catch (final IOException e) {
+			newSocket.close();
+			throw e;
 		}
-		newSocket.getFcpRawOut().flush();
+		logger.debug("*PPUT** {}: {}", id, stats);
 
         // XXX: For some reason Freenet never responds with an OK-message?
 
@@ -267,8 +376,23 @@ public class FcpMultiRequestConnectionFileTransferTools {
      * After this method was called this connection is unuseable.
      */
     public NodeMessage startDirectPersistentGet(final String id, final File targetFile) throws IOException {
+        return startDirectPersistentGet(id, targetFile, null, null);
+    }
 
-        final FcpSocket newSocket = FcpSocket.create(fcpPersistentConnection.getNodeAddress());
+    /**
+     * Fetches the data of a completed DIRECT persistent get into the target file.
+     *
+     * @param digest  if not null it is updated with the received data
+     * @param transferListener  gets the statistics of the transfer when it starts, may be null
+     */
+    public NodeMessage startDirectPersistentGet(
+            final String id,
+            final File targetFile,
+            final MessageDigest digest,
+            final Consumer<FcpTransferStatistics> transferListener)
+    throws IOException {
+
+        final FcpSocket newSocket = createDirectTransferSocket(transferListener);
         if( newSocket == null ) {
             return null;
         }
@@ -300,28 +424,15 @@ public class FcpMultiRequestConnectionFileTransferTools {
             // data follow, first get datalength
             final long dataLength = nodeMsg.getLongValue("DataLength");
 
-			long bytesWritten = 0;
-			try (BufferedOutputStream fileOut = new BufferedOutputStream(new FileOutputStream(targetFile));) {
-				final byte[] b = new byte[4096];
-				long bytesLeft = dataLength;
-
-				while (bytesLeft > 0) {
-					final int count = newSocket.getFcpIn().read(b, 0,
-							((bytesLeft > b.length) ? b.length : (int) bytesLeft));
-					if (count < 0) {
-						break;
-					} else {
-						bytesLeft -= count;
-					}
-					fileOut.write(b, 0, count);
-					bytesWritten += count;
-				}
-			}
-            logger.debug("*GET** Wrote {} of {} bytes to file.", bytesWritten, dataLength);
-
-            newSocket.close();
+            final FcpTransferStatistics stats;
+            try {
+                stats = newSocket.receiveFile(targetFile, dataLength, digest);
+            } finally {
+                newSocket.close();
+            }
+            logger.debug("*PGET** {}", stats);
 
-            if( bytesWritten == dataLength ) {
+            if( stats.isComplete() ) {
                 return nodeMsg;
             } else {
                 return null;
@@ -0,0 +1,108 @@
+/*
+  FcpNameTable.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed table of the FCP message and field names that Frost receives.
+ * Maps the raw bytes of a name to a shared String instance without creating
+ * a temporary String. Names that are not in the table are decoded as usual.
+ */
+class FcpNameTable {
+
+	private static final String[] NAMES = {
+		// message names
+		"AllData", "CompatibilityMode", "DataFound", "EndListPersistentRequests", "ExpectedDataLength",
+		"ExpectedHashes", "ExpectedMIME", "FCPPluginReply", "GetFailed", "IdentifierCollision", "NodeHello",
+		"PersistentGet", "PersistentPut", "PersistentPutDir", "PersistentRequestModified",
+		"PersistentRequestRemoved", "PluginInfo", "ProtocolError", "PutFailed", "PutFetchable", "PutSuccessful",
+		"SSKKeypair", "SendingToNetwork", "SimpleProgress", "StartedCompression", "FinishedCompression",
+		"TestDDAComplete", "TestDDAReply", "URIGenerated", "UnknownNodeIdentifier", "UnknownPeerNoteType",
+		// field names
+		"Identifier", "Global", "Code", "CodeDescription", "ShortCodeDescription", "ExtraDescription", "Fatal",
+		"DataLength", "Succeeded", "Required", "Total", "Failed", "FatallyFailed", "FinalizedTotal",
+		"LastProgress", "MinSuccessFetchBlocks", "URI", "RedirectURI", "InsertURI", "RequestURI", "Filename",
+		"TempFilename", "TargetFilename", "PriorityClass", "ReturnType", "Persistence", "ClientToken",
+		"Started", "Verbosity", "MaxRetries", "MaxSize", "UploadFrom", "Metadata.ContentType", "ContentType",
+		"Directory", "ReadFilename", "WriteFilename", "ContentToWrite", "ReadDirectoryAllowed",
+		"WriteDirectoryAllowed", "Testnet", "IsTalkable", "Codec", "OriginalSize", "CompressedSize", "Min",
+		"Max", "Definitive", "Compressed", "DontCompress", "RealTime", "Version", "Build", "Revision",
+		"FCPVersion", "Node", "NodeLanguage", "ConnectionIdentifier", "CompressionCodecs", "StartupTime",
+		"PluginName", "OriginalURI",
+	};
+
+	private static final int MASK = 511;
+	private static final String[] TABLE = new String[MASK + 1];
+	private static final byte[][] TABLE_BYTES = new byte[MASK + 1][];
+
+	static {
+		for (final String name : NAMES) {
+			final byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+			// for ASCII names String.hashCode() equals hash() over the bytes
+			int idx = name.hashCode() & MASK;
+			while (TABLE[idx] != null) {
+				idx = (idx + 1) & MASK;
+			}
+			TABLE[idx] = name;
+			TABLE_BYTES[idx] = bytes;
+		}
+	}
+
+	private FcpNameTable() {
+	}
+
+	/**
+	 * Returns the shared instance for a known name, or a new String for an
+	 * unknown name.
+	 */
+	static String lookup(final byte[] b, final int off, final int len) {
+		int idx = hash(b, off, len) & MASK;
+		while (true) {
+			final byte[] candidate = TABLE_BYTES[idx];
+			if (candidate == null) {
+				return new String(b, off, len, StandardCharsets.UTF_8);
+			}
+			if (matches(candidate, b, off, len)) {
+				return TABLE[idx];
+			}
+			idx = (idx + 1) & MASK;
+		}
+	}
+
+	private static int hash(final byte[] b, final int off, final int len) {
+		int h = 0;
+		for (int i = off; i < off + len; i++) {
+			h = 31 * h + (b[i] & 0xff);
+		}
+		return h;
+	}
+
+	private static boolean matches(final byte[] candidate, final byte[] b, final int off, final int len) {
+		if (candidate.length != len) {
+			return false;
+		}
+		for (int i = 0; i < len; i++) {
+			if (candidate[i] != b[off + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,173 @@
+/*
+  FcpNodeHealth.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import frost.fcp.NodeAddress;
+
+/**
+ * Load and health of one node, shared by its connection pool and its message transfer handler.
+ *
+ * Latency and error rate are moving averages over the last requests. After FAILURE_THRESHOLD
+ * failures in a row the node is not healthy until its backoff time elapsed, the backoff
+ * doubles with each further failure. One successful request makes the node healthy again.
+ */
+public class FcpNodeHealth implements FcpNodeHealthMBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(FcpNodeHealth.class);
+
+	// weight of a new sample in the moving averages
+	private static final double SMOOTHING = 0.2;
+
+	private static final int FAILURE_THRESHOLD = 3;
+
+	private static final long MAX_BACKOFF_MILLIS = 10L * 60L * 1000L;
+
+	private final NodeAddress nodeAddress;
+	private final long backoffMillis;
+
+	private int openRequests = 0;
+	private double latencyMillis = -1; // unknown
+	private double errorRate = 0;
+	private int consecutiveFailures = 0;
+	private long unhealthyUntil = 0;
+
+	private long requestCount = 0;
+	private long failureCount = 0;
+
+	/**
+	 * @param backoffMillis  time a failing node is avoided after FAILURE_THRESHOLD failures in a row
+	 */
+	public FcpNodeHealth(final NodeAddress nodeAddress, final long backoffMillis) {
+		this.nodeAddress = nodeAddress;
+		this.backoffMillis = Math.max(0, backoffMillis);
+	}
+
+	public NodeAddress getNodeAddress() {
+		return nodeAddress;
+	}
+
+	public synchronized void requestStarted() {
+		openRequests++;
+	}
+
+	/**
+	 * @param success        false if the request failed because of the node or the connection,
+	 *                       e.g. a broken socket or a ProtocolError. A failed lookup is a success.
+	 * @param latencyMillis  the duration of the request, or a negative value if unknown
+	 */
+	public synchronized void requestFinished(final boolean success, final long latencyMillis) {
+		if (openRequests > 0) {
+			openRequests--;
+		}
+		if (success) {
+			recordSuccess(latencyMillis);
+		} else {
+			recordFailure();
+		}
+	}
+
+	/**
+	 * Records a failure that was not counted as open request, e.g. a failed connect.
+	 */
+	public synchronized void connectFailed() {
+		recordFailure();
+	}
+
+	private void recordSuccess(final long latency) {
+		requestCount++;
+		if (latency >= 0) {
+			latencyMillis = (latencyMillis < 0) ? latency : latencyMillis + SMOOTHING * (latency - latencyMillis);
+		}
+		errorRate -= SMOOTHING * errorRate;
+		if (consecutiveFailures >= FAILURE_THRESHOLD) {
+			logger.info("FCP node is healthy again: {}", this);
+		}
+		consecutiveFailures = 0;
+		unhealthyUntil = 0;
+	}
+
+	private void recordFailure() {
+		requestCount++;
+		failureCount++;
+		errorRate += SMOOTHING * (1 - errorRate);
+		consecutiveFailures++;
+		if (consecutiveFailures >= FAILURE_THRESHOLD) {
+			final int shift = Math.min(consecutiveFailures - FAILURE_THRESHOLD, 10);
+			final long backoff = Math.min(backoffMillis << shift, MAX_BACKOFF_MILLIS);
+			unhealthyUntil = System.currentTimeMillis() + backoff;
+			logger.warn("FCP node is unhealthy for {} ms: {}", backoff, this);
+		}
+	}
+
+	public synchronized boolean isHealthy(final long now) {
+		return now >= unhealthyUntil;
+	}
+
+	public synchronized long getUnhealthyUntil() {
+		return unhealthyUntil;
+	}
+
+	/**
+	 * Lower is better. The expected wait is the latency times the requests that are already
+	 * running, failing nodes get a penalty.
+	 *
+	 * @param defaultLatency  used while the latency of this node is unknown
+	 */
+	public synchronized double getScore(final double defaultLatency) {
+		final double latency = (latencyMillis < 0) ? defaultLatency : latencyMillis;
+		return (openRequests + 1) * Math.max(latency, 1) * (1 + 4 * errorRate);
+	}
+
+	public synchronized int getOpenRequests() {
+		return openRequests;
+	}
+
+	/**
+	 * @return the moving average of the request duration, or -1 if unknown
+	 */
+	public synchronized double getLatencyMillis() {
+		return latencyMillis;
+	}
+
+	/**
+	 * @return the moving average of failed requests, between 0 and 1
+	 */
+	public synchronized double getErrorRate() {
+		return errorRate;
+	}
+
+	public synchronized long getRequestCount() {
+		return requestCount;
+	}
+
+	public synchronized long getFailureCount() {
+		return failureCount;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return nodeAddress.getHostName() + ":" + nodeAddress.getPort() + " open=" + openRequests
+				+ " latencyMillis=" + Math.round(latencyMillis) + " errorRate=" + String.format("%.2f", errorRate)
+				+ " requests=" + requestCount + " failures=" + failureCount
+				+ " consecutiveFailures=" + consecutiveFailures;
+	}
+}
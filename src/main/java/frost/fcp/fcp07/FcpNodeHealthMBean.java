@@ -0,0 +1,40 @@
+/*
+  FcpNodeHealthMBean.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+/**
+ * JMX view of the health of a node, registered as frost:type=FcpNodeHealth,node="host:port".
+ */
+public interface FcpNodeHealthMBean {
+
+	public int getOpenRequests();
+
+	public double getLatencyMillis();
+
+	public double getErrorRate();
+
+	public long getRequestCount();
+
+	public long getFailureCount();
+
+	/**
+	 * @return the time the backoff of a failing node ends, in the past if the node is healthy
+	 */
+	public long getUnhealthyUntil();
+}
@@ -0,0 +1,88 @@
+/*
+  FcpNodeSelector.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Chooses the node for a new request, e.g. one connection pool or message transfer
+ * handler per configured node.
+ *
+ * The least loaded healthy node is chosen, see FcpNodeHealth.getScore(). If no node
+ * is healthy, the node whose backoff ends first is tried, so requests fail over
+ * to the other nodes and come back when a node recovered.
+ */
+public class FcpNodeSelector<T> {
+
+	// latency of nodes without samples, lets unknown nodes get their first requests
+	private static final double DEFAULT_LATENCY_MILLIS = 1;
+
+	private final List<T> nodes;
+	private final Function<T, FcpNodeHealth> healthOf;
+
+	public FcpNodeSelector(final List<T> nodes, final Function<T, FcpNodeHealth> healthOf) {
+		this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+		this.healthOf = healthOf;
+	}
+
+	public List<T> getNodes() {
+		return nodes;
+	}
+
+	public FcpNodeHealth getHealth(final T node) {
+		return healthOf.apply(node);
+	}
+
+	public T select() {
+		return select(Collections.<T>emptySet());
+	}
+
+	/**
+	 * @param exclude  nodes that already failed for this request
+	 * @return the best node that is not excluded, or null if all nodes are excluded
+	 */
+	public T select(final Collection<T> exclude) {
+		final long now = System.currentTimeMillis();
+		T best = null;
+		double bestScore = Double.MAX_VALUE;
+		T firstRecovered = null;
+		long firstRecoveredTime = Long.MAX_VALUE;
+		for (final T node : nodes) {
+			if (exclude.contains(node)) {
+				continue;
+			}
+			final FcpNodeHealth health = healthOf.apply(node);
+			if (health.isHealthy(now)) {
+				final double score = health.getScore(DEFAULT_LATENCY_MILLIS);
+				if (score < bestScore) {
+					best = node;
+					bestScore = score;
+				}
+			} else if (health.getUnhealthyUntil() < firstRecoveredTime) {
+				firstRecovered = node;
+				firstRecoveredTime = health.getUnhealthyUntil();
+			}
+		}
+		return (best != null) ? best : firstRecovered;
+	}
+}
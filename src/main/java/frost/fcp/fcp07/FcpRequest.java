@@ -94,7 +94,21 @@ public class FcpRequest {
         return results;
     }
 
-    // used by getFile
+    /**
+     * Retrieves a small key like a message into memory, no file is written.
+     *
+     * @return the results, the data of a successful request is in FcpResultGet.getData()
+     */
+    public static FcpResultGet getData(
+            final int type,
+            final String key,
+            final int maxSize,
+            final int maxRetries)
+    {
+        return getKey(type, key, null, maxSize, maxRetries, null);
+    }
+
+    // used by getFile and getData, target is null for getData
     private static FcpResultGet getKey(
             final int type,
             final String key,
@@ -118,26 +132,31 @@ public class FcpRequest {
         FcpResultGet results = null;
 
         if( connection != null ) {
-            int tries = 0;
-            final int maxtries = 3;
-            while( tries < maxtries ) {
-                try {
-                    results = connection.getKeyToFile(type, key, target, maxSize, maxRetries, dlItem);
-                    break;
-                } catch( final ConnectException e ) {
-                    tries++;
-                    continue;
-                } catch( final DataNotFoundException ex ) { // frost.FcpTools.DataNotFoundException
-                    // do nothing, data not found is usual ...
-					logger.info("FcpRequest.getKey(1): DataNotFoundException (usual if not found)", ex);
-                    break;
-                } catch( final FcpToolsException e ) {
-					logger.error("FcpRequest.getKey(1): FcpToolsException", e);
-                    break;
-                } catch( final IOException e ) {
-					logger.error("FcpRequest.getKey(1): IOException", e);
-                    break;
+            try {
+                int tries = 0;
+                final int maxtries = 3;
+                while( tries < maxtries ) {
+                    try {
+                        results = connection.getKeyToFile(type, key, target, maxSize, maxRetries, dlItem);
+                        break;
+                    } catch( final ConnectException e ) {
+                        tries++;
+                        continue;
+                    } catch( final DataNotFoundException ex ) { // frost.FcpTools.DataNotFoundException
+                        // do nothing, data not found is usual ...
+                        logger.info("FcpRequest.getKey(1): DataNotFoundException (usual if not found)", ex);
+                        break;
+                    } catch( final FcpToolsException e ) {
+                        logger.error("FcpRequest.getKey(1): FcpToolsException", e);
+                        break;
+                    } catch( final IOException e ) {
+                        logger.error("FcpRequest.getKey(1): IOException", e);
+                        break;
+                    }
                 }
+            } finally {
+                // returns the connection to the pool
+                connection.close();
             }
         }
 
@@ -156,16 +175,25 @@ public class FcpRequest {
                                              .append(keyUrl).toString();
         }
 
-        logger.debug("getKey: file = '{}' ; len = {}", target.getPath(), target.length());
+        final long length;
+        if( target == null ) {
+            length = (results != null && results.getData() != null) ? results.getData().length : 0;
+            logger.debug("getKey: data ; len = {}", length);
+        } else {
+            length = target.length();
+            logger.debug("getKey: file = '{}' ; len = {}", target.getPath(), length);
+        }
 
         if( results == null ) {
             // paranoia
             results = FcpResultGet.RESULT_FAILED;
             logger.debug("getKey - Failed, result=null");
-        } else if( results.isSuccess() && target.length() > 0 ) {
+        } else if( results.isSuccess() && length > 0 ) {
             logger.debug("getKey - Success: {}", printableKey);
         } else {
-            target.delete();
+            if( target != null ) {
+                target.delete();
+            }
             logger.debug("getKey - Failed: {}; rc = {}; isFatal = {}", printableKey, results.getReturnCode(), results.isFatal());
         }
         return results;
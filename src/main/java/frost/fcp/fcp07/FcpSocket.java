@@ -18,16 +18,32 @@
 */
 package frost.fcp.fcp07;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
 import java.net.ConnectException;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,13 +58,31 @@ public class FcpSocket {
     // This is the timeout set in Socket.setSoTimeout().
     private final static int TIMEOUT = 90 * 60 * 1000;
 
+    // Maximum bytes handed to one FileChannel.transferTo() call.
+    private final static long TRANSFER_CHUNK_SIZE = 8L * 1024L * 1024L;
+
+    // Size of the direct buffer used to receive payloads.
+    private final static int RECEIVE_BUFFER_SIZE = 256 * 1024;
+
+    // Size of the buffer for outgoing messages, a flush() sends all buffered messages at once.
+    private final static int SEND_BUFFER_SIZE = 64 * 1024;
+
     private final NodeAddress nodeAddress;
 
+    private SocketChannel fcpChannel;
     private Socket fcpSock;
-    private BufferedInputStream fcpIn;
-    private PrintStream fcpOut;
+    private FcpInputStream fcpIn;
+    private MessagePrintStream fcpOut;
     private final BufferedOutputStream fcpRawOut;
 
+    // true while the socket is counted as open connection in the FcpMetrics
+    private final AtomicBoolean isCounted = new AtomicBoolean(false);
+
+    // limits the payload transfers of this socket, null if unlimited
+    private FcpBandwidthLimiter bandwidthLimiter = null;
+    // gets the statistics of each payload transfer when it starts, null if not needed
+    private Consumer<FcpTransferStatistics> transferListener = null;
+
     private final Set<String> checkedDirectories = Collections.synchronizedSet(new HashSet<String>());
     
     private static long fcpidentifierPart1 = Core.getCrypto().getSecureRandom().nextLong();
@@ -87,17 +121,73 @@ public class FcpSocket {
      */
     public FcpSocket(final NodeAddress na, final boolean infiniteTimeout) throws UnknownHostException, IOException {
         nodeAddress = na;
-        fcpSock = new Socket(nodeAddress.getHost(), nodeAddress.getPort());
+        // open the socket through a channel, this allows to transfer file data without copying
+        fcpChannel = SocketChannel.open(new InetSocketAddress(nodeAddress.getHost(), nodeAddress.getPort()));
+        fcpSock = fcpChannel.socket();
         if (!infiniteTimeout) {
             fcpSock.setSoTimeout(TIMEOUT);
         }
         fcpSock.setKeepAlive(true);
 
-        fcpIn = new BufferedInputStream(fcpSock.getInputStream());
+        fcpIn = new FcpInputStream(fcpSock.getInputStream());
         fcpRawOut = new BufferedOutputStream(fcpSock.getOutputStream());
-        fcpOut = new PrintStream(fcpSock.getOutputStream(), false, "UTF-8");
+        // every writer must flush() or checkError() after its messages
+        fcpOut = new MessagePrintStream(new BufferedOutputStream(fcpSock.getOutputStream(), SEND_BUFFER_SIZE));
 
         doHandshake();
+
+        isCounted.set(true);
+        FcpMetrics.getInstance().connectionOpened();
+    }
+
+    /**
+     * Counts the sent messages and their bytes in the FcpMetrics. A message starts with
+     * the line after 'EndMessage' or 'Data', all senders write their lines with println().
+     */
+    private static class MessagePrintStream extends PrintStream {
+
+        private String messageName = null;
+        private String lastMessageName = null;
+        private long messageBytes = 0;
+
+        MessagePrintStream(final OutputStream out) throws UnsupportedEncodingException {
+            super(out, false, "UTF-8");
+        }
+
+        @Override
+        public synchronized void println(final String line) {
+            super.println(line);
+            if( messageName == null ) {
+                messageName = line;
+            }
+            messageBytes += utf8Length(line) + 1;
+            if( "EndMessage".equals(line) || "Data".equals(line) ) {
+                FcpMetrics.getInstance().messageSent(messageName, messageBytes);
+                lastMessageName = messageName;
+                messageName = null;
+                messageBytes = 0;
+            }
+        }
+
+        /**
+         * @return the name of the last complete message, the payload of a 'Data' message belongs to it
+         */
+        synchronized String getLastMessageName() {
+            return lastMessageName;
+        }
+
+        private static int utf8Length(final String s) {
+            int len = s.length();
+            for( int i = 0; i < s.length(); i++ ) {
+                final char c = s.charAt(i);
+                if( c >= 0x800 ) {
+                    len += Character.isSurrogate(c) ? 1 : 2;
+                } else if( c >= 0x80 ) {
+                    len++;
+                }
+            }
+            return len;
+        }
     }
 
     /**
@@ -121,7 +211,7 @@ public class FcpSocket {
         return nodeAddress;
     }
 
-    public BufferedInputStream getFcpIn() {
+    public FcpInputStream getFcpIn() {
         return fcpIn;
     }
 
@@ -137,7 +227,287 @@ public class FcpSocket {
         return fcpSock;
     }
 
+    public SocketChannel getFcpChannel() {
+        return fcpChannel;
+    }
+
+    /**
+     * Sends dataLength bytes of the file to the node, used for the payload of a message
+     * that ended with 'Data'. The data is transferred from the file channel to the socket
+     * channel (sendfile where the OS supports it) in chunks of TRANSFER_CHUNK_SIZE.
+     *
+     * The payload must follow the message without any other data in between, the caller
+     * is responsible to hold any write lock of a shared connection.
+     *
+     * @param sourceFile  the file to send
+     * @param dataLength  the DataLength that was announced to the node
+     * @throws IOException if the file got shorter than dataLength or the socket failed
+     */
+    public FcpTransferStatistics sendFile(final File sourceFile, final long dataLength) throws IOException {
+        // everything that was written through the streams must be sent before the payload
+        fcpOut.flush();
+        fcpRawOut.flush();
+
+        final FcpTransferStatistics stats = startTransfer(FcpTransferStatistics.Direction.UPLOAD, dataLength);
+        final long chunkSize = (bandwidthLimiter == null) ? TRANSFER_CHUNK_SIZE
+                : bandwidthLimiter.getChunkSize((int) TRANSFER_CHUNK_SIZE);
+        try (FileChannel fileChannel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);) {
+            long position = 0;
+            while (position < dataLength) {
+                final long chunk = Math.min(chunkSize, dataLength - position);
+                final long sent = fileChannel.transferTo(position, chunk, fcpChannel);
+                if (sent <= 0 && position >= fileChannel.size()) {
+                    throw new IOException("File " + sourceFile.getPath() + " is shorter than the announced "
+                            + dataLength + " bytes");
+                }
+                position += sent;
+                stats.addChunk(sent);
+                limitBandwidth(sent);
+            }
+        }
+        stats.finished();
+        FcpMetrics.getInstance().payloadSent(fcpOut.getLastMessageName(), stats.getTransferredBytes());
+        logger.debug("Sent file {}: {}", sourceFile.getName(), stats);
+        return stats;
+    }
+
+    /**
+     * Sends the payload of a message that ended with 'Data' from memory.
+     * The caller is responsible to hold any write lock of a shared connection.
+     */
+    public void sendData(final byte[] data) throws IOException {
+        fcpOut.flush();
+        fcpRawOut.write(data);
+        fcpRawOut.flush();
+        FcpMetrics.getInstance().payloadSent(fcpOut.getLastMessageName(), data.length);
+    }
+
+    /**
+     * Receives the payload of a message that ended with 'Data' into the target file.
+     * Bytes that were already buffered by the FcpInputStream are written first, the rest
+     * is read from the socket channel into a direct buffer and written to the file channel,
+     * the data is never copied into a heap array.
+     *
+     * Stops early if the socket is closed, check FcpTransferStatistics.isComplete().
+     *
+     * @param targetFile  the file to write, an existing file is overwritten
+     * @param dataLength  the DataLength of the message
+     * @param digest      if not null it is updated with all received bytes, e.g. to verify
+     *                    the SHA-256 of the file without reading it again
+     * @throws java.io.FileNotFoundException if the target file can't be created
+     */
+    public FcpTransferStatistics receiveFile(final File targetFile, final long dataLength, final MessageDigest digest)
+    throws IOException {
+
+        final FcpTransferStatistics stats = startTransfer(FcpTransferStatistics.Direction.DOWNLOAD, dataLength);
+        try (FileOutputStream fileOut = new FileOutputStream(targetFile);
+                FileChannel fileChannel = fileOut.getChannel();) {
+            receive(fileChannel, dataLength, digest, stats);
+        }
+        stats.finished();
+        // only AllData carries a payload from the node
+        FcpMetrics.getInstance().payloadReceived("AllData", stats.getTransferredBytes());
+        logger.debug("Received file {}: {}", targetFile.getName(), stats);
+        return stats;
+    }
+
+    /**
+     * Receives the payload of a message that ended with 'Data' into memory, used for
+     * small payloads like messages that need no file.
+     *
+     * @param dataLength  the DataLength of the message
+     * @return the payload, or null if the socket was closed before all data was received
+     */
+    public byte[] receiveData(final int dataLength) throws IOException {
+
+        final FcpTransferStatistics stats = startTransfer(FcpTransferStatistics.Direction.DOWNLOAD, dataLength);
+        final byte[] data = new byte[dataLength];
+        final ByteBuffer dataBuffer = ByteBuffer.wrap(data);
+        receive(new WritableByteChannel() {
+            public int write(final ByteBuffer src) {
+                final int count = src.remaining();
+                dataBuffer.put(src);
+                return count;
+            }
+            public boolean isOpen() {
+                return true;
+            }
+            public void close() {
+            }
+        }, dataLength, null, stats);
+        stats.finished();
+        FcpMetrics.getInstance().payloadReceived("AllData", stats.getTransferredBytes());
+        logger.debug("Received data: {}", stats);
+        return (dataBuffer.hasRemaining()) ? null : data;
+    }
+
+    /**
+     * Reads and discards the payload of a message that ended with 'Data', e.g. if it is
+     * too large to be received into memory.
+     *
+     * @return the number of skipped bytes, less than dataLength if the socket was closed
+     */
+    public long skipData(final long dataLength) throws IOException {
+
+        final FcpTransferStatistics stats = startTransfer(FcpTransferStatistics.Direction.DOWNLOAD, dataLength);
+        receive(new WritableByteChannel() {
+            public int write(final ByteBuffer src) {
+                final int count = src.remaining();
+                src.position(src.limit());
+                return count;
+            }
+            public boolean isOpen() {
+                return true;
+            }
+            public void close() {
+            }
+        }, dataLength, null, stats);
+        stats.finished();
+        FcpMetrics.getInstance().payloadReceived("AllData", stats.getTransferredBytes());
+        logger.debug("Skipped data: {}", stats);
+        return stats.getTransferredBytes();
+    }
+
+    /**
+     * Writes the buffered bytes and then the bytes read from the socket channel to the target.
+     */
+    private void receive(final WritableByteChannel target, final long dataLength, final MessageDigest digest,
+            final FcpTransferStatistics stats) throws IOException {
+
+        long bytesLeft = dataLength;
+        final int buffered = fcpIn.transferBuffered(target, bytesLeft, digest);
+        if (buffered > 0) {
+            stats.addChunk(buffered);
+            bytesLeft -= buffered;
+            limitBandwidth(buffered);
+        }
+
+        if (bytesLeft > 0) {
+            final int bufferSize = (bandwidthLimiter == null) ? RECEIVE_BUFFER_SIZE
+                    : bandwidthLimiter.getChunkSize(RECEIVE_BUFFER_SIZE);
+            final ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(bufferSize, bytesLeft));
+            final int timeout = fcpSock.getSoTimeout();
+            Selector selector = null;
+            if (timeout > 0) {
+                // reads of a blocking channel ignore the socket timeout, wait with a selector instead
+                selector = Selector.open();
+                fcpChannel.configureBlocking(false);
+                fcpChannel.register(selector, SelectionKey.OP_READ);
+            }
+            try {
+                while (bytesLeft > 0) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), bytesLeft));
+                    final int count = readChannel(buffer, selector, timeout);
+                    if (count < 0) {
+                        break; // socket closed
+                    }
+                    buffer.flip();
+                    if (digest != null) {
+                        digest.update(buffer);
+                        buffer.rewind();
+                    }
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    bytesLeft -= count;
+                    stats.addChunk(count);
+                    // reading less throttles the node through the TCP window
+                    limitBandwidth(count);
+                }
+            } finally {
+                if (selector != null) {
+                    selector.close(); // deregisters the channel
+                    fcpChannel.configureBlocking(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Limits the payload transfers of this socket, used for direct transfers that share a global limit.
+     */
+    public void setBandwidthLimiter(final FcpBandwidthLimiter limiter) {
+        bandwidthLimiter = limiter;
+    }
+
+    /**
+     * The listener gets the statistics of each payload transfer when it starts, they are
+     * updated while the transfer runs and can be used to show its progress.
+     */
+    public void setTransferListener(final Consumer<FcpTransferStatistics> listener) {
+        transferListener = listener;
+    }
+
+    private FcpTransferStatistics startTransfer(final FcpTransferStatistics.Direction direction, final long dataLength) {
+        final FcpTransferStatistics stats = new FcpTransferStatistics(direction, dataLength);
+        if (transferListener != null) {
+            transferListener.accept(stats);
+        }
+        return stats;
+    }
+
+    private void limitBandwidth(final long bytes) throws InterruptedIOException {
+        if (bandwidthLimiter == null) {
+            return;
+        }
+        try {
+            bandwidthLimiter.acquire(bytes);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+        }
+    }
+
+    private int readChannel(final ByteBuffer buffer, final Selector selector, final int timeout) throws IOException {
+        if (selector == null) {
+            return fcpChannel.read(buffer);
+        }
+        while (true) {
+            final int count = fcpChannel.read(buffer);
+            if (count != 0) {
+                return count;
+            }
+            if (selector.select(timeout) == 0) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            selector.selectedKeys().clear();
+        }
+    }
+
+    /**
+     * Checks if an idle socket can be used for a new request. An idle socket has nothing
+     * to read, a readable socket received unexpected data or was closed by the node.
+     */
+    public boolean isUsable() {
+        if( fcpSock == null || fcpSock.isClosed() || !fcpSock.isConnected()
+                || fcpSock.isInputShutdown() || fcpSock.isOutputShutdown() )
+        {
+            return false;
+        }
+        try {
+            if( fcpIn.available() > 0 ) {
+                return false;
+            }
+            final Selector selector = Selector.open();
+            try {
+                fcpChannel.configureBlocking(false);
+                fcpChannel.register(selector, SelectionKey.OP_READ);
+                return selector.selectNow() == 0;
+            } finally {
+                selector.close(); // deregisters the channel
+                fcpChannel.configureBlocking(true);
+            }
+        } catch(final IOException e) {
+            logger.debug("Socket is not usable", e);
+            return false;
+        }
+    }
+
     public void close() {
+        if( isCounted.compareAndSet(true, false) ) {
+            FcpMetrics.getInstance().connectionClosed();
+        }
         if( fcpIn != null ) {
             try {
                 fcpIn.close();
@@ -154,10 +524,11 @@ public class FcpSocket {
         }
         if( fcpSock != null ) {
             try {
-                fcpSock.close();
+                fcpSock.close(); // closes the channel too
             } catch (final Throwable e) {
             }
             fcpSock = null;
+            fcpChannel = null;
         }
     }
 
@@ -0,0 +1,146 @@
+/*
+  FcpTransferStatistics.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of a single payload transfer between Frost and the node.
+ * The totals of all transfers are kept in static counters.
+ */
+public class FcpTransferStatistics {
+
+	public enum Direction {
+		UPLOAD,
+		DOWNLOAD
+	}
+
+	private static final AtomicLong totalUploadBytes = new AtomicLong();
+	private static final AtomicLong totalUploadNanos = new AtomicLong();
+	private static final AtomicLong totalDownloadBytes = new AtomicLong();
+	private static final AtomicLong totalDownloadNanos = new AtomicLong();
+
+	private final Direction direction;
+	private final long expectedBytes;
+	private final long startNanos;
+	// written by the transfer thread, read while the transfer runs to show the progress
+	private volatile long transferredBytes = 0;
+	private volatile int chunks = 0;
+	private volatile long durationNanos = -1;
+
+	public FcpTransferStatistics(final Direction direction, final long expectedBytes) {
+		this.direction = direction;
+		this.expectedBytes = expectedBytes;
+		this.startNanos = System.nanoTime();
+	}
+
+	void addChunk(final long bytes) {
+		transferredBytes += bytes;
+		chunks++;
+	}
+
+	/**
+	 * Marks the transfer as finished and adds it to the totals.
+	 */
+	void finished() {
+		durationNanos = System.nanoTime() - startNanos;
+		if (direction == Direction.UPLOAD) {
+			totalUploadBytes.addAndGet(transferredBytes);
+			totalUploadNanos.addAndGet(durationNanos);
+		} else {
+			totalDownloadBytes.addAndGet(transferredBytes);
+			totalDownloadNanos.addAndGet(durationNanos);
+		}
+	}
+
+	public Direction getDirection() {
+		return direction;
+	}
+
+	public long getExpectedBytes() {
+		return expectedBytes;
+	}
+
+	public long getTransferredBytes() {
+		return transferredBytes;
+	}
+
+	public boolean isComplete() {
+		return transferredBytes == expectedBytes;
+	}
+
+	public boolean isFinished() {
+		return durationNanos >= 0;
+	}
+
+	/**
+	 * @return the transferred bytes in percent of the expected bytes
+	 */
+	public int getPercentDone() {
+		if (expectedBytes <= 0) {
+			return isFinished() ? 100 : 0;
+		}
+		return (int) (transferredBytes * 100 / expectedBytes);
+	}
+
+	public int getChunks() {
+		return chunks;
+	}
+
+	public long getDurationMillis() {
+		final long nanos = (durationNanos < 0) ? (System.nanoTime() - startNanos) : durationNanos;
+		return nanos / 1000000L;
+	}
+
+	/**
+	 * @return bytes per second, or 0 if the transfer took no measurable time
+	 */
+	public long getBytesPerSecond() {
+		return bytesPerSecond(transferredBytes, (durationNanos < 0) ? (System.nanoTime() - startNanos) : durationNanos);
+	}
+
+	public static long getTotalUploadBytes() {
+		return totalUploadBytes.get();
+	}
+
+	public static long getTotalUploadBytesPerSecond() {
+		return bytesPerSecond(totalUploadBytes.get(), totalUploadNanos.get());
+	}
+
+	public static long getTotalDownloadBytes() {
+		return totalDownloadBytes.get();
+	}
+
+	public static long getTotalDownloadBytesPerSecond() {
+		return bytesPerSecond(totalDownloadBytes.get(), totalDownloadNanos.get());
+	}
+
+	private static long bytesPerSecond(final long bytes, final long nanos) {
+		if (nanos <= 0) {
+			return 0;
+		}
+		return (long) (bytes * 1000000000.0 / nanos);
+	}
+
+	@Override
+	public String toString() {
+		return direction + " " + transferredBytes + "/" + expectedBytes + " bytes in " + chunks + " chunks, "
+				+ getDurationMillis() + " ms, " + (getBytesPerSecond() / 1024) + " KiB/s";
+	}
+}
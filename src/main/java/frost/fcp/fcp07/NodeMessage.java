@@ -22,7 +22,8 @@ import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -42,12 +43,31 @@ public class NodeMessage {
 
 	private static final Logger logger = LoggerFactory.getLogger(NodeMessage.class);
 
+    private static final int INITIAL_FIELD_COUNT = 16;
+    private static final int INITIAL_RAW_SIZE = 256;
+
+    // sign and digits that always fit without overflow
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final int MAX_INT_DIGITS = 9;
+    private static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
     private final String messageName;
-    private final HashMap<String,String> items;
     private String messageEndMarker = null;
 
+    // fields in receive order, a value is either a String or a range in rawValues
+    private String[] fieldNames;
+    private String[] fieldValues;
+    private int[] rawOffsets;
+    private int[] rawLengths; // -1 if the value was set as String
+    private int fieldCount = 0;
+    private byte[] rawValues = null;
+    private int rawSize = 0;
+
     private BufferedInputStream fcpInStream = null;
 
+    // bytes of the message lines as received, without payload
+    private long wireBytes = 0;
+
     /////////////////////////////////////////////////////////////////////////////////////////
     // BEGIN OF STATIC FACTORY ///////////////////////////////////////////////
     /////////////////////////////////////////////////////////////////////////////////////////
@@ -66,11 +86,32 @@ public class NodeMessage {
 
     /**
      * Returns null if socket was closed, or a nodemessage.
+     * Streams of a FcpSocket are FcpInputStreams and parse the message directly
+     * from their buffer, other streams are read byte by byte.
      */
     public static NodeMessage readMessage(final BufferedInputStream fcpInp) {
+        NodeMessage result;
+        if (fcpInp instanceof FcpInputStream) {
+            try {
+                result = ((FcpInputStream) fcpInp).readMessage();
+            } catch (final IOException e) {
+                logger.error("IOException catched", e);
+                return null;
+            }
+        } else {
+            result = readMessageBytewise(fcpInp);
+        }
+        if (result != null) {
+            FcpMetrics.getInstance().messageReceived(result, result.wireBytes);
+        }
+        return result;
+    }
+
+    private static NodeMessage readMessageBytewise(final BufferedInputStream fcpInp) {
 
         NodeMessage result = null;
         boolean isfirstline = true;
+        long wireBytes = 0;
         final ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
 
         while(true) {
@@ -81,6 +122,7 @@ public class NodeMessage {
                 return null;
             }
 
+            wireBytes += bytes.size() + 1;
             bytes.reset(); // reset for next run
 
             if ((tmp.trim()).length() == 0) { continue; } // an empty line
@@ -94,11 +136,13 @@ public class NodeMessage {
             if (tmp.compareTo("Data") == 0) {
                 result.setEnd(tmp);
                 result.fcpInStream = fcpInp; // remember stream for receive of data
+                result.wireBytes = wireBytes;
                 break;
             }
 
             if (tmp.compareTo("EndMessage") == 0) {
                 result.setEnd(tmp);
+                result.wireBytes = wireBytes;
                 break;
             }
 
@@ -114,20 +158,14 @@ public class NodeMessage {
     }
 
 	public byte[] receiveMessageData(final long datalen) throws IOException {
-		try (ByteArrayOutputStream byteOut = new ByteArrayOutputStream();) {
-			final byte[] b = new byte[4096];
-			long bytesLeft = datalen;
-			while (bytesLeft > 0) {
-				final int count = fcpInStream.read(b, 0, ((bytesLeft > b.length) ? b.length : (int) bytesLeft));
-				if (count < 0) {
-					break;
-				} else {
-					bytesLeft -= count;
-				}
-				byteOut.write(b, 0, count);
-			}
-			return byteOut.toByteArray();
+		if (datalen > Integer.MAX_VALUE - 8) {
+			throw new IOException("DataLength too large to receive into memory: " + datalen);
 		}
+		// read directly into the result, the returned array is shorter if the socket was closed
+		final byte[] data = new byte[(int) datalen];
+		final int count = fcpInStream.readNBytes(data, 0, data.length);
+		FcpMetrics.getInstance().payloadReceived(messageName, count);
+		return (count == data.length) ? data : Arrays.copyOf(data, count);
 	}
 
     private static String readLine(final BufferedInputStream fcpInp, final ByteArrayOutputStream bytes) {
@@ -159,7 +197,10 @@ public class NodeMessage {
      */
     protected NodeMessage(final String name) {
         messageName = name;
-        items = new HashMap<String,String>();
+        fieldNames = new String[INITIAL_FIELD_COUNT];
+        fieldValues = new String[INITIAL_FIELD_COUNT];
+        rawOffsets = new int[INITIAL_FIELD_COUNT];
+        rawLengths = new int[INITIAL_FIELD_COUNT];
     }
 
     /**
@@ -167,17 +208,34 @@ public class NodeMessage {
      */
     @Override
     public String toString() {
-        return messageName + " " + items + " " + messageEndMarker;
+        final StringBuilder sb = new StringBuilder();
+        sb.append(messageName).append(" {");
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(fieldNames[i]).append('=').append(getValue(i));
+        }
+        sb.append("} ").append(messageEndMarker);
+        return sb.toString();
     }
 
     protected void setItem(final String name, final String value) {
-        items.put(name, value);
+        addItem(name, value);
     }
 
     protected void setEnd(final String em) {
         messageEndMarker = em;
     }
 
+    void setFcpInStream(final BufferedInputStream in) {
+        fcpInStream = in;
+    }
+
+    void setWireBytes(final long bytes) {
+        wireBytes = bytes;
+    }
+
     public String getMessageName() {
         return messageName;
     }
@@ -193,36 +251,165 @@ public class NodeMessage {
         return aName.equalsIgnoreCase(messageName);
     }
     public boolean isValueSet(final String name) {
-        return items.get(name) != null;
+        return indexOf(name) >= 0;
     }
     public String getStringValue(final String name) {
-        return items.get(name);
+        final int idx = indexOf(name);
+        if (idx < 0) {
+            return null;
+        }
+        return getValue(idx);
     }
     public long getLongValue(final String name) {
-        return Long.parseLong(items.get(name));
+        final int idx = indexOf(name);
+        if (idx >= 0 && rawLengths[idx] > 0 && rawLengths[idx] <= MAX_LONG_DIGITS) {
+            final long value = parseRawNumber(idx);
+            if (value != NOT_A_NUMBER) {
+                return value;
+            }
+        }
+        return Long.parseLong(idx < 0 ? null : getValue(idx));
     }
     public long getLongValue(final String name, final long defaultVal) {
         try {
-            return Long.parseLong(items.get(name));
+            return getLongValue(name);
         } catch(final Exception ex) {
             return defaultVal;
         }
     }
     public int getIntValue(final String name) {
-        return Integer.parseInt(items.get(name));
+        final int idx = indexOf(name);
+        if (idx >= 0 && rawLengths[idx] > 0 && rawLengths[idx] <= MAX_INT_DIGITS) {
+            final long value = parseRawNumber(idx);
+            if (value != NOT_A_NUMBER) {
+                return (int) value;
+            }
+        }
+        return Integer.parseInt(idx < 0 ? null : getValue(idx));
     }
     public int getIntValue(final String name, final int defaultVal) {
         try {
-            return Integer.parseInt(items.get(name));
+            return getIntValue(name);
         } catch(final Exception ex) {
             return defaultVal;
         }
     }
     public boolean getBoolValue(final String name) {
-        return "true".equalsIgnoreCase(items.get(name));
+        final int idx = indexOf(name);
+        if (idx < 0) {
+            return false;
+        }
+        if (fieldValues[idx] == null && rawLengths[idx] == 4) {
+            // compare raw bytes, avoids to decode the value
+            final int off = rawOffsets[idx];
+            return (rawValues[off] | 0x20) == 't'
+                && (rawValues[off+1] | 0x20) == 'r'
+                && (rawValues[off+2] | 0x20) == 'u'
+                && (rawValues[off+3] | 0x20) == 'e';
+        }
+        return "true".equalsIgnoreCase(getValue(idx));
     }
 
     public void addItem(final String key, final String value) {
-        items.put(key, value);
+        final int idx = indexOf(key);
+        if (idx >= 0) {
+            fieldValues[idx] = value;
+            rawLengths[idx] = -1;
+            return;
+        }
+        final int newIdx = newField(key);
+        fieldValues[newIdx] = value;
+        rawLengths[newIdx] = -1;
+    }
+
+    /**
+     * Adds a value that is kept as raw UTF-8 bytes until it is requested.
+     * Used by FcpInputStream, the bytes are copied.
+     */
+    void addRawItem(final String key, final byte[] b, final int off, final int len) {
+        int idx = indexOf(key);
+        if (idx < 0) {
+            idx = newField(key);
+        }
+        if (rawValues == null) {
+            rawValues = new byte[Math.max(INITIAL_RAW_SIZE, len)];
+        } else if (rawSize + len > rawValues.length) {
+            rawValues = Arrays.copyOf(rawValues, Math.max(rawValues.length * 2, rawSize + len));
+        }
+        System.arraycopy(b, off, rawValues, rawSize, len);
+        fieldValues[idx] = null;
+        rawOffsets[idx] = rawSize;
+        rawLengths[idx] = len;
+        rawSize += len;
+    }
+
+    private int newField(final String key) {
+        if (fieldCount == fieldNames.length) {
+            final int newLen = fieldCount * 2;
+            fieldNames = Arrays.copyOf(fieldNames, newLen);
+            fieldValues = Arrays.copyOf(fieldValues, newLen);
+            rawOffsets = Arrays.copyOf(rawOffsets, newLen);
+            rawLengths = Arrays.copyOf(rawLengths, newLen);
+        }
+        fieldNames[fieldCount] = key;
+        return fieldCount++;
+    }
+
+    /**
+     * Messages contain only a few fields, a linear scan is faster than hashing.
+     * Most names are shared instances (FcpNameTable and string literals),
+     * so the identity check usually matches.
+     */
+    private int indexOf(final String name) {
+        for (int i = 0; i < fieldCount; i++) {
+            if (fieldNames[i] == name) {
+                return i;
+            }
+        }
+        if (name == null) {
+            return -1;
+        }
+        for (int i = 0; i < fieldCount; i++) {
+            if (name.equals(fieldNames[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String getValue(final int idx) {
+        String value = fieldValues[idx];
+        if (value == null && rawLengths[idx] >= 0) {
+            value = new String(rawValues, rawOffsets[idx], rawLengths[idx], StandardCharsets.UTF_8);
+            fieldValues[idx] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a raw decimal value. The caller ensures that the value can't overflow.
+     * Returns NOT_A_NUMBER if the value contains anything else than an optional sign
+     * and digits, the caller then falls back to the String parser to get the usual exception.
+     */
+    private long parseRawNumber(final int idx) {
+        int pos = rawOffsets[idx];
+        final int end = pos + rawLengths[idx];
+        boolean negative = false;
+        if (rawValues[pos] == '-' || rawValues[pos] == '+') {
+            negative = rawValues[pos] == '-';
+            pos++;
+            if (pos == end) {
+                return NOT_A_NUMBER;
+            }
+        }
+        long result = 0;
+        for (; pos < end; pos++) {
+            final int digit = rawValues[pos] - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_A_NUMBER;
+            }
+            result = result * 10 + digit;
+        }
+        return negative ? -result : result;
     }
 }
@@ -0,0 +1,145 @@
+/*
+  NodeMessageDispatcher.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the listener calls for received node messages outside of the receive thread.
+ *
+ * Each Identifier is mapped to one of a fixed number of lanes, a lane is a thread
+ * with a bounded queue. All messages of an Identifier are processed in the order
+ * they were received, messages of different Identifiers are processed in parallel.
+ * If the queue of a lane is full, dispatch() blocks. The receive thread then stops
+ * to read from the socket until the listeners caught up.
+ */
+class NodeMessageDispatcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(NodeMessageDispatcher.class);
+
+	// numbers the dispatchers, a reconnect creates a new one for the same node
+	private static final AtomicInteger instanceCounter = new AtomicInteger();
+
+	private final Lane[] lanes;
+
+	private final AtomicLong dispatchedCount = new AtomicLong();
+	private final AtomicLong blockedCount = new AtomicLong();
+
+	/**
+	 * @param name  identifies the connection in the lane thread names, e.g. the node address
+	 */
+	NodeMessageDispatcher(final String name, final int laneCount, final int queueCapacity) {
+		final String prefix = "NodeMessageDispatcher-" + instanceCounter.incrementAndGet() + "-" + name + "-lane-";
+		lanes = new Lane[Math.max(1, laneCount)];
+		for (int i = 0; i < lanes.length; i++) {
+			lanes[i] = new Lane(prefix + i, Math.max(1, queueCapacity));
+			lanes[i].start();
+		}
+	}
+
+	/**
+	 * Queues the task in the lane of the identifier, waits while the queue is full.
+	 */
+	void dispatch(final String id, final Runnable task) throws InterruptedException {
+		final BlockingQueue<Runnable> queue = getLane(id).queue;
+		if (!queue.offer(task)) {
+			blockedCount.incrementAndGet();
+			queue.put(task);
+		}
+		dispatchedCount.incrementAndGet();
+	}
+
+	/**
+	 * Waits until all tasks that were queued for the identifier are processed.
+	 */
+	void awaitIdentifier(final String id) throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		getLane(id).queue.put(latch::countDown);
+		latch.await();
+	}
+
+	/**
+	 * Waits until all queued tasks are processed.
+	 */
+	void awaitAll() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(lanes.length);
+		for (final Lane lane : lanes) {
+			lane.queue.put(latch::countDown);
+		}
+		latch.await();
+	}
+
+	int getQueuedCount() {
+		int count = 0;
+		for (final Lane lane : lanes) {
+			count += lane.queue.size();
+		}
+		return count;
+	}
+
+	long getDispatchedCount() {
+		return dispatchedCount.get();
+	}
+
+	/**
+	 * @return how often the receive thread had to wait for a full queue
+	 */
+	long getBlockedCount() {
+		return blockedCount.get();
+	}
+
+	private Lane getLane(final String id) {
+		return lanes[Math.floorMod(id.hashCode(), lanes.length)];
+	}
+
+	private static class Lane extends Thread {
+
+		private final BlockingQueue<Runnable> queue;
+
+		Lane(final String name, final int queueCapacity) {
+			super(name);
+			setDaemon(true);
+			queue = new ArrayBlockingQueue<Runnable>(queueCapacity);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				final Runnable task;
+				try {
+					task = queue.take();
+				} catch (final InterruptedException e) {
+					break;
+				}
+				try {
+					task.run();
+				} catch (final Throwable t) {
+					logger.error("Exception catched in NodeMessageListener", t);
+				}
+			}
+		}
+	}
+}
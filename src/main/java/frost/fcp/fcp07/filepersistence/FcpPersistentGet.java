@@ -56,6 +56,11 @@ public class FcpPersistentGet extends FcpPersistentRequest {
     public boolean isPut() {
         return false;
     }
+
+    @Override
+    protected String getProgressSignature() {
+        return doneBlocks + "/" + requiredBlocks + "/" + totalBlocks + ";" + isFinalized + ";" + filesize;
+    }
     
     public void setProgress(NodeMessage msg) {
         // SimpleProgress message
@@ -54,6 +54,11 @@ public class FcpPersistentPut extends FcpPersistentRequest {
     public boolean isPut() {
         return true;
     }
+
+    @Override
+    protected String getProgressSignature() {
+        return doneBlocks + "/" + totalBlocks + ";" + isFinalized + ";" + uri;
+    }
     
     public void setProgress(NodeMessage msg) {
         // SimpleProgress message
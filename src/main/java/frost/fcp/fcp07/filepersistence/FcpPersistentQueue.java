@@ -19,34 +19,67 @@
 package frost.fcp.fcp07.filepersistence;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import frost.Core;
+import frost.Settings;
 import frost.fcp.fcp07.FcpMultiRequestConnectionFileTransferTools;
 import frost.fcp.fcp07.NodeMessage;
 import frost.fcp.fcp07.NodeMessageListener;
 import frost.fileTransfer.FreenetPriority;
+import frost.util.JmxUtil;
 
+/**
+ * Holds the requests of the global queue and passes their changes to the handler.
+ *
+ * The requests are kept when the connection is lost. After a reconnect the node lists the
+ * whole queue again, the handler gets only the differences: added requests, requests whose
+ * state changed, and the requests that were not listed are removed.
+ *
+ * After a restart the own items are restarted by the transfer managers with their old
+ * identifiers, so requests that vanished while Frost was not running need no special handling.
+ */
 public class FcpPersistentQueue implements NodeMessageListener {
 
 	private static final Logger logger = LoggerFactory.getLogger(FcpPersistentQueue.class);
 
     final private FcpMultiRequestConnectionFileTransferTools fcpTools;
-    final private IFcpPersistentRequestsHandler persistenceHandler;
+    // coalesces the progress updates of the requests before they reach the handler
+    final private FcpPersistentUpdateCoalescer persistenceHandler;
 
     // we hold all requests, gui shows only the wanted requests (all or own)
-    final private HashMap<String,FcpPersistentPut> uploadRequests = new HashMap<String,FcpPersistentPut>();
-    final private HashMap<String,FcpPersistentGet> downloadRequests = new HashMap<String,FcpPersistentGet>();
+    // messages of different identifiers are handled in parallel, messages of one identifier in order
+    final private Map<String,FcpPersistentPut> uploadRequests = new ConcurrentHashMap<String,FcpPersistentPut>();
+    final private Map<String,FcpPersistentGet> downloadRequests = new ConcurrentHashMap<String,FcpPersistentGet>();
+
+    // identifiers listed by the running ListPersistentRequests, null if no listing runs
+    private volatile Set<String> listedIdentifiers = null;
+    // updates of the running listing that did not change a request
+    private final AtomicInteger unchangedUpdates = new AtomicInteger();
 
     public FcpPersistentQueue(final FcpMultiRequestConnectionFileTransferTools tools, final IFcpPersistentRequestsHandler pman) {
         fcpTools = tools;
-        persistenceHandler = pman;
+        persistenceHandler = new FcpPersistentUpdateCoalescer(pman,
+                Core.frostSettings.getInteger(Settings.FCP2_PERSISTENT_UPDATE_RATE));
+        JmxUtil.registerMBean(persistenceHandler, "frost:type=FcpPersistentUpdates");
     }
 
     public void startThreads() {
+        persistenceHandler.start();
         fcpTools.getFcpPersistentConnection().addNodeMessageListener(this);
+        listPersistentRequests();
+    }
+
+    private void listPersistentRequests() {
+        unchangedUpdates.set(0);
+        listedIdentifiers = ConcurrentHashMap.newKeySet();
         fcpTools.watchGlobal(true);
         fcpTools.listPersistentRequests();
     }
@@ -69,31 +102,30 @@ public class FcpPersistentQueue implements NodeMessageListener {
     }
 
 
-    @SuppressWarnings("unchecked")
-    public synchronized Map<String,FcpPersistentPut> getUploadRequestsCopy() {
-        return (Map<String,FcpPersistentPut>)uploadRequests.clone();
+    public Map<String,FcpPersistentPut> getUploadRequestsCopy() {
+        return new HashMap<String,FcpPersistentPut>(uploadRequests);
     }
-    @SuppressWarnings("unchecked")
-    public synchronized Map<String,FcpPersistentGet> getDownloadRequestsCopy() {
-        return (Map<String,FcpPersistentGet>)downloadRequests.clone();
+    public Map<String,FcpPersistentGet> getDownloadRequestsCopy() {
+        return new HashMap<String,FcpPersistentGet>(downloadRequests);
     }
 
     public void connected() {
         persistenceHandler.connected();
-        // we are reconnected
-        fcpTools.watchGlobal(true);
-        fcpTools.listPersistentRequests();
+        // we are reconnected, the listing is reconciled with the requests we know
+        listPersistentRequests();
     }
 
     public void disconnected() {
+        // keep the requests, the next listing applies the changes
+        listedIdentifiers = null;
         persistenceHandler.disconnected();
-
-        uploadRequests.clear();
-        downloadRequests.clear();
     }
 
     public void handleNodeMessage(final NodeMessage nm) {
         // handle a NodeMessage without identifier
+        if( nm.isMessageName("EndListPersistentRequests") ) {
+            onEndListPersistentRequests();
+        }
     }
 
     public void handleNodeMessage(final String id, final NodeMessage nm) {
@@ -140,11 +172,42 @@ public class FcpPersistentQueue implements NodeMessageListener {
         }
     }
 
+    private void listed(final String id) {
+        final Set<String> listed = listedIdentifiers;
+        if( listed != null ) {
+            listed.add(id);
+        }
+    }
+
+    /**
+     * Passes the update to the handler if the state of the request changed, or if its
+     * last update was dropped when the connection was lost.
+     */
+    private void updated(final FcpPersistentGet pg, final String oldState) {
+        final boolean wasDropped = persistenceHandler.takeDroppedUpdate(pg.getIdentifier());
+        if( !wasDropped && oldState.equals(pg.getStateSignature()) ) {
+            unchangedUpdates.incrementAndGet();
+        } else {
+            persistenceHandler.persistentRequestUpdated(pg);
+        }
+    }
+
+    private void updated(final FcpPersistentPut pp, final String oldState) {
+        final boolean wasDropped = persistenceHandler.takeDroppedUpdate(pp.getIdentifier());
+        if( !wasDropped && oldState.equals(pp.getStateSignature()) ) {
+            unchangedUpdates.incrementAndGet();
+        } else {
+            persistenceHandler.persistentRequestUpdated(pp);
+        }
+    }
+
     protected void onPersistentGet(final String id, final NodeMessage nm) {
+        listed(id);
         if( downloadRequests.containsKey(id) ) {
             final FcpPersistentGet pg = downloadRequests.get(id);
+            final String oldState = pg.getStateSignature();
             pg.setRequest(nm);
-            persistenceHandler.persistentRequestUpdated(pg);
+            updated(pg, oldState);
             return;
         } else {
             final FcpPersistentGet fpg = new FcpPersistentGet(nm, id);
@@ -157,8 +220,9 @@ public class FcpPersistentQueue implements NodeMessageListener {
             logger.warn("No item in download queue: {}", nm);
         } else {
             final FcpPersistentGet pg = downloadRequests.get(id);
+            final String oldState = pg.getStateSignature();
             pg.setSuccess(nm);
-            persistenceHandler.persistentRequestUpdated(pg);
+            updated(pg, oldState);
         }
     }
     protected void onGetFailed(final String id, final NodeMessage nm) {
@@ -166,15 +230,18 @@ public class FcpPersistentQueue implements NodeMessageListener {
             logger.warn("No item in download queue: {}", nm);
         } else {
             final FcpPersistentGet pg = downloadRequests.get(id);
+            final String oldState = pg.getStateSignature();
             pg.setFailed(nm);
-            persistenceHandler.persistentRequestUpdated(pg);
+            updated(pg, oldState);
         }
     }
     protected void onPersistentPut(final String id, final NodeMessage nm) {
+        listed(id);
         if( uploadRequests.containsKey(id) ) {
             final FcpPersistentPut pg = uploadRequests.get(id);
+            final String oldState = pg.getStateSignature();
             pg.setRequest(nm);
-            persistenceHandler.persistentRequestUpdated(pg);
+            updated(pg, oldState);
         } else {
             final FcpPersistentPut fpg = new FcpPersistentPut(nm, id);
             uploadRequests.put(id, fpg);
@@ -187,8 +254,9 @@ public class FcpPersistentQueue implements NodeMessageListener {
             return;
         } else {
             final FcpPersistentPut pg = uploadRequests.get(id);
+            final String oldState = pg.getStateSignature();
             pg.setSuccess(nm);
-            persistenceHandler.persistentRequestUpdated(pg);
+            updated(pg, oldState);
         }
     }
     protected void onPutFailed(final String id, final NodeMessage nm) {
@@ -197,19 +265,22 @@ public class FcpPersistentQueue implements NodeMessageListener {
             return;
         } else {
             final FcpPersistentPut pp = uploadRequests.get(id);
+            final String oldState = pp.getStateSignature();
             pp.setFailed(nm);
-            persistenceHandler.persistentRequestUpdated(pp);
+            updated(pp, oldState);
         }
     }
     protected void onSimpleProgress(final String id, final NodeMessage nm) {
         if( downloadRequests.containsKey(id) ) {
             final FcpPersistentGet pg = downloadRequests.get(id);
+            final String oldState = pg.getStateSignature();
             pg.setProgress(nm);
-            persistenceHandler.persistentRequestUpdated(pg);
+            updated(pg, oldState);
         } else if( uploadRequests.containsKey(id) ) {
             final FcpPersistentPut pg = uploadRequests.get(id);
+            final String oldState = pg.getStateSignature();
             pg.setProgress(nm);
-            persistenceHandler.persistentRequestUpdated(pg);
+            updated(pg, oldState);
         } else {
             logger.warn("No item in queue: {}", nm);
             return;
@@ -259,6 +330,40 @@ public class FcpPersistentQueue implements NodeMessageListener {
             persistenceHandler.persistentRequestError(id, nm);
         }
     }
+    /**
+     * Removes the requests that were not listed, they were removed while we were not connected.
+     */
+    protected void onEndListPersistentRequests() {
+        final Set<String> listed = listedIdentifiers;
+        if( listed == null ) {
+            return;
+        }
+        listedIdentifiers = null;
+        // the dropped updates of listed requests were passed on, the others are removed below
+        persistenceHandler.clearDroppedUpdates();
+
+        int removed = 0;
+        for( final Iterator<FcpPersistentGet> i = downloadRequests.values().iterator(); i.hasNext(); ) {
+            final FcpPersistentGet pg = i.next();
+            if( !listed.contains(pg.getIdentifier()) ) {
+                i.remove();
+                persistenceHandler.persistentRequestRemoved(pg);
+                removed++;
+            }
+        }
+        for( final Iterator<FcpPersistentPut> i = uploadRequests.values().iterator(); i.hasNext(); ) {
+            final FcpPersistentPut pp = i.next();
+            if( !listed.contains(pp.getIdentifier()) ) {
+                i.remove();
+                persistenceHandler.persistentRequestRemoved(pp);
+                removed++;
+            }
+        }
+
+        logger.info("Global queue listed: {} requests, {} unchanged updates, {} removed",
+                listed.size(), unchangedUpdates.get(), removed);
+    }
+
     protected void onIdentifierCollision(final String id, final NodeMessage nm) {
         // since we use the same unique gqid, most likly this request already runs!
         logger.warn("### ATTENTION ###: {}", nm);
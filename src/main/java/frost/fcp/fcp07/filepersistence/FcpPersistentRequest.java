@@ -68,6 +68,15 @@ public abstract class FcpPersistentRequest {
     
     public abstract boolean isPut();
 
+    /**
+     * @return a string that changes whenever the state that is shown for this request changes
+     */
+    public String getStateSignature() {
+        return priority + ";" + (isFailed ? code : "") + ";" + isSuccess + ";" + getProgressSignature();
+    }
+
+    protected abstract String getProgressSignature();
+
     protected void setSuccess() {
         isSuccess = true;
     }
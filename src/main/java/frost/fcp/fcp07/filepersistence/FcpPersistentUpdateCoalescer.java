@@ -0,0 +1,359 @@
+/*
+  FcpPersistentUpdateCoalescer.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07.filepersistence;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import frost.fcp.fcp07.NodeMessage;
+
+/**
+ * Passes the events of the FcpPersistentQueue to the handler at a limited rate.
+ *
+ * The FcpPersistentRequest objects always hold the latest state of a request, so an update
+ * that is still queued when a newer update of the same request arrives is merged with it.
+ * Updates are delivered in batches at most flushesPerSecond times per second. Other events,
+ * and updates that finish a request (success or failure), wake up the flush thread at once.
+ * All events are delivered in the order they arrived by one thread, a queued update of a
+ * request that is removed is dropped.
+ *
+ * The queued updates are also dropped when the connection is lost, the listing after the
+ * reconnect brings the current state. The FcpPersistentQueue asks with takeDroppedUpdate()
+ * which requests must be passed on even if their state did not change since then.
+ */
+public class FcpPersistentUpdateCoalescer implements IFcpPersistentRequestsHandler, FcpPersistentUpdateCoalescerMBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(FcpPersistentUpdateCoalescer.class);
+
+	private final IFcpPersistentRequestsHandler handler;
+	private final long flushIntervalMillis;
+
+	// events in arrival order
+	private final ArrayDeque<Runnable> events = new ArrayDeque<Runnable>();
+	// the queued update of each identifier
+	private final Map<String, Update> pendingUpdates = new HashMap<String, Update>();
+	// identifiers whose update was dropped on disconnect and not yet passed on again
+	private final Set<String> droppedOnDisconnect = new HashSet<String>();
+	private boolean isUrgent = false;
+	private long nextFlushMillis = 0;
+
+	private long mergedUpdates = 0;
+	private long droppedUpdates = 0;
+	private long deliveredUpdates = 0;
+	private long deliveredEvents = 0;
+	private long batches = 0;
+
+	private Thread flushThread = null;
+
+	private class Update implements Runnable {
+		private final FcpPersistentRequest request;
+		private volatile boolean isDropped = false;
+
+		Update(final FcpPersistentRequest request) {
+			this.request = request;
+		}
+
+		public void run() {
+			if (request instanceof FcpPersistentGet) {
+				handler.persistentRequestUpdated((FcpPersistentGet) request);
+			} else {
+				handler.persistentRequestUpdated((FcpPersistentPut) request);
+			}
+		}
+	}
+
+	/**
+	 * @param flushesPerSecond  the maximum rate of update batches, 0 or less passes all events
+	 *                          through on the calling thread
+	 */
+	public FcpPersistentUpdateCoalescer(final IFcpPersistentRequestsHandler handler, final int flushesPerSecond) {
+		this.handler = handler;
+		this.flushIntervalMillis = (flushesPerSecond > 0) ? Math.max(1, 1000 / flushesPerSecond) : 0;
+	}
+
+	public boolean isEnabled() {
+		return flushIntervalMillis > 0;
+	}
+
+	public synchronized void start() {
+		if (!isEnabled() || flushThread != null) {
+			return;
+		}
+		flushThread = new Thread("FcpPersistentUpdateCoalescer") {
+			@Override
+			public void run() {
+				flushLoop();
+			}
+		};
+		flushThread.setDaemon(true);
+		flushThread.start();
+	}
+
+	private void update(final FcpPersistentRequest request, final boolean isFinal) {
+		if (!isEnabled()) {
+			new Update(request).run();
+			return;
+		}
+		synchronized (this) {
+			if (pendingUpdates.containsKey(request.getIdentifier())) {
+				mergedUpdates++;
+			} else {
+				final Update u = new Update(request);
+				pendingUpdates.put(request.getIdentifier(), u);
+				events.add(u);
+			}
+			if (isFinal) {
+				isUrgent = true;
+			}
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Queues an event that is delivered as soon as possible. Later updates of the identifier
+	 * are queued behind it.
+	 *
+	 * @param dropPendingUpdate  true if a queued update of the identifier is obsolete
+	 */
+	private void event(final String id, final Runnable event, final boolean dropPendingUpdate) {
+		if (!isEnabled()) {
+			event.run();
+			return;
+		}
+		synchronized (this) {
+			final Update u = pendingUpdates.remove(id);
+			if (u != null && dropPendingUpdate) {
+				u.isDropped = true;
+				droppedUpdates++;
+			}
+			events.add(event);
+			isUrgent = true;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * @return true if the update of the request was dropped because the connection was lost,
+	 *         the next update must be passed on even if the request did not change
+	 */
+	public synchronized boolean takeDroppedUpdate(final String id) {
+		return droppedOnDisconnect.remove(id);
+	}
+
+	/**
+	 * Forgets the dropped updates that were not taken, e.g. of requests that are gone.
+	 */
+	public synchronized void clearDroppedUpdates() {
+		droppedOnDisconnect.clear();
+	}
+
+	private void flushLoop() {
+		final List<Runnable> batch = new ArrayList<Runnable>();
+		while (true) {
+			try {
+				synchronized (this) {
+					while (true) {
+						if (!events.isEmpty()) {
+							final long wait = nextFlushMillis - System.currentTimeMillis();
+							if (isUrgent || wait <= 0) {
+								break;
+							}
+							wait(wait);
+						} else {
+							wait();
+						}
+					}
+					batch.addAll(events);
+					events.clear();
+					pendingUpdates.clear();
+					isUrgent = false;
+					batches++;
+				}
+				deliver(batch);
+				batch.clear();
+				nextFlushMillis = System.currentTimeMillis() + flushIntervalMillis;
+			} catch (final InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	private void deliver(final List<Runnable> batch) {
+		int updates = 0;
+		int others = 0;
+		for (final Runnable event : batch) {
+			if (event instanceof Update) {
+				if (((Update) event).isDropped) {
+					continue;
+				}
+				updates++;
+			} else {
+				others++;
+			}
+			try {
+				event.run();
+			} catch (final Throwable t) {
+				logger.error("Exception catched", t);
+			}
+		}
+		synchronized (this) {
+			deliveredUpdates += updates;
+			deliveredEvents += others;
+		}
+		logger.debug("Delivered {} updates and {} events", updates, others);
+	}
+
+////////////////////////////////////////////////////////////////////////////////////////////////
+//  IFcpPersistentRequestsHandler interface ////////////////////////////////////////////////////
+////////////////////////////////////////////////////////////////////////////////////////////////
+
+	public void connected() {
+		event(null, new Runnable() {
+			public void run() {
+				handler.connected();
+			}
+		}, false);
+	}
+
+	public void disconnected() {
+		if (isEnabled()) {
+			// the queued updates are obsolete, the listing after the reconnect brings the current state
+			synchronized (this) {
+				for (final Update u : pendingUpdates.values()) {
+					u.isDropped = true;
+					droppedUpdates++;
+					droppedOnDisconnect.add(u.request.getIdentifier());
+				}
+				pendingUpdates.clear();
+			}
+		}
+		event(null, new Runnable() {
+			public void run() {
+				handler.disconnected();
+			}
+		}, false);
+	}
+
+	public void persistentRequestAdded(final FcpPersistentPut uploadRequest) {
+		event(uploadRequest.getIdentifier(), new Runnable() {
+			public void run() {
+				handler.persistentRequestAdded(uploadRequest);
+			}
+		}, false);
+	}
+
+	public void persistentRequestAdded(final FcpPersistentGet downloadRequest) {
+		event(downloadRequest.getIdentifier(), new Runnable() {
+			public void run() {
+				handler.persistentRequestAdded(downloadRequest);
+			}
+		}, false);
+	}
+
+	public void persistentRequestUpdated(final FcpPersistentPut uploadRequest) {
+		update(uploadRequest, uploadRequest.isSuccess() || uploadRequest.isFailed());
+	}
+
+	public void persistentRequestUpdated(final FcpPersistentGet downloadRequest) {
+		update(downloadRequest, downloadRequest.isSuccess() || downloadRequest.isFailed());
+	}
+
+	public void persistentRequestRemoved(final FcpPersistentPut uploadRequest) {
+		event(uploadRequest.getIdentifier(), new Runnable() {
+			public void run() {
+				handler.persistentRequestRemoved(uploadRequest);
+			}
+		}, true);
+	}
+
+	public void persistentRequestRemoved(final FcpPersistentGet downloadRequest) {
+		event(downloadRequest.getIdentifier(), new Runnable() {
+			public void run() {
+				handler.persistentRequestRemoved(downloadRequest);
+			}
+		}, true);
+	}
+
+	public void persistentRequestModified(final FcpPersistentPut uploadRequest) {
+		event(uploadRequest.getIdentifier(), new Runnable() {
+			public void run() {
+				handler.persistentRequestModified(uploadRequest);
+			}
+		}, false);
+	}
+
+	public void persistentRequestModified(final FcpPersistentGet downloadRequest) {
+		event(downloadRequest.getIdentifier(), new Runnable() {
+			public void run() {
+				handler.persistentRequestModified(downloadRequest);
+			}
+		}, false);
+	}
+
+	public void persistentRequestError(final String id, final NodeMessage nm) {
+		event(id, new Runnable() {
+			public void run() {
+				handler.persistentRequestError(id, nm);
+			}
+		}, false);
+	}
+
+////////////////////////////////////////////////////////////////////////////////////////////////
+//  FcpPersistentUpdateCoalescerMBean interface ////////////////////////////////////////////////
+////////////////////////////////////////////////////////////////////////////////////////////////
+
+	public synchronized long getMergedUpdates() {
+		return mergedUpdates;
+	}
+
+	public synchronized long getDroppedUpdates() {
+		return droppedUpdates;
+	}
+
+	public synchronized long getDeliveredUpdates() {
+		return deliveredUpdates;
+	}
+
+	public synchronized long getDeliveredEvents() {
+		return deliveredEvents;
+	}
+
+	public synchronized long getBatches() {
+		return batches;
+	}
+
+	public synchronized int getQueuedEvents() {
+		return events.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "FcpPersistentUpdateCoalescer merged=" + mergedUpdates + " dropped=" + droppedUpdates
+				+ " deliveredUpdates=" + deliveredUpdates + " deliveredEvents=" + deliveredEvents
+				+ " batches=" + batches + " queued=" + events.size();
+	}
+}
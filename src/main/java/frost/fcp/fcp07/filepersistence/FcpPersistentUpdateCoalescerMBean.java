@@ -0,0 +1,46 @@
+/*
+  FcpPersistentUpdateCoalescerMBean.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07.filepersistence;
+
+/**
+ * JMX view of the FcpPersistentUpdateCoalescer, registered as frost:type=FcpPersistentUpdates.
+ */
+public interface FcpPersistentUpdateCoalescerMBean {
+
+	/**
+	 * @return updates that were merged into a queued update of the same request
+	 */
+	public long getMergedUpdates();
+
+	/**
+	 * @return queued updates that were dropped because the request was removed or the connection was lost
+	 */
+	public long getDroppedUpdates();
+
+	public long getDeliveredUpdates();
+
+	/**
+	 * @return delivered events other than updates, e.g. added or removed requests
+	 */
+	public long getDeliveredEvents();
+
+	public long getBatches();
+
+	public int getQueuedEvents();
+}
@@ -227,7 +227,10 @@ public class FcpFreetalkConnection extends FcpListenThreadConnection {
         public void handleNodeMessage(final String id, final NodeMessage nm) {
             logger.debug("------------ FcpFreetalkConnection: nodeMessage w/ ID ------------");
             logger.debug("{}", nm);
-            final FreetalkNodeMessageCallback cb = callbackById.get(id);
+            final FreetalkNodeMessageCallback cb;
+            synchronized(this) {
+                cb = callbackById.get(id);
+            }
             if (cb == null) {
                 logger.error("No callback for ID registered");
             } else {
@@ -18,20 +18,25 @@
 */
 package frost.fcp.fcp07.messagetransfer;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import frost.Core;
+import frost.Settings;
 import frost.fcp.FcpHandler;
 import frost.fcp.FcpResultGet;
 import frost.fcp.FcpResultPut;
 import frost.fcp.NodeAddress;
 import frost.fcp.fcp07.FcpListenThreadConnection;
+import frost.fcp.fcp07.FcpMetrics;
+import frost.fcp.fcp07.FcpNodeHealth;
+import frost.fcp.fcp07.FcpTransferStatistics;
 import frost.fcp.fcp07.FcpMultiRequestConnectionFileTransferTools;
 import frost.fcp.fcp07.NodeMessage;
 import frost.fcp.fcp07.NodeMessageListener;
@@ -41,34 +46,71 @@ public class MessageTransferHandler implements NodeMessageListener {
 	private static final Logger logger = LoggerFactory.getLogger(MessageTransferHandler.class);
 
     private final FcpMultiRequestConnectionFileTransferTools fcpTools;
+    private final FcpNodeHealth health;
 
+    // tasks that were sent to the node
     private final HashMap<String,MessageTransferTask> taskMap = new HashMap<String,MessageTransferTask>();
+    // tasks that wait for a free slot in the window
+    private final ArrayDeque<MessageTransferTask> waitingTasks = new ArrayDeque<MessageTransferTask>();
+    // maximum number of concurrent identifiers on the socket
+    private final int maxActiveTasks;
 
     private boolean isConnected = true; // guaranteed to connect during construction
 
-    public MessageTransferHandler() throws Throwable {
+    /**
+     * @param health  receives the open tasks, their duration and the failures of the node
+     */
+    public MessageTransferHandler(final NodeAddress na, final FcpNodeHealth health) throws Throwable {
 
-        if (FcpHandler.inst().getFreenetNode() == null) {
+        if (na == null) {
             throw new Exception("No freenet node defined");
         }
-        final NodeAddress na = FcpHandler.inst().getFreenetNode();
+        this.health = health;
         this.fcpTools = new FcpMultiRequestConnectionFileTransferTools(FcpListenThreadConnection.createInstance(na));
+        this.maxActiveTasks = Math.max(1, Core.frostSettings.getInteger(Settings.FCP2_MESSAGE_TRANSFER_WINDOW));
     }
 
     public void start() {
         fcpTools.getFcpPersistentConnection().addNodeMessageListener(this);
     }
 
-    public synchronized void enqueueTask(final MessageTransferTask task) {
+    public NodeAddress getNodeAddress() {
+        return fcpTools.getFcpPersistentConnection().getNodeAddress();
+    }
 
-        if( !isConnected ) {
-            logger.error("Rejecting new task, not connected!");
-            task.setFailed();
-            task.setFinished();
-            return;
+    public FcpNodeHealth getHealth() {
+        return health;
+    }
+
+    public synchronized boolean isConnected() {
+        return isConnected;
+    }
+
+    /**
+     * Sends the task to the node, or queues it if the window of active tasks is full.
+     * Does not wait, the task is finished when its finished future completes.
+     */
+    public void enqueueTask(final MessageTransferTask task) {
+        synchronized(this) {
+            if( isConnected ) {
+                if( taskMap.size() < maxActiveTasks ) {
+                    sendTask(task);
+                } else {
+                    waitingTasks.add(task);
+                }
+                return;
+            }
         }
+        logger.error("Rejecting new task, not connected!");
+        task.setFailed();
+        task.setFinished();
+    }
+
+    private void sendTask(final MessageTransferTask task) {
 
         taskMap.put(task.getIdentifier(), task);
+        task.sentMillis = System.currentTimeMillis();
+        health.requestStarted();
 
         // send task to socket
         if( task.isModeDownload() ) {
@@ -87,11 +129,45 @@ public class MessageTransferHandler implements NodeMessageListener {
         }
     }
 
-    protected synchronized void setTaskFinished(final MessageTransferTask task) {
-        taskMap.remove(task.getIdentifier());
+    protected void setTaskFinished(final MessageTransferTask task) {
+        setTaskFinished(task, true);
+    }
+
+    /**
+     * @param nodeOk  false if the task failed because of the node, counts as failure in the node health
+     */
+    protected void setTaskFinished(final MessageTransferTask task, final boolean nodeOk) {
+        synchronized(this) {
+            if( taskMap.remove(task.getIdentifier()) != null ) {
+                final long duration = System.currentTimeMillis() - task.sentMillis;
+                health.requestFinished(nodeOk, duration);
+                FcpMetrics.getInstance().requestFinished(task.isModeDownload(), FcpHandler.TYPE_MESSAGE,
+                        task.getPriority(), duration, isSuccess(task));
+            }
+            // fill the window
+            while( isConnected && taskMap.size() < maxActiveTasks && !waitingTasks.isEmpty() ) {
+                sendTask(waitingTasks.poll());
+            }
+        }
+        // outside the lock, finishing runs the dependent stages of the future
         task.setFinished();
     }
 
+    private static boolean isSuccess(final MessageTransferTask task) {
+        if( task.isModeDownload() ) {
+            return task.getFcpResultGet() != null && task.getFcpResultGet().isSuccess();
+        }
+        return task.getFcpResultPut() != null && task.getFcpResultPut().isSuccess();
+    }
+
+    public synchronized int getActiveTaskCount() {
+        return taskMap.size();
+    }
+
+    public synchronized int getWaitingTaskCount() {
+        return waitingTasks.size();
+    }
+
 ////////////////////////////////////////////////////////////////////////////////////////////////
 //  NodeMessageListener interface //////////////////////////////////////////////////////////////
 ////////////////////////////////////////////////////////////////////////////////////////////////
@@ -102,20 +178,25 @@ public class MessageTransferHandler implements NodeMessageListener {
         logger.info("now connected");
     }
 
-    public synchronized void disconnected() {
+    public void disconnected() {
 
-        isConnected = false;
-        int taskCount = 0;
-        synchronized(taskMap) {
-            // notify all pending tasks that transfer failed
-            for( final MessageTransferTask task : taskMap.values() ) {
-                task.setFailed();
-                task.setFinished();
-                taskCount++;
+        final List<MessageTransferTask> failedTasks;
+        synchronized(this) {
+            isConnected = false;
+            failedTasks = new ArrayList<MessageTransferTask>(taskMap.values());
+            for( int i = 0; i < taskMap.size(); i++ ) {
+                health.requestFinished(false, -1);
             }
+            failedTasks.addAll(waitingTasks);
             taskMap.clear();
+            waitingTasks.clear();
+        }
+        // notify all pending tasks that transfer failed
+        for( final MessageTransferTask task : failedTasks ) {
+            task.setFailed();
+            task.setFinished();
         }
-        logger.info("disconnected, set {} tasks failed", taskCount);
+        logger.info("disconnected, set {} tasks failed", failedTasks.size());
     }
 
     public void handleNodeMessage(final NodeMessage nm) {
@@ -127,7 +208,10 @@ public class MessageTransferHandler implements NodeMessageListener {
     	logger.debug("MSG = {}", nm);
     	logger.debug("<<<<<<<<<<");
 
-        final MessageTransferTask task = taskMap.get(id);
+        final MessageTransferTask task;
+        synchronized(this) {
+            task = taskMap.get(id);
+        }
         if( task == null ) {
             logger.error("No task in list for identifier: {}", id);
             return;
@@ -178,23 +262,24 @@ public class MessageTransferHandler implements NodeMessageListener {
 		// data follow, first get datalength
 		final long dataLength = nm.getLongValue("DataLength");
 		long bytesWritten = 0;
-
-		// fcpIn is managed by FcpSocket. Do not close this stream here!
-		BufferedInputStream fcpIn = fcpTools.getFcpPersistentConnection().getFcpSocketIn();
-		try (BufferedOutputStream fileOut = new BufferedOutputStream(new FileOutputStream(task.getFile()));) {
-			final byte[] b = new byte[4096];
-			long bytesLeft = dataLength;
-			int count;
-
-			while (bytesLeft > 0) {
-				count = fcpIn.read(b, 0, ((bytesLeft > b.length) ? b.length : (int) bytesLeft));
-				if (count < 0) {
-					break;
+		byte[] data = null;
+
+		try {
+			if (task.isDownloadToMemory() && (dataLength < 0 || dataLength > FcpHandler.MAX_MESSAGE_SIZE_07)) {
+				logger.error("Invalid DataLength {} of message data, request failed.", dataLength);
+				if (dataLength < 0) {
+					// the payload can't be found in the stream, reconnect
+					fcpTools.getFcpPersistentConnection().closeConnection();
 				} else {
-					bytesLeft -= count;
+					fcpTools.getFcpPersistentConnection().skipData(dataLength);
 				}
-				fileOut.write(b, 0, count);
-				bytesWritten += count;
+			} else if (task.isDownloadToMemory()) {
+				data = fcpTools.getFcpPersistentConnection().receiveData((int) dataLength);
+				bytesWritten = (data != null) ? data.length : 0;
+			} else {
+				final FcpTransferStatistics stats = fcpTools.getFcpPersistentConnection()
+						.receiveFile(task.getFile(), dataLength);
+				bytesWritten = stats.getTransferredBytes();
 			}
 		} catch (IOException e) {
 			logger.error("Catched exception", e);
@@ -202,14 +287,16 @@ public class MessageTransferHandler implements NodeMessageListener {
 
 		logger.debug("*GET** Wrote {} of {} bytes to file.", bytesWritten, dataLength);
 		final FcpResultGet result;
-		if (bytesWritten == dataLength) {
+		if (data != null) {
+			result = new FcpResultGet(data);
+		} else if (!task.isDownloadToMemory() && bytesWritten == dataLength) {
 			// success
 			result = new FcpResultGet(true);
 		} else {
 			result = new FcpResultGet(false);
 		}
 		task.setFcpResultGet(result);
-		setTaskFinished(task);
+		setTaskFinished(task, result.isSuccess());
 	}
 
     protected void onGetFailed(final MessageTransferTask task, final NodeMessage nm) {
@@ -262,6 +349,6 @@ public class MessageTransferHandler implements NodeMessageListener {
             final FcpResultPut result = new FcpResultPut(FcpResultPut.Error, returnCode, codeDescription, isFatal);
             task.setFcpResultPut(result);
         }
-        setTaskFinished(task);
+        setTaskFinished(task, false);
     }
 }
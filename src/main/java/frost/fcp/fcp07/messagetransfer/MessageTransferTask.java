@@ -19,6 +19,7 @@
 package frost.fcp.fcp07.messagetransfer;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 import frost.fcp.FcpResultGet;
 import frost.fcp.FcpResultPut;
@@ -38,12 +39,17 @@ public class MessageTransferTask {
     private final int maxRetries;
 
     private boolean taskFinished = false;
+    private boolean taskFailed = false;
+    // time the task was sent to the node
+    long sentMillis = 0;
+    private final CompletableFuture<MessageTransferTask> finishedFuture = new CompletableFuture<MessageTransferTask>();
 
     FcpResultPut putResult = null;
     FcpResultGet getResult = null;
 
     /**
      * Construct task for DOWNLOAD
+     * @param targetFile  the file for the data, or null to keep the data in the FcpResultGet
      */
     public MessageTransferTask(final String id, final String key, final File targetFile, final FreenetPriority prio, final int maxSize, final int maxRetries) {
         transferMode = MODE_DOWNLOAD;
@@ -76,6 +82,10 @@ public class MessageTransferTask {
         return file;
     }
 
+    public boolean isDownloadToMemory() {
+        return transferMode == MODE_DOWNLOAD && file == null;
+    }
+
     public String getKey() {
         return key;
     }
@@ -88,6 +98,14 @@ public class MessageTransferTask {
         return maxRetries;
     }
 
+    /**
+     * Completed with this task when the task is finished. Dependent stages that are
+     * not async run in the receive thread of the shared connection and must not block.
+     */
+    public CompletableFuture<MessageTransferTask> getFinishedFuture() {
+        return finishedFuture;
+    }
+
     /**
      * Called by MessageThread to wait for a message.
      */
@@ -104,9 +122,12 @@ public class MessageTransferTask {
     /**
      * Called by NodeMessageHandler when task is finished.
      */
-    public synchronized void setFinished() {
-        taskFinished = true;
-        notifyAll();
+    public void setFinished() {
+        synchronized(this) {
+            taskFinished = true;
+            notifyAll();
+        }
+        finishedFuture.complete(this);
     }
 
     public boolean isModeUpload() {
@@ -130,7 +151,7 @@ public class MessageTransferTask {
         this.getResult = getResult;
         if( !getResult.isSuccess() ) {
             // failure, delete temp file
-            if( getFile().isFile() ) {
+            if( getFile() != null && getFile().isFile() ) {
                 getFile().delete();
             }
         }
@@ -140,6 +161,7 @@ public class MessageTransferTask {
      * Quickly fail because socket was disconnected.
      */
     public void setFailed() {
+        taskFailed = true;
         if( isModeDownload() ) {
             this.getResult = FcpResultGet.RESULT_FAILED;
         } else {
@@ -147,6 +169,14 @@ public class MessageTransferTask {
         }
     }
 
+    /**
+     * @return true if the task failed because the socket was disconnected, it was not
+     *         answered by the node and can be retried on another node
+     */
+    public boolean isFailed() {
+        return taskFailed;
+    }
+
     public FreenetPriority getPriority() {
         return priority;
     }
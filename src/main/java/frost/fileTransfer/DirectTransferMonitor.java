@@ -0,0 +1,113 @@
+/*
+  DirectTransferMonitor.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fileTransfer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+import frost.fcp.fcp07.FcpBandwidthLimiter;
+import frost.fcp.fcp07.FcpTransferStatistics;
+
+/**
+ * Progress of the running direct transfers of the PersistenceManager, and the shared
+ * bandwidth limit of all direct transfers.
+ *
+ * The progress is only shown through JMX, the upload and download tables don't show it.
+ */
+public class DirectTransferMonitor implements DirectTransferMonitorMBean {
+
+	private static class Transfer {
+		final String name;
+		// set when the payload transfer starts
+		volatile FcpTransferStatistics stats = null;
+
+		Transfer(final String name) {
+			this.name = name;
+		}
+	}
+
+	private final Map<String, Transfer> transfers = new ConcurrentHashMap<String, Transfer>();
+	private final AtomicLong finishedCount = new AtomicLong();
+	private final FcpBandwidthLimiter limiter;
+	private final IntSupplier queuedCount;
+
+	public DirectTransferMonitor(final FcpBandwidthLimiter limiter, final IntSupplier queuedCount) {
+		this.limiter = limiter;
+		this.queuedCount = queuedCount;
+	}
+
+	/**
+	 * @return the listener that gets the statistics of the payload transfer
+	 */
+	public Consumer<FcpTransferStatistics> transferStarted(final String id, final String name) {
+		final Transfer transfer = new Transfer(name);
+		transfers.put(id, transfer);
+		return stats -> transfer.stats = stats;
+	}
+
+	public void transferFinished(final String id) {
+		if (transfers.remove(id) != null) {
+			finishedCount.incrementAndGet();
+		}
+	}
+
+////////////////////////////////////////////////////////////////////////////////////////////////
+//  DirectTransferMonitorMBean interface ///////////////////////////////////////////////////////
+////////////////////////////////////////////////////////////////////////////////////////////////
+
+	public int getActiveCount() {
+		return transfers.size();
+	}
+
+	public int getQueuedCount() {
+		return queuedCount.getAsInt();
+	}
+
+	public long getFinishedCount() {
+		return finishedCount.get();
+	}
+
+	public String[] getActiveTransfers() {
+		final List<String> result = new ArrayList<String>();
+		for (final Map.Entry<String, Transfer> e : new TreeMap<String, Transfer>(transfers).entrySet()) {
+			final Transfer transfer = e.getValue();
+			final FcpTransferStatistics stats = transfer.stats;
+			if (stats == null) {
+				result.add(transfer.name + " [" + e.getKey() + "] connecting");
+			} else {
+				result.add(transfer.name + " [" + e.getKey() + "] " + stats.getPercentDone() + "% " + stats);
+			}
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	public int getBandwidthLimit() {
+		return (int) (limiter.getBytesPerSecond() / 1024);
+	}
+
+	public void setBandwidthLimit(final int kiBPerSecond) {
+		limiter.setBytesPerSecond(kiBPerSecond * 1024L);
+	}
+}
@@ -0,0 +1,43 @@
+/*
+  DirectTransferMonitorMBean.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fileTransfer;
+
+/**
+ * JMX view of the direct transfers between Frost and the node, registered as frost:type=DirectTransfers.
+ */
+public interface DirectTransferMonitorMBean {
+
+	public int getActiveCount();
+
+	public int getQueuedCount();
+
+	public long getFinishedCount();
+
+	/**
+	 * @return one line per running transfer with its progress and throughput
+	 */
+	public String[] getActiveTransfers();
+
+	/**
+	 * @return the limit of all direct transfers together in KiB/s, 0 if unlimited
+	 */
+	public int getBandwidthLimit();
+
+	public void setBandwidthLimit(int kiBPerSecond);
+}
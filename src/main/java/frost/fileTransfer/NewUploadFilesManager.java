@@ -24,7 +24,7 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import frost.fileTransfer.upload.GenerateShaThread;
+import frost.fileTransfer.upload.GenerateShaPool;
 import frost.storage.ExitSavable;
 import frost.storage.StorageException;
 import frost.storage.perst.FrostFilesStorage;
@@ -35,7 +35,7 @@ public class NewUploadFilesManager implements ExitSavable {
 	private static final Logger logger = LoggerFactory.getLogger(NewUploadFilesManager.class);
 
     private LinkedList<NewUploadFile> newUploadFiles;
-    private GenerateShaThread generateShaThread;
+    private GenerateShaPool generateShaPool;
 
     public NewUploadFilesManager() {
         super();
@@ -48,14 +48,14 @@ public class NewUploadFilesManager implements ExitSavable {
             logger.error("Error loading new upload files", e);
             throw new StorageException("Error loading new upload files");
         }
-        generateShaThread = new GenerateShaThread(this);
+        generateShaPool = new GenerateShaPool(this);
     }
 
     /**
-     * Start the generate SHA thread.
+     * Start the generate SHA threads.
      */
     public void start() {
-        generateShaThread.start();
+        generateShaPool.start();
     }
 
     public void exitSave() throws StorageException {
@@ -74,8 +74,8 @@ public class NewUploadFilesManager implements ExitSavable {
             for( final NewUploadFile nuf : newFiles ) {
                 newUploadFiles.add(nuf);
 
-                // feed thread
-                generateShaThread.addToFileQueue(nuf);
+                // feed threads
+                generateShaPool.addToFileQueue(nuf);
             }
         }
     }
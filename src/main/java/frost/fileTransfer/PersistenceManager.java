@@ -22,8 +22,12 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.List;
@@ -43,6 +47,7 @@ import frost.fcp.FcpHandler;
 import frost.fcp.FcpResultGet;
 import frost.fcp.FcpResultPut;
 import frost.fcp.NodeAddress;
+import frost.fcp.fcp07.FcpBandwidthLimiter;
 import frost.fcp.fcp07.FcpListenThreadConnection;
 import frost.fcp.fcp07.FcpMultiRequestConnectionFileTransferTools;
 import frost.fcp.fcp07.NodeMessage;
@@ -54,6 +59,7 @@ import frost.fileTransfer.download.DownloadModel;
 import frost.fileTransfer.download.FrostDownloadItem;
 import frost.fileTransfer.upload.FrostUploadItem;
 import frost.fileTransfer.upload.UploadModel;
+import frost.util.JmxUtil;
 import frost.util.Mixed;
 import frost.util.model.ModelItem;
 import frost.util.model.SortedModelListener;
@@ -74,8 +80,12 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
     private final UploadModel uploadModel;
     private final DownloadModel downloadModel;
 
+    // the first direct transfer worker only takes items up to this size, so small items never wait for huge ones
+    private static final long SMALL_DIRECT_TRANSFER_SIZE = 8L * 1024L * 1024L;
+
     private final DirectTransferQueue directTransferQueue;
-    private final DirectTransferThread directTransferThread;
+    private final List<DirectTransferThread> directTransferThreads = new ArrayList<DirectTransferThread>();
+    private final DirectTransferMonitor directTransferMonitor;
 
     private boolean showExternalItemsDownload;
     private boolean showExternalItemsUpload;
@@ -87,10 +97,11 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
     private final FcpMultiRequestConnectionFileTransferTools fcpTools;
 
 
-	private final Set<String> directGETsInProgress = new HashSet<String>();
-    private final Set<String> directPUTsInProgress = new HashSet<String>();
+	// accessed by the DirectTransferThreads and the listener threads of the persistent connection
+	private final Set<String> directGETsInProgress = Collections.synchronizedSet(new HashSet<String>());
+    private final Set<String> directPUTsInProgress = Collections.synchronizedSet(new HashSet<String>());
 
-    private final Set<String> directPUTsWithoutAnswer = new HashSet<String>();
+    private final Set<String> directPUTsWithoutAnswer = Collections.synchronizedSet(new HashSet<String>());
 
     /**
      * @return  true if Frost is configured to use persistent uploads and downloads, false if not
@@ -209,7 +220,18 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
                 });
 
         directTransferQueue = new DirectTransferQueue();
-        directTransferThread = new DirectTransferThread();
+        final FcpBandwidthLimiter limiter = new FcpBandwidthLimiter(
+                Core.frostSettings.getInteger(Settings.FCP2_DIRECT_TRANSFER_BANDWIDTH) * 1024L);
+        fcpTools.setDirectTransferLimiter(limiter);
+        directTransferMonitor = new DirectTransferMonitor(limiter, directTransferQueue::size);
+        JmxUtil.registerMBean(directTransferMonitor, "frost:type=DirectTransfers");
+
+        final int threadCount = Math.max(1, Core.frostSettings.getInteger(Settings.FCP2_DIRECT_TRANSFER_THREADS));
+        for( int i = 0; i < threadCount; i++ ) {
+            // with more than one worker the first one is kept free for small items
+            final long maxItemSize = (i == 0 && threadCount > 1) ? SMALL_DIRECT_TRANSFER_SIZE : Long.MAX_VALUE;
+            directTransferThreads.add(new DirectTransferThread(i, maxItemSize));
+        }
 
         persistentQueue = new FcpPersistentQueue(fcpTools, this);
     }
@@ -219,7 +241,9 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
     }
 
     public void startThreads() {
-        directTransferThread.start();
+        for( final DirectTransferThread t : directTransferThreads ) {
+            t.start();
+        }
         persistentQueue.startThreads();
         final TimerTask task = new TimerTask() {
             @Override
@@ -272,12 +296,7 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
 
         MainFrame.getInstance().setDisconnected();
 
-        SwingUtilities.invokeLater(new Runnable() {
-            public void run() {
-                uploadModel.removeExternalUploads();
-                downloadModel.removeExternalDownloads();
-            }
-        });
+        // external items are kept, the persistent queue removes them if they are gone after the reconnect
         logger.info("disconnected!");
     }
 
@@ -482,6 +501,20 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
         }
     }
 
+    /**
+     * Starts waiting uploads now, e.g. when the key of an item was generated.
+     * Runs on the timer thread of maybeStartRequests(), so both never select the same item.
+     */
+    public void startWaitingUploads() {
+        final TimerTask task = new TimerTask() {
+            @Override
+            public void run() {
+                startNewUploads();
+            }
+        };
+        Core.schedule(task, 0);
+    }
+
     private void startNewUploads() {
         boolean isLimited = true;
         int currentAllowedUploadCount = 0;
@@ -576,42 +609,69 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
             }
         }
         {
+            // collect all downloads and send the requests to the node at once
+            final List<FrostDownloadItem> startedItems = new ArrayList<FrostDownloadItem>();
+            final List<FcpMultiRequestConnectionFileTransferTools.PersistentGetRequest> requests =
+                new ArrayList<FcpMultiRequestConnectionFileTransferTools.PersistentGetRequest>();
             while( !isLimited || currentAllowedDownloadCount > 0 ) {
                 final FrostDownloadItem dlItem = FileTransferManager.inst().getDownloadManager().selectNextDownloadItem();
                 if (dlItem == null) {
                     break;
                 }
-                // start the download
-                if( startDownload(dlItem) ) {
+                // mark the download as started, selectNextDownloadItem() must not return it again
+                final FcpMultiRequestConnectionFileTransferTools.PersistentGetRequest request = prepareDownload(dlItem);
+                if( request != null ) {
+                    startedItems.add(dlItem);
+                    requests.add(request);
                     currentAllowedDownloadCount--;
                 }
             }
+            fcpTools.startPersistentGets(requests);
+            for( int i = 0; i < startedItems.size(); i++ ) {
+                startedItems.get(i).setDirect( !requests.get(i).isDda() );
+            }
         }
     }
 
     public boolean startDownload(final FrostDownloadItem dlItem) {
 
-        if( dlItem == null || dlItem.getState() != FrostDownloadItem.STATE_WAITING ) {
+        final FcpMultiRequestConnectionFileTransferTools.PersistentGetRequest request = prepareDownload(dlItem);
+        if( request == null ) {
             return false;
         }
 
-        dlItem.setDownloadStartedTime(System.currentTimeMillis());
-
-        dlItem.setState(FrostDownloadItem.STATE_PROGRESS);
-
-        final String gqid = dlItem.getGqIdentifier();
-        final File targetFile = new File(dlItem.getDownloadFilename());
         boolean isDda = fcpTools.startPersistentGet(
-                dlItem.getKey(),
-                gqid,
-                targetFile,
-                dlItem.getPriority()
+                request.getKey(),
+                request.getId(),
+                request.getTargetFile(),
+                request.getPriority()
         );
         dlItem.setDirect( !isDda );
 
         return true;
     }
 
+    /**
+     * Sets the download in progress and returns the parameters for its persistent get,
+     * or null if the download can't be started.
+     */
+    private FcpMultiRequestConnectionFileTransferTools.PersistentGetRequest prepareDownload(final FrostDownloadItem dlItem) {
+
+        if( dlItem == null || dlItem.getState() != FrostDownloadItem.STATE_WAITING ) {
+            return null;
+        }
+
+        dlItem.setDownloadStartedTime(System.currentTimeMillis());
+
+        dlItem.setState(FrostDownloadItem.STATE_PROGRESS);
+
+        return new FcpMultiRequestConnectionFileTransferTools.PersistentGetRequest(
+                dlItem.getKey(),
+                dlItem.getGqIdentifier(),
+                new File(dlItem.getDownloadFilename()),
+                dlItem.getPriority());
+    }
+
     private void showExternalUploadItems() {
         final Map<String,FcpPersistentPut> items = persistentQueue.getUploadRequests();
         for(final FcpPersistentPut uploadRequest : items.values() ) {
@@ -701,8 +761,19 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
         return false;
     }
 
+    /**
+     * One of the workers that transfer the data of direct uploads and downloads between Frost and the node.
+     */
     private class DirectTransferThread extends Thread {
 
+        // the largest item this worker takes from the queue
+        private final long maxItemSize;
+
+        public DirectTransferThread(final int number, final long maxItemSize) {
+            super("DirectTransferThread-" + number);
+            this.maxItemSize = maxItemSize;
+        }
+
         @Override
         public void run() {
 
@@ -712,7 +783,7 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
             while(true) {
                 try {
                     // if there is no work in queue this call waits for a new queue item
-                    final ModelItem<?> item = directTransferQueue.getItemFromQueue();
+                    final ModelItem<?> item = directTransferQueue.getItemFromQueue(maxItemSize);
 
                     if( item == null ) {
                         // paranoia, should never happen
@@ -724,6 +795,7 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
                         // transfer bytes to node
                         final FrostUploadItem ulItem = (FrostUploadItem) item;
                         // FIXME: provide item, state=Transfer to node, % shows progress
+                        //        (the progress is only published by the DirectTransferMonitor MBean yet)
                         final String gqid = ulItem.getGqIdentifier();
                         final boolean doMime;
                         final boolean setTargetFileName;
@@ -734,7 +806,13 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
                             doMime = true;
                             setTargetFileName = true;
                         }
-                        final NodeMessage answer = fcpTools.startDirectPersistentPut(gqid, ulItem.getFile(), ulItem.getFileName(), doMime, setTargetFileName, ulItem.getCompress(), ulItem.getFreenetCompatibilityMode(), ulItem.getPriority());
+                        final NodeMessage answer;
+                        try {
+                            answer = fcpTools.startDirectPersistentPut(gqid, ulItem.getFile(), ulItem.getFileName(), doMime, setTargetFileName, ulItem.getCompress(), ulItem.getFreenetCompatibilityMode(), ulItem.getPriority(),
+                                    directTransferMonitor.transferStarted(gqid, ulItem.getFileName()));
+                        } finally {
+                            directTransferMonitor.transferFinished(gqid);
+                        }
                         if( answer == null ) {
                             final String desc = "Could not open a new FCP2 socket for direct put!";
                             final FcpResultPut result = new FcpResultPut(FcpResultPut.Error, -1, desc, false);
@@ -752,19 +830,43 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
                         // transfer bytes from node
                         final FrostDownloadItem dlItem = (FrostDownloadItem) item;
                         // FIXME: provide item, state=Transfer from node, % shows progress
+                        //        (the progress is only published by the DirectTransferMonitor MBean yet)
                         final String gqid = dlItem.getGqIdentifier();
                         final File targetFile = new File(dlItem.getDownloadFilename());
 
                         final boolean retryNow;
                         NodeMessage answer = null;
 
+                        // verify shared files while receiving, the file must not be read again
+                        final String expectedSha = dlItem.isSharedFile() ? dlItem.getFileListFileObject().getSha() : null;
+                        MessageDigest digest = null;
+                        if( expectedSha != null && Core.frostSettings.getBoolean(Settings.FCP2_VERIFY_SHARED_FILE_SHA) ) {
+                            try {
+                                digest = MessageDigest.getInstance("SHA-256");
+                            } catch (final NoSuchAlgorithmException e) {
+                                logger.error("Algorithm SHA-256 not supported.", e);
+                            }
+                        }
+
                         try {
-                            answer = fcpTools.startDirectPersistentGet(gqid, targetFile);
+                            answer = fcpTools.startDirectPersistentGet(gqid, targetFile, digest,
+                                    directTransferMonitor.transferStarted(gqid, dlItem.getFileName()));
                         } catch (final FileNotFoundException e) {
                             logger.error("Could not write to {}: ", dlItem.getDownloadFilename(), e);
+                        } finally {
+                            directTransferMonitor.transferFinished(gqid);
                         }
 
-                        if( answer != null ) {
+                        if( answer != null && digest != null
+                                && !expectedSha.equalsIgnoreCase(HexFormat.of().formatHex(digest.digest())) )
+                        {
+                            // the key always returns the same data, a retry would not help
+                            logger.error("SHA-256 of {} does not match the shared file", dlItem.getDownloadFilename());
+                            targetFile.delete();
+                            final FcpResultGet result = new FcpResultGet(false, -1,
+                                    "Downloaded data does not match the SHA-256 of the shared file", true, null);
+                            retryNow = FileTransferManager.inst().getDownloadManager().notifyDownloadFinished(dlItem, result, targetFile);
+                        } else if( answer != null ) {
                             final FcpResultGet result = new FcpResultGet(true);
                             FileTransferManager.inst().getDownloadManager().notifyDownloadFinished(dlItem, result, targetFile);
                             retryNow = false;
@@ -787,7 +889,7 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
                 }
 
                 if( catchedExceptions > maxAllowedExceptions ) {
-                    logger.error("Stopping DirectTransferThread because of too much exceptions");
+                    logger.error("Stopping {} because of too much exceptions", getName());
                     break;
                 }
             }
@@ -796,32 +898,72 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
 
     /**
      * A queue class that queues items waiting for its direct transfer (put to node or get from node).
+     * The smallest item is transferred first, so small items overtake huge ones. An item that
+     * waits longer than MAX_WAIT_MILLIS is taken before all others.
      */
     private class DirectTransferQueue {
 
-        private final LinkedList<ModelItem<?>> queue = new LinkedList<ModelItem<?>>();
+        private static final long MAX_WAIT_MILLIS = 5L * 60L * 1000L;
+
+        private class QueuedItem {
+            final ModelItem<?> item;
+            final long size;
+            final long queuedMillis = System.currentTimeMillis();
+
+            QueuedItem(final ModelItem<?> item, final long size) {
+                this.item = item;
+                // size is unknown for some downloads, treat them as huge
+                this.size = (size < 0) ? Long.MAX_VALUE : size;
+            }
+        }
 
-        public synchronized ModelItem<?> getItemFromQueue() {
+        private final LinkedList<QueuedItem> queue = new LinkedList<QueuedItem>();
+
+        /**
+         * @param maxSize  the largest item to take
+         */
+        public synchronized ModelItem<?> getItemFromQueue(final long maxSize) {
             try {
                 // let dequeueing threads wait for work
-                while( queue.isEmpty() ) {
+                while( true ) {
+                    final QueuedItem next = selectItem(maxSize);
+                    if( next != null ) {
+                        queue.remove(next);
+                        return next.item;
+                    }
                     wait();
                 }
             } catch (final InterruptedException e) {
                 return null; // waiting abandoned
             }
+        }
 
-            if( queue.isEmpty() == false ) {
-                return queue.removeFirst();
+        private QueuedItem selectItem(final long maxSize) {
+            if( queue.isEmpty() ) {
+                return null;
             }
-            return null;
+            final QueuedItem oldest = queue.getFirst();
+            if( oldest.size <= maxSize && System.currentTimeMillis() - oldest.queuedMillis > MAX_WAIT_MILLIS ) {
+                return oldest;
+            }
+            QueuedItem smallest = null;
+            for( final QueuedItem qi : queue ) {
+                if( qi.size <= maxSize && (smallest == null || qi.size < smallest.size) ) {
+                    smallest = qi;
+                }
+            }
+            return smallest;
+        }
+
+        public synchronized int size() {
+            return queue.size();
         }
 
         public synchronized void appendItemToQueue(final FrostDownloadItem item) {
             final String id = item.getGqIdentifier();
             directGETsInProgress.add(id);
 
-            queue.addLast(item);
+            queue.addLast(new QueuedItem(item, item.getFileSize()));
             notifyAll(); // notify all waiters (if any) of new record
         }
 
@@ -829,7 +971,7 @@ public class PersistenceManager implements IFcpPersistentRequestsHandler {
             final String id = item.getGqIdentifier();
             directPUTsInProgress.add(id);
 
-            queue.addLast(item);
+            queue.addLast(new QueuedItem(item, item.getFileSize()));
             notifyAll(); // notify all waiters (if any) of new record
         }
 
@@ -21,8 +21,6 @@ import java.io.File;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
@@ -45,7 +43,6 @@ import frost.storage.perst.TrackDownloadKeys;
 import frost.storage.perst.TrackDownloadKeysStorage;
 import frost.storage.perst.filelist.FileListStorage;
 import frost.util.FileAccess;
-import frost.util.Mixed;
 
 public class DownloadManager implements ExitSavable {
 
@@ -54,6 +51,7 @@ public class DownloadManager implements ExitSavable {
 	private DownloadModel model;
 	private DownloadPanel panel;
 	private DownloadTicker ticker;
+	private DownloadScheduler scheduler;
 
 	private static final int MAX_RECENT_DOWNLOAD_DIRS = 20;
 	private LinkedList<String> recentDownloadDirs;
@@ -66,6 +64,7 @@ public class DownloadManager implements ExitSavable {
 	public void initialize() throws StorageException {
 		getPanel();
 		getModel().initialize();
+		getScheduler();
 	}
 
 	/**
@@ -172,11 +171,18 @@ public class DownloadManager implements ExitSavable {
 
 	private DownloadTicker getTicker() {
 		if (ticker == null) {
-			ticker = new DownloadTicker(getPanel());
+			ticker = new DownloadTicker(getPanel(), getScheduler());
 		}
 		return ticker;
 	}
 
+	public synchronized DownloadScheduler getScheduler() {
+		if (scheduler == null) {
+			scheduler = new DownloadScheduler(getModel());
+		}
+		return scheduler;
+	}
+
 	private void loadRecentDownloadDirs() {
 		recentDownloadDirs = new LinkedList<String>();
 
@@ -542,48 +548,7 @@ public class DownloadManager implements ExitSavable {
 	 *         one was not found.
 	 */
 	public FrostDownloadItem selectNextDownloadItem() {
-
-		// get the item with state "Waiting"
-		final ArrayList<FrostDownloadItem> waitingItems = new ArrayList<FrostDownloadItem>();
-		for (int i = 0; i < model.getItemCount(); i++) {
-			final FrostDownloadItem dlItem = model.getItemAt(i);
-			
-			final boolean itemIsEnabled = (dlItem.isEnabled() == null ? true
-					: dlItem.isEnabled().booleanValue());
-			if (!itemIsEnabled) {
-				continue;
-			}
-			if (dlItem.isExternal()) {
-				continue;
-			}
-			if (dlItem.getKey() == null) {
-				// still no key, wait
-				continue;
-			}
-
-			if (dlItem.getState() != FrostDownloadItem.STATE_WAITING) {
-				continue;
-			}
-
-			// check if waittime is expired
-			final long waittimeMillis = Core.frostSettings
-					.getInteger(Settings.DOWNLOAD_WAITTIME) * 60L * 1000L;
-			// min->millisec
-			if (dlItem.getLastDownloadStopTime() == 0 // never started
-					|| (System.currentTimeMillis() - dlItem
-							.getLastDownloadStopTime()) > waittimeMillis) {
-				waitingItems.add(dlItem);
-			}
-		}
-
-		if (waitingItems.size() == 0) {
-			return null;
-		}
-
-		if (waitingItems.size() > 1) { // performance issues
-			Collections.sort(waitingItems, nextItemCmp);
-		}
-		return waitingItems.get(0);
+		return getScheduler().selectNextDownloadItem();
 	}
 
 	public void notifyDownloadItemEnabledStateChanged(final FrostDownloadItem dlItem) {
@@ -610,47 +575,4 @@ public class DownloadManager implements ExitSavable {
 		
 		panel.changeItemPriorites(frostDownloadItems, prio);
 	}
-
-	/**
-	 * Used to sort FrostDownloadItems by lastUpdateStartTimeMillis ascending.
-	 */
-	private static final Comparator<FrostDownloadItem> nextItemCmp = new Comparator<FrostDownloadItem>() {
-		public int compare(final FrostDownloadItem value1,
-				final FrostDownloadItem value2) {
-
-			// choose item that with lowest addedTime
-			final int cmp1 = Mixed.compareLong(value1.getDownloadAddedMillis(),
-					value2.getDownloadAddedMillis());
-			if (cmp1 != 0) {
-				return cmp1;
-			}
-
-			// equal addedTimes, choose by blocksRemaining
-			int blocksTodo1;
-			int blocksTodo2;
-
-			// compute remaining blocks
-			if (value1.getRequiredBlocks() > 0 && value1.getDoneBlocks() > 0) {
-				blocksTodo1 = value1.getRequiredBlocks()
-						- value1.getDoneBlocks();
-			} else {
-				blocksTodo1 = Integer.MAX_VALUE; // never started
-			}
-			if (value2.getRequiredBlocks() > 0 && value2.getDoneBlocks() > 0) {
-				blocksTodo2 = value2.getRequiredBlocks()
-						- value2.getDoneBlocks();
-			} else {
-				blocksTodo2 = Integer.MAX_VALUE; // never started
-			}
-
-			final int cmp2 = Mixed.compareInt(blocksTodo1, blocksTodo2);
-			if (cmp2 != 0) {
-				return cmp2;
-			}
-
-			// equal remainingBlocks, choose smaller file (filesize can be -1)
-			return Mixed
-					.compareLong(value1.getFileSize(), value2.getFileSize());
-		}
-	};
 }
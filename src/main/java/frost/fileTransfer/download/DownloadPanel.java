@@ -644,16 +644,15 @@ public class DownloadPanel extends JPanel implements SettingsUpdater {
 		if ((items == null) || (items.size() == 0) || (FileTransferManager.inst().getPersistenceManager() == null)) {
 			return;
 		}
+		// send the changes of all running downloads at once
+		final List<String> gqids = new ArrayList<String>();
 		for (final FrostDownloadItem di : items) {
-			String gqid = null;
 			di.setPriority(newPrio);
-			if (di.getState() == FrostDownloadItem.STATE_PROGRESS) {
-				gqid = di.getGqIdentifier();
-			}
-			if (gqid != null) {
-				FileTransferManager.inst().getPersistenceManager().getFcpTools().changeRequestPriority(gqid, newPrio);
+			if (di.getState() == FrostDownloadItem.STATE_PROGRESS && di.getGqIdentifier() != null) {
+				gqids.add(di.getGqIdentifier());
 			}
 		}
+		FileTransferManager.inst().getPersistenceManager().getFcpTools().changeRequestPriority(gqids, newPrio);
 	}
 
 	private void assignHotkeys() {
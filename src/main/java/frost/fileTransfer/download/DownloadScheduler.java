@@ -0,0 +1,291 @@
+/*
+  DownloadScheduler.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fileTransfer.download;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import frost.Core;
+import frost.Settings;
+import frost.util.Mixed;
+import frost.util.model.SortedModelListener;
+
+/**
+ * Keeps the download items that wait for their start in sorted sets, so the next item is
+ * found without walking the DownloadModel.
+ *
+ * Items that may start now are sorted by the order of selectNextDownloadItem(), items
+ * whose wait time after the last try is not over are sorted by the time they become
+ * eligible. The sets are updated by the change events of the model items, each change
+ * costs O(log n). The values of an item are copied into its entry when it is inserted,
+ * a selected entry is checked against the item before it is returned.
+ */
+public class DownloadScheduler implements SortedModelListener<FrostDownloadItem> {
+
+	private static class Entry {
+		final FrostDownloadItem item;
+		// keeps entries with equal values apart
+		final long sequence;
+		final long addedMillis;
+		final int blocksTodo;
+		final long fileSize;
+		final long lastStopMillis;
+
+		Entry(final FrostDownloadItem item, final long sequence) {
+			this.item = item;
+			this.sequence = sequence;
+			addedMillis = item.getDownloadAddedMillis();
+			// compute remaining blocks
+			if (item.getRequiredBlocks() > 0 && item.getDoneBlocks() > 0) {
+				blocksTodo = item.getRequiredBlocks() - item.getDoneBlocks();
+			} else {
+				blocksTodo = Integer.MAX_VALUE; // never started
+			}
+			fileSize = item.getFileSize();
+			lastStopMillis = item.getLastDownloadStopTime();
+		}
+
+		boolean hasSameValues(final Entry e) {
+			return addedMillis == e.addedMillis && blocksTodo == e.blocksTodo && fileSize == e.fileSize
+					&& lastStopMillis == e.lastStopMillis;
+		}
+	}
+
+	/**
+	 * Lowest added time first, then the fewest remaining blocks, then the smaller file (filesize can be -1).
+	 */
+	private static final Comparator<Entry> nextItemCmp = new Comparator<Entry>() {
+		public int compare(final Entry value1, final Entry value2) {
+			int cmp = Mixed.compareLong(value1.addedMillis, value2.addedMillis);
+			if (cmp == 0) {
+				cmp = Mixed.compareInt(value1.blocksTodo, value2.blocksTodo);
+			}
+			if (cmp == 0) {
+				cmp = Mixed.compareLong(value1.fileSize, value2.fileSize);
+			}
+			if (cmp == 0) {
+				cmp = Mixed.compareLong(value1.sequence, value2.sequence);
+			}
+			return cmp;
+		}
+	};
+
+	private static final Comparator<Entry> lastStopCmp = new Comparator<Entry>() {
+		public int compare(final Entry value1, final Entry value2) {
+			final int cmp = Mixed.compareLong(value1.lastStopMillis, value2.lastStopMillis);
+			return (cmp != 0) ? cmp : Mixed.compareLong(value1.sequence, value2.sequence);
+		}
+	};
+
+	private final Map<FrostDownloadItem, Entry> entries = new HashMap<FrostDownloadItem, Entry>();
+	private final TreeSet<Entry> eligibleEntries = new TreeSet<Entry>(nextItemCmp);
+	private final TreeSet<Entry> delayedEntries = new TreeSet<Entry>(lastStopCmp);
+
+	// running shared downloads, their runtime without progress is counted
+	private final Set<FrostDownloadItem> runningSharedItems = new HashSet<FrostDownloadItem>();
+
+	private long nextSequence = 0;
+
+	public DownloadScheduler(final DownloadModel model) {
+		model.addOrderedModelListener(this);
+		// the listener may already get events, they are applied in any order with the initial items
+		final List<FrostDownloadItem> items = new ArrayList<FrostDownloadItem>();
+		for (int i = 0; i < model.getItemCount(); i++) {
+			items.add(model.getItemAt(i));
+		}
+		synchronized (this) {
+			for (final FrostDownloadItem item : items) {
+				update(item);
+			}
+		}
+	}
+
+	private static long getWaitMillis() {
+		// min->millisec
+		return Core.frostSettings.getInteger(Settings.DOWNLOAD_WAITTIME) * 60L * 1000L;
+	}
+
+	private static boolean isWaitTimeOver(final long lastStopMillis, final long now, final long waitMillis) {
+		// 0 = never started, -1 = retry immediately
+		return lastStopMillis <= 0 || (now - lastStopMillis) > waitMillis;
+	}
+
+	private static boolean isCandidate(final FrostDownloadItem dlItem) {
+		if (dlItem.isEnabled() != null && !dlItem.isEnabled().booleanValue()) {
+			return false;
+		}
+		if (dlItem.isExternal()) {
+			return false;
+		}
+		if (dlItem.getKey() == null) {
+			// still no key, wait
+			return false;
+		}
+		return dlItem.getState() == FrostDownloadItem.STATE_WAITING;
+	}
+
+	private void remove(final FrostDownloadItem dlItem) {
+		final Entry old = entries.remove(dlItem);
+		if (old != null && !eligibleEntries.remove(old)) {
+			delayedEntries.remove(old);
+		}
+		runningSharedItems.remove(dlItem);
+	}
+
+	private void update(final FrostDownloadItem dlItem) {
+		if (dlItem == null) {
+			return;
+		}
+		if (dlItem.isSharedFile() && dlItem.getState() == FrostDownloadItem.STATE_PROGRESS) {
+			runningSharedItems.add(dlItem);
+		} else {
+			runningSharedItems.remove(dlItem);
+		}
+
+		final Entry old = entries.get(dlItem);
+		if (!isCandidate(dlItem)) {
+			if (old != null) {
+				remove(dlItem);
+			}
+			return;
+		}
+		final Entry entry = new Entry(dlItem, nextSequence++);
+		if (old != null) {
+			if (old.hasSameValues(entry)) {
+				return;
+			}
+			if (!eligibleEntries.remove(old)) {
+				delayedEntries.remove(old);
+			}
+		}
+		entries.put(dlItem, entry);
+		if (isWaitTimeOver(entry.lastStopMillis, System.currentTimeMillis(), getWaitMillis())) {
+			eligibleEntries.add(entry);
+		} else {
+			delayedEntries.add(entry);
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Moves the entries whose wait time is over to the eligible entries.
+	 */
+	private void promoteDelayedEntries(final long now, final long waitMillis) {
+		while (!delayedEntries.isEmpty() && isWaitTimeOver(delayedEntries.first().lastStopMillis, now, waitMillis)) {
+			eligibleEntries.add(delayedEntries.pollFirst());
+		}
+	}
+
+	/**
+	 * @return the next download item to start or null if no item may start now
+	 */
+	public synchronized FrostDownloadItem selectNextDownloadItem() {
+		final long now = System.currentTimeMillis();
+		final long waitMillis = getWaitMillis();
+		promoteDelayedEntries(now, waitMillis);
+		while (!eligibleEntries.isEmpty()) {
+			final Entry entry = eligibleEntries.first();
+			final FrostDownloadItem dlItem = entry.item;
+			if (isCandidate(dlItem) && entry.lastStopMillis == dlItem.getLastDownloadStopTime()
+					&& isWaitTimeOver(entry.lastStopMillis, now, waitMillis)) {
+				return dlItem;
+			}
+			// changed without an event, or the wait time was raised
+			remove(dlItem);
+			update(dlItem);
+		}
+		return null;
+	}
+
+	/**
+	 * @return milliseconds until the next item may start, 0 if an item may start now,
+	 *         Long.MAX_VALUE if no item waits
+	 */
+	public synchronized long getMillisUntilNextItem() {
+		if (!eligibleEntries.isEmpty()) {
+			return 0;
+		}
+		if (delayedEntries.isEmpty()) {
+			return Long.MAX_VALUE;
+		}
+		final long eligibleMillis = delayedEntries.first().lastStopMillis + getWaitMillis() + 1;
+		return Math.max(0, eligibleMillis - System.currentTimeMillis());
+	}
+
+	/**
+	 * Waits until an item may start, an item changed or signal() was called.
+	 */
+	public synchronized void awaitNextItem(final long maxMillis) throws InterruptedException {
+		final long millis = Math.min(maxMillis, getMillisUntilNextItem());
+		if (millis > 0) {
+			wait(millis);
+		}
+	}
+
+	/**
+	 * Waits until an item changed or signal() was called.
+	 */
+	public synchronized void await(final long maxMillis) throws InterruptedException {
+		if (maxMillis > 0) {
+			wait(maxMillis);
+		}
+	}
+
+	/**
+	 * Wakes up the waiting thread, e.g. when a download thread finished.
+	 */
+	public synchronized void signal() {
+		notifyAll();
+	}
+
+	public synchronized int getWaitingItemCount() {
+		return entries.size();
+	}
+
+	public synchronized List<FrostDownloadItem> getRunningSharedItems() {
+		return new ArrayList<FrostDownloadItem>(runningSharedItems);
+	}
+
+	public synchronized void itemAdded(final int position, final FrostDownloadItem item) {
+		update(item);
+	}
+
+	public synchronized void itemChanged(final int position, final FrostDownloadItem item) {
+		update(item);
+	}
+
+	public synchronized void itemsRemoved(final int[] positions, final List<FrostDownloadItem> items) {
+		for (final FrostDownloadItem item : items) {
+			remove(item);
+		}
+	}
+
+	public synchronized void modelCleared() {
+		entries.clear();
+		eligibleEntries.clear();
+		delayedEntries.clear();
+		runningSharedItems.clear();
+	}
+}
@@ -18,18 +18,31 @@
 package frost.fileTransfer.download;
 
 import java.io.File;
-import java.time.Duration;
-import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import frost.Core;
 import frost.Settings;
 import frost.fileTransfer.FileTransferManager;
 import frost.fileTransfer.PersistenceManager;
-import frost.util.Mixed;
 
+/**
+ * Starts the downloads without persistence and counts the runtime of shared downloads.
+ * The thread sleeps until the DownloadScheduler has an item that may start, a download
+ * thread finished, or the runtime must be counted.
+ */
 public class DownloadTicker extends Thread {
 
+	private static final Logger logger = LoggerFactory.getLogger(DownloadTicker.class);
+
+	private static final long RUNTIME_INTERVAL_MILLIS = 60L * 1000L;
+
+	// Freenet online and the activate button are not signaled, check them this often while they block
+	private static final long BLOCKED_CHECK_MILLIS = 1000L;
+
 	private final DownloadPanel panel;
+	private final DownloadScheduler scheduler;
 
 	/**
 	 * The number of allocated threads is used to limit the total of threads
@@ -41,9 +54,10 @@ public class DownloadTicker extends Thread {
 
 	private final Object threadCountLock = new Object();
 
-	public DownloadTicker(final DownloadPanel newPanel) {
+	public DownloadTicker(final DownloadPanel newPanel, final DownloadScheduler newScheduler) {
 		super("Download");
 		panel = newPanel;
+		scheduler = newScheduler;
 	}
 
 	/**
@@ -89,24 +103,33 @@ public class DownloadTicker extends Thread {
 	@Override
     public void run() {
 		super.run();
-		Instant loopEnd = null;
-		Instant loopStart = Instant.now();
+		long loopStart = System.currentTimeMillis();
 		while (true) {
-			Mixed.wait(1000);
-			
-			if( PersistenceManager.isPersistenceEnabled() == false ) {
-				startDownloadThread();
-			} else {
-
-				// No need to check every second if persistance was enabled
-				Mixed.wait(29000);
+			final boolean isPersistenceEnabled = PersistenceManager.isPersistenceEnabled();
+			if( !isPersistenceEnabled ) {
+				startDownloadThreads();
 			}
 
-			loopEnd = Instant.now();
-			long seconds = Duration.between(loopStart, loopEnd).toSeconds();
-			if( seconds >= 60 ) {
+			final long now = System.currentTimeMillis();
+			final long seconds = (now - loopStart) / 1000L;
+			if( seconds >= RUNTIME_INTERVAL_MILLIS / 1000L ) {
 				increaseDownloadItemRuntime(Math.toIntExact(seconds));
-				loopStart = loopEnd;
+				loopStart = now;
+			}
+
+			final long maxWait = Math.max(1, loopStart + RUNTIME_INTERVAL_MILLIS - now);
+			try {
+				if( isPersistenceEnabled ) {
+					// the PersistenceManager starts the downloads
+					scheduler.await(maxWait);
+				} else if( canStartDownload() ) {
+					scheduler.awaitNextItem(maxWait);
+				} else {
+					scheduler.await(Math.min(maxWait, BLOCKED_CHECK_MILLIS));
+				}
+			} catch (final InterruptedException e) {
+				logger.warn("Download ticker interrupted");
+				return;
 			}
 		}
 	}
@@ -124,18 +147,7 @@ public class DownloadTicker extends Thread {
 	        }
 	    }
 
-	    final DownloadModel model = FileTransferManager.inst().getDownloadManager().getModel();
-	    for(int x=0; x < model.getItemCount(); x++ ) {
-			final FrostDownloadItem item = model.getItemAt(x);
-	        if( item == null ) {
-	            continue;
-	        }
-	        if( !item.isSharedFile() ) {
-	            continue;
-	        }
-	        if( item.getState() != FrostDownloadItem.STATE_PROGRESS ) {
-	            continue;
-	        }
+	    for( final FrostDownloadItem item : scheduler.getRunningSharedItems() ) {
 	        item.addToRuntimeSecondsWithoutProgress(incSecs);
 	    }
 	}
@@ -148,6 +160,8 @@ public class DownloadTicker extends Thread {
 	void threadFinished() {
 		runningThreads--;
 		releaseThread();
+		// a thread is free, maybe start the next download
+		scheduler.signal();
 	}
 
 	/**
@@ -158,13 +172,19 @@ public class DownloadTicker extends Thread {
 		runningThreads++;
 	}
 
+    private boolean canStartDownload() {
+        return Core.isFreenetOnline() && panel.isDownloadingActivated() && canAllocateDownloadThread();
+    }
+
     /**
-     * Maybe start a new download automatically.
+     * Start new downloads automatically while threads are available.
      */
-	private void startDownloadThread() {
-        if( Core.isFreenetOnline() && panel.isDownloadingActivated() && canAllocateDownloadThread() ) {
-            final FrostDownloadItem dlItem = FileTransferManager.inst().getDownloadManager().selectNextDownloadItem();
-            startDownload(dlItem);
+	private void startDownloadThreads() {
+        while( canStartDownload() ) {
+            final FrostDownloadItem dlItem = scheduler.selectNextDownloadItem();
+            if( dlItem == null || !startDownload(dlItem) ) {
+                break;
+            }
         }
     }
 
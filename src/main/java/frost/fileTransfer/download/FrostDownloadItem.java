@@ -257,6 +257,8 @@ public class FrostDownloadItem extends ModelItem<FrostDownloadItem> implements C
 	}
 	public void setLastDownloadStopTime(final long val) {
         lastDownloadStopTime = val;
+        // the DownloadScheduler computes the next start from it
+        fireChange();
 	}
 
 	public int getRetries() {
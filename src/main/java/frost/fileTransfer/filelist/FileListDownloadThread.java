@@ -26,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import frost.fcp.FcpHandler;
+import frost.fcp.NodeRequestScheduler;
 import frost.fileTransfer.SharedFilesCHKKeyManager;
 import frost.transferlayer.GlobalFileDownloader;
 import frost.transferlayer.GlobalFileDownloaderResult;
@@ -92,7 +93,12 @@ public class FileListDownloadThread extends Thread {
                 }
                 logger.info("FileListDownloadThread: starting download of key: {}", chkKey);
 
-                final GlobalFileDownloaderResult result = GlobalFileDownloader.downloadFile(chkKey, FcpHandler.MAX_FILELIST_SIZE_07, -1);
+                final GlobalFileDownloaderResult result = GlobalFileDownloader.downloadFile(
+                        chkKey,
+                        FcpHandler.MAX_FILELIST_SIZE_07,
+                        -1,
+                        NodeRequestScheduler.RequestClass.FILE_LIST,
+                        "filelists");
 
                 if( result == null || result.getResultFile() == null ) {
                     // download failed
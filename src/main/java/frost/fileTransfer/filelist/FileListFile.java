@@ -33,6 +33,7 @@ import org.w3c.dom.Text;
 import frost.Core;
 import frost.fileTransfer.SharedFileXmlFile;
 import frost.identities.Identity;
+import frost.storage.perst.VerifiedSignatureStorage;
 import frost.util.XMLTools;
 
 /**
@@ -208,7 +209,7 @@ public class FileListFile {
         }
 
         final String signContent = getSignableContent(files, owner.getUniqueName(), timestamp);
-        final boolean sigIsValid = Core.getCrypto().detachedVerify(signContent, owner.getPublicKey(), signature);
+        final boolean sigIsValid = VerifiedSignatureStorage.inst().detachedVerify(signContent, owner.getPublicKey(), signature);
         if( !sigIsValid ) {
             logger.error("invalid file signature from owner {}", owner.getUniqueName());
             return null;
@@ -29,6 +29,7 @@ import org.slf4j.LoggerFactory;
 import frost.Core;
 import frost.Settings;
 import frost.fcp.FcpHandler;
+import frost.fcp.NodeRequestScheduler;
 import frost.fileTransfer.SharedFilesCHKKeyManager;
 import frost.storage.perst.IndexSlot;
 import frost.storage.perst.IndexSlotsStorage;
@@ -155,7 +156,12 @@ public class FilePointersThread extends Thread {
                 maxRetries = -1;
             }
 
-            final GlobalFileDownloaderResult result = GlobalFileDownloader.downloadFile(downKey, FcpHandler.MAX_MESSAGE_SIZE_07, maxRetries);
+            final GlobalFileDownloaderResult result = GlobalFileDownloader.downloadFile(
+                    downKey,
+                    FcpHandler.MAX_MESSAGE_SIZE_07,
+                    maxRetries,
+                    NodeRequestScheduler.RequestClass.FILE_POINTER,
+                    "filepointers");
 
             if(  result == null ) {
                 logger.warn("FilePointersThread.downloadDate: failure");
@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import frost.Core;
 import frost.Settings;
 import frost.fcp.FcpHandler;
+import frost.fcp.NodeRequestScheduler;
 import frost.storage.perst.IndexSlot;
 import frost.storage.perst.IndexSlotsStorage;
 import frost.transferlayer.GlobalFileDownloader;
@@ -139,7 +140,12 @@ public class FileRequestsThread extends Thread {
             }
 
             final String downKey = requestKey + index + ".xml";
-            final GlobalFileDownloaderResult result = GlobalFileDownloader.downloadFile(downKey, FcpHandler.MAX_MESSAGE_SIZE_07, maxRetries);
+            final GlobalFileDownloaderResult result = GlobalFileDownloader.downloadFile(
+                    downKey,
+                    FcpHandler.MAX_MESSAGE_SIZE_07,
+                    maxRetries,
+                    NodeRequestScheduler.RequestClass.FILE_REQUEST,
+                    "filerequests");
 
             if( result == null ) {
                 // download failed.
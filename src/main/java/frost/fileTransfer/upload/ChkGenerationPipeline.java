@@ -0,0 +1,292 @@
+/*
+  ChkGenerationPipeline.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fileTransfer.upload;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import frost.Core;
+import frost.fcp.FcpHandler;
+import frost.util.LatencyHistogram;
+import frost.util.model.SortedModelListener;
+
+/**
+ * Generates the CHK keys of the upload items whose encoding was requested.
+ *
+ * The items are queued in the order of the requests when their state changes to
+ * STATE_ENCODING_REQUESTED, so the model is not walked. A number of worker threads take
+ * the items from the queue, each generation uses a pooled connection of the FcpHandler
+ * and DDA if the node allows it. When a key was generated the keysReady callback is run,
+ * so the upload of the item can start at once.
+ */
+public class ChkGenerationPipeline implements SortedModelListener<FrostUploadItem>, ChkGenerationPipelineMBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(ChkGenerationPipeline.class);
+
+	private static final String FREENET_PREFIX = "freenet:";
+
+	// item to the time its encoding was requested, in request order
+	private final LinkedHashMap<FrostUploadItem, Long> queuedItems = new LinkedHashMap<FrostUploadItem, Long>();
+	// item with a new key to the time the key was generated, until its upload starts
+	private final Map<FrostUploadItem, Long> keyReadyItems = new HashMap<FrostUploadItem, Long>();
+	// items taken by a worker, an item removed from the model is removed here too
+	private final Set<FrostUploadItem> takenItems = new HashSet<FrostUploadItem>();
+
+	private enum Result {
+		GENERATED,
+		FAILED,
+		// the item was removed or its state changed before the generation started
+		SKIPPED
+	}
+
+	private final LatencyHistogram queueLatency = new LatencyHistogram();
+	private final LatencyHistogram generationLatency = new LatencyHistogram();
+	private final LatencyHistogram uploadStartLatency = new LatencyHistogram();
+
+	private final int threadCount;
+	private final Runnable keysReady;
+	private final List<Thread> workers = new ArrayList<Thread>();
+
+	private int runningCount = 0;
+	private long generatedCount = 0;
+	private long failedCount = 0;
+
+	/**
+	 * @param keysReady  run by the worker after a key was generated
+	 */
+	public ChkGenerationPipeline(final UploadModel model, final int threadCount, final Runnable keysReady) {
+		this.threadCount = Math.max(1, threadCount);
+		this.keysReady = keysReady;
+		model.addOrderedModelListener(this);
+		final List<FrostUploadItem> items = new ArrayList<FrostUploadItem>();
+		for (int i = 0; i < model.getItemCount(); i++) {
+			items.add(model.getItemAt(i));
+		}
+		synchronized (this) {
+			for (final FrostUploadItem item : items) {
+				update(item);
+			}
+		}
+	}
+
+	public synchronized void start() {
+		if (!workers.isEmpty()) {
+			return;
+		}
+		for (int i = 0; i < threadCount; i++) {
+			final Thread t = new Thread("ChkGeneration-" + i) {
+				@Override
+				public void run() {
+					workerLoop();
+				}
+			};
+			t.setDaemon(true);
+			workers.add(t);
+			t.start();
+		}
+	}
+
+	private void update(final FrostUploadItem ulItem) {
+		if (ulItem == null) {
+			return;
+		}
+		final int state = ulItem.getState();
+		if (state == FrostUploadItem.STATE_ENCODING_REQUESTED) {
+			if (!queuedItems.containsKey(ulItem)) {
+				queuedItems.put(ulItem, Long.valueOf(System.currentTimeMillis()));
+				notifyAll();
+			}
+			return;
+		}
+		queuedItems.remove(ulItem);
+
+		final Long keyReadyMillis = keyReadyItems.get(ulItem);
+		if (keyReadyMillis != null && state != FrostUploadItem.STATE_WAITING) {
+			keyReadyItems.remove(ulItem);
+			if (state == FrostUploadItem.STATE_PROGRESS) {
+				uploadStartLatency.record(System.currentTimeMillis() - keyReadyMillis.longValue(), true);
+			}
+		}
+	}
+
+	/**
+	 * @return the next item to encode, waits while the queue is empty or Freenet is offline
+	 */
+	private synchronized FrostUploadItem takeItem() throws InterruptedException {
+		while (true) {
+			if (!Core.isFreenetOnline()) {
+				wait(1000);
+				continue;
+			}
+			final Iterator<Map.Entry<FrostUploadItem, Long>> i = queuedItems.entrySet().iterator();
+			if (!i.hasNext()) {
+				wait();
+				continue;
+			}
+			final Map.Entry<FrostUploadItem, Long> e = i.next();
+			i.remove();
+			takenItems.add(e.getKey());
+			queueLatency.record(System.currentTimeMillis() - e.getValue().longValue(), true);
+			runningCount++;
+			return e.getKey();
+		}
+	}
+
+	private void workerLoop() {
+		while (true) {
+			final FrostUploadItem ulItem;
+			try {
+				ulItem = takeItem();
+			} catch (final InterruptedException e) {
+				return;
+			}
+			Result result = Result.FAILED;
+			try {
+				result = generateChk(ulItem);
+			} catch (final Throwable t) {
+				logger.error("Exception thrown in workerLoop()", t);
+			}
+			synchronized (this) {
+				runningCount--;
+				takenItems.remove(ulItem);
+				// skipped items are not counted
+				if (result == Result.GENERATED) {
+					generatedCount++;
+				} else if (result == Result.FAILED) {
+					failedCount++;
+				}
+			}
+			if (result == Result.GENERATED) {
+				keysReady.run();
+			}
+		}
+	}
+
+	private Result generateChk(final FrostUploadItem ulItem) {
+		// the item could have been removed or changed by the user while it was queued
+		synchronized (this) {
+			if (!takenItems.contains(ulItem)) {
+				return Result.SKIPPED;
+			}
+		}
+		// the state is checked and set under the lock of the item, the change is fired without our lock
+		if (!ulItem.compareAndSetState(FrostUploadItem.STATE_ENCODING_REQUESTED, FrostUploadItem.STATE_ENCODING)) {
+			return Result.SKIPPED;
+		}
+		logger.info("CHK generation started for file: {}", ulItem.getFileName());
+
+		final long startMillis = System.currentTimeMillis();
+		String chkkey = null;
+		// yes, this destroys any upload progress, but we come only here if
+		// chkKey == null, so the file should'nt be uploaded until now
+		try {
+			chkkey = FcpHandler.inst().generateCHK(ulItem.getFile());
+		} catch (final Throwable t) {
+			logger.error("Encoding failed", t);
+		}
+		generationLatency.record(System.currentTimeMillis() - startMillis, chkkey != null);
+
+		if (chkkey == null) {
+			logger.error("Could not generate CHK key for file: {}", ulItem.getFileName());
+			ulItem.compareAndSetState(FrostUploadItem.STATE_ENCODING, FrostUploadItem.STATE_WAITING);
+			return Result.FAILED;
+		}
+		if (chkkey.startsWith(FREENET_PREFIX)) {
+			chkkey = chkkey.substring(FREENET_PREFIX.length());
+		}
+		ulItem.setKey(chkkey);
+		synchronized (this) {
+			keyReadyItems.put(ulItem, Long.valueOf(System.currentTimeMillis()));
+		}
+		// after key generation set to state waiting for upload, unless the user changed the state
+		ulItem.compareAndSetState(FrostUploadItem.STATE_ENCODING, FrostUploadItem.STATE_WAITING);
+		return Result.GENERATED;
+	}
+
+////////////////////////////////////////////////////////////////////////////////////////////////
+//  SortedModelListener interface //////////////////////////////////////////////////////////////
+////////////////////////////////////////////////////////////////////////////////////////////////
+
+	public synchronized void itemAdded(final int position, final FrostUploadItem item) {
+		update(item);
+	}
+
+	public synchronized void itemChanged(final int position, final FrostUploadItem item) {
+		update(item);
+	}
+
+	public synchronized void itemsRemoved(final int[] positions, final List<FrostUploadItem> items) {
+		for (final FrostUploadItem item : items) {
+			queuedItems.remove(item);
+			keyReadyItems.remove(item);
+			takenItems.remove(item);
+		}
+	}
+
+	public synchronized void modelCleared() {
+		queuedItems.clear();
+		keyReadyItems.clear();
+		takenItems.clear();
+	}
+
+////////////////////////////////////////////////////////////////////////////////////////////////
+//  ChkGenerationPipelineMBean interface ///////////////////////////////////////////////////////
+////////////////////////////////////////////////////////////////////////////////////////////////
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	public synchronized int getQueuedCount() {
+		return queuedItems.size();
+	}
+
+	public synchronized int getRunningCount() {
+		return runningCount;
+	}
+
+	public synchronized long getGeneratedCount() {
+		return generatedCount;
+	}
+
+	public synchronized long getFailedCount() {
+		return failedCount;
+	}
+
+	public String getQueueLatency() {
+		return queueLatency.toString();
+	}
+
+	public String getGenerationLatency() {
+		return generationLatency.toString();
+	}
+
+	public String getUploadStartLatency() {
+		return uploadStartLatency.toString();
+	}
+}
@@ -47,7 +47,7 @@ public class FrostUploadItem extends ModelItem<FrostUploadItem> implements CopyT
     private long fileSize = 0;
     private String chkKey = null;
     private boolean enabled = true;
-    private int state;
+    private volatile int state;
     private long uploadAddedMillis = 0;
     private long uploadStartedMillis = 0;
     private long uploadFinishedMillis = 0;
@@ -195,8 +195,26 @@ public class FrostUploadItem extends ModelItem<FrostUploadItem> implements CopyT
         return state;
     }
     public void setState(final int newState) {
-        state = newState;
+        synchronized( this ) {
+            state = newState;
+        }
+        fireChange();
+    }
+    /**
+     * Sets the new state only if the item is still in the expected state, e.g. for a worker
+     * thread that must not overwrite a state set by the user meanwhile.
+     *
+     * @return false if the state was changed meanwhile
+     */
+    public boolean compareAndSetState(final int expectedState, final int newState) {
+        synchronized( this ) {
+            if( state != expectedState ) {
+                return false;
+            }
+            state = newState;
+        }
         fireChange();
+        return true;
     }
 
     public int getTotalBlocks() {
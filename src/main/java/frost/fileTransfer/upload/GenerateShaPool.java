@@ -1,5 +1,5 @@
 /*
-  GenerateShaThread.java / Frost
+  GenerateShaPool.java / Frost
   Copyright (C) 2006  Frost Project <jtcfrost.sourceforge.net>
 
   This program is free software; you can redistribute it and/or
@@ -19,35 +19,76 @@
 package frost.fileTransfer.upload;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import frost.Core;
+import frost.Settings;
 import frost.fileTransfer.FileTransferManager;
 import frost.fileTransfer.NewUploadFilesManager;
 import frost.fileTransfer.sharing.FrostSharedFileItem;
+import frost.storage.perst.FileHashStorage;
 import frost.storage.perst.NewUploadFile;
 import frost.util.Mixed;
 
 /**
- * Generates the sha checksum of a file.
+ * Generates the sha checksums of new upload files with a pool of threads.
+ * The checksums are cached by canonical path, size and modification time, an unchanged
+ * file that is added again is not read.
  */
-public class GenerateShaThread extends Thread {
+public class GenerateShaPool {
 
-	private static final Logger logger = LoggerFactory.getLogger(GenerateShaThread.class);
+	private static final Logger logger = LoggerFactory.getLogger(GenerateShaPool.class);
+
+    // more threads than this only compete for the disk
+    private static final int MAX_AUTO_THREADS = 4;
 
     private NewUploadFilesManager newUploadFilesManager;
     
     private static final int wait1minute = 1 * 60 * 1000;
     FileQueue fileQueue;
 
-    public GenerateShaThread(NewUploadFilesManager newUploadFilesManager) {
+    private final List<Thread> workers = new ArrayList<Thread>();
+
+    public GenerateShaPool(NewUploadFilesManager newUploadFilesManager) {
         this.newUploadFilesManager = newUploadFilesManager;
         fileQueue = new FileQueue();
     }
 
+    /**
+     * @return the configured count of threads, or one per core up to MAX_AUTO_THREADS
+     */
+    private static int getThreadCount() {
+        final int configured = Core.frostSettings.getInteger(Settings.UPLOAD_SHA_THREADS);
+        if( configured > 0 ) {
+            return configured;
+        }
+        return Math.max(1, Math.min(MAX_AUTO_THREADS, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public synchronized void start() {
+        if( !workers.isEmpty() ) {
+            return;
+        }
+        final int threadCount = getThreadCount();
+        for( int i = 0; i < threadCount; i++ ) {
+            final Thread t = new Thread("GenerateSha-" + i) {
+                @Override
+                public void run() {
+                    workerLoop();
+                }
+            };
+            workers.add(t);
+            t.start();
+        }
+        logger.info("Started {} threads to generate file checksums", threadCount);
+    }
+
     public void addToFileQueue(final NewUploadFile f) {
         // awakes thread
         fileQueue.appendFileToQueue(f);
@@ -57,8 +98,7 @@ public class GenerateShaThread extends Thread {
         return fileQueue.getQueueSize();
     }
 
-    @Override
-    public void run() {
+    private void workerLoop() {
 
         final int maxAllowedExceptions = 5;
         int occuredExceptions = 0;
@@ -76,7 +116,7 @@ public class GenerateShaThread extends Thread {
 
                 final File newFile = new File(newUploadFile.getFilePath());
 
-                final String sha = Core.getCrypto().computeChecksumSHA256(newFile);
+                final String sha = computeSha(newFile);
 
                 if( sha != null ) {
 
@@ -99,12 +139,38 @@ public class GenerateShaThread extends Thread {
             }
 
             if( occuredExceptions > maxAllowedExceptions ) {
-                logger.error("Stopping GenerateShaThread because of too much exceptions");
+                logger.error("Stopping {} because of too much exceptions", Thread.currentThread().getName());
                 break;
             }
         }
     }
 
+    /**
+     * @return the cached checksum if the file is unchanged, else the computed checksum
+     */
+    private String computeSha(final File file) {
+        String path;
+        try {
+            path = file.getCanonicalPath();
+        } catch (final IOException e) {
+            path = file.getAbsolutePath();
+        }
+        final long fileSize = file.length();
+        final long lastModified = file.lastModified();
+
+        String sha = FileHashStorage.inst().getSha(path, fileSize, lastModified);
+        if( sha != null ) {
+            logger.debug("Using cached checksum of {}", path);
+            return sha;
+        }
+        sha = Core.getCrypto().computeChecksumSHA256(file);
+        // don't cache if the file changed while it was read
+        if( sha != null && file.length() == fileSize && file.lastModified() == lastModified ) {
+            FileHashStorage.inst().storeSha(path, fileSize, lastModified, sha);
+        }
+        return sha;
+    }
+
     private class FileQueue {
 
         private final LinkedList<NewUploadFile> queue = new LinkedList<NewUploadFile>();
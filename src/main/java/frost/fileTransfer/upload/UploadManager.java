@@ -35,10 +35,12 @@ import frost.fcp.FcpResultPut;
 import frost.fileTransfer.FileTransferInformation;
 import frost.fileTransfer.FileTransferManager;
 import frost.fileTransfer.FreenetPriority;
+import frost.fileTransfer.PersistenceManager;
 import frost.fileTransfer.sharing.FrostSharedFileItem;
 import frost.storage.ExitSavable;
 import frost.storage.StorageException;
 import frost.util.FileAccess;
+import frost.util.JmxUtil;
 import frost.util.Mixed;
 
 public class UploadManager implements ExitSavable {
@@ -48,6 +50,7 @@ public class UploadManager implements ExitSavable {
     private UploadModel model;
     private UploadPanel panel;
     private UploadTicker ticker;
+    private ChkGenerationPipeline chkPipeline;
 
     public UploadManager() {
         super();
@@ -56,6 +59,7 @@ public class UploadManager implements ExitSavable {
     public void initialize(final List<FrostSharedFileItem> sharedFiles) throws StorageException {
         getPanel();
         getModel().initialize(sharedFiles);
+        getChkPipeline();
     }
 
     /**
@@ -83,6 +87,8 @@ public class UploadManager implements ExitSavable {
         if (Core.isFreenetOnline()) {
             getTicker().start();
         }
+        // the workers wait while Freenet is offline
+        getChkPipeline().start();
     }
 
     public void exitSave() throws StorageException {
@@ -110,6 +116,33 @@ public class UploadManager implements ExitSavable {
         return ticker;
     }
 
+    public synchronized ChkGenerationPipeline getChkPipeline() {
+        if (chkPipeline == null) {
+            chkPipeline = new ChkGenerationPipeline(
+                    getModel(),
+                    Core.frostSettings.getInteger(Settings.UPLOAD_CHK_GENERATION_THREADS),
+                    new Runnable() {
+                        public void run() {
+                            startGeneratedUploads();
+                        }
+                    });
+            JmxUtil.registerMBean(chkPipeline, "frost:type=ChkGeneration");
+        }
+        return chkPipeline;
+    }
+
+    /**
+     * Called when the key of an item was generated, starts the upload without waiting for the next tick.
+     */
+    private void startGeneratedUploads() {
+        final PersistenceManager pm = FileTransferManager.inst().getPersistenceManager();
+        if( pm != null ) {
+            pm.startWaitingUploads();
+        } else if( ticker != null ) {
+            ticker.signalUploadReady();
+        }
+    }
+
     public UploadModel getModel() {
         if (model == null) {
             model = new UploadModel(new UploadTableFormat());
@@ -288,16 +288,17 @@ public class UploadPanel extends JPanel implements LanguageListener, SimplePopup
         if (items == null || items.size() == 0 || FileTransferManager.inst().getPersistenceManager() == null) {
             return;
         }
+        // send the changes of all running uploads at once
+        final List<String> gqids = new ArrayList<String>();
         for (final FrostUploadItem ui : items) {
-            String gqid = null;
             if (ui.getState() == FrostUploadItem.STATE_PROGRESS) {
                 ui.setPriority(newPrio);
-                gqid = ui.getGqIdentifier();
-            }
-            if (gqid != null) {
-            	FileTransferManager.inst().getPersistenceManager().getFcpTools().changeRequestPriority(gqid, newPrio);
+                if (ui.getGqIdentifier() != null) {
+                    gqids.add(ui.getGqIdentifier());
+                }
             }
         }
+        FileTransferManager.inst().getPersistenceManager().getFcpTools().changeRequestPriority(gqids, newPrio);
     }
 
     private void assignHotkeys() {
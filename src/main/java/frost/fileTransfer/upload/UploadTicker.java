@@ -22,18 +22,19 @@ import frost.Core;
 import frost.Settings;
 import frost.fileTransfer.FileTransferManager;
 import frost.fileTransfer.PersistenceManager;
-import frost.util.Mixed;
 
 public class UploadTicker extends Thread {
 
-    //To be able to increase this value, we have to add support for that. Without it,
-    //the loops in generateCHK and prepareUpladHashes would process the same file
-    //several times.
-    private final int MAX_GENERATING_THREADS = 1;
+    // check uploadTable every 5 minutes
+    private static final long REMOVE_NOT_EXISTING_FILES_MILLIS = 5L * 60L * 1000L;
 
     private final UploadModel model;
 
-    private int removeNotExistingFilesCounter = 0;
+    private long lastRemoveNotExistingFilesMillis = System.currentTimeMillis();
+
+    // signalled when an upload could start before the next second is over
+    private final Object startLock = new Object();
+    private boolean isStartSignalled = false;
 
     /**
      * The number of allocated threads is used to limit the total of threads
@@ -41,12 +42,9 @@ public class UploadTicker extends Thread {
      * threads is the number of threads that are actually running.
      */
     private int allocatedUploadingThreads = 0;
-    private int allocatedGeneratingThreads = 0;
     private int runningUploadingThreads = 0;
-    private int runningGeneratingThreads = 0;
 
     private final Object uploadingCountLock = new Object();
-    private final Object generatingCountLock = new Object();
 
     public UploadTicker(final UploadModel newModel) {
         super("Upload");
@@ -74,40 +72,6 @@ public class UploadTicker extends Thread {
         return false;
     }
 
-    /**
-     * This method is called to find out if a new generating thread can start. It
-     * temporarily allocates it and it will have to be released when it is no longer
-     * needed (no matter whether the thread was actually used or not).
-     * @return true if a new generating thread can start. False otherwise.
-     */
-    private boolean allocateGeneratingThread() {
-        synchronized (generatingCountLock) {
-            if (allocatedGeneratingThreads < MAX_GENERATING_THREADS) {
-                allocatedGeneratingThreads++;
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * This method is called from a generating thread to notify the ticker that
-     * the thread has started (so that it can notify its listeners of the fact)
-     */
-    public void generatingThreadStarted() {
-        runningGeneratingThreads++;
-    }
-
-    /**
-     * This method is usually called from a generating thread to notify the ticker that
-     * the thread has finished (so that it can notify its listeners of the fact). It also
-     * releases the thread so that new generating threads can start if needed.
-     */
-    public void generatingThreadFinished() {
-        runningGeneratingThreads--;
-        releaseGeneratingThread();
-    }
-
     /**
      * This method is called from an uploading thread to notify the ticker that
      * the thread has started (so that it can notify its listeners of the fact)
@@ -138,13 +102,25 @@ public class UploadTicker extends Thread {
     }
 
     /**
-     * This method is used to release a generating thread.
+     * Wakes up the ticker to start an upload now, e.g. when the key of an item was generated.
      */
-    private void releaseGeneratingThread() {
-        synchronized (generatingCountLock) {
-            if (allocatedGeneratingThreads > 0) {
-                allocatedGeneratingThreads--;
+    public void signalUploadReady() {
+        synchronized (startLock) {
+            isStartSignalled = true;
+            startLock.notifyAll();
+        }
+    }
+
+    private void awaitNextTick() {
+        synchronized (startLock) {
+            if (!isStartSignalled) {
+                try {
+                    startLock.wait(1000);
+                } catch (final InterruptedException e) {
+                    // ignore
+                }
             }
+            isStartSignalled = false;
         }
     }
 
@@ -152,44 +128,16 @@ public class UploadTicker extends Thread {
     public void run() {
         super.run();
         while (true) {
-            Mixed.wait(1000);
-            // this is executed each second, so this counter counts seconds
+            awaitNextTick();
             if (Core.frostSettings.getBoolean(Settings.UPLOAD_REMOVE_NOT_EXISTING_FILES)) {
-            removeNotExistingFilesCounter++;
-            removeNotExistingFiles();
+                removeNotExistingFiles();
             }
-            generateCHKs();
             if( PersistenceManager.isPersistenceEnabled() == false ) {
                 startUploadThread();
             }
         }
     }
 
-    /**
-     * This method generates CHK's for upload table entries
-     */
-    private void generateCHKs() {
-
-        if (Core.isFreenetOnline() && allocateGeneratingThread()) {
-            boolean threadLaunched = false;
-
-            for (int i = 0; i < model.getItemCount() && !threadLaunched; i++) {
-				final FrostUploadItem ulItem = model.getItemAt(i);
-                // encode if requested by user
-                if (ulItem.getState() == FrostUploadItem.STATE_ENCODING_REQUESTED) {
-                    // next state will be IDLE (=default)
-                    final GenerateChkThread newInsert = new GenerateChkThread(this, ulItem);
-                    ulItem.setState(FrostUploadItem.STATE_ENCODING);
-                    newInsert.start();
-                    threadLaunched = true;  // start only 1 thread per loop (=second)
-                }
-            }
-            if (!threadLaunched) {
-                releaseGeneratingThread();
-            }
-        }
-    }
-
     /**
      * Maybe start a new upload automatically.
      */
@@ -227,21 +175,13 @@ public class UploadTicker extends Thread {
     }
 
     private void removeNotExistingFiles() {
-        // Check uploadTable every 5 minutes
-        if (removeNotExistingFilesCounter >= 5*60 ) {
+        final long now = System.currentTimeMillis();
+        if (now - lastRemoveNotExistingFilesMillis >= REMOVE_NOT_EXISTING_FILES_MILLIS) {
             model.removeNotExistingFiles();
-            removeNotExistingFilesCounter = 0;
+            lastRemoveNotExistingFilesMillis = now;
         }
     }
 
-    /**
-     * This method returns the number of generating threads that are running
-     * @return the number of generating threads that are running
-     */
-    public int getRunningGeneratingThreads() {
-        return runningGeneratingThreads;
-    }
-
     /**
      * This method returns the number of uploading threads that are running
      * @return the number of uploading threads that are running
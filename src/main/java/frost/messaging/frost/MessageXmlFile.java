@@ -19,12 +19,18 @@
 
 package frost.messaging.frost;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.time.OffsetDateTime;
 import java.util.Iterator;
 import java.util.List;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.bouncycastle.util.encoders.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,6 +44,7 @@ import frost.Core;
 import frost.identities.IdentitiesManager;
 import frost.identities.Identity;
 import frost.identities.LocalIdentity;
+import frost.storage.perst.VerifiedSignatureStorage;
 import frost.util.DateFun;
 import frost.util.FileAccess;
 import frost.util.XMLTools;
@@ -113,6 +120,32 @@ public class MessageXmlFile extends AbstractMessageObject implements XMLizable {
         }
     }
 
+    /**
+     * Constructor.
+     * Used to construct an instance for a downloaded message that is kept in memory,
+     * the instance has no file.
+     * @param data  the content of the message file
+     * @throws MessageCreationException
+     */
+    public MessageXmlFile(final byte[] data) throws MessageCreationException, Throwable {
+
+        if (data == null) {
+            throw new MessageCreationException("Invalid input data for MessageObject. Data is null.");
+        } else if (data.length < 20) { // same filter as for files, see above
+            throw new MessageCreationException(
+                            "Empty input data for MessageObject (size < 20).", true);
+        }
+
+        loadData(data);
+        // ensure basic contents and formats
+        if( !isValid() ) {
+            throw new MessageCreationException("Message has invalid or missing fields.", MessageCreationException.INVALID_FORMAT);
+        }
+    }
+
+    /**
+     * @return the message file, or null if the message was loaded from memory
+     */
     public File getFile() {
         return file;
     }
@@ -128,11 +161,12 @@ public class MessageXmlFile extends AbstractMessageObject implements XMLizable {
 
     /**
      * Returns true if the message signature is valid.
+     * A message that was verified before, e.g. on another board, is only looked up.
      * @param pubKey
      * @return
      */
     public boolean verifyMessageSignatureV2(final String pubKey) {
-        final boolean sigIsValid = Core.getCrypto().detachedVerify(getSignableContentV2(), pubKey, getSignatureV2());
+        final boolean sigIsValid = VerifiedSignatureStorage.inst().detachedVerify(getSignableContentV2(), pubKey, getSignatureV2());
         return sigIsValid;
     }
 
@@ -363,75 +397,32 @@ public class MessageXmlFile extends AbstractMessageObject implements XMLizable {
     }
 
     /**
-     * Parses the XML file and passes the FrostMessage element to XMLize load method.
+     * Reads the XML file in one streaming pass and loads the FrostMessage.
      */
     protected void loadFile() throws Exception {
-        Document doc = null;
-        try {
-            doc = XMLTools.parseXmlFile(this.file);
-        } catch(final Exception ex) {  // xml format error
+        MessageXmlReader reader = null;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(this.file))) {
+            reader = MessageXmlReader.read(in);
+        } catch(final XMLStreamException ex) {  // xml format error
             final File badMessage = new File("badmessage.xml");
             if (file.renameTo(badMessage)) {
                 logger.error("send the file badmessage.xml to a dev for analysis, more details below:", ex);
             }
         }
 
-        if( doc == null ) {
+        if( reader == null ) {
             throw new Exception("MessageObject.loadFile: couldn't parse XML Document - " +
                                 "File name: '" + file.getName() + "'");
         }
 
-        Element rootNode = doc.getDocumentElement();
-
         // transparently decrypt and continue load on success
-        if( rootNode.getTagName().equals("EncryptedFrostMessage") ) {
-            // get recipient (must be I to continue)
-            setRecipientName(XMLTools.getChildElementsCDATAValue(rootNode, "recipient"));
-            if( getRecipientName() == null ) {
-                // no recipient
-                throw new Exception("encrypted message contains no 'recipient' section.");
-            }
-            final IdentitiesManager identitiesManager = Core.getIdentitiesManager();
-            if( !identitiesManager.isMySelf(getRecipientName()) ) {
-                // not for me
-                throw new MessageCreationException("Encrypted message is not for me.",
-                        MessageCreationException.MSG_NOT_FOR_ME);
-            }
-            final String base64enc = XMLTools.getChildElementsCDATAValue(rootNode, "content");
-            if( base64enc == null ) {
-                // no content
-                throw new Exception("encrypted message contains no 'content' section.");
-            }
-            final byte[] base64bytes = base64enc.getBytes("ISO-8859-1");
-            final byte[] encBytes = Base64.decode(base64bytes);
-
-            // decrypt content
-            final LocalIdentity receiverId = identitiesManager.getLocalIdentity(getRecipientName());
-            final byte[] decContent = Core.getCrypto().decrypt(encBytes, receiverId.getPrivateKey());
-            if( decContent == null ) {
-                logger.error("TOFDN: Encrypted message could not be decrypted!");
-                throw new MessageCreationException("Encrypted message could not be decrypted.",
-                        MessageCreationException.DECRYPT_FAILED);
-            }
+        if( reader.isEncryptedMessage() ) {
+            final byte[] decContent = decrypt(reader);
             // decContent is an complete XML file, save it to file and load it
             FileAccess.writeFile(decContent, this.file);
-            // try to load again
-            try {
-                doc = XMLTools.parseXmlFile(this.file);
-            } catch(final Exception ex) {  // xml format error
-                final File badMessage = new File("badmessage.xml");
-                if (file.renameTo(badMessage)) {
-                    logger.error("send the file badmessage.xml to a dev for analysis, more details below:", ex);
-                }
-            }
-
-            if( doc == null ) {
-                throw new Exception("MessageObject.loadFile: couldn't parse XML Document - " +
-                                    "File name: '" + file.getName() + "'");
-            }
-            rootNode = doc.getDocumentElement();
+            reader = readData(decContent);
         }
-        if( rootNode.getTagName().equals("FrostMessage") == false ) {
+        if( !reader.isMessage() ) {
             final File badMessage = new File("badmessage.xml");
             if (file.renameTo(badMessage)) {
                 logger.error("send the file badmessage.xml to a dev for analysis.");
@@ -439,7 +430,103 @@ public class MessageXmlFile extends AbstractMessageObject implements XMLizable {
             throw new Exception("invalid message: does not contain the root tag 'FrostMessage'");
         }
         // load the message itself
-        loadXMLElement(rootNode);
+        loadValues(reader);
+    }
+
+    /**
+     * Reads the XML data in one streaming pass and loads the FrostMessage.
+     * The decrypted content of an encrypted message is read in a second pass from memory.
+     */
+    protected void loadData(final byte[] data) throws Exception {
+        MessageXmlReader reader = readData(data);
+
+        // transparently decrypt and continue load on success
+        if( reader.isEncryptedMessage() ) {
+            reader = readData(decrypt(reader));
+        }
+        if( !reader.isMessage() ) {
+            throw new Exception("invalid message: does not contain the root tag 'FrostMessage'");
+        }
+        // load the message itself
+        loadValues(reader);
+    }
+
+    private static MessageXmlReader readData(final byte[] data) throws Exception {
+        try {
+            return MessageXmlReader.read(new ByteArrayInputStream(data));
+        } catch(final XMLStreamException ex) {  // xml format error
+            if (FileAccess.writeFile(data, new File("badmessage.xml"))) {
+                logger.error("send the file badmessage.xml to a dev for analysis, more details below:", ex);
+            }
+            throw new Exception("MessageObject.loadData: couldn't parse XML Document - " +
+                                "Length: " + data.length);
+        }
+    }
+
+    /**
+     * @return the decrypted content of the EncryptedFrostMessage, a complete XML file
+     */
+    private byte[] decrypt(final MessageXmlReader reader) throws Exception {
+        // get recipient (must be I to continue)
+        setRecipientName(reader.getValue("recipient"));
+        if( getRecipientName() == null ) {
+            // no recipient
+            throw new Exception("encrypted message contains no 'recipient' section.");
+        }
+        final IdentitiesManager identitiesManager = Core.getIdentitiesManager();
+        if( !identitiesManager.isMySelf(getRecipientName()) ) {
+            // not for me
+            throw new MessageCreationException("Encrypted message is not for me.",
+                    MessageCreationException.MSG_NOT_FOR_ME);
+        }
+        final String base64enc = reader.getValue("content");
+        if( base64enc == null ) {
+            // no content
+            throw new Exception("encrypted message contains no 'content' section.");
+        }
+        final byte[] base64bytes = base64enc.getBytes("ISO-8859-1");
+        final byte[] encBytes = Base64.decode(base64bytes);
+
+        // decrypt content
+        final LocalIdentity receiverId = identitiesManager.getLocalIdentity(getRecipientName());
+        final byte[] decContent = Core.getCrypto().decrypt(encBytes, receiverId.getPrivateKey());
+        if( decContent == null ) {
+            logger.error("TOFDN: Encrypted message could not be decrypted!");
+            throw new MessageCreationException("Encrypted message could not be decrypted.",
+                    MessageCreationException.DECRYPT_FAILED);
+        }
+        return decContent;
+    }
+
+    /**
+     * Same as loadXMLElement() for the values of a streamed FrostMessage.
+     */
+    private void loadValues(final MessageXmlReader reader) {
+        setMessageId(reader.getValue("MessageId"));
+        setInReplyTo(reader.getValue("InReplyTo"));
+        setFromName(reader.getValue("From"));
+        setSubject(reader.getValue("Subject"));
+        dateStr = reader.getValue("Date");
+        timeStr = reader.getValue("Time");
+        setPublicKey(reader.getValue("pubKey"));
+        setRecipientName(reader.getValue("recipient"));
+        setBoardName(reader.getValue("Board"));
+        setContent(reader.getValue("Body"));
+
+        setSignatureV2(reader.getValue("SignatureV2"));
+
+        setIdLinePosLen(reader.getValue("IdLinePos"), reader.getValue("IdLineLen"),
+                ((getContent() != null )?getContent().length():0));
+
+        // this parameter is contained in local XML messages only
+        String sigstat = reader.getValue("signatureStatus");
+        if( sigstat != null && (sigstat=sigstat.trim()).length() > 0 ) {
+            setSignatureStatusFromString(sigstat);
+        }
+
+        if( reader.getAttachments() != null ) {
+            getAttachmentList().addAll(reader.getAttachments());
+        }
     }
 
     /**
@@ -0,0 +1,271 @@
+/*
+  MessageXmlReader.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.messaging.frost;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import frost.messaging.frost.boards.Board;
+import frost.util.XMLTools;
+
+/**
+ * Reads a message file in one streaming pass, without building a DOM document.
+ *
+ * Collects the values of the child elements of the root element, FrostMessage or
+ * EncryptedFrostMessage, and the attachments of the first AttachmentList. Like the DOM
+ * based XMLTools methods the first element of a name wins. The rare person attachments
+ * are converted to a DOM element and loaded by Attachment.getInstance().
+ */
+public final class MessageXmlReader {
+
+	public static final String MESSAGE_ROOT = "FrostMessage";
+	public static final String ENCRYPTED_MESSAGE_ROOT = "EncryptedFrostMessage";
+
+	private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+	// the factory implementation of the JDK is not thread safe
+	private static final ThreadLocal<XMLInputFactory> factories = ThreadLocal.withInitial(() -> {
+		final XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+		if (factory.isPropertySupported(REPORT_CDATA)) {
+			// the DOM of person attachments needs CDATA sections
+			factory.setProperty(REPORT_CDATA, Boolean.TRUE);
+		}
+		return factory;
+	});
+
+	private String rootName = null;
+	private final Map<String, String> values = new HashMap<String, String>();
+	private List<Attachment> attachments = null;
+
+	private MessageXmlReader() {
+	}
+
+	/**
+	 * Reads the message, the stream is not closed.
+	 */
+	public static MessageXmlReader read(final InputStream in) throws XMLStreamException {
+		final MessageXmlReader reader = new MessageXmlReader();
+		final XMLStreamReader r = factories.get().createXMLStreamReader(in);
+		try {
+			reader.readRoot(r);
+		} finally {
+			r.close();
+		}
+		return reader;
+	}
+
+	/**
+	 * @return the name of the root element
+	 */
+	public String getRootName() {
+		return rootName;
+	}
+
+	public boolean isMessage() {
+		return MESSAGE_ROOT.equals(rootName);
+	}
+
+	public boolean isEncryptedMessage() {
+		return ENCRYPTED_MESSAGE_ROOT.equals(rootName);
+	}
+
+	/**
+	 * @return the text of the first child element of the root with this name, null if there
+	 *         is no such element or it is empty
+	 */
+	public String getValue(final String name) {
+		return values.get(name);
+	}
+
+	/**
+	 * @return the attachments of the first AttachmentList, null if there is no AttachmentList
+	 */
+	public List<Attachment> getAttachments() {
+		return attachments;
+	}
+
+	private void readRoot(final XMLStreamReader r) throws XMLStreamException {
+		// skip prolog, comments and whitespace
+		do {
+			if (!r.hasNext()) {
+				throw new XMLStreamException("no root element");
+			}
+		} while (r.next() != XMLStreamConstants.START_ELEMENT);
+		rootName = r.getLocalName();
+		if (!isMessage() && !isEncryptedMessage()) {
+			return;
+		}
+		while (nextChild(r)) {
+			final String name = r.getLocalName();
+			if (name.equals("AttachmentList") && attachments == null && isMessage()) {
+				attachments = readAttachmentList(r);
+			} else if (values.containsKey(name)) {
+				skipElement(r);
+			} else {
+				values.put(name, readText(r));
+			}
+		}
+	}
+
+	/**
+	 * Moves to the next child element of the current element.
+	 *
+	 * @return false if the end of the current element was reached
+	 */
+	private static boolean nextChild(final XMLStreamReader r) throws XMLStreamException {
+		while (true) {
+			final int event = r.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				return true;
+			}
+			if (event == XMLStreamConstants.END_ELEMENT || event == XMLStreamConstants.END_DOCUMENT) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Reads the text and CDATA sections of the current element up to its end,
+	 * the content of nested elements is skipped.
+	 *
+	 * @return the text, null if the element has no text
+	 */
+	private static String readText(final XMLStreamReader r) throws XMLStreamException {
+		StringBuilder sb = null;
+		while (true) {
+			final int event = r.next();
+			if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE) {
+				if (sb == null) {
+					sb = new StringBuilder(r.getTextLength());
+				}
+				sb.append(r.getTextCharacters(), r.getTextStart(), r.getTextLength());
+			} else if (event == XMLStreamConstants.START_ELEMENT) {
+				skipElement(r);
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				return (sb == null) ? null : sb.toString();
+			}
+		}
+	}
+
+	private static void skipElement(final XMLStreamReader r) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			final int event = r.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	private static Map<String, String> readChildValues(final XMLStreamReader r) throws XMLStreamException {
+		final Map<String, String> childValues = new HashMap<String, String>();
+		while (nextChild(r)) {
+			final String name = r.getLocalName();
+			if (childValues.containsKey(name)) {
+				skipElement(r);
+			} else {
+				childValues.put(name, readText(r));
+			}
+		}
+		return childValues;
+	}
+
+	private static List<Attachment> readAttachmentList(final XMLStreamReader r) throws XMLStreamException {
+		final List<Attachment> list = new ArrayList<Attachment>();
+		while (nextChild(r)) {
+			if (r.getLocalName().equals("Attachment")) {
+				list.add(readAttachment(r));
+			} else {
+				skipElement(r);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Same as Attachment.getInstance() for the current Attachment element.
+	 */
+	private static Attachment readAttachment(final XMLStreamReader r) throws XMLStreamException {
+		final String type = r.getAttributeValue(null, "type");
+
+		if ("file".equals(type)) {
+			Map<String, String> fileValues = null;
+			while (nextChild(r)) {
+				if (fileValues == null && r.getLocalName().equals("File")) {
+					fileValues = readChildValues(r);
+				} else {
+					skipElement(r);
+				}
+			}
+			if (fileValues == null) {
+				throw new XMLStreamException("file attachment contains no 'File' element");
+			}
+			return new FileAttachment(fileValues.get("name"), fileValues.get("key"),
+					Long.parseLong(fileValues.get("size")));
+
+		} else if ("board".equals(type)) {
+			final Map<String, String> boardValues = readChildValues(r);
+			return new BoardAttachment(new Board(boardValues.get("Name"), boardValues.get("pubKey"),
+					boardValues.get("privKey"), boardValues.get("description")));
+
+		} else {
+			final Document doc = XMLTools.createDomDocument();
+			return Attachment.getInstance(readElement(r, doc));
+		}
+	}
+
+	/**
+	 * Converts the current element and its content to a DOM element.
+	 */
+	private static Element readElement(final XMLStreamReader r, final Document doc) throws XMLStreamException {
+		final Element el = doc.createElement(r.getLocalName());
+		for (int i = 0; i < r.getAttributeCount(); i++) {
+			el.setAttribute(r.getAttributeLocalName(i), r.getAttributeValue(i));
+		}
+		while (true) {
+			final int event = r.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				el.appendChild(readElement(r, doc));
+			} else if (event == XMLStreamConstants.CDATA) {
+				el.appendChild(doc.createCDATASection(r.getText()));
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+				el.appendChild(doc.createTextNode(r.getText()));
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				return el;
+			}
+		}
+	}
+}
@@ -61,6 +61,8 @@ public class Board extends AbstractNode {
     private boolean isUpdating = false;
     private long lastUpdateStartMillis = -1; // never updated
     private long lastBackloadUpdateFinishedMillis = -1; // never finished
+    private double messageArrivalRate = BoardArrivalRate.UNKNOWN; // messages per day
+    private long messageArrivalRateMillis = -1; // last change of messageArrivalRate
     // following: if set to null then the default will be returned
     private Integer maxMessageDisplay = null;
     private Integer maxMessageDownload = null;
@@ -144,6 +146,20 @@ public class Board extends AbstractNode {
         timesUpdatedCount++;
     }
 
+    /**
+     * Adds the messages seen for a day to the estimated messages per day.
+     * @param observedMillis  the part of the day that passed, a full day for past days
+     */
+    public synchronized void addMessageArrivalSample(final double messages, final long observedMillis) {
+        final long now = System.currentTimeMillis();
+        final double newRate = BoardArrivalRate.addSample(
+                messageArrivalRate, messageArrivalRateMillis, messages, observedMillis, now);
+        if( newRate != messageArrivalRate ) {
+            messageArrivalRate = newRate;
+            messageArrivalRateMillis = now;
+        }
+    }
+
     public boolean getAutoUpdateEnabled() {
         if (!isConfigured()) {
             return true;
@@ -246,6 +262,16 @@ public class Board extends AbstractNode {
         return lastBackloadUpdateFinishedMillis;
     }
 
+    /**
+     * @return the estimated messages per day or BoardArrivalRate.UNKNOWN
+     */
+    public synchronized double getMessageArrivalRate() {
+        return messageArrivalRate;
+    }
+    public synchronized long getMessageArrivalRateMillis() {
+        return messageArrivalRateMillis;
+    }
+
     public int getMaxMessageDisplay() {
         if (!isConfigured() || maxMessageDisplay == null) {
             // return default
@@ -428,6 +454,10 @@ public class Board extends AbstractNode {
     public void setLastBackloadUpdateFinishedMillis(final long millis) {
         lastBackloadUpdateFinishedMillis = millis;
     }
+    public synchronized void setMessageArrivalRate(final double rate, final long millis) {
+        messageArrivalRate = rate;
+        messageArrivalRateMillis = millis;
+    }
 
     public void setMaxMessageDays(final Integer val) {
         maxMessageDisplay = val;
@@ -0,0 +1,104 @@
+/*
+  BoardArrivalRate.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.messaging.frost.boards;
+
+/**
+ * Estimates the messages per day of a board and derives its update intervals.
+ *
+ * A sample is the number of messages seen for one day. Samples of past days are complete
+ * and are smoothed with a weight that grows with the time since the last change of the
+ * estimate, so boards that are updated often do not forget faster. The sample of the
+ * current day is extrapolated and may only raise the estimate, a board that wakes up is
+ * updated often again before the day ends.
+ */
+public final class BoardArrivalRate {
+
+	public static final double UNKNOWN = -1;
+
+	private static final long HOUR_MILLIS = 60L * 60L * 1000L;
+	private static final long DAY_MILLIS = 24L * HOUR_MILLIS;
+
+	// time constant of the smoothing
+	private static final double SMOOTHING_MILLIS = 3.0 * DAY_MILLIS;
+	// the first hours of a day are not extrapolated to a full day
+	private static final long MIN_OBSERVED_MILLIS = 6L * HOUR_MILLIS;
+
+	private static final long MIN_COMPLETE_BACKLOAD_INTERVAL_MILLIS = 12L * HOUR_MILLIS;
+	private static final long MAX_COMPLETE_BACKLOAD_INTERVAL_MILLIS = 7L * DAY_MILLIS;
+	// update intervals between two complete backloads
+	private static final int UPDATES_PER_COMPLETE_BACKLOAD = 7;
+
+	private BoardArrivalRate() {
+	}
+
+	/**
+	 * @param rate            the current estimate or UNKNOWN
+	 * @param rateMillis      the time of the last change of the estimate
+	 * @param messages        the messages seen for the day
+	 * @param observedMillis  the part of the day that passed, a full day or more for past days
+	 * @return the new estimate in messages per day
+	 */
+	public static double addSample(final double rate, final long rateMillis, final double messages,
+			final long observedMillis, final long now) {
+		final boolean isCompleteDay = observedMillis >= DAY_MILLIS;
+		final long millis = Math.max(MIN_OBSERVED_MILLIS, Math.min(DAY_MILLIS, observedMillis));
+		final double sample = messages * DAY_MILLIS / millis;
+		if (rate < 0) {
+			return (isCompleteDay || messages > 0) ? sample : UNKNOWN;
+		}
+		if (!isCompleteDay && sample <= rate) {
+			return rate;
+		}
+		final double weight = 1.0 - Math.exp(-Math.max(0L, now - rateMillis) / SMOOTHING_MILLIS);
+		final double newRate = rate + weight * (sample - rate);
+		if (!isCompleteDay) {
+			// these messages arrived in less than a day
+			return Math.max(newRate, messages);
+		}
+		return newRate;
+	}
+
+	/**
+	 * About one update per expected message.
+	 *
+	 * @return the time between the update starts of a board
+	 */
+	public static long getUpdateIntervalMillis(final double rate, final long minMillis, final long maxMillis) {
+		if (rate < 0) {
+			// not known yet, update like before
+			return minMillis;
+		}
+		if (rate * maxMillis <= DAY_MILLIS) {
+			return Math.max(minMillis, maxMillis);
+		}
+		return Math.max(minMillis, Math.min(maxMillis, (long) (DAY_MILLIS / rate)));
+	}
+
+	/**
+	 * The updates between two complete backloads fetch the previous day only.
+	 *
+	 * @return the time between the complete backloads of a board
+	 */
+	public static long getCompleteBackloadIntervalMillis(final double rate, final long minMillis,
+			final long maxMillis) {
+		final long updateMillis = getUpdateIntervalMillis(rate, minMillis, maxMillis);
+		return Math.max(MIN_COMPLETE_BACKLOAD_INTERVAL_MILLIS,
+				Math.min(MAX_COMPLETE_BACKLOAD_INTERVAL_MILLIS, UPDATES_PER_COMPLETE_BACKLOAD * updateMillis));
+	}
+}
@@ -18,8 +18,6 @@
 */
 package frost.messaging.frost.boards;
 
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 import frost.Core;
@@ -29,36 +27,42 @@ import frost.messaging.frost.UnsentMessagesManager;
 /**
  * Selects the next board eligible for updating.
  * Prefers boards with sendable messages.
+ * Boards with many messages per day are updated more often than quiet boards.
  */
 public class BoardUpdateBoardSelector {
 
-    // TODO: update boards with most msgs in last X hours more often
-    //  -> TOF calls Board.newMessageReceived. somehow count how many message were received during last X updates (?)
-    //  -> OR check db table how many messages we received in last 24h?
+    private static Board lastSelectedBoard = null;
 
-    // -> HOLD item for later release, maybe its not longer critical because we do not request the full backload each time now
+    private static long getMinUpdateIntervalMillis() {
+        // min -> ms
+        return Core.frostSettings.getInteger(Settings.BOARD_AUTOUPDATE_MIN_INTERVAL) * 60L * 1000L;
+    }
 
-    private static Board lastSelectedBoard = null;
+    private static long getMaxUpdateIntervalMillis() {
+        // min -> ms
+        return Core.frostSettings.getInteger(Settings.BOARD_AUTOUPDATE_MAX_INTERVAL) * 60L * 1000L;
+    }
 
     /**
-     * Used to sort FrostBoardObjects by lastUpdateStartMillis ascending.
+     * @return the time between the automatic update starts of the board
      */
-    private static final Comparator<Board> lastUpdateStartMillisCmp = new Comparator<Board>() {
-        public int compare(Board value1, Board value2) {
-            if (value1.getLastUpdateStartMillis() > value2.getLastUpdateStartMillis()) {
-                return 1;
-            } else if (value1.getLastUpdateStartMillis() < value2.getLastUpdateStartMillis()) {
-                return -1;
-            } else {
-                return 0;
-            }
-        }
-    };
+    public static long getUpdateIntervalMillis(final Board board) {
+        return BoardArrivalRate.getUpdateIntervalMillis(
+                board.getMessageArrivalRate(), getMinUpdateIntervalMillis(), getMaxUpdateIntervalMillis());
+    }
+
+    /**
+     * @return the time between the complete backloads of the board
+     */
+    public static long getCompleteBackloadIntervalMillis(final Board board) {
+        return BoardArrivalRate.getCompleteBackloadIntervalMillis(
+                board.getMessageArrivalRate(), getMinUpdateIntervalMillis(), getMaxUpdateIntervalMillis());
+    }
 
     /**
      * Chooses the next FrostBoard to update (automatic update).
-     * First sorts by lastUpdateStarted time, then chooses first board
-     * that is allowed to update.
+     * Chooses the board whose update interval is over for the longest time
+     * that is allowed to update, one pass over the boards without sorting.
      * Used only for automatic updating.
      * Returns NULL if no board to update is found.
      */
@@ -66,17 +70,20 @@ public class BoardUpdateBoardSelector {
 
         // prefer boards that have waiting sendable messages
         final List<Board> boardsWithSendableMsgs = UnsentMessagesManager.getBoardsWithSendableMessages();
-        if( !boardsWithSendableMsgs.isEmpty() ) {
-            Collections.sort(boardsWithSendableMsgs, lastUpdateStartMillisCmp);
-            for( final Board board : boardsWithSendableMsgs ) {
-                // choose first board that is not the last updated board
-                // we compare pointers here
-                if( board != lastSelectedBoard ) {
-                    lastSelectedBoard = board;
-                    return board;
-                }
+        Board sendBoard = null;
+        for( final Board board : boardsWithSendableMsgs ) {
+            // choose first board that is not the last updated board
+            // we compare pointers here
+            if( board != lastSelectedBoard
+                    && (sendBoard == null || board.getLastUpdateStartMillis() < sendBoard.getLastUpdateStartMillis()) )
+            {
+                sendBoard = board;
             }
         }
+        if( sendBoard != null ) {
+            lastSelectedBoard = sendBoard;
+            return sendBoard;
+        }
 
         final List<Board> allBoards = tofTreeModel.getAllBoards();
         if (allBoards.size() == 0) {
@@ -84,26 +91,30 @@ public class BoardUpdateBoardSelector {
             return null;
         }
 
-        Collections.sort(allBoards, lastUpdateStartMillisCmp);
-        // now first board in list should be the one with latest update of all
-
-
         final long curTime = System.currentTimeMillis();
-        // get in minutes
-        final int minUpdateInterval = Core.frostSettings.getInteger(Settings.BOARD_AUTOUPDATE_MIN_INTERVAL);
-        // min -> ms
-        final long minUpdateIntervalMillis = minUpdateInterval * 60L * 1000L;
+        final long minUpdateIntervalMillis = getMinUpdateIntervalMillis();
+        final long maxUpdateIntervalMillis = getMaxUpdateIntervalMillis();
 
+        // the allowed board with the oldest due time
         Board nextBoard = null;
+        long nextBoardDueMillis = Long.MAX_VALUE;
         for( final Board lBoard : allBoards ) {
-            if (nextBoard == null
-                && lBoard.isAutomaticUpdateAllowed()
-                && (curTime - minUpdateIntervalMillis) > lBoard.getLastUpdateStartMillis() // minInterval
-                && ( (lBoard.isConfigured() && lBoard.getAutoUpdateEnabled())
-                      || !lBoard.isConfigured()) )
+            if( !lBoard.isAutomaticUpdateAllowed()
+                    || (lBoard.isConfigured() && !lBoard.getAutoUpdateEnabled()) )
             {
+                continue;
+            }
+            final long lastUpdateStartMillis = lBoard.getLastUpdateStartMillis();
+            final long dueMillis;
+            if( lastUpdateStartMillis < 0 ) {
+                dueMillis = lastUpdateStartMillis; // never updated
+            } else {
+                dueMillis = lastUpdateStartMillis + BoardArrivalRate.getUpdateIntervalMillis(
+                        lBoard.getMessageArrivalRate(), minUpdateIntervalMillis, maxUpdateIntervalMillis);
+            }
+            if( dueMillis < curTime && dueMillis < nextBoardDueMillis ) {
                 nextBoard = lBoard;
-                break;
+                nextBoardDueMillis = dueMillis;
             }
         }
 
@@ -1183,11 +1183,12 @@ public class TofTree extends JDragTree implements AutoSavable, ExitSavable, Prop
 
         if (getRunningBoardUpdateThreads().isThreadOfTypeRunning(board, BoardUpdateThread.MSG_DNLOAD_BACK) == false) {
 
-            // get the older messages, if configured start backload only after 12 hours
-            final long before12hours = now - (12L * 60L * 60L * 1000L); // 12 hours
+            // get the older messages, if configured start backload only after 12 hours,
+            // quiet boards get their complete backload less often
+            final long beforeBackloadInterval = now - BoardUpdateBoardSelector.getCompleteBackloadIntervalMillis(board);
             boolean downloadCompleteBackload;
             if( (Core.frostSettings.getBoolean(Settings.ALWAYS_DOWNLOAD_MESSAGES_BACKLOAD) == false)
-                    && (before12hours < board.getLastBackloadUpdateFinishedMillis()) )
+                    && (beforeBackloadInterval < board.getLastBackloadUpdateFinishedMillis()) )
             {
                 downloadCompleteBackload = false;
             } else {
@@ -183,6 +183,27 @@ public class TofTreeXmlIO {
                     }
                 }
 
+                // maybe restore messageArrivalRate ( = estimated messages per day)
+                ltmp = XMLTools.getChildElementsByTagName(child, "messageArrivalRate");
+                if (ltmp.size() > 0) {
+                    final Element rateElement = ltmp.get(0);
+                    final Text txtname = (Text) rateElement.getFirstChild();
+                    if (txtname != null) {
+                        double rate = -1;
+                        long millis = -1;
+                        try {
+                            rate = Double.parseDouble(txtname.getData().trim());
+                            millis = Long.parseLong(rateElement.getAttribute("millis").trim());
+                        } catch (final Exception e) {
+                            ;
+                        }
+
+                        if (rate >= 0 && millis > 0) {
+                            fbobj.setMessageArrivalRate(rate, millis);
+                        }
+                    }
+                }
+
                 treeFolder.add(fbobj);
             } else {
                 final boolean isExpanded = isExpanded(child);
@@ -504,6 +525,15 @@ public class TofTreeXmlIO {
             rootBoardElement.appendChild(element);
         }
 
+        // append messageArrivalRate
+        if( board.getMessageArrivalRate() >= 0 ) {
+            element = doc.createElement("messageArrivalRate");
+            element.setAttribute("millis", "" + board.getMessageArrivalRateMillis());
+            final Text text = doc.createTextNode("" + board.getMessageArrivalRate());
+            element.appendChild(text);
+            rootBoardElement.appendChild(element);
+        }
+
         parent.appendChild( rootBoardElement );
     }
 
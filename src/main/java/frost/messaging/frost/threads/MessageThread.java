@@ -21,6 +21,7 @@ package frost.messaging.frost.threads;
 
 import java.io.File;
 import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +29,7 @@ import org.slf4j.LoggerFactory;
 import frost.Core;
 import frost.MainFrame;
 import frost.Settings;
+import frost.fcp.NodeRequestScheduler;
 import frost.identities.Identity;
 import frost.identities.LocalIdentity;
 import frost.messaging.frost.FrostMessageObject;
@@ -42,9 +44,11 @@ import frost.messaging.frost.boards.BoardUpdateThreadObject;
 import frost.messaging.frost.boards.TOF;
 import frost.messaging.frost.transfer.MessageDownloader;
 import frost.messaging.frost.transfer.MessageDownloaderResult;
+import frost.messaging.frost.transfer.MessageProcessingPool;
 import frost.messaging.frost.transfer.MessageUploader;
 import frost.messaging.frost.transfer.MessageUploaderCallback;
 import frost.messaging.frost.transfer.MessageUploaderResult;
+import frost.messaging.frost.transfer.PendingMessageDownload;
 import frost.storage.perst.IndexSlot;
 import frost.storage.perst.IndexSlotsStorage;
 import frost.util.DateFun;
@@ -109,6 +113,11 @@ public class MessageThread extends BoardUpdateThreadObject implements BoardUpdat
                 final IndexSlot gis = IndexSlotsStorage.inst().getSlotForDate(boardId, dateMillis);
                 // download only current date
                 final BoardUpdateInformation todayBui = downloadDate(localDate, gis, dateMillis);
+                if( !isInterrupted() ) {
+                    board.addMessageArrivalSample(
+                            getMessageCount(gis, todayBui),
+                            System.currentTimeMillis() - dateMillis);
+                }
 
                 // after update, check if there are messages for upload and upload them
                 // ... but only when we didn't stop because of too much invalid messages
@@ -118,18 +127,30 @@ public class MessageThread extends BoardUpdateThreadObject implements BoardUpdat
             } else {
                 // download up to maxMessages days to the past
                 int daysBack = 0;
+                int completeDays = 0;
+                int completeDaysMessages = 0;
                 while (!isInterrupted() && daysBack < maxMessageDownload) {
                     daysBack++;
                     localDate = localDate.minusDays(1);
 					final long dateMillis = DateFun.toStartOfDayInMilli(localDate);
                     final IndexSlot gis = IndexSlotsStorage.inst().getSlotForDate(boardId, dateMillis);
-                    downloadDate(localDate, gis, dateMillis);
+                    final BoardUpdateInformation bui = downloadDate(localDate, gis, dateMillis);
+                    if( !isInterrupted() ) {
+                        completeDays++;
+                        completeDaysMessages += getMessageCount(gis, bui);
+                    }
                     // Only after a complete backload run, remember finish time.
                     // this ensures we always update the complete backload days.
                     if( !isInterrupted() ) {
                         board.setLastBackloadUpdateFinishedMillis(System.currentTimeMillis());
                     }
                 }
+                // the days are one sample, the average of a complete backload weights like yesterday
+                if( completeDays > 0 ) {
+                    board.addMessageArrivalSample(
+                            (double) completeDaysMessages / completeDays,
+                            24L * 60L * 60L * 1000L);
+                }
             }
             logger.info("TOFDN: {} Thread stopped for board {}", tofType, board.getName());
         } catch (final Throwable t) {
@@ -138,6 +159,13 @@ public class MessageThread extends BoardUpdateThreadObject implements BoardUpdat
         notifyThreadFinished(this);
     }
 
+    /**
+     * @return the messages known for the day, the slots also remember earlier runs
+     */
+    private static int getMessageCount(final IndexSlot gis, final BoardUpdateInformation bui) {
+        return Math.max(gis.getUsedSlotCount(), bui.getCountValid() + bui.getCountInvalid());
+    }
+
     protected String composeDownKey(final int index, final String dirdate) {
         String downKey = null;
         // switch public / secure board
@@ -177,11 +205,32 @@ public class MessageThread extends BoardUpdateThreadObject implements BoardUpdat
         // new run, reset subsequentFailures
         boardUpdateInformation.resetSubsequentInvalidMsgs();
 
-        int index = -1;
+        final boolean quicklyFailOnAdnf;
+        final int maxRetries;
+        if( Core.frostSettings.getBoolean(Settings.FCP2_QUICKLY_FAIL_ON_ADNF) ) {
+            quicklyFailOnAdnf = true;
+            maxRetries = 2;
+        } else {
+            // default
+            quicklyFailOnAdnf = false;
+            maxRetries = -1;
+        }
+
+        // the next slots are requested while the result of the first one is processed
+        final SlotProbeWindow window = new SlotProbeWindow(
+                Core.frostSettings.getInteger(Settings.FCP2_MESSAGE_DOWNLOAD_LOOKAHEAD));
+        final ArrayDeque<PendingMessageDownload> pendingDownloads = new ArrayDeque<PendingMessageDownload>();
+        final NodeRequestScheduler.RequestClass requestClass = downloadToday
+                ? NodeRequestScheduler.RequestClass.MESSAGE_TODAY
+                : NodeRequestScheduler.RequestClass.MESSAGE_BACKLOAD;
+        int lastRequestedIndex = -1;
+
         int failures = 0;
         final int maxFailures = 2; // skip a maximum of 2 empty slots at the end of known indices
 
-        while (failures < maxFailures) {
+        // requests that are already running are evaluated in index order even after maxFailures,
+        // a found message continues the update
+        while (failures < maxFailures || !pendingDownloads.isEmpty()) {
 
             if (isInterrupted()) {
                 break;
@@ -192,50 +241,58 @@ public class MessageThread extends BoardUpdateThreadObject implements BoardUpdat
                 break;
             }
 
-            if( index < 0 ) {
-                index = gis.findFirstDownloadSlot();
-            } else {
-                index = gis.findNextDownloadSlot(index);
-            }
-
-            String logInfo = null;
-
-            try { // we don't want to die for any reason
-
-                Mixed.waitRandom(2000); // don't hurt node
+            while( failures < maxFailures && pendingDownloads.size() < window.getSize() ) {
+                final int nextIndex;
+                if( lastRequestedIndex < 0 ) {
+                    nextIndex = gis.findFirstDownloadSlot();
+                } else {
+                    nextIndex = gis.findNextDownloadSlot(lastRequestedIndex);
+                }
+                // don't hurt node, the average request rate grows with the window
+                Mixed.waitRandom(2000 / window.getSize());
 
-                final String downKey = composeDownKey(index, dirDateString);
-                logInfo = new StringBuilder()
+                final String downKey = composeDownKey(nextIndex, dirDateString);
+                final String requestLogInfo = new StringBuilder()
                             .append(" board=")
                             .append(board.getName())
                             .append(", key=")
                             .append(downKey)
                             .toString();
+                pendingDownloads.add(MessageDownloader.startDownloadMessage(
+                        downKey, nextIndex, maxRetries, requestLogInfo, requestClass, board.getName(),
+                        mo -> isValidFormat(mo, localDate, board)));
+                lastRequestedIndex = nextIndex;
+            }
 
-                final boolean quicklyFailOnAdnf;
-                final int maxRetries;
-                if( Core.frostSettings.getBoolean(Settings.FCP2_QUICKLY_FAIL_ON_ADNF) ) {
-                    quicklyFailOnAdnf = true;
-                    maxRetries = 2;
-                } else {
-                    // default
-                    quicklyFailOnAdnf = false;
-                    maxRetries = -1;
-                }
+            final PendingMessageDownload pendingDownload = pendingDownloads.poll();
+            final int index = pendingDownload.getIndex();
+            final String logInfo = new StringBuilder()
+                        .append(" board=")
+                        .append(board.getName())
+                        .append(", index=")
+                        .append(index)
+                        .toString();
+
+            try { // we don't want to die for any reason
 
                 boardUpdateInformation.setCurrentIndex(index);
                 notifyBoardUpdateInformationChanged(this, boardUpdateInformation);
 
-                final long millisBefore = System.currentTimeMillis();
-
-                final MessageDownloaderResult mdResult = MessageDownloader.downloadMessage(downKey, index, maxRetries, logInfo);
+                final MessageDownloaderResult mdResult = pendingDownload.getResult();
 
                 boardUpdateInformation.incCountTriedIndices();
-                boardUpdateInformation.addNodeTime(System.currentTimeMillis() - millisBefore);
+                boardUpdateInformation.addNodeTime(pendingDownload.getNodeTimeMillis());
+
+                final boolean isBehindLastSetIndex = gis.isDownloadIndexBehindLastSetIndex(index);
+                window.update(
+                        mdResult != null,
+                        isBehindLastSetIndex,
+                        boardUpdateInformation.getCountTriedIndices(),
+                        boardUpdateInformation.getNodeTime());
 
                 if( mdResult == null ) {
                     // file not found
-                    if( gis.isDownloadIndexBehindLastSetIndex(index) ) {
+                    if( isBehindLastSetIndex ) {
                         // we stop if we tried maxFailures indices behind the last known index
                         failures++;
                     }
@@ -268,25 +325,19 @@ public class MessageThread extends BoardUpdateThreadObject implements BoardUpdat
                     receivedInvalidMessage(board, localDate, index, mdResult.getErrorMessage());
                     boardUpdateInformation.incCountInvalid(); notifyBoardUpdateInformationChanged(this, boardUpdateInformation);
                 } else if( mdResult.getMessage() != null ) {
-                    // message is loaded, delete underlying received file
-                    mdResult.getMessage().getFile().delete();
-                    // basic validation, isValid() of FrostMessageObject was already called during instanciation of MessageXmlFile
-                    if (isValidFormat(mdResult.getMessage(), localDate, board)) {
-                        receivedValidMessage(
-                                mdResult.getMessage(),
-                                mdResult.getOwner(),
-                                board,
-                                index);
-
-                        boardUpdateInformation.incCountValid();
-                        boardUpdateInformation.updateMaxSuccessfulIndex(index);
-
-                        notifyBoardUpdateInformationChanged(this, boardUpdateInformation);
-                    } else {
-                        receivedInvalidMessage(board, localDate, index, MessageDownloaderResult.INVALID_MSG);
-                        logger.warn("TOFDN: Message was dropped, format validation failed: {}", logInfo);
-                        boardUpdateInformation.incCountInvalid(); notifyBoardUpdateInformationChanged(this, boardUpdateInformation);
-                    }
+                    // the format was already validated by the MessageProcessingPool, with the signature
+                    final long insertStartMillis = System.currentTimeMillis();
+                    receivedValidMessage(
+                            mdResult.getMessage(),
+                            mdResult.getOwner(),
+                            board,
+                            index);
+                    MessageProcessingPool.inst().recordInsert(System.currentTimeMillis() - insertStartMillis);
+
+                    boardUpdateInformation.incCountValid();
+                    boardUpdateInformation.updateMaxSuccessfulIndex(index);
+
+                    notifyBoardUpdateInformationChanged(this, boardUpdateInformation);
                 }
 
                 IndexSlotsStorage.inst().storeSlot(gis); // remember each progress
@@ -297,6 +348,13 @@ public class MessageThread extends BoardUpdateThreadObject implements BoardUpdat
             }
         } // end-of: while
 
+        // stopped before all results were evaluated, the slots are tried again on the next update,
+        // the remaining downloads are dropped and withdrawn from the scheduler if they did not start
+        for( final PendingMessageDownload pendingDownload : pendingDownloads ) {
+            pendingDownload.cancel();
+        }
+        pendingDownloads.clear();
+
         boardUpdateInformation.setCurrentIndex(-1);
         boardUpdateInformation.updateBoardUpdateAllowedState();
         notifyBoardUpdateInformationChanged(this, boardUpdateInformation);
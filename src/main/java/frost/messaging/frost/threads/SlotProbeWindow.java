@@ -0,0 +1,73 @@
+/*
+  SlotProbeWindow.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.messaging.frost.threads;
+
+/**
+ * The count of message slots a board update requests at once.
+ *
+ * The window grows by one for each slot that held a message. A slot behind the last known
+ * index that was not found halves it, the requests behind the end of the messages of the day
+ * are wasted. Slots that were not found between known indices don't change it. When the node
+ * answers fast there is little waiting to hide, so the window is kept small.
+ */
+public class SlotProbeWindow {
+
+	// average node time per slot below that the node is fast
+	private static final long FAST_NODE_MILLIS = 1000;
+	private static final int FAST_NODE_MAX_SIZE = 2;
+	// tried slots before the average node time is used
+	private static final int MIN_TRIED_FOR_TIMING = 4;
+
+	private final int maxSize;
+	private int size;
+
+	public SlotProbeWindow(final int maxSize) {
+		this.maxSize = Math.max(1, maxSize);
+		this.size = Math.min(2, this.maxSize);
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @param found  true if the slot held a message, valid or not
+	 * @param isBehindLastSetIndex  true if the slot is behind the last known index
+	 * @param triedIndices  count of slots tried for the day (BoardUpdateInformation)
+	 * @param nodeTimeMillis  node time of these slots (BoardUpdateInformation)
+	 */
+	public void update(final boolean found, final boolean isBehindLastSetIndex, final int triedIndices,
+			final long nodeTimeMillis) {
+		final int limit = getLimit(triedIndices, nodeTimeMillis);
+		if (found) {
+			size = Math.min(limit, size + 1);
+		} else if (isBehindLastSetIndex) {
+			size = Math.max(1, size / 2);
+		} else {
+			size = Math.min(limit, size);
+		}
+	}
+
+	private int getLimit(final int triedIndices, final long nodeTimeMillis) {
+		if (triedIndices >= MIN_TRIED_FOR_TIMING && nodeTimeMillis / triedIndices < FAST_NODE_MILLIS) {
+			return Math.min(maxSize, FAST_NODE_MAX_SIZE);
+		}
+		return maxSize;
+	}
+}
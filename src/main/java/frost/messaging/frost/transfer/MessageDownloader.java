@@ -18,7 +18,7 @@
 */
 package frost.messaging.frost.transfer;
 
-import java.io.File;
+import java.util.function.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,25 +26,27 @@ import org.slf4j.LoggerFactory;
 import frost.Core;
 import frost.fcp.FcpHandler;
 import frost.fcp.FcpResultGet;
+import frost.fcp.NodeRequestScheduler;
 import frost.identities.Identity;
 import frost.messaging.frost.MessageCreationException;
 import frost.messaging.frost.MessageXmlFile;
-import frost.util.FileAccess;
 
 public class MessageDownloader {
 
 	private static final Logger logger = LoggerFactory.getLogger(MessageDownloader.class);
 
     /**
-     * Process the downloaded file, decrypt, check sign.
-     * @param tmpFile  downloaded file
+     * Process the downloaded data, decrypt, check sign.
+     * @param data  downloaded message file content
      * @param results  the FcpResults
      * @param logInfo  info for log output
+     * @param formatValidator  checks the format of the message, may be null
      * @return  null if unexpected Exception occurred, or results indicating state or error
      */
-    protected static MessageDownloaderResult processDownloadedFile(final File tmpFile, final FcpResultGet results, final String logInfo) {
+    protected static MessageDownloaderResult processDownloadedData(final byte[] data, final FcpResultGet results,
+            final String logInfo, final Predicate<MessageXmlFile> formatValidator) {
         try {
-            return processDownloadedFile07(tmpFile, results, logInfo);
+            return processDownloadedData07(data, results, logInfo, formatValidator);
         } catch(final Throwable t) {
             logger.error("Error processing downloaded message", t);
             final MessageDownloaderResult mdResult = new MessageDownloaderResult(MessageDownloaderResult.BROKEN_MSG);
@@ -61,28 +63,53 @@ public class MessageDownloader {
             final String downKey,
             final int targetIndex,
             final int maxRetries,
-            final String logInfo) {
+            final String logInfo,
+            final NodeRequestScheduler.RequestClass requestClass,
+            final String owner) {
 
-        FcpResultGet results;
-        final File tmpFile = FileAccess.createTempFile("dlMsg_", "-"+targetIndex+".xml.tmp");
+        return startDownloadMessage(downKey, targetIndex, maxRetries, logInfo, requestClass, owner, null).getResult();
+    }
 
-        try {
-            results = FcpHandler.inst().getFile(
+    /**
+     * Starts the download of the message when it is its turn in the NodeRequestScheduler,
+     * the download runs in the background and several downloads can run at once.
+     * The message is received into memory, no file is written, and processed by the
+     * MessageProcessingPool.
+     *
+     * @param formatValidator  checks the format of the message before its signature, may be null
+     * @return  the pending download, its getResult() waits for the processed message
+     */
+    public static PendingMessageDownload startDownloadMessage(
+            final String downKey,
+            final int targetIndex,
+            final int maxRetries,
+            final String logInfo,
+            final NodeRequestScheduler.RequestClass requestClass,
+            final String owner,
+            final Predicate<MessageXmlFile> formatValidator) {
+
+        final PendingMessageDownload pendingDownload = new PendingMessageDownload(targetIndex, logInfo);
+
+        pendingDownload.setFuture(NodeRequestScheduler.inst().submit(requestClass, owner, () -> {
+            pendingDownload.started();
+            return FcpHandler.inst().getDataAsync(
                     FcpHandler.TYPE_MESSAGE,
                     downKey,
-                    null,
-                    tmpFile,
                     FcpHandler.MAX_MESSAGE_SIZE_07,
                     maxRetries);
-        } catch(final Throwable t) {
-            logger.error("TOFDN: Exception thrown in downloadDate part 1. {}", logInfo, t);
-            // download failed
-            tmpFile.delete();
-            return null;
-        }
+        }), formatValidator);
+        return pendingDownload;
+    }
+
+    /**
+     * Evaluates the result of a finished download.
+     *
+     * @return  null if not found, or MessageDownloaderResult if success or error
+     */
+    static MessageDownloaderResult evaluateDownload(final FcpResultGet results, final String logInfo,
+            final Predicate<MessageXmlFile> formatValidator) {
 
-        if( results == null || results.isSuccess() == false ) {
-        	tmpFile.delete();
+        if( results == null || results.isSuccess() == false || results.getData() == null ) {
         	if(results != null && results.getReturnCode() == 28) {
      	    	logger.warn("TOFDN: All data not found. {} - Contents of message key partially missing.", logInfo);
      	    	return new MessageDownloaderResult(MessageDownloaderResult.ALLDATANOTFOUND);
@@ -94,26 +121,28 @@ public class MessageDownloader {
         	}
         }
 
-        return processDownloadedFile(tmpFile, results, logInfo);
+        return processDownloadedData(results.getData(), results, logInfo, formatValidator);
     }
 
     /**
-     * Process the downloaded file, decrypt, check sign.
-     * @param tmpFile  downloaded file
+     * Process the downloaded data, decrypt, check sign.
+     * @param data  downloaded message file content
      * @param results  the FcpResults
      * @param logInfo  info for log output
+     * @param formatValidator  checks the format of the message, may be null
      * @return  null if unexpected Exception occurred, or results indicating state or error
      */
-    protected static MessageDownloaderResult processDownloadedFile07(final File tmpFile, final FcpResultGet results, final String logInfo) {
+    protected static MessageDownloaderResult processDownloadedData07(final byte[] data, final FcpResultGet results,
+            final String logInfo, final Predicate<MessageXmlFile> formatValidator) {
 
         try { // we don't want to die for any reason
 
-            // a file was downloaded
+            // a message was downloaded
 
             final MessageXmlFile currentMsg;
 
             try {
-                currentMsg = new MessageXmlFile(tmpFile);
+                currentMsg = new MessageXmlFile(data);
 
             } catch (final MessageCreationException ex) {
                 final String errorMessage;
@@ -133,16 +162,21 @@ public class MessageDownloader {
                     logger.error("TOFDN: Exception catched. {}", logInfo, ex);
                     errorMessage = MessageDownloaderResult.BROKEN_MSG;
                 }
-                tmpFile.delete();
                 return new MessageDownloaderResult(errorMessage);
 
             } catch (final Throwable ex) {
                 logger.error("TOFDN: Exception catched. {}", logInfo, ex);
                 // file could not be read, mark it invalid not to confuse gui
-                tmpFile.delete();
                 return new MessageDownloaderResult(MessageDownloaderResult.BROKEN_MSG);
             }
 
+            // basic validation, isValid() of FrostMessageObject was already called during instanciation of MessageXmlFile,
+            // before the signature is verified
+            if( formatValidator != null && !formatValidator.test(currentMsg) ) {
+                logger.warn("TOFDN: Message was dropped, format validation failed: {}", logInfo);
+                return new MessageDownloaderResult(MessageDownloaderResult.INVALID_MSG);
+            }
+
             boolean isSignedV2 = false;
 
             if( currentMsg.getSignatureV2() != null && currentMsg.getSignatureV2().length() > 0 ) {
@@ -156,7 +190,6 @@ public class MessageDownloader {
                 if( currentMsg.getFromName().indexOf('@') > -1) {
                     // invalid, drop message
                     logger.error("TOFDN: unsigned message has an invalid fromName (contains an @: '{}'), message dropped. {}", currentMsg.getFromName(), logInfo);
-                    tmpFile.delete();
                     return new MessageDownloaderResult(MessageDownloaderResult.INVALID_MSG);
                 }
 
@@ -170,7 +203,6 @@ public class MessageDownloader {
             if( !Core.getIdentitiesManager().isNewIdentityValid(owner) ) {
                 // hash of public key does not match the unique name
                 logger.error("TOFDN: identity failed verification, message dropped. {}", logInfo);
-                tmpFile.delete();
                 return new MessageDownloaderResult(MessageDownloaderResult.INVALID_MSG);
             }
 
@@ -181,7 +213,6 @@ public class MessageDownloader {
             // then check if the signature was ok
             if (!sigIsValid) {
                 logger.error("TOFDN: message failed verification, message dropped. {}", logInfo);
-                tmpFile.delete();
                 return new MessageDownloaderResult(MessageDownloaderResult.INVALID_MSG);
             }
 
@@ -197,7 +228,6 @@ public class MessageDownloader {
             logger.error("TOFDN: Exception catched. {}", logInfo, t);
             // index is already increased for next try
         }
-        tmpFile.delete();
         return null;
     }
 }
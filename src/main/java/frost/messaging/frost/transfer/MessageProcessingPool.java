@@ -0,0 +1,175 @@
+/*
+  MessageProcessingPool.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.messaging.frost.transfer;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import frost.Core;
+import frost.Settings;
+import frost.fcp.FcpResultGet;
+import frost.messaging.frost.MessageXmlFile;
+import frost.util.JmxUtil;
+import frost.util.LatencyHistogram;
+
+/**
+ * Decrypts, verifies and validates the downloaded messages of all boards.
+ *
+ * A message is handed to the pool when its download finished, so the RSA work runs on a
+ * fixed number of threads while the board threads wait for the node. The queue needs no
+ * limit, each board thread has at most its lookahead window of downloads pending. The
+ * board threads take the results in index order and add the valid messages to the
+ * database, as before.
+ */
+public class MessageProcessingPool implements MessageProcessingPoolMBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(MessageProcessingPool.class);
+
+	private static final int MAX_AUTO_THREADS = 4;
+
+	private static MessageProcessingPool instance = null;
+
+	private final int threadCount;
+	private final ThreadPoolExecutor executor;
+
+	private final LatencyHistogram queueLatency = new LatencyHistogram();
+	private final LatencyHistogram processingLatency = new LatencyHistogram();
+	private final LatencyHistogram insertLatency = new LatencyHistogram();
+	private final LongAdder processedCount = new LongAdder();
+
+	public static synchronized MessageProcessingPool inst() {
+		if (instance == null) {
+			instance = new MessageProcessingPool(getConfiguredThreadCount());
+			JmxUtil.registerMBean(instance, "frost:type=MessageProcessing");
+		}
+		return instance;
+	}
+
+	/**
+	 * @return the configured thread count, 0 means one thread per core and at most MAX_AUTO_THREADS
+	 */
+	private static int getConfiguredThreadCount() {
+		final int configured = Core.frostSettings.getInteger(Settings.MESSAGE_PROCESSING_THREADS);
+		if (configured > 0) {
+			return configured;
+		}
+		return Math.max(1, Math.min(MAX_AUTO_THREADS, Runtime.getRuntime().availableProcessors()));
+	}
+
+	public MessageProcessingPool(final int threadCount) {
+		this.threadCount = Math.max(1, threadCount);
+		final AtomicInteger threadNumber = new AtomicInteger();
+		executor = new ThreadPoolExecutor(this.threadCount, this.threadCount, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), r -> {
+					final Thread t = new Thread(r, "MessageProcessing-" + threadNumber.getAndIncrement());
+					t.setDaemon(true);
+					return t;
+				});
+	}
+
+	/**
+	 * Processes the message in the pool when its download finished.
+	 *
+	 * @param formatValidator  checks the format of a message before its signature, may be null
+	 * @return completes with null if not found, or MessageDownloaderResult if success or error
+	 */
+	CompletableFuture<MessageDownloaderResult> process(final CompletableFuture<FcpResultGet> download,
+			final String logInfo, final Predicate<MessageXmlFile> formatValidator) {
+
+		final CompletableFuture<MessageDownloaderResult> result = new CompletableFuture<MessageDownloaderResult>();
+		download.whenComplete((results, t) -> {
+			if (t instanceof CancellationException || (t != null && t.getCause() instanceof CancellationException)) {
+				// dropped by the board thread
+				result.complete(null);
+				return;
+			}
+			if (t != null) {
+				logger.error("TOFDN: Exception thrown in downloadDate part 1. {}", logInfo, t);
+				// download failed
+				result.complete(null);
+				return;
+			}
+			final long queuedMillis = System.currentTimeMillis();
+			executor.execute(() -> {
+				final long startMillis = System.currentTimeMillis();
+				queueLatency.record(startMillis - queuedMillis, true);
+				MessageDownloaderResult mdResult = null;
+				try {
+					mdResult = MessageDownloader.evaluateDownload(results, logInfo, formatValidator);
+				} catch (final Throwable e) {
+					logger.error("TOFDN: Exception thrown in processing. {}", logInfo, e);
+				} finally {
+					processingLatency.record(System.currentTimeMillis() - startMillis,
+							mdResult != null && !mdResult.isFailure());
+					processedCount.increment();
+					result.complete(mdResult);
+				}
+			});
+		});
+		return result;
+	}
+
+	/**
+	 * Called by the board threads after a valid message was added.
+	 */
+	public void recordInsert(final long millis) {
+		insertLatency.record(millis, true);
+	}
+
+////////////////////////////////////////////////////////////////////////////////////////////////
+//  MessageProcessingPoolMBean interface ///////////////////////////////////////////////////////
+////////////////////////////////////////////////////////////////////////////////////////////////
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	public long getProcessedCount() {
+		return processedCount.sum();
+	}
+
+	public String getQueueLatency() {
+		return queueLatency.toString();
+	}
+
+	public String getProcessingLatency() {
+		return processingLatency.toString();
+	}
+
+	public String getInsertLatency() {
+		return insertLatency.toString();
+	}
+}
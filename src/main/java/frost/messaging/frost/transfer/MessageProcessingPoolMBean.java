@@ -0,0 +1,51 @@
+/*
+  MessageProcessingPoolMBean.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.messaging.frost.transfer;
+
+/**
+ * JMX view of the processing of downloaded messages, registered as frost:type=MessageProcessing.
+ */
+public interface MessageProcessingPoolMBean {
+
+	public int getThreadCount();
+
+	/**
+	 * @return downloaded messages that wait for a worker
+	 */
+	public int getQueueDepth();
+
+	public int getActiveCount();
+
+	public long getProcessedCount();
+
+	/**
+	 * @return time from the finished download until a worker took the message
+	 */
+	public String getQueueLatency();
+
+	/**
+	 * @return time to decrypt, verify and validate a message
+	 */
+	public String getProcessingLatency();
+
+	/**
+	 * @return time the board thread needed to add a valid message to the database and gui
+	 */
+	public String getInsertLatency();
+}
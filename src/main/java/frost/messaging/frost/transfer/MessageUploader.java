@@ -31,6 +31,7 @@ import frost.Settings;
 import frost.fcp.FcpHandler;
 import frost.fcp.FcpResultGet;
 import frost.fcp.FcpResultPut;
+import frost.fcp.NodeRequestScheduler;
 import frost.identities.Identity;
 import frost.identities.LocalIdentity;
 import frost.messaging.frost.MessageXmlFile;
@@ -290,13 +291,16 @@ public class MessageUploader {
     private static boolean downloadMessage(final int index, final File targetFile, final MessageUploaderWorkArea wa) {
         try {
             final String downKey = wa.callback.composeDownloadKey(wa.message, index);
-            final FcpResultGet res = FcpHandler.inst().getFile(
-                    FcpHandler.TYPE_MESSAGE,
-                    downKey,
-                    null,
-                    targetFile,
-                    FcpHandler.MAX_MESSAGE_SIZE_07,
-                    -1);
+            final FcpResultGet res = NodeRequestScheduler.inst().run(
+                    NodeRequestScheduler.RequestClass.MESSAGE_UPLOAD,
+                    wa.logBoardName,
+                    () -> FcpHandler.inst().getFile(
+                            FcpHandler.TYPE_MESSAGE,
+                            downKey,
+                            null,
+                            targetFile,
+                            FcpHandler.MAX_MESSAGE_SIZE_07,
+                            -1));
             if( res != null && res.isSuccess() && targetFile.length() > 0 ) {
                 return true;
             }
@@ -0,0 +1,104 @@
+/*
+  PendingMessageDownload.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.messaging.frost.transfer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import frost.fcp.FcpResultGet;
+import frost.messaging.frost.MessageXmlFile;
+
+/**
+ * A message download that was started by MessageDownloader.startDownloadMessage().
+ */
+public class PendingMessageDownload {
+
+	private static final Logger logger = LoggerFactory.getLogger(PendingMessageDownload.class);
+
+	private final int index;
+	private final String logInfo;
+	// the future of the NodeRequestScheduler, cancelled by cancel()
+	private CompletableFuture<FcpResultGet> request;
+	private CompletableFuture<FcpResultGet> future;
+	private CompletableFuture<MessageDownloaderResult> result;
+	// set when the request is sent to the node, it may wait for its turn before
+	private volatile long startMillis = 0;
+	private volatile long endMillis = 0;
+
+	PendingMessageDownload(final int index, final String logInfo) {
+		this.index = index;
+		this.logInfo = logInfo;
+	}
+
+	void setFuture(final CompletableFuture<FcpResultGet> newFuture, final Predicate<MessageXmlFile> formatValidator) {
+		request = newFuture;
+		future = newFuture.whenComplete((r, t) -> endMillis = System.currentTimeMillis());
+		result = MessageProcessingPool.inst().process(future, logInfo, formatValidator);
+	}
+
+	void started() {
+		startMillis = System.currentTimeMillis();
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public boolean isDone() {
+		return future.isDone();
+	}
+
+	/**
+	 * @return the time the node needed for the request, until now if it is not finished,
+	 *         0 if it was not sent
+	 */
+	public long getNodeTimeMillis() {
+		final long start = startMillis;
+		if (start == 0) {
+			return 0;
+		}
+		final long end = endMillis;
+		return ((end > 0) ? end : System.currentTimeMillis()) - start;
+	}
+
+	/**
+	 * Drops the download. If it still waits for its turn in the NodeRequestScheduler it is
+	 * withdrawn and never sent to the node.
+	 */
+	public void cancel() {
+		request.cancel(false);
+	}
+
+	/**
+	 * Waits until the download finished and the MessageProcessingPool decrypted and checked the message.
+	 *
+	 * @return  null if not found, or MessageDownloaderResult if success or error
+	 */
+	public MessageDownloaderResult getResult() {
+		try {
+			return result.join();
+		} catch (final Throwable t) {
+			logger.error("TOFDN: Exception thrown in downloadDate part 1. {}", logInfo, t);
+			return null;
+		}
+	}
+}
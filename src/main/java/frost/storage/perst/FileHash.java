@@ -0,0 +1,82 @@
+/*
+ FileHash.java / Frost
+ Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License as
+ published by the Free Software Foundation; either version 2 of
+ the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package frost.storage.perst;
+
+import org.garret.perst.Persistent;
+
+/**
+ * The SHA-256 checksum of a file, valid while the size and modification time of the file
+ * are unchanged.
+ */
+public class FileHash extends Persistent {
+
+	private static final long serialVersionUID = 1L;
+
+	private String path; // canonical path
+	private long fileSize;
+	private long lastModified;
+	private String sha;
+	private long lastUsedMillis; // when the checksum was computed or used the last time
+
+	// used by perst
+	public FileHash() {}
+
+	public FileHash(final String path, final long fileSize, final long lastModified, final String sha) {
+		this.path = path;
+		this.fileSize = fileSize;
+		this.lastModified = lastModified;
+		this.sha = sha;
+		this.lastUsedMillis = System.currentTimeMillis();
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public long getFileSize() {
+		return fileSize;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public String getSha() {
+		return sha;
+	}
+
+	public long getLastUsedMillis() {
+		return lastUsedMillis;
+	}
+
+	public void setLastUsedMillis(final long lastUsedMillis) {
+		this.lastUsedMillis = lastUsedMillis;
+	}
+
+	public void update(final long newFileSize, final long newLastModified, final String newSha) {
+		fileSize = newFileSize;
+		lastModified = newLastModified;
+		sha = newSha;
+		lastUsedMillis = System.currentTimeMillis();
+	}
+
+	public boolean matches(final long otherFileSize, final long otherLastModified) {
+		return fileSize == otherFileSize && lastModified == otherLastModified;
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ FileHashStorage.java / Frost
+ Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License as
+ published by the Free Software Foundation; either version 2 of
+ the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package frost.storage.perst;
+
+import java.util.Iterator;
+
+import org.garret.perst.Index;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import frost.Settings;
+import frost.storage.ExitSavable;
+import frost.storage.StorageException;
+
+/**
+ * Caches the SHA-256 checksums of the files added to the shared files, so a file that is
+ * added again is only hashed if its size or modification time changed.
+ */
+public class FileHashStorage extends AbstractFrostStorage implements ExitSavable {
+
+	private static final Logger logger =  LoggerFactory.getLogger(FileHashStorage.class);
+
+	private FileHashStorageRoot storageRoot = null;
+
+	private static final String STORAGE_FILENAME = "FileHashes.dbs";
+
+	private static FileHashStorage instance = new FileHashStorage();
+
+	protected FileHashStorage() {
+		super();
+	}
+
+	public static FileHashStorage inst() {
+		return instance;
+	}
+
+	/**
+	 * @param path  the canonical path of the file
+	 * @return the checksum of the file, or null if it is unknown or the file changed
+	 */
+	public String getSha(final String path, final long fileSize, final long lastModified) {
+		if (getStorage() == null) {
+			return null;
+		}
+		if (!beginExclusiveThreadTransaction()) {
+			return null;
+		}
+		try {
+			final FileHash fileHash = storageRoot.fileHashesByPath.get(path);
+			if (fileHash == null || !fileHash.matches(fileSize, lastModified)) {
+				return null;
+			}
+			fileHash.setLastUsedMillis(System.currentTimeMillis());
+			fileHash.modify();
+			return fileHash.getSha();
+		} finally {
+			endThreadTransaction();
+		}
+	}
+
+	/**
+	 * @param path  the canonical path of the file
+	 */
+	public void storeSha(final String path, final long fileSize, final long lastModified, final String sha) {
+		if (getStorage() == null) {
+			return;
+		}
+		if (!beginExclusiveThreadTransaction()) {
+			return;
+		}
+		try {
+			final FileHash fileHash = storageRoot.fileHashesByPath.get(path);
+			if (fileHash == null) {
+				final FileHash newFileHash = new FileHash(path, fileSize, lastModified, sha);
+				newFileHash.makePersistent(getStorage());
+				storageRoot.fileHashesByPath.put(path, newFileHash);
+			} else {
+				fileHash.update(fileSize, lastModified, sha);
+				fileHash.modify();
+			}
+		} finally {
+			endThreadTransaction();
+		}
+	}
+
+	public void exitSave() throws StorageException {
+		close();
+		storageRoot = null;
+		logger.info("FileHashStorage closed.");
+	}
+
+	@Override
+	public String getStorageFilename() {
+		return STORAGE_FILENAME;
+	}
+
+	@Override
+	public boolean initStorage() {
+		final String databaseFilePath = buildStoragePath(getStorageFilename()); // path to the database file
+		final long pagePoolSize = getPagePoolSize(Settings.PERST_PAGEPOOLSIZE_FILEHASHES);
+
+		open(databaseFilePath, pagePoolSize, true, true, false);
+
+		storageRoot = (FileHashStorageRoot)getStorage().getRoot();
+		if (storageRoot == null || storageRoot.fileHashesByPath == null) {
+			// Storage was not initialized yet
+			storageRoot = new FileHashStorageRoot();
+			// unique index of canonical paths
+			storageRoot.fileHashesByPath = getStorage().createIndex(String.class, true);
+
+			getStorage().setRoot(storageRoot);
+			commit(); // commit transaction
+		}
+		logger.info("FileHashStorage initialized.");
+		return true;
+	}
+
+	/**
+	 * Delete all checksums that were not used for maxDaysOld days.
+	 * @return  count of deleted rows
+	 */
+	public int cleanupTable(final int maxDaysOld) {
+
+		final long minVal = System.currentTimeMillis() - (maxDaysOld * 24L * 60L * 60L * 1000L);
+
+		int deletedCount = 0;
+
+		beginExclusiveThreadTransaction();
+		try {
+			final Iterator<FileHash> fileHashIterator = storageRoot.fileHashesByPath.iterator();
+			while(fileHashIterator.hasNext()) {
+				final FileHash fileHash = fileHashIterator.next();
+				if( fileHash.getLastUsedMillis() < minVal ) {
+					fileHashIterator.remove(); // remove from iterated index
+					fileHash.deallocate(); // remove from Storage
+					deletedCount++;
+				}
+			}
+		} finally {
+			endThreadTransaction();
+		}
+
+		return deletedCount;
+	}
+
+	public final Index<FileHash> getFileHashesByPath() {
+		return storageRoot.fileHashesByPath;
+	}
+}
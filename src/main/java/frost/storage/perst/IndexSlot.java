@@ -92,6 +92,13 @@ public class IndexSlot extends Persistent {
         }
     }
 
+    // number of used slots, each held a message of this date
+    public int getUsedSlotCount() {
+        final BitSet usedSlots = (BitSet) wasDownloaded.clone();
+        usedSlots.or(wasUploaded);
+        return usedSlots.cardinality();
+    }
+
     // find first unused
     public int findFirstUploadSlot() {
         // find last set index in ul and dl list
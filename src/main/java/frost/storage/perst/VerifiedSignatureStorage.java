@@ -0,0 +1,234 @@
+/*
+ VerifiedSignatureStorage.java / Frost
+ Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License as
+ published by the Free Software Foundation; either version 2 of
+ the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package frost.storage.perst;
+
+import java.util.Iterator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import frost.Core;
+import frost.Settings;
+import frost.storage.ExitSavable;
+import frost.storage.StorageException;
+import frost.util.BoundedLruMap;
+
+/**
+ * Remembers the valid signatures of downloaded messages and file lists, so the same
+ * signed content that arrives again is verified by a hash lookup instead of RSA.
+ *
+ * Only valid signatures are stored, an invalid signature is verified every time.
+ *
+ * The lookups run in cooperative transactions, and the last use of a signature is only
+ * written once a day. The recently used digests are also kept in memory, most lookups
+ * don't access the storage at all.
+ */
+public class VerifiedSignatureStorage extends AbstractFrostStorage implements ExitSavable {
+
+	private static final Logger logger =  LoggerFactory.getLogger(VerifiedSignatureStorage.class);
+
+	private VerifiedSignatureStorageRoot storageRoot = null;
+
+	private static final String STORAGE_FILENAME = "VerifiedSignatures.dbs";
+
+	// the cleanup works with days, a more recent last use is not needed
+	private static final long TOUCH_INTERVAL_MILLIS = 24L * 60L * 60L * 1000L;
+	private static final int CACHED_DIGESTS = 4096;
+
+	// the recently used digests and their last use in the storage, these digests are known to be stored
+	private final BoundedLruMap<String, Long> recentDigests = new BoundedLruMap<String, Long>(CACHED_DIGESTS);
+
+	private static VerifiedSignatureStorage instance = new VerifiedSignatureStorage();
+
+	protected VerifiedSignatureStorage() {
+		super();
+	}
+
+	public static VerifiedSignatureStorage inst() {
+		return instance;
+	}
+
+	/**
+	 * Same as FrostCrypt.detachedVerify(), a signature that was verified before is only
+	 * looked up.
+	 */
+	public boolean detachedVerify(final String message, final String publicKey, final String signature) {
+		if (message == null || publicKey == null || signature == null) {
+			return Core.getCrypto().detachedVerify(message, publicKey, signature);
+		}
+		// base64 contains no newlines, the parts can not be shifted against each other
+		final String digest = Core.getCrypto().computeChecksumSHA256(publicKey + "\n" + signature + "\n" + message);
+		if (digest != null && isVerified(digest)) {
+			return true;
+		}
+		final boolean isValid = Core.getCrypto().detachedVerify(message, publicKey, signature);
+		if (isValid && digest != null) {
+			storeVerified(digest);
+		}
+		return isValid;
+	}
+
+	private boolean isVerified(final String digest) {
+		final Long cachedMillis = recentDigests.get(digest);
+		final long lastUsedMillis;
+		if (cachedMillis != null) {
+			lastUsedMillis = cachedMillis.longValue();
+		} else {
+			lastUsedMillis = getStoredLastUsedMillis(digest);
+			if (lastUsedMillis < 0) {
+				return false;
+			}
+			recentDigests.put(digest, Long.valueOf(lastUsedMillis));
+		}
+		final long now = System.currentTimeMillis();
+		if (isTouchNeeded(lastUsedMillis, now) && touch(digest, now)) {
+			recentDigests.put(digest, Long.valueOf(now));
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if the last use in the storage should be updated
+	 */
+	static boolean isTouchNeeded(final long storedLastUsedMillis, final long nowMillis) {
+		return nowMillis - storedLastUsedMillis >= TOUCH_INTERVAL_MILLIS;
+	}
+
+	/**
+	 * @return the last use of the stored digest, or -1 if it is not stored
+	 */
+	private long getStoredLastUsedMillis(final String digest) {
+		if (getStorage() == null) {
+			return -1;
+		}
+		if (!beginCooperativeThreadTransaction()) {
+			return -1;
+		}
+		try {
+			final VerifiedSignature verifiedSignature = storageRoot.signaturesByDigest.get(digest);
+			return (verifiedSignature == null) ? -1 : verifiedSignature.getLastUsedMillis();
+		} finally {
+			endThreadTransaction();
+		}
+	}
+
+	private boolean touch(final String digest, final long now) {
+		if (getStorage() == null) {
+			return false;
+		}
+		if (!beginExclusiveThreadTransaction()) {
+			return false;
+		}
+		try {
+			final VerifiedSignature verifiedSignature = storageRoot.signaturesByDigest.get(digest);
+			if (verifiedSignature == null) {
+				// removed by the cleanup while it was cached
+				final VerifiedSignature newSignature = new VerifiedSignature(digest);
+				newSignature.makePersistent(getStorage());
+				storageRoot.signaturesByDigest.put(digest, newSignature);
+			} else {
+				verifiedSignature.setLastUsedMillis(now);
+				verifiedSignature.modify();
+			}
+			return true;
+		} finally {
+			endThreadTransaction();
+		}
+	}
+
+	private void storeVerified(final String digest) {
+		if (getStorage() == null) {
+			return;
+		}
+		if (!beginExclusiveThreadTransaction()) {
+			return;
+		}
+		try {
+			VerifiedSignature verifiedSignature = storageRoot.signaturesByDigest.get(digest);
+			if (verifiedSignature == null) {
+				verifiedSignature = new VerifiedSignature(digest);
+				verifiedSignature.makePersistent(getStorage());
+				storageRoot.signaturesByDigest.put(digest, verifiedSignature);
+			}
+			recentDigests.put(digest, Long.valueOf(verifiedSignature.getLastUsedMillis()));
+		} finally {
+			endThreadTransaction();
+		}
+	}
+
+	public void exitSave() throws StorageException {
+		close();
+		storageRoot = null;
+		logger.info("VerifiedSignatureStorage closed.");
+	}
+
+	@Override
+	public String getStorageFilename() {
+		return STORAGE_FILENAME;
+	}
+
+	@Override
+	public boolean initStorage() {
+		final String databaseFilePath = buildStoragePath(getStorageFilename()); // path to the database file
+		final long pagePoolSize = getPagePoolSize(Settings.PERST_PAGEPOOLSIZE_VERIFIEDSIGNATURES);
+
+		open(databaseFilePath, pagePoolSize, true, true, false);
+
+		storageRoot = (VerifiedSignatureStorageRoot)getStorage().getRoot();
+		if (storageRoot == null || storageRoot.signaturesByDigest == null) {
+			// Storage was not initialized yet
+			storageRoot = new VerifiedSignatureStorageRoot();
+			// unique index of digests
+			storageRoot.signaturesByDigest = getStorage().createIndex(String.class, true);
+
+			getStorage().setRoot(storageRoot);
+			commit(); // commit transaction
+		}
+		logger.info("VerifiedSignatureStorage initialized.");
+		return true;
+	}
+
+	/**
+	 * Delete all signatures that were not used for maxDaysOld days.
+	 * @return  count of deleted rows
+	 */
+	public int cleanupTable(final int maxDaysOld) {
+
+		final long minVal = System.currentTimeMillis() - (maxDaysOld * 24L * 60L * 60L * 1000L);
+
+		int deletedCount = 0;
+
+		beginExclusiveThreadTransaction();
+		try {
+			final Iterator<VerifiedSignature> signatureIterator = storageRoot.signaturesByDigest.iterator();
+			while(signatureIterator.hasNext()) {
+				final VerifiedSignature verifiedSignature = signatureIterator.next();
+				if( verifiedSignature.getLastUsedMillis() < minVal ) {
+					signatureIterator.remove(); // remove from iterated index
+					verifiedSignature.deallocate(); // remove from Storage
+					deletedCount++;
+				}
+			}
+		} finally {
+			endThreadTransaction();
+		}
+
+		return deletedCount;
+	}
+}
@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import frost.fcp.FcpHandler;
 import frost.fcp.FcpResultGet;
+import frost.fcp.NodeRequestScheduler;
 import frost.util.FileAccess;
 
 public class GlobalFileDownloader {
@@ -34,20 +35,28 @@ public class GlobalFileDownloader {
     /**
      * Returns null if file not found.
      * Returns a GlobalFileDownloaderResult if File was downloaded, or if key was invalid.
+     * The request waits for its turn in the NodeRequestScheduler.
      */
-    public static GlobalFileDownloaderResult downloadFile(final String downKey, final int maxSize, final int maxRetries) {
+    public static GlobalFileDownloaderResult downloadFile(
+            final String downKey,
+            final int maxSize,
+            final int maxRetries,
+            final NodeRequestScheduler.RequestClass requestClass,
+            final String owner)
+    {
 
         try {
             final File tmpFile = FileAccess.createTempFile("frost_",".tmp");
             tmpFile.deleteOnExit();
 
-            final FcpResultGet fcpresults = FcpHandler.inst().getFile(
-                    FcpHandler.TYPE_MESSAGE,
-                    downKey,
-                    null,
-                    tmpFile,
-                    maxSize,
-                    maxRetries);
+            final FcpResultGet fcpresults = NodeRequestScheduler.inst().run(requestClass, owner, () ->
+                    FcpHandler.inst().getFile(
+                            FcpHandler.TYPE_MESSAGE,
+                            downKey,
+                            null,
+                            tmpFile,
+                            maxSize,
+                            maxRetries));
 
             if( fcpresults == null || !fcpresults.isSuccess() ) {
                 // download failed
@@ -0,0 +1,60 @@
+/*
+  BoundedLruMap.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread safe map that holds at most capacity entries, the least recently used entry
+ * is removed when a new one is added to a full map.
+ */
+public final class BoundedLruMap<K, V> {
+
+	private final int capacity;
+	private final LinkedHashMap<K, V> entries;
+
+	public BoundedLruMap(final int capacity) {
+		this.capacity = capacity;
+		entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+				return size() > BoundedLruMap.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * @return the value, or null if the key is not in the map. A found entry becomes the most
+	 *         recently used.
+	 */
+	public synchronized V get(final K key) {
+		return entries.get(key);
+	}
+
+	public synchronized void put(final K key, final V value) {
+		entries.put(key, value);
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+}
@@ -30,8 +30,10 @@ import frost.gui.Splashscreen;
 import frost.messaging.frost.FrostMessageObject;
 import frost.messaging.frost.boards.Board;
 import frost.storage.MessageArchivingCallback;
+import frost.storage.perst.FileHashStorage;
 import frost.storage.perst.IndexSlotsStorage;
 import frost.storage.perst.SharedFilesCHKKeyStorage;
+import frost.storage.perst.VerifiedSignatureStorage;
 import frost.storage.perst.filelist.FileListStorage;
 import frost.storage.perst.messagearchive.ArchiveMessageStorage;
 import frost.storage.perst.messages.MessageStorage;
@@ -51,6 +53,7 @@ public class CleanUp {
     // we hold indices, chk keys, ... for at least the following count of days:
     private final static int MINIMUM_DAYS_OLD = 28;
     private final static int SFCHKKEYS_MINIMUM_DAYS_OLD = 16;
+    private final static int FILEHASHES_MINIMUM_DAYS_OLD = 180;
 
     private static Splashscreen splashScreen;
 
@@ -85,6 +88,10 @@ public class CleanUp {
 
         splashScreen.setText("Cleaning CHK filelist tables");
         cleanupSharedCHKKeyStorage();
+
+        cleanupFileHashStorage();
+
+        cleanupVerifiedSignatureStorage();
     }
 
     private static void cleanStorages(final List<Board> boardList) {
@@ -248,6 +255,37 @@ public class CleanUp {
         }
     }
 
+    /**
+     * Cleanup checksums of files that were not added for FILEHASHES_MINIMUM_DAYS_OLD days.
+     */
+    private static void cleanupFileHashStorage() {
+        int deletedCount = 0;
+        try {
+            deletedCount = FileHashStorage.inst().cleanupTable(FILEHASHES_MINIMUM_DAYS_OLD);
+        } catch(final Throwable t) {
+            logger.error("Exception during cleanup of FileHashes", t);
+        }
+        if( deletedCount > 0 ) {
+            logger.info("Finished to delete expired FileHashes, deleted {} rows.", deletedCount);
+        }
+    }
+
+    /**
+     * Cleanup verified signatures that were not used for MINIMUM_DAYS_OLD days,
+     * messages older than this are not downloaded again.
+     */
+    private static void cleanupVerifiedSignatureStorage() {
+        int deletedCount = 0;
+        try {
+            deletedCount = VerifiedSignatureStorage.inst().cleanupTable(MINIMUM_DAYS_OLD);
+        } catch(final Throwable t) {
+            logger.error("Exception during cleanup of VerifiedSignatures", t);
+        }
+        if( deletedCount > 0 ) {
+            logger.info("Finished to delete expired VerifiedSignatures, deleted {} rows.", deletedCount);
+        }
+    }
+
     /**
      * Remove owners that were not seen for more than MINIMUM_DAYS_OLD days and have no CHK key set.
      */
@@ -27,10 +27,10 @@ import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
 import java.security.KeyFactory;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.SecureRandom;
@@ -42,8 +42,6 @@ import java.util.StringTokenizer;
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
 import javax.crypto.CipherOutputStream;
-import javax.crypto.KeyGenerator;
-import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
@@ -51,6 +49,7 @@ import org.bouncycastle.crypto.CryptoException;
 import org.bouncycastle.crypto.digests.SHA1Digest;
 import org.bouncycastle.crypto.engines.RSAEngine;
 import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
+import org.bouncycastle.crypto.params.ParametersWithRandom;
 import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
 import org.bouncycastle.crypto.params.RSAKeyParameters;
 import org.bouncycastle.crypto.params.RSAPrivateCrtKeyParameters;
@@ -61,32 +60,110 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 /**
  * Implementation of the crypto layer.
+ *
+ * All methods can be called by several threads at once. The signer, cipher, key factory,
+ * digest and random engines are not thread safe, so each thread uses its own instances
+ * and initializes them again for every call.
  */
-public final class FrostCrypt {
+public final class FrostCrypt implements FrostCryptMBean {
 
 	private static final Logger logger = LoggerFactory.getLogger(FrostCrypt.class);
 
-    private PSSSigner signer;
-    private SecureRandom secureRandom = null;
+	private static final int FILE_READ_BUFFER_SIZE = 1024 * 1024;
 
-    private KeyGenerator keyGeneratorAES = null;
+	private static final int AES_KEY_SIZE = 16; // 128 bits, 192 and 256 bits may not be available!
+
+	// the identities whose messages and file lists arrive
+	private static final int PUBLIC_KEY_CACHE_SIZE = 4096;
+	// the local identities and boards
+	private static final int PRIVATE_KEY_CACHE_SIZE = 64;
+
+	// one direct read buffer per thread that hashes files
+	private static final ThreadLocal<ByteBuffer> fileReadBuffer =
+			ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(FILE_READ_BUFFER_SIZE));
+
+	private static final ThreadLocal<PSSSigner> signer =
+			ThreadLocal.withInitial(() -> new PSSSigner(new RSAEngine(), new SHA1Digest(), 16));
+
+	private static final ThreadLocal<SecureRandom> secureRandom = ThreadLocal.withInitial(() -> {
+		try {
+			return SecureRandom.getInstance("SHA1PRNG");
+		} catch (NoSuchAlgorithmException e) {
+			return new SecureRandom();
+		}
+	});
+
+	private static final ThreadLocal<KeyFactory> keyFactoryRSA =
+			perThread(() -> KeyFactory.getInstance("RSA", BouncyCastleProvider.PROVIDER_NAME));
+
+	private static final ThreadLocal<Cipher> cipherRSA =
+			perThread(() -> Cipher.getInstance("RSA/ECB/PKCS1Padding", BouncyCastleProvider.PROVIDER_NAME));
+
+	private static final ThreadLocal<Cipher> cipherAES =
+			perThread(() -> Cipher.getInstance("AES", BouncyCastleProvider.PROVIDER_NAME));
+
+	private static final ThreadLocal<MessageDigest> sha256 =
+			perThread(() -> MessageDigest.getInstance("SHA256", BouncyCastleProvider.PROVIDER_NAME));
+
+	private interface Engine<T> {
+		T getInstance() throws GeneralSecurityException;
+	}
+
+	/**
+	 * @return the engines of the threads, get() throws an IllegalStateException if the
+	 *         algorithm or provider is not available
+	 */
+	private static <T> ThreadLocal<T> perThread(final Engine<T> engine) {
+		return ThreadLocal.withInitial(() -> {
+			try {
+				return engine.getInstance();
+			} catch (final GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+    // the same keys are used over and over, parse them once
+    private final ParsedKeyCache<RSAKeyParameters> publicKeys =
+            new ParsedKeyCache<RSAKeyParameters>(PUBLIC_KEY_CACHE_SIZE);
+    private final ParsedKeyCache<RSAPrivateCrtKeyParameters> privateKeys =
+            new ParsedKeyCache<RSAPrivateCrtKeyParameters>(PRIVATE_KEY_CACHE_SIZE);
 
     public FrostCrypt() {
         Security.addProvider(new BouncyCastleProvider());
+    }
 
-        signer = new PSSSigner(new RSAEngine(), new SHA1Digest(), 16);
-        try {
-            secureRandom = SecureRandom.getInstance("SHA1PRNG");
-        } catch (NoSuchAlgorithmException e) {
-            secureRandom = new SecureRandom();
-        }
+    /**
+     * @param key  exponent:modulus, base64 encoded
+     */
+    private static RSAKeyParameters parsePublicKey(final String key) {
+        StringTokenizer keycutter = new StringTokenizer(key, ":");
+        BigInteger Exponent = new BigInteger(Base64.decode(keycutter.nextToken()));
+        BigInteger Modulus = new BigInteger(Base64.decode(keycutter.nextToken()));
+        return new RSAKeyParameters(true, Modulus, Exponent);
+    }
+
+    /**
+     * @param key  modulus:publicExponent:privateExponent:p:q:dP:dQ:qInv, base64 encoded
+     */
+    private static RSAPrivateCrtKeyParameters parsePrivateKey(final String key) {
+        StringTokenizer keycutter = new StringTokenizer(key, ":");
+        return new RSAPrivateCrtKeyParameters(
+                new BigInteger(Base64.decode(keycutter.nextToken())),
+                new BigInteger(Base64.decode(keycutter.nextToken())),
+                new BigInteger(Base64.decode(keycutter.nextToken())),
+                new BigInteger(Base64.decode(keycutter.nextToken())),
+                new BigInteger(Base64.decode(keycutter.nextToken())),
+                new BigInteger(Base64.decode(keycutter.nextToken())),
+                new BigInteger(Base64.decode(keycutter.nextToken())),
+                new BigInteger(Base64.decode(keycutter.nextToken())));
     }
 
     /**
      * Generate a new RSA 1024 bit key pair.
      * @returns String[0] is private key; String[1] is public key
      */
-    public synchronized String[] generateKeys() {
+    public String[] generateKeys() {
 
         RSAKeyPairGenerator keygen = new RSAKeyPairGenerator();
         keygen.init(
@@ -138,7 +215,7 @@ public final class FrostCrypt {
     /**
      * Computes the SHA-1 checksum of given message.
      */
-    public synchronized String digest(String message) {
+    public String digest(String message) {
         try {
             SHA1Digest stomach = new SHA1Digest();
             stomach.reset();
@@ -156,7 +233,7 @@ public final class FrostCrypt {
 	/**
 	 * Computes the SHA-1 checksum of given file.
 	 */
-	public synchronized String digest(File file) {
+	public String digest(File file) {
 		SHA1Digest stomach = new SHA1Digest();
 		byte[] poop = new byte[64];
 
@@ -183,7 +260,7 @@ public final class FrostCrypt {
 		return (new String(Base64.encode(poop))).substring(0, 27);
 	}
 
-    public synchronized String encrypt(String what, String publicKey) {
+    public String encrypt(String what, String publicKey) {
         try {
             byte[] whatBytes = what.getBytes("UTF-8");
             byte[] encryptedBytes = encrypt(whatBytes, publicKey);
@@ -207,7 +284,7 @@ public final class FrostCrypt {
      *
      *  @returns null if anything failed.
      */
-    public synchronized byte[] encrypt(byte[] what, String publicKey) {
+    public byte[] encrypt(byte[] what, String publicKey) {
 
         byte[] aesKeyBytes = null;
         Cipher cipherAES = null;
@@ -218,9 +295,6 @@ public final class FrostCrypt {
 
         // prepare AES, we need cipherAES and keyBytes
         aesKeyBytes = generateAESSessionKey(); // 16 bytes
-        if( aesKeyBytes == null ) {
-            return null;
-        }
         cipherAES = buildCipherAES(Cipher.ENCRYPT_MODE, aesKeyBytes);;
         if( cipherAES == null ) {
             return null;
@@ -228,15 +302,12 @@ public final class FrostCrypt {
 
         // prepare RSA, we only need chiperRSA
         try {
-            StringTokenizer keycutter = new StringTokenizer(publicKey, ":");
-            BigInteger Exponent = new BigInteger(Base64.decode(keycutter.nextToken()));
-            BigInteger Modulus = new BigInteger(Base64.decode(keycutter.nextToken()));
-            RSAPublicKeySpec pubKeySpec = new RSAPublicKeySpec(Modulus, Exponent);
-
-			KeyFactory fact = KeyFactory.getInstance("RSA", BouncyCastleProvider.PROVIDER_NAME);
-            PublicKey pubKey = fact.generatePublic(pubKeySpec);
-			cipherRSA = Cipher.getInstance("RSA/ECB/PKCS1Padding", BouncyCastleProvider.PROVIDER_NAME);
-            cipherRSA.init(Cipher.ENCRYPT_MODE, pubKey);
+            RSAKeyParameters pubKeyParams = publicKeys.get(publicKey, FrostCrypt::parsePublicKey);
+            RSAPublicKeySpec pubKeySpec = new RSAPublicKeySpec(pubKeyParams.getModulus(), pubKeyParams.getExponent());
+
+            PublicKey pubKey = keyFactoryRSA.get().generatePublic(pubKeySpec);
+            cipherRSA = FrostCrypt.cipherRSA.get();
+            cipherRSA.init(Cipher.ENCRYPT_MODE, pubKey, getSecureRandom());
             cipherRSAinSize = cipherRSA.getBlockSize();
             cipherRSAoutSize = cipherRSA.getOutputSize(cipherRSAinSize);
             if( cipherRSAinSize != 117 || cipherRSAoutSize != 128 ) {
@@ -284,7 +355,7 @@ public final class FrostCrypt {
 		}
 	}
 
-    public synchronized String decrypt(String what, String privateKey) {
+    public String decrypt(String what, String privateKey) {
         try {
             byte[] encBytes = Base64.decode(what.getBytes("ISO-8859-1"));
             byte[] decBytes = decrypt(encBytes, privateKey);
@@ -301,7 +372,7 @@ public final class FrostCrypt {
      * The first 128 byte in array must be the RSA encrypted AES key,
      * remaining data is the AES data. See encrypt().
      */
-    public synchronized byte[] decrypt(byte[] what, String privateKey) {
+    public byte[] decrypt(byte[] what, String privateKey) {
 
         Cipher cipherAES = null;
         Cipher cipherRSA = null;
@@ -311,20 +382,19 @@ public final class FrostCrypt {
 
         // prepare RSA, we need chiperRSA
         try {
-            StringTokenizer keycutter = new StringTokenizer(privateKey, ":");
+            RSAPrivateCrtKeyParameters privKeyParams = privateKeys.get(privateKey, FrostCrypt::parsePrivateKey);
             RSAPrivateCrtKeySpec privKeySpec = new RSAPrivateCrtKeySpec(
-                    new BigInteger(Base64.decode(keycutter.nextToken())),
-                    new BigInteger(Base64.decode(keycutter.nextToken())),
-                    new BigInteger(Base64.decode(keycutter.nextToken())),
-                    new BigInteger(Base64.decode(keycutter.nextToken())),
-                    new BigInteger(Base64.decode(keycutter.nextToken())),
-                    new BigInteger(Base64.decode(keycutter.nextToken())),
-                    new BigInteger(Base64.decode(keycutter.nextToken())),
-                    new BigInteger(Base64.decode(keycutter.nextToken())));
-
-			KeyFactory fact = KeyFactory.getInstance("RSA", BouncyCastleProvider.PROVIDER_NAME);
-            PrivateKey privKey = fact.generatePrivate(privKeySpec);
-			cipherRSA = Cipher.getInstance("RSA/ECB/PKCS1Padding", BouncyCastleProvider.PROVIDER_NAME);
+                    privKeyParams.getModulus(),
+                    privKeyParams.getPublicExponent(),
+                    privKeyParams.getExponent(),
+                    privKeyParams.getP(),
+                    privKeyParams.getQ(),
+                    privKeyParams.getDP(),
+                    privKeyParams.getDQ(),
+                    privKeyParams.getQInv());
+
+            PrivateKey privKey = keyFactoryRSA.get().generatePrivate(privKeySpec);
+            cipherRSA = FrostCrypt.cipherRSA.get();
             cipherRSA.init(Cipher.DECRYPT_MODE, privKey);
             cipherRSAinSize = cipherRSA.getBlockSize();
             cipherRSAoutSize = cipherRSA.getOutputSize(cipherRSAinSize);
@@ -381,7 +451,7 @@ public final class FrostCrypt {
 		}
 	}
 
-    public synchronized String detachedSign(String message, String key){
+    public String detachedSign(String message, String key){
         try {
             byte[] msgBytes = message.getBytes("UTF-8");
             return detachedSign(msgBytes, key);
@@ -390,21 +460,12 @@ public final class FrostCrypt {
         }
         return null;
     }
-    public synchronized String detachedSign(byte[] message, String key) {
+    public String detachedSign(byte[] message, String key) {
 
-        StringTokenizer keycutter = new StringTokenizer(key, ":");
-        RSAPrivateCrtKeyParameters privKey =
-            new RSAPrivateCrtKeyParameters(
-                new BigInteger(Base64.decode(keycutter.nextToken())),
-                new BigInteger(Base64.decode(keycutter.nextToken())),
-                new BigInteger(Base64.decode(keycutter.nextToken())),
-                new BigInteger(Base64.decode(keycutter.nextToken())),
-                new BigInteger(Base64.decode(keycutter.nextToken())),
-                new BigInteger(Base64.decode(keycutter.nextToken())),
-                new BigInteger(Base64.decode(keycutter.nextToken())),
-                new BigInteger(Base64.decode(keycutter.nextToken())));
+        RSAPrivateCrtKeyParameters privKey = privateKeys.get(key, FrostCrypt::parsePrivateKey);
 
-        signer.init(true, privKey);
+        final PSSSigner signer = FrostCrypt.signer.get();
+        signer.init(true, new ParametersWithRandom(privKey, getSecureRandom()));
         signer.update(message, 0, message.length);
 
         byte[] signature = null;
@@ -423,7 +484,7 @@ public final class FrostCrypt {
         return null;
     }
 
-    public synchronized boolean detachedVerify(String message, String key, String sig){
+    public boolean detachedVerify(String message, String key, String sig){
         try {
             byte[] msgBytes = message.getBytes("UTF-8");
             return detachedVerify(msgBytes, key, sig);
@@ -432,15 +493,14 @@ public final class FrostCrypt {
         }
         return false;
     }
-    public synchronized boolean detachedVerify(byte[] message, String key, String _sig) {
+    public boolean detachedVerify(byte[] message, String key, String _sig) {
         try {
             byte[] sig = Base64.decode(_sig.getBytes("ISO-8859-1"));
 
-            StringTokenizer keycutter = new StringTokenizer(key, ":");
-            BigInteger Exponent = new BigInteger(Base64.decode(keycutter.nextToken()));
-            BigInteger Modulus = new BigInteger(Base64.decode(keycutter.nextToken()));
+            RSAKeyParameters pubKey = publicKeys.get(key, FrostCrypt::parsePublicKey);
 
-            signer.init(false, new RSAKeyParameters(true, Modulus, Exponent));
+            final PSSSigner signer = FrostCrypt.signer.get();
+            signer.init(false, pubKey);
 
             signer.update(message, 0, message.length);
             boolean result = signer.verifySignature(sig);
@@ -452,8 +512,11 @@ public final class FrostCrypt {
         return false;
     }
 
-    public synchronized SecureRandom getSecureRandom() {
-        return secureRandom;
+    /**
+     * @return the random generator of the calling thread, do not pass it to other threads
+     */
+    public SecureRandom getSecureRandom() {
+        return secureRandom.get();
     }
 
     public String decode64(String what) {
@@ -477,29 +540,19 @@ public final class FrostCrypt {
     }
 
     /**
-     * Called by encrypt() to generate a new random session key for AES.
-     * Must be called synchronized (we use a global object)!
-     * Currently only called by synchronized encrypt().
+     * Called by encrypt() to generate a new random session key for AES,
+     * the same random bytes the AES KeyGenerator returns.
      *
-     * @return the new session key or null.
+     * @return the new session key
      */
     private byte[] generateAESSessionKey() {
-        if( keyGeneratorAES == null ) {
-            try {
-                keyGeneratorAES = KeyGenerator.getInstance("AES");
-            } catch (NoSuchAlgorithmException e) {
-                logger.error("Could not get a KeyGenerator for AES.", e);
-                return null;
-            }
-            keyGeneratorAES.init(128); // 192 and 256 bits may not be available!
-        }
-        SecretKey skey = keyGeneratorAES.generateKey();
-        byte[] keyBytes = skey.getEncoded(); // 16 bytes
+        byte[] keyBytes = new byte[AES_KEY_SIZE];
+        getSecureRandom().nextBytes(keyBytes);
         return keyBytes;
     }
 
     /**
-     * Builds and returns a new Cipher for AES.
+     * Initializes and returns the AES Cipher of the calling thread.
      */
     private Cipher buildCipherAES(int mode, byte[] aesKey) {
         Cipher cipherAES = null;
@@ -508,7 +561,7 @@ public final class FrostCrypt {
                 return null;
             }
             SecretKeySpec sessionKey = new SecretKeySpec(aesKey, "AES");
-			cipherAES = Cipher.getInstance("AES", BouncyCastleProvider.PROVIDER_NAME);
+            cipherAES = FrostCrypt.cipherAES.get();
             cipherAES.init(mode, sessionKey);
 
         } catch(Throwable t) {
@@ -538,7 +591,8 @@ public final class FrostCrypt {
         try {
             byte[] food = message;
             
-			MessageDigest sha256 = MessageDigest.getInstance("SHA256", BouncyCastleProvider.PROVIDER_NAME);
+            MessageDigest sha256 = FrostCrypt.sha256.get();
+            sha256.reset();
             sha256.update(food);
             byte[] poop = sha256.digest();
             
@@ -547,35 +601,27 @@ public final class FrostCrypt {
                 sb.append(Integer.toString( ( poop[i] & 0xff ) + 0x100 , 16).substring(1));
             }
             return sb.toString().toUpperCase();
-        } catch (NoSuchAlgorithmException ex) {
-            logger.error("Algorithm SHA256 not supported.", ex);
-        } catch (NoSuchProviderException ex) {
-            logger.error("Provider BC not supported.", ex);
+        } catch (IllegalStateException ex) {
+            logger.error("Algorithm SHA256 of provider BC not supported.", ex);
         }
         return null;
     }
 
 	/**
 	 * Computes the SHA256 checksum of a file.
+	 * Can be called by several threads at once, each reads with its own direct buffer.
 	 */
 	public String computeChecksumSHA256(File file) {
 		try (FileInputStream fis = new FileInputStream(file); FileChannel chan = fis.getChannel();) {
-			MessageDigest sha256 = MessageDigest.getInstance("SHA256", BouncyCastleProvider.PROVIDER_NAME);
-
-			byte[] temp = new byte[4 * 1024];
-			ByteBuffer _temp = ByteBuffer.wrap(temp);
-			while (true) {
-				// if (y >= file.length()) break;
-				// if (y > file.length()) y = file.length();
-				int pos = _temp.position();
-				int read = chan.read(_temp);
-				if (read == -1) {
-					break;
-				}
-				sha256.update(temp, pos, read);
-				if (_temp.remaining() == 0) {
-					_temp.position(0);
-				}
+			MessageDigest sha256 = FrostCrypt.sha256.get();
+			sha256.reset();
+
+			final ByteBuffer buffer = fileReadBuffer.get();
+			buffer.clear();
+			while (chan.read(buffer) != -1) {
+				buffer.flip();
+				sha256.update(buffer);
+				buffer.clear();
 			}
 
 			byte[] poop = sha256.digest();
@@ -586,11 +632,37 @@ public final class FrostCrypt {
 			return sb.toString().toUpperCase();
 		} catch (IOException e) {
 			logger.error("IOException thrown.", e);
-		} catch (NoSuchAlgorithmException e) {
-			logger.error("Algorithm SHA256 not supported.", e);
-		} catch (NoSuchProviderException e) {
-			logger.error("Provider BC not supported.", e);
+		} catch (IllegalStateException e) {
+			logger.error("Algorithm SHA256 of provider BC not supported.", e);
 		}
 		return null;
 	}
+
+////////////////////////////////////////////////////////////////////////////////////////////////
+//  FrostCryptMBean interface //////////////////////////////////////////////////////////////////
+////////////////////////////////////////////////////////////////////////////////////////////////
+
+	public int getPublicKeyCacheSize() {
+		return publicKeys.size();
+	}
+
+	public long getPublicKeyCacheHits() {
+		return publicKeys.getHitCount();
+	}
+
+	public long getPublicKeyCacheMisses() {
+		return publicKeys.getMissCount();
+	}
+
+	public int getPrivateKeyCacheSize() {
+		return privateKeys.size();
+	}
+
+	public long getPrivateKeyCacheHits() {
+		return privateKeys.getHitCount();
+	}
+
+	public long getPrivateKeyCacheMisses() {
+		return privateKeys.getMissCount();
+	}
 }
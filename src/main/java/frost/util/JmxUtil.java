@@ -0,0 +1,55 @@
+/*
+  JmxUtil.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.util;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers the MBeans of Frost at the platform MBean server.
+ */
+public final class JmxUtil {
+
+	private static final Logger logger = LoggerFactory.getLogger(JmxUtil.class);
+
+	private JmxUtil() {
+	}
+
+	/**
+	 * Registers a standard MBean, an MBean registered before with the same name is replaced.
+	 * Errors are logged, Frost works without JMX.
+	 */
+	public static void registerMBean(final Object mbean, final String name) {
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName objectName = new ObjectName(name);
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(mbean, objectName);
+		} catch (final Exception e) {
+			logger.error("Could not register MBean {}", name, e);
+		}
+	}
+}
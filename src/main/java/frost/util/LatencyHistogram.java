@@ -0,0 +1,105 @@
+/*
+  LatencyHistogram.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of request durations with fixed buckets, from 10 ms up to 30 minutes.
+ * Recording does not lock, percentiles are the upper bound of the bucket that contains them.
+ */
+public class LatencyHistogram {
+
+	// upper bounds of the buckets in milliseconds, the last bucket holds everything above
+	private static final long[] BOUNDS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000,
+			120000, 300000, 600000, 1800000 };
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder totalMillis = new LongAdder();
+
+	/**
+	 * @param success  false if the request failed, e.g. DNF or ProtocolError
+	 */
+	public void record(final long millis, final boolean success) {
+		final long value = Math.max(0, millis);
+		int i = 0;
+		while (i < BOUNDS.length && value > BOUNDS[i]) {
+			i++;
+		}
+		buckets.incrementAndGet(i);
+		count.increment();
+		totalMillis.add(value);
+		if (!success) {
+			failures.increment();
+		}
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	public long getMeanMillis() {
+		final long n = count.sum();
+		return (n == 0) ? 0 : totalMillis.sum() / n;
+	}
+
+	/**
+	 * @param percentile  between 0 and 100
+	 * @return the upper bound of the bucket of the percentile, 0 if nothing was recorded,
+	 *         or Long.MAX_VALUE if it is above the largest bound
+	 */
+	public long getPercentileMillis(final double percentile) {
+		final long[] snapshot = new long[buckets.length()];
+		long n = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = buckets.get(i);
+			n += snapshot[i];
+		}
+		if (n == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+		long seen = 0;
+		for (int i = 0; i < BOUNDS.length; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return BOUNDS[i];
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + getCount() + " failures=" + getFailures() + " meanMs=" + getMeanMillis()
+				+ " p50Ms=" + format(getPercentileMillis(50)) + " p90Ms=" + format(getPercentileMillis(90))
+				+ " p99Ms=" + format(getPercentileMillis(99));
+	}
+
+	private static String format(final long millis) {
+		return (millis == Long.MAX_VALUE) ? (">" + BOUNDS[BOUNDS.length - 1]) : Long.toString(millis);
+	}
+}
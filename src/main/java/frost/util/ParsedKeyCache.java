@@ -0,0 +1,68 @@
+/*
+  ParsedKeyCache.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.util;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded LRU cache of key strings and the key objects parsed from them, with hit and miss counts.
+ *
+ * The lock is held for the lookup only, a missing key is parsed outside of it. Two threads
+ * may parse the same key at once, both results are equal. Keys that can not be parsed
+ * are not cached, the exception of the parser is thrown to the caller.
+ */
+final class ParsedKeyCache<V> {
+
+	private final BoundedLruMap<String, V> keys;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+
+	ParsedKeyCache(final int capacity) {
+		keys = new BoundedLruMap<String, V>(capacity);
+	}
+
+	/**
+	 * @return the cached key object, or the new result of the parser
+	 */
+	V get(final String key, final Function<String, V> parser) {
+		final V cached = keys.get(key);
+		if (cached != null) {
+			hitCount.increment();
+			return cached;
+		}
+		missCount.increment();
+		final V value = parser.apply(key);
+		keys.put(key, value);
+		return value;
+	}
+
+	int size() {
+		return keys.size();
+	}
+
+	long getHitCount() {
+		return hitCount.sum();
+	}
+
+	long getMissCount() {
+		return missCount.sum();
+	}
+}
@@ -18,6 +18,7 @@
 */
 package frost.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -115,6 +116,31 @@ public class XMLTools {
         return null;
     }
 
+    /**
+     * Parses XML data that is kept in memory and returns a DOM document.
+     *
+     * @throws IllegalArgumentException if the data is no valid xml
+     */
+    public static Document parseXmlData(final byte[] data)
+        throws IllegalArgumentException {
+        try {
+            DocumentBuilder builder;
+            synchronized (nonValidatingFactory) {
+                builder = nonValidatingFactory.newDocumentBuilder();
+            }
+            return builder.parse(new ByteArrayInputStream(data));
+        } catch (final SAXException e) {
+            // A parsing error occurred; the xml input is not valid
+            logger.error("Parsing of xml data failed, length: {}", data.length, e);
+            throw new IllegalArgumentException();
+        } catch (final ParserConfigurationException e) {
+            logger.error("Exception thrown in parseXmlData(byte[] data)", e);
+        } catch (final IOException e) {
+            logger.error("Exception thrown in parseXmlData(byte[] data)", e);
+        }
+        return null;
+    }
+
     /**
      * This method writes a DOM document to a file.
      */
@@ -0,0 +1,167 @@
+/*
+  NodeRequestSchedulerTest.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import frost.fcp.NodeRequestScheduler.RequestClass;
+
+public class NodeRequestSchedulerTest {
+
+	private static class Started {
+		final String name;
+		final CompletableFuture<String> future = new CompletableFuture<String>();
+
+		Started(final String name) {
+			this.name = name;
+		}
+	}
+
+	private final BlockingQueue<Started> started = new LinkedBlockingQueue<Started>();
+
+	private CompletableFuture<String> submit(final NodeRequestScheduler scheduler, final RequestClass requestClass,
+			final String owner, final String name) {
+		return scheduler.submit(requestClass, owner, () -> {
+			final Started s = new Started(name);
+			started.add(s);
+			return s.future;
+		});
+	}
+
+	private Started next() throws InterruptedException {
+		return started.poll(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void startsByClassThenOwnerInTurn() throws InterruptedException {
+		final NodeRequestScheduler scheduler = new NodeRequestScheduler(1);
+
+		submit(scheduler, RequestClass.FILE_LIST, "lists", "list");
+		final Started first = next();
+		assertEquals("list", first.name);
+
+		submit(scheduler, RequestClass.MESSAGE_BACKLOAD, "a", "back-a1");
+		submit(scheduler, RequestClass.MESSAGE_BACKLOAD, "a", "back-a2");
+		submit(scheduler, RequestClass.MESSAGE_BACKLOAD, "b", "back-b1");
+		submit(scheduler, RequestClass.MESSAGE_TODAY, "c", "today-c1");
+		assertEquals(4, scheduler.getQueuedRequests());
+		assertEquals(1, scheduler.getRunningRequests());
+
+		Started current = first;
+		for (final String expected : new String[] { "today-c1", "back-a1", "back-b1", "back-a2" }) {
+			current.future.complete(current.name);
+			current = next();
+			assertEquals(expected, current.name);
+		}
+		current.future.complete(current.name);
+		assertEquals(0, scheduler.getQueuedRequests());
+		assertEquals(5, scheduler.getStartedRequests());
+	}
+
+	@Test
+	public void requestThatWaitedTooLongStartsFirst() throws InterruptedException {
+		final NodeRequestScheduler scheduler = new NodeRequestScheduler(1, 50L);
+
+		submit(scheduler, RequestClass.FILE_LIST, "lists", "list");
+		final Started first = next();
+
+		submit(scheduler, RequestClass.FILE_LIST, "lists", "old-list");
+		Thread.sleep(100L);
+		submit(scheduler, RequestClass.MESSAGE_TODAY, "a", "today");
+
+		first.future.complete(first.name);
+		final Started second = next();
+		assertEquals("old-list", second.name);
+		second.future.complete(second.name);
+		final Started third = next();
+		assertEquals("today", third.name);
+		third.future.complete(third.name);
+	}
+
+	@Test
+	public void cancelledRequestIsWithdrawn() throws InterruptedException {
+		final NodeRequestScheduler scheduler = new NodeRequestScheduler(1);
+
+		submit(scheduler, RequestClass.FILE_LIST, "lists", "list");
+		final Started first = next();
+
+		final CompletableFuture<String> cancelled = submit(scheduler, RequestClass.MESSAGE_TODAY, "a", "cancelled");
+		assertEquals(1, scheduler.getQueuedRequests());
+		cancelled.cancel(false);
+		assertEquals(0, scheduler.getQueuedRequests());
+
+		first.future.complete(first.name);
+		assertNull(started.poll(200, TimeUnit.MILLISECONDS));
+		assertEquals(0, scheduler.getRunningRequests());
+		assertEquals(1, scheduler.getStartedRequests());
+
+		// the slot of a started request is released when it finishes, even if it was cancelled
+		final CompletableFuture<String> running = submit(scheduler, RequestClass.MESSAGE_TODAY, "a", "running");
+		final Started second = next();
+		running.cancel(false);
+		assertEquals(1, scheduler.getRunningRequests());
+		second.future.complete(second.name);
+		assertEquals(0, scheduler.getRunningRequests());
+	}
+
+	@Test
+	public void interruptedRunIsWithdrawn() throws InterruptedException {
+		final NodeRequestScheduler scheduler = new NodeRequestScheduler(1);
+
+		submit(scheduler, RequestClass.FILE_LIST, "lists", "list");
+		final Started first = next();
+
+		final AtomicBoolean ran = new AtomicBoolean();
+		final AtomicReference<String> result = new AtomicReference<String>("not finished");
+		final AtomicBoolean interrupted = new AtomicBoolean();
+		final Thread thread = new Thread(() -> {
+			result.set(scheduler.run(RequestClass.MESSAGE_TODAY, "a", () -> {
+				ran.set(true);
+				return "ran";
+			}));
+			interrupted.set(Thread.currentThread().isInterrupted());
+		});
+		thread.start();
+		while (scheduler.getQueuedRequests() == 0) {
+			Thread.sleep(10L);
+		}
+		thread.interrupt();
+		thread.join(5000L);
+
+		assertNull(result.get());
+		assertTrue(interrupted.get());
+		assertEquals(0, scheduler.getQueuedRequests());
+
+		first.future.complete(first.name);
+		assertEquals(0, scheduler.getRunningRequests());
+		assertFalse(ran.get());
+	}
+}
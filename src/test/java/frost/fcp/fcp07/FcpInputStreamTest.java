@@ -0,0 +1,105 @@
+/*
+  FcpInputStreamTest.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class FcpInputStreamTest {
+
+	private static final String MESSAGES = "SimpleProgress\n"
+			+ "Identifier=id-1\n"
+			+ "Total=1234\n"
+			+ "Succeeded=-5\n"
+			+ "FinalizedTotal=TRUE\n"
+			+ "Description=a=b ä\n"
+			+ "\n"
+			+ "EndMessage\n"
+			+ "AllData\n"
+			+ "Identifier=id-2\n"
+			+ "DataLength=5\n"
+			+ "Data\n"
+			+ "HELLO"
+			+ "ProtocolError\n"
+			+ "Code=99999999999\n"
+			+ "EndMessage\n"
+			+ "Incomplete";
+
+	@Test
+	public void readMessages() throws IOException {
+		// small buffers force lines that span the buffer end
+		for (final int size : new int[] { 1, 3, 16, FcpInputStream.DEFAULT_BUFFER_SIZE }) {
+			final FcpInputStream in = new FcpInputStream(
+					new ByteArrayInputStream(MESSAGES.getBytes(StandardCharsets.UTF_8)), size);
+
+			final NodeMessage progress = NodeMessage.readMessage(in);
+			assertEquals("SimpleProgress", progress.getMessageName());
+			assertEquals("EndMessage", progress.getMessageEnd());
+			assertEquals("id-1", progress.getStringValue("Identifier"));
+			assertEquals(1234, progress.getIntValue("Total"));
+			assertEquals(1234L, progress.getLongValue("Total"));
+			assertEquals(-5, progress.getIntValue("Succeeded"));
+			assertTrue(progress.getBoolValue("FinalizedTotal"));
+			assertEquals("a=b ä", progress.getStringValue("Description"));
+			assertFalse(progress.isValueSet("Required"));
+			assertEquals(7, progress.getIntValue("Required", 7));
+			assertThrows(NumberFormatException.class, () -> progress.getIntValue("Identifier"));
+
+			final NodeMessage allData = NodeMessage.readMessage(in);
+			assertEquals("Data", allData.getMessageEnd());
+			assertArrayEquals("HELLO".getBytes(StandardCharsets.UTF_8),
+					allData.receiveMessageData(allData.getLongValue("DataLength")));
+
+			final NodeMessage error = NodeMessage.readMessage(in);
+			assertEquals(99999999999L, error.getLongValue("Code"));
+			assertEquals(-1, error.getIntValue("Code", -1));
+
+			assertNull(NodeMessage.readMessage(in));
+		}
+	}
+
+	@Test
+	public void sameResultAsBytewiseReader() {
+		final NodeMessage expected = NodeMessage.readMessage(
+				new BufferedInputStream(new ByteArrayInputStream(MESSAGES.getBytes(StandardCharsets.UTF_8))));
+		final NodeMessage actual = NodeMessage.readMessage(
+				new FcpInputStream(new ByteArrayInputStream(MESSAGES.getBytes(StandardCharsets.UTF_8))));
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	public void knownNamesAreShared() throws IOException {
+		final FcpInputStream in = new FcpInputStream(
+				new ByteArrayInputStream(MESSAGES.getBytes(StandardCharsets.UTF_8)));
+		final NodeMessage progress = in.readMessage();
+		assertSame("SimpleProgress", progress.getMessageName());
+	}
+}
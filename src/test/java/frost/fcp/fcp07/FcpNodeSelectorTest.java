@@ -0,0 +1,84 @@
+/*
+  FcpNodeSelectorTest.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import frost.fcp.NodeAddress;
+
+public class FcpNodeSelectorTest {
+
+	private static FcpNodeHealth newHealth(final int port) {
+		final InetAddress ia = InetAddress.getLoopbackAddress();
+		return new FcpNodeHealth(new NodeAddress(ia, port, ia.getHostName(), ia.getHostAddress()), 60000);
+	}
+
+	@Test
+	public void choosesLeastLoadedNode() {
+		final FcpNodeHealth a = newHealth(9481);
+		final FcpNodeHealth b = newHealth(9482);
+		final FcpNodeSelector<FcpNodeHealth> selector = new FcpNodeSelector<>(Arrays.asList(a, b), Function.identity());
+
+		a.requestStarted();
+		assertSame(b, selector.select());
+		b.requestStarted();
+		b.requestStarted();
+		assertSame(a, selector.select());
+
+		// same load, the faster node wins
+		a.requestFinished(true, 100);
+		b.requestFinished(true, 1000);
+		b.requestFinished(true, 1000);
+		assertSame(a, selector.select());
+	}
+
+	@Test
+	public void failsOverToHealthyNode() {
+		final FcpNodeHealth a = newHealth(9481);
+		final FcpNodeHealth b = newHealth(9482);
+		final FcpNodeSelector<FcpNodeHealth> selector = new FcpNodeSelector<>(Arrays.asList(a, b), Function.identity());
+		b.requestStarted();
+		b.requestStarted();
+
+		a.connectFailed();
+		a.connectFailed();
+		assertTrue(a.isHealthy(System.currentTimeMillis()));
+		a.connectFailed();
+		assertFalse(a.isHealthy(System.currentTimeMillis()));
+		assertSame(b, selector.select());
+
+		// if all nodes are excluded or unhealthy, the node that recovers first is tried
+		assertSame(a, selector.select(Collections.singleton(b)));
+		assertNull(selector.select(Arrays.asList(a, b)));
+
+		a.requestStarted();
+		a.requestFinished(true, 10);
+		assertTrue(a.isHealthy(System.currentTimeMillis()));
+	}
+}
@@ -0,0 +1,870 @@
+/*
+  FcpNodeSimulator.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import frost.fcp.NodeAddress;
+
+/**
+ * In-process stand-in for a Hyphanet node that speaks enough FCP 2.0 to run the FCP layer
+ * of Frost without a live node, for tests and benchmarks.
+ *
+ * Supported are ClientHello, ClientGet and ClientPut (direct and disk, connection and
+ * persistent), GetRequestStatus, ListPersistentRequests, WatchGlobal, ModifyPersistentRequest,
+ * RemovePersistentRequest, GenerateSSK and the TestDDA sequence. Inserted data is kept in
+ * memory, a get of an unknown key returns generated data of the configured payload size.
+ * Each request is answered after the configured latency, gets fail with 'Data not found'
+ * at the configured rate. All other messages are answered with a ProtocolError.
+ */
+public class FcpNodeSimulator implements Closeable {
+
+	private static final int BLOCK_SIZE = 32 * 1024;
+
+	private final ServerSocket serverSocket;
+	private final ExecutorService connectionThreads;
+	private final ScheduledExecutorService scheduler;
+
+	private final Set<ClientConnection> connections = ConcurrentHashMap.newKeySet();
+	private final Set<ClientConnection> globalWatchers = ConcurrentHashMap.newKeySet();
+
+	private final Map<String, byte[]> store = new ConcurrentHashMap<>();
+	// the global queue, in the order the requests were started
+	private final Map<String, PersistentRequest> globalQueue = Collections.synchronizedMap(new LinkedHashMap<>());
+	// TestDDA: directory -> expected read content and the write file
+	private final Map<String, String[]> ddaTests = new ConcurrentHashMap<>();
+
+	private volatile long latencyMillis = 0;
+	private volatile long latencyJitterMillis = 0;
+	private volatile double dnfRate = 0;
+	private volatile int payloadSize = 4096;
+	private volatile boolean ddaAllowed = true;
+	private volatile boolean keepInsertedData = true;
+
+	private final AtomicLong messagesReceived = new AtomicLong();
+	private final AtomicLong messagesSent = new AtomicLong();
+	private final AtomicLong getCount = new AtomicLong();
+	private final AtomicLong putCount = new AtomicLong();
+	private final AtomicLong dnfCount = new AtomicLong();
+	private final AtomicInteger connectionCount = new AtomicInteger();
+
+	/**
+	 * Starts the simulator on a free loopback port.
+	 */
+	public FcpNodeSimulator() throws IOException {
+		serverSocket = new ServerSocket();
+		serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		connectionThreads = Executors.newCachedThreadPool(r -> newDaemonThread(r, "FcpNodeSimulator-connection"));
+		scheduler = Executors.newScheduledThreadPool(4, r -> newDaemonThread(r, "FcpNodeSimulator-scheduler"));
+		final Thread acceptThread = newDaemonThread(this::acceptConnections, "FcpNodeSimulator-accept");
+		acceptThread.start();
+	}
+
+	private static Thread newDaemonThread(final Runnable r, final String name) {
+		final Thread t = new Thread(r, name);
+		t.setDaemon(true);
+		return t;
+	}
+
+	public NodeAddress getNodeAddress() {
+		final InetAddress ia = serverSocket.getInetAddress();
+		return new NodeAddress(ia, serverSocket.getLocalPort(), ia.getHostName(), ia.getHostAddress());
+	}
+
+	/**
+	 * @param latencyMillis  delay before a request is answered
+	 * @param jitterMillis   a random delay up to this value is added
+	 */
+	public void setLatency(final long latencyMillis, final long jitterMillis) {
+		this.latencyMillis = latencyMillis;
+		this.latencyJitterMillis = jitterMillis;
+	}
+
+	/**
+	 * @param dnfRate  the part of gets that fail with 'Data not found', between 0 and 1
+	 */
+	public void setDnfRate(final double dnfRate) {
+		this.dnfRate = dnfRate;
+	}
+
+	/**
+	 * @param payloadSize  the size of the data returned for keys that were not inserted
+	 */
+	public void setPayloadSize(final int payloadSize) {
+		this.payloadSize = payloadSize;
+	}
+
+	public void setDdaAllowed(final boolean ddaAllowed) {
+		this.ddaAllowed = ddaAllowed;
+	}
+
+	/**
+	 * @param keepInsertedData  false to drop the data of successful puts, e.g. for long upload
+	 *                          benchmarks. Gets of these keys return generated data.
+	 */
+	public void setKeepInsertedData(final boolean keepInsertedData) {
+		this.keepInsertedData = keepInsertedData;
+	}
+
+	/**
+	 * Stores data for the key, a get of the key returns this data.
+	 */
+	public void insert(final String uri, final byte[] data) {
+		store.put(uri, data);
+	}
+
+	public byte[] getInsertedData(final String uri) {
+		return store.get(uri);
+	}
+
+	public long getMessagesReceived() {
+		return messagesReceived.get();
+	}
+
+	public long getMessagesSent() {
+		return messagesSent.get();
+	}
+
+	public long getGetCount() {
+		return getCount.get();
+	}
+
+	public long getPutCount() {
+		return putCount.get();
+	}
+
+	public long getDnfCount() {
+		return dnfCount.get();
+	}
+
+	/**
+	 * @return the number of accepted connections since the start
+	 */
+	public int getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	public int getGlobalQueueSize() {
+		return globalQueue.size();
+	}
+
+	/**
+	 * Closes all client connections like a node restart, the global queue is kept.
+	 */
+	public void dropConnections() {
+		for (final ClientConnection c : connections) {
+			c.close();
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			serverSocket.close();
+		} catch (final IOException e) {
+		}
+		dropConnections();
+		scheduler.shutdownNow();
+		connectionThreads.shutdownNow();
+	}
+
+	private void acceptConnections() {
+		while (!serverSocket.isClosed()) {
+			try {
+				final Socket socket = serverSocket.accept();
+				connectionCount.incrementAndGet();
+				final ClientConnection c = new ClientConnection(socket);
+				connections.add(c);
+				connectionThreads.execute(c::run);
+			} catch (final IOException e) {
+				// closed
+			}
+		}
+	}
+
+	private void later(final Runnable r) {
+		long delay = latencyMillis;
+		if (latencyJitterMillis > 0) {
+			delay += ThreadLocalRandom.current().nextLong(latencyJitterMillis + 1);
+		}
+		scheduler.schedule(r, delay, TimeUnit.MILLISECONDS);
+	}
+
+	// ---------------------------------------------------------------------------------------
+	// request handling
+	// ---------------------------------------------------------------------------------------
+
+	private void handleMessage(final ClientConnection c, final Message m) {
+		switch (m.name) {
+		case "ClientHello":
+			c.send(new Message("NodeHello")
+					.put("FCPVersion", "2.0")
+					.put("Version", "Fred,0.7,1.0,1500")
+					.put("Node", "Fred")
+					.put("Testnet", "false")
+					.put("ConnectionIdentifier", Long.toHexString(ThreadLocalRandom.current().nextLong())));
+			break;
+		case "ClientGet":
+			handleClientGet(c, m);
+			break;
+		case "ClientPut":
+			handleClientPut(c, m);
+			break;
+		case "GetRequestStatus":
+			handleGetRequestStatus(c, m);
+			break;
+		case "ListPersistentRequests":
+			synchronized (globalQueue) {
+				for (final PersistentRequest r : globalQueue.values()) {
+					for (final Message status : r.getStatusMessages()) {
+						c.send(status);
+					}
+				}
+			}
+			c.send(new Message("EndListPersistentRequests"));
+			break;
+		case "WatchGlobal":
+			if (m.getBoolean("Enabled", true)) {
+				globalWatchers.add(c);
+			} else {
+				globalWatchers.remove(c);
+			}
+			break;
+		case "ModifyPersistentRequest": {
+			final PersistentRequest r = globalQueue.get(m.get("Identifier"));
+			if (r == null) {
+				sendNoSuchIdentifier(c, m);
+			} else {
+				r.setPriorityClass(m.get("PriorityClass"));
+				sendToWatchers(c, new Message("PersistentRequestModified")
+						.put("Identifier", r.identifier)
+						.put("Global", "true")
+						.put("PriorityClass", m.get("PriorityClass")));
+			}
+			break;
+		}
+		case "RemovePersistentRequest": {
+			final PersistentRequest r = globalQueue.remove(m.get("Identifier"));
+			if (r == null) {
+				sendNoSuchIdentifier(c, m);
+			} else {
+				sendToWatchers(c, new Message("PersistentRequestRemoved")
+						.put("Identifier", r.identifier)
+						.put("Global", "true"));
+			}
+			break;
+		}
+		case "GenerateSSK": {
+			final String routingKey = randomKeyPart();
+			final String cryptoKey = randomKeyPart();
+			c.send(new Message("SSKKeypair")
+					.put("Identifier", m.get("Identifier"))
+					.put("InsertURI", "SSK@" + randomKeyPart() + "," + cryptoKey + ",AQECAAE/")
+					.put("RequestURI", "SSK@" + routingKey + "," + cryptoKey + ",AQACAAE/"));
+			break;
+		}
+		case "TestDDARequest":
+			handleTestDDARequest(c, m);
+			break;
+		case "TestDDAResponse":
+			handleTestDDAResponse(c, m);
+			break;
+		default:
+			c.send(new Message("ProtocolError")
+					.put("Identifier", m.get("Identifier"))
+					.put("Code", "7")
+					.put("CodeDescription", "Invalid message")
+					.put("ExtraDescription", "Unknown message: " + m.name)
+					.put("Fatal", "false"));
+		}
+	}
+
+	private void handleClientGet(final ClientConnection c, final Message m) {
+		getCount.incrementAndGet();
+		final String id = m.get("Identifier");
+		final PersistentRequest persistent = startPersistent(c, m, "PersistentGet");
+		if (persistent == PersistentRequest.COLLISION) {
+			return;
+		}
+
+		later(() -> {
+			final String uri = m.get("URI");
+			final Message result;
+			byte[] data = null;
+			if (ThreadLocalRandom.current().nextDouble() < dnfRate) {
+				dnfCount.incrementAndGet();
+				result = new Message("GetFailed")
+						.put("Identifier", id)
+						.put("Code", "13")
+						.put("CodeDescription", "Data not found")
+						.put("ShortCodeDescription", "Data not found")
+						.put("Fatal", "true");
+			} else {
+				data = getData(uri);
+				final long maxSize = m.getLong("MaxSize", -1);
+				if (maxSize >= 0 && data.length > maxSize) {
+					result = new Message("GetFailed")
+							.put("Identifier", id)
+							.put("Code", "21")
+							.put("CodeDescription", "Too big")
+							.put("ExpectedDataLength", Integer.toString(data.length))
+							.put("Fatal", "true");
+					data = null;
+				} else {
+					result = new Message("DataFound")
+							.put("Identifier", id)
+							.put("Metadata.ContentType", "application/octet-stream")
+							.put("DataLength", Integer.toString(data.length));
+				}
+			}
+			if (persistent != null) {
+				result.put("Global", m.get("Global", "false"));
+			}
+
+			if (data != null && "disk".equals(m.get("ReturnType"))) {
+				try {
+					Files.write(new File(m.get("Filename")).toPath(), data);
+				} catch (final IOException e) {
+					result.name = "GetFailed";
+					result.put("Code", "10").put("CodeDescription", "Disk error").put("Fatal", "true");
+					data = null;
+				}
+			}
+
+			if (persistent == null) {
+				c.send(result);
+				if (data != null && !"disk".equals(m.get("ReturnType"))) {
+					c.send(new Message("AllData")
+							.put("Identifier", id)
+							.put("DataLength", Integer.toString(data.length))
+							.setData(data));
+				}
+			} else {
+				persistent.progress(data != null ? data.length : 0);
+				sendToRequest(persistent, new Message("SimpleProgress")
+						.put("Identifier", id)
+						.put("Global", m.get("Global", "false"))
+						.put("Total", Integer.toString(persistent.blocks))
+						.put("Required", Integer.toString(persistent.blocks))
+						.put("Succeeded", Integer.toString(persistent.blocks))
+						.put("Failed", "0")
+						.put("FatallyFailed", "0")
+						.put("FinalizedTotal", "true"));
+				persistent.finished(result, data);
+				sendToRequest(persistent, result);
+			}
+		});
+	}
+
+	private void handleClientPut(final ClientConnection c, final Message m) {
+		putCount.incrementAndGet();
+		final String id = m.get("Identifier");
+		final byte[] data;
+		if ("disk".equals(m.get("UploadFrom"))) {
+			try {
+				data = Files.readAllBytes(new File(m.get("Filename")).toPath());
+			} catch (final IOException e) {
+				c.send(new Message("ProtocolError")
+						.put("Identifier", id)
+						.put("Code", "9")
+						.put("CodeDescription", "File not found")
+						.put("Fatal", "false"));
+				return;
+			}
+		} else {
+			data = (m.data != null) ? m.data : new byte[0];
+		}
+		final PersistentRequest persistent = startPersistent(c, m, "PersistentPut");
+		if (persistent == PersistentRequest.COLLISION) {
+			return;
+		}
+
+		String uri = m.get("URI");
+		if (uri.startsWith("CHK@")) {
+			uri = computeChk(data, m.get("TargetFilename"));
+		}
+		final Message uriGenerated = new Message("URIGenerated").put("Identifier", id).put("URI", uri);
+		if (persistent != null) {
+			uriGenerated.put("Global", m.get("Global", "false"));
+			persistent.setUri(uri);
+			sendToRequest(persistent, uriGenerated);
+		} else {
+			c.send(uriGenerated);
+		}
+
+		final String finalUri = uri;
+		later(() -> {
+			final Message result;
+			if (m.getBoolean("GetCHKOnly", false) || !keepInsertedData) {
+				result = new Message("PutSuccessful").put("Identifier", id).put("URI", finalUri);
+			} else {
+				final byte[] existing = store.putIfAbsent(finalUri, data);
+				if (existing != null && !finalUri.startsWith("CHK@") && !Arrays.equals(existing, data)) {
+					result = new Message("PutFailed")
+							.put("Identifier", id)
+							.put("Code", "9")
+							.put("CodeDescription", "Key collision")
+							.put("ShortCodeDescription", "Collided")
+							.put("Fatal", "true");
+				} else {
+					result = new Message("PutSuccessful").put("Identifier", id).put("URI", finalUri);
+				}
+			}
+			if (persistent == null) {
+				c.send(result);
+			} else {
+				result.put("Global", m.get("Global", "false"));
+				persistent.progress(data.length);
+				persistent.finished(result, null);
+				sendToRequest(persistent, result);
+			}
+		});
+	}
+
+	private void handleGetRequestStatus(final ClientConnection c, final Message m) {
+		final PersistentRequest r = globalQueue.get(m.get("Identifier"));
+		if (r == null) {
+			sendNoSuchIdentifier(c, m);
+			return;
+		}
+		if (m.getBoolean("OnlyData", false)) {
+			final byte[] data = r.getData();
+			if (data == null) {
+				sendNoSuchIdentifier(c, m);
+			} else {
+				c.send(new Message("AllData")
+						.put("Identifier", r.identifier)
+						.put("Global", "true")
+						.put("DataLength", Integer.toString(data.length))
+						.setData(data));
+			}
+			return;
+		}
+		for (final Message status : r.getStatusMessages()) {
+			c.send(status);
+		}
+	}
+
+	private void handleTestDDARequest(final ClientConnection c, final Message m) {
+		final String dir = m.get("Directory");
+		final File readFile = new File(dir, "DDACheck-" + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+		final File writeFile = new File(dir, "DDACheck-" + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+		final String readContent = Long.toHexString(ThreadLocalRandom.current().nextLong());
+		final String writeContent = Long.toHexString(ThreadLocalRandom.current().nextLong());
+		try {
+			Files.write(readFile.toPath(), readContent.getBytes(StandardCharsets.UTF_8));
+		} catch (final IOException e) {
+			c.send(new Message("ProtocolError").put("Code", "10").put("CodeDescription", "Disk error").put("Fatal", "false"));
+			return;
+		}
+		ddaTests.put(dir, new String[] { readContent, writeFile.getAbsolutePath(), writeContent, readFile.getAbsolutePath() });
+		c.send(new Message("TestDDAReply")
+				.put("Directory", dir)
+				.put("ReadFilename", readFile.getAbsolutePath())
+				.put("WriteFilename", writeFile.getAbsolutePath())
+				.put("ContentToWrite", writeContent));
+	}
+
+	private void handleTestDDAResponse(final ClientConnection c, final Message m) {
+		final String dir = m.get("Directory");
+		final String[] test = ddaTests.remove(dir);
+		boolean allowed = false;
+		if (test != null) {
+			new File(test[3]).delete();
+			String written = null;
+			try {
+				written = new String(Files.readAllBytes(new File(test[1]).toPath()), StandardCharsets.UTF_8).trim();
+			} catch (final IOException e) {
+			}
+			allowed = ddaAllowed && test[0].equals(m.get("ReadContent")) && test[2].equals(written);
+		}
+		c.send(new Message("TestDDAComplete")
+				.put("Directory", dir)
+				.put("ReadDirectoryAllowed", Boolean.toString(allowed))
+				.put("WriteDirectoryAllowed", Boolean.toString(allowed)));
+	}
+
+	/**
+	 * Adds a persistent request to the global queue and sends PersistentGet/PersistentPut.
+	 *
+	 * @return the request, null if the request is not persistent, or COLLISION if the
+	 *         identifier is already used
+	 */
+	private PersistentRequest startPersistent(final ClientConnection c, final Message m, final String statusName) {
+		final String persistence = m.get("Persistence", "connection");
+		if ("connection".equals(persistence)) {
+			return null;
+		}
+		final PersistentRequest r = new PersistentRequest(c, statusName, m);
+		if (m.data != null) {
+			r.request.put("DataLength", Integer.toString(m.data.length));
+		}
+		if (m.getBoolean("Global", false)) {
+			if (globalQueue.putIfAbsent(r.identifier, r) != null) {
+				c.send(new Message("IdentifierCollision").put("Identifier", r.identifier).put("Global", "true"));
+				return PersistentRequest.COLLISION;
+			}
+		}
+		sendToRequest(r, r.getPersistentMessage());
+		return r;
+	}
+
+	private void sendNoSuchIdentifier(final ClientConnection c, final Message m) {
+		c.send(new Message("ProtocolError")
+				.put("Identifier", m.get("Identifier"))
+				.put("Code", "15")
+				.put("CodeDescription", "No such identifier")
+				.put("Fatal", "false")
+				.put("Global", m.get("Global", "false")));
+	}
+
+	/**
+	 * Sends the message to the client that started the request and, for a global request,
+	 * to all clients that watch the global queue.
+	 */
+	private void sendToRequest(final PersistentRequest r, final Message msg) {
+		if (r.isGlobal) {
+			sendToWatchers(r.owner, msg);
+		} else {
+			r.owner.send(msg);
+		}
+	}
+
+	/**
+	 * Sends the message to the client and to all clients that watch the global queue.
+	 */
+	private void sendToWatchers(final ClientConnection c, final Message msg) {
+		for (final ClientConnection watcher : globalWatchers) {
+			if (watcher != c) {
+				watcher.send(msg);
+			}
+		}
+		c.send(msg);
+	}
+
+	private byte[] getData(final String uri) {
+		byte[] data = store.get(uri);
+		if (data == null) {
+			// same key, same data
+			data = new byte[payloadSize];
+			new Random(uri.hashCode()).nextBytes(data);
+		}
+		return data;
+	}
+
+	private static String computeChk(final byte[] data, final String targetFilename) {
+		final MessageDigest sha;
+		try {
+			sha = MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		final byte[] routingKey = sha.digest(data);
+		final byte[] cryptoKey = sha.digest(routingKey);
+		final Base64.Encoder b64 = Base64.getUrlEncoder().withoutPadding();
+		final String chk = "CHK@" + b64.encodeToString(routingKey).replace('_', '~') + ","
+				+ b64.encodeToString(cryptoKey).replace('_', '~') + ",AAMC--8";
+		if (targetFilename != null && targetFilename.length() > 0) {
+			return chk + "/" + targetFilename;
+		}
+		return chk;
+	}
+
+	private static String randomKeyPart() {
+		final byte[] b = new byte[32];
+		ThreadLocalRandom.current().nextBytes(b);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(b).replace('_', '~');
+	}
+
+	// ---------------------------------------------------------------------------------------
+	// wire format
+	// ---------------------------------------------------------------------------------------
+
+	private class ClientConnection {
+
+		private final Socket socket;
+		private final InputStream in;
+		private final OutputStream out;
+
+		ClientConnection(final Socket socket) throws IOException {
+			this.socket = socket;
+			this.in = new BufferedInputStream(socket.getInputStream(), 32 * 1024);
+			this.out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+		}
+
+		void run() {
+			try {
+				Message m;
+				while ((m = readMessage()) != null) {
+					messagesReceived.incrementAndGet();
+					handleMessage(this, m);
+				}
+			} catch (final IOException e) {
+				// connection closed
+			} finally {
+				close();
+			}
+		}
+
+		private Message readMessage() throws IOException {
+			Message m = null;
+			String line;
+			while ((line = readLine()) != null) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				if (m == null) {
+					m = new Message(line);
+				} else if (line.equals("EndMessage")) {
+					return m;
+				} else if (line.equals("Data")) {
+					final int length = (int) m.getLong("DataLength", 0);
+					m.data = in.readNBytes(length);
+					if (m.data.length < length) {
+						return null;
+					}
+					return m;
+				} else {
+					final int eq = line.indexOf('=');
+					if (eq > 0) {
+						m.put(line.substring(0, eq), line.substring(eq + 1));
+					}
+				}
+			}
+			return null;
+		}
+
+		private String readLine() throws IOException {
+			final ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+			int b;
+			while ((b = in.read()) >= 0) {
+				if (b == '\n') {
+					final byte[] bytes = line.toByteArray();
+					int len = bytes.length;
+					if (len > 0 && bytes[len - 1] == '\r') {
+						len--;
+					}
+					return new String(bytes, 0, len, StandardCharsets.UTF_8);
+				}
+				line.write(b);
+			}
+			return null;
+		}
+
+		void send(final Message m) {
+			final StringBuilder sb = new StringBuilder(256);
+			sb.append(m.name).append('\n');
+			for (final Map.Entry<String, String> e : m.fields.entrySet()) {
+				if (e.getValue() != null) {
+					sb.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+				}
+			}
+			sb.append(m.data != null ? "Data\n" : "EndMessage\n");
+			synchronized (this) {
+				try {
+					out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+					if (m.data != null) {
+						out.write(m.data);
+					}
+					out.flush();
+					messagesSent.incrementAndGet();
+				} catch (final IOException e) {
+					close();
+				}
+			}
+		}
+
+		void close() {
+			connections.remove(this);
+			globalWatchers.remove(this);
+			try {
+				socket.close();
+			} catch (final IOException e) {
+			}
+		}
+	}
+
+	private static class Message {
+
+		String name;
+		final Map<String, String> fields = new LinkedHashMap<>();
+		byte[] data;
+
+		Message(final String name) {
+			this.name = name;
+		}
+
+		Message put(final String key, final String value) {
+			fields.put(key, value);
+			return this;
+		}
+
+		Message setData(final byte[] data) {
+			this.data = data;
+			return this;
+		}
+
+		String get(final String key) {
+			return fields.get(key);
+		}
+
+		String get(final String key, final String defaultValue) {
+			final String v = fields.get(key);
+			return (v == null) ? defaultValue : v;
+		}
+
+		boolean getBoolean(final String key, final boolean defaultValue) {
+			final String v = fields.get(key);
+			return (v == null) ? defaultValue : Boolean.parseBoolean(v);
+		}
+
+		long getLong(final String key, final long defaultValue) {
+			final String v = fields.get(key);
+			try {
+				return (v == null) ? defaultValue : Long.parseLong(v);
+			} catch (final NumberFormatException e) {
+				return defaultValue;
+			}
+		}
+
+		Message copy() {
+			final Message m = new Message(name);
+			m.fields.putAll(fields);
+			return m;
+		}
+	}
+
+	private static class PersistentRequest {
+
+		static final PersistentRequest COLLISION = new PersistentRequest();
+
+		final ClientConnection owner;
+		final String identifier;
+		final String statusName;
+		final boolean isGlobal;
+		final Message request;
+		int blocks = 0;
+		Message result = null;
+		byte[] data = null;
+
+		private PersistentRequest() {
+			owner = null;
+			identifier = null;
+			statusName = null;
+			isGlobal = false;
+			request = null;
+		}
+
+		PersistentRequest(final ClientConnection owner, final String statusName, final Message request) {
+			this.owner = owner;
+			this.identifier = request.get("Identifier");
+			this.statusName = statusName;
+			this.isGlobal = request.getBoolean("Global", false);
+			this.request = request.copy();
+		}
+
+		synchronized void setPriorityClass(final String priorityClass) {
+			request.put("PriorityClass", priorityClass);
+		}
+
+		synchronized void setUri(final String uri) {
+			request.put("URI", uri);
+		}
+
+		synchronized void progress(final int length) {
+			blocks = Math.max(1, (length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+		}
+
+		synchronized void finished(final Message result, final byte[] data) {
+			this.result = result;
+			// the node keeps the data of a completed direct get until it is fetched
+			if (!"disk".equals(request.get("ReturnType"))) {
+				this.data = data;
+			}
+		}
+
+		synchronized byte[] getData() {
+			return data;
+		}
+
+		synchronized Message getPersistentMessage() {
+			final Message m = new Message(statusName)
+					.put("Identifier", identifier)
+					.put("URI", request.get("URI"))
+					.put("Verbosity", request.get("Verbosity", "0"))
+					.put("PriorityClass", request.get("PriorityClass", "2"))
+					.put("Persistence", request.get("Persistence"))
+					.put("Global", request.get("Global", "false"))
+					.put("MaxRetries", request.get("MaxRetries", "0"))
+					.put("Started", "true");
+			if ("PersistentGet".equals(statusName)) {
+				m.put("ReturnType", request.get("ReturnType", "direct"))
+						.put("Filename", request.get("Filename"))
+						.put("TempFilename", request.get("TempFilename"));
+			} else {
+				m.put("UploadFrom", request.get("UploadFrom", "direct"))
+						.put("Filename", request.get("Filename"))
+						.put("TargetFilename", request.get("TargetFilename"))
+						.put("DataLength", request.get("DataLength"));
+			}
+			return m;
+		}
+
+		synchronized List<Message> getStatusMessages() {
+			final List<Message> messages = new ArrayList<>(2);
+			messages.add(getPersistentMessage());
+			if (result != null) {
+				messages.add(result);
+			}
+			return messages;
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+  FcpNodeSimulatorTest.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import frost.fcp.FcpHandler;
+import frost.fcp.FcpResultGet;
+import frost.fcp.FcpResultPut;
+import frost.fcp.NodeAddress;
+import frost.fcp.fcp07.messagetransfer.MessageTransferHandler;
+import frost.fcp.fcp07.messagetransfer.MessageTransferTask;
+import frost.fileTransfer.FreenetPriority;
+import frost.junit.InitExtension;
+
+@ExtendWith(InitExtension.class)
+public class FcpNodeSimulatorTest {
+
+	private FcpNodeSimulator simulator;
+	private File tempDir;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		simulator = new FcpNodeSimulator();
+		tempDir = Files.createTempDirectory("fcpsim").toFile();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		simulator.close();
+		for (final File f : tempDir.listFiles()) {
+			f.delete();
+		}
+		tempDir.delete();
+	}
+
+	@Test
+	public void putAndGetOverFcpConnection() throws Exception {
+		final byte[] data = "<FrostMessage>hello</FrostMessage>".getBytes("UTF-8");
+		final File source = new File(tempDir, "upload.xml");
+		Files.write(source.toPath(), data);
+		final File target = new File(tempDir, "download.xml");
+
+		final FcpConnection connection = new FcpConnection(simulator.getNodeAddress());
+		try {
+			final FcpResultPut putResult = connection.putKeyFromFile(FcpHandler.TYPE_MESSAGE,
+					"KSK@frost/message/test-1.xml", source, false, false, null);
+			assertTrue(putResult.isSuccess());
+
+			final FcpResultGet getResult = connection.getKeyToFile(FcpHandler.TYPE_MESSAGE,
+					"KSK@frost/message/test-1.xml", target, FcpHandler.MAX_MESSAGE_SIZE_07, 0, null);
+			assertTrue(getResult.isSuccess());
+			assertArrayEquals(data, Files.readAllBytes(target.toPath()));
+
+			// a second insert with other data collides
+			Files.write(source.toPath(), "other".getBytes("UTF-8"));
+			final FcpResultPut collision = connection.putKeyFromFile(FcpHandler.TYPE_MESSAGE,
+					"KSK@frost/message/test-1.xml", source, false, false, null);
+			assertFalse(collision.isSuccess());
+		} finally {
+			connection.close();
+		}
+	}
+
+	@Test
+	public void reportsDataNotFound() throws Exception {
+		simulator.setDnfRate(1.0);
+		final File target = new File(tempDir, "download.xml");
+
+		final FcpConnection connection = new FcpConnection(simulator.getNodeAddress());
+		try {
+			final FcpResultGet result = connection.getKeyToFile(FcpHandler.TYPE_MESSAGE,
+					"KSK@frost/message/missing.xml", target, FcpHandler.MAX_MESSAGE_SIZE_07, 0, null);
+			assertFalse(result.isSuccess());
+			assertEquals(13, result.getReturnCode());
+		} finally {
+			connection.close();
+		}
+		assertEquals(1, simulator.getDnfCount());
+	}
+
+	@Test
+	public void runsManyMessageTransfersOnSharedSocket() throws Throwable {
+		simulator.setLatency(5, 20);
+		simulator.setPayloadSize(16 * 1024);
+		final NodeAddress na = simulator.getNodeAddress();
+		final MessageTransferHandler handler = new MessageTransferHandler(na, new FcpNodeHealth(na, 1000));
+		handler.start();
+
+		final List<MessageTransferTask> tasks = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			final MessageTransferTask task = new MessageTransferTask("get-test-" + i, "KSK@frost/message/m-" + i + ".xml",
+					new File(tempDir, "m-" + i + ".xml"), FreenetPriority.HIGH, FcpHandler.MAX_MESSAGE_SIZE_07, 0);
+			tasks.add(task);
+			handler.enqueueTask(task);
+		}
+		for (final MessageTransferTask task : tasks) {
+			task.getFinishedFuture().get(30, TimeUnit.SECONDS);
+			assertTrue(task.getFcpResultGet().isSuccess());
+			assertEquals(16 * 1024, task.getFile().length());
+		}
+		assertEquals(50, simulator.getGetCount());
+		assertEquals(0, handler.getActiveTaskCount());
+	}
+}
@@ -0,0 +1,96 @@
+/*
+  NodeMessageDispatcherTest.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.fcp.fcp07;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class NodeMessageDispatcherTest {
+
+	@Test
+	public void keepsOrderPerIdentifier() throws InterruptedException {
+		final NodeMessageDispatcher dispatcher = new NodeMessageDispatcher("test", 4, 8);
+		final Map<String, List<Integer>> received = new HashMap<>();
+		for (int id = 0; id < 10; id++) {
+			received.put("id-" + id, Collections.synchronizedList(new ArrayList<>()));
+		}
+
+		for (int i = 0; i < 100; i++) {
+			for (int id = 0; id < 10; id++) {
+				final int value = i;
+				final List<Integer> list = received.get("id-" + id);
+				dispatcher.dispatch("id-" + id, () -> list.add(value));
+			}
+		}
+		dispatcher.awaitAll();
+
+		for (final List<Integer> list : received.values()) {
+			assertEquals(100, list.size());
+			for (int i = 0; i < 100; i++) {
+				assertEquals(i, list.get(i).intValue());
+			}
+		}
+		assertEquals(1000, dispatcher.getDispatchedCount());
+		assertEquals(0, dispatcher.getQueuedCount());
+	}
+
+	@Test
+	public void blocksWhenQueueIsFull() throws InterruptedException {
+		final NodeMessageDispatcher dispatcher = new NodeMessageDispatcher("test", 1, 2);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger processed = new AtomicInteger();
+
+		dispatcher.dispatch("id", () -> {
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (final InterruptedException e) {
+			}
+			processed.incrementAndGet();
+		});
+		final Thread receiver = new Thread(() -> {
+			try {
+				for (int i = 0; i < 5; i++) {
+					dispatcher.dispatch("id", processed::incrementAndGet);
+				}
+			} catch (final InterruptedException e) {
+			}
+		});
+		receiver.start();
+		receiver.join(500);
+		// the lane is busy and its queue is full
+		assertTrue(receiver.isAlive());
+		assertTrue(dispatcher.getBlockedCount() > 0);
+
+		release.countDown();
+		receiver.join(10000);
+		dispatcher.awaitIdentifier("id");
+		assertEquals(6, processed.get());
+	}
+}
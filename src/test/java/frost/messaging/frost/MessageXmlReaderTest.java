@@ -0,0 +1,75 @@
+/*
+  MessageXmlReaderTest.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.messaging.frost;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.jupiter.api.Test;
+
+public class MessageXmlReaderTest {
+
+	private static MessageXmlReader read(final String xml) throws XMLStreamException {
+		return MessageXmlReader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void readValues() throws XMLStreamException {
+		final MessageXmlReader reader = read("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!-- comment -->"
+				+ "<FrostMessage><MessageId><![CDATA[abc]]></MessageId><IdLinePos>5</IdLinePos>"
+				+ "<Body><![CDATA[a ]]]]><![CDATA[> ä]]></Body><Body><![CDATA[second]]></Body>"
+				+ "<AttachmentList/><Empty/></FrostMessage>");
+
+		assertTrue(reader.isMessage());
+		assertFalse(reader.isEncryptedMessage());
+		assertEquals("abc", reader.getValue("MessageId"));
+		assertEquals("5", reader.getValue("IdLinePos"));
+		// CDATA sections are joined, the first element wins
+		assertEquals("a ]]> ä", reader.getValue("Body"));
+		assertNull(reader.getValue("Empty"));
+		assertNull(reader.getValue("Subject"));
+		assertTrue(reader.getAttachments().isEmpty());
+	}
+
+	@Test
+	public void readEncryptedMessage() throws XMLStreamException {
+		final MessageXmlReader reader = read("<EncryptedFrostMessage><recipient><![CDATA[me]]></recipient>"
+				+ "<content><![CDATA[QUJD]]></content></EncryptedFrostMessage>");
+
+		assertTrue(reader.isEncryptedMessage());
+		assertEquals("me", reader.getValue("recipient"));
+		assertEquals("QUJD", reader.getValue("content"));
+		assertNull(reader.getAttachments());
+	}
+
+	@Test
+	public void rejectInvalidXml() {
+		assertThrows(XMLStreamException.class, () -> read("<FrostMessage><Body>"));
+		assertThrows(XMLStreamException.class, () -> read("<!DOCTYPE x [<!ENTITY e SYSTEM \"file:///etc/passwd\">]>"
+				+ "<FrostMessage><Body>&e;</Body></FrostMessage>"));
+	}
+}
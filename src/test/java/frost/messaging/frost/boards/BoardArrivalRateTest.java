@@ -0,0 +1,68 @@
+/*
+  BoardArrivalRateTest.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.messaging.frost.boards;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class BoardArrivalRateTest {
+
+	private static final long HOUR = 60L * 60L * 1000L;
+	private static final long DAY = 24L * HOUR;
+
+	@Test
+	public void completeDaysAreSmoothed() {
+		double rate = BoardArrivalRate.addSample(BoardArrivalRate.UNKNOWN, -1, 10, DAY, 0);
+		assertEquals(10.0, rate, 0.001);
+
+		// no time passed, the estimate does not move
+		assertEquals(10.0, BoardArrivalRate.addSample(rate, 0, 0, DAY, 0), 0.001);
+
+		rate = BoardArrivalRate.addSample(rate, 0, 0, DAY, 3 * DAY);
+		assertEquals(10.0 / Math.E, rate, 0.001);
+	}
+
+	@Test
+	public void currentDayOnlyRaises() {
+		assertEquals(BoardArrivalRate.UNKNOWN, BoardArrivalRate.addSample(BoardArrivalRate.UNKNOWN, -1, 0, HOUR, 0), 0.001);
+		assertEquals(5.0, BoardArrivalRate.addSample(5.0, 0, 0, 12 * HOUR, DAY), 0.001);
+
+		// 3 messages in the first hour count like 3 in 6 hours, but at least 3 per day
+		final double rate = BoardArrivalRate.addSample(0.1, 0, 3, HOUR, HOUR);
+		assertTrue(rate >= 3.0);
+		assertTrue(rate < 12.0);
+	}
+
+	@Test
+	public void quietBoardsAreUpdatedLessOften() {
+		final long min = 45 * 60 * 1000L;
+		final long max = 12 * HOUR;
+
+		assertEquals(min, BoardArrivalRate.getUpdateIntervalMillis(BoardArrivalRate.UNKNOWN, min, max));
+		assertEquals(min, BoardArrivalRate.getUpdateIntervalMillis(500, min, max));
+		assertEquals(4 * HOUR, BoardArrivalRate.getUpdateIntervalMillis(6, min, max));
+		assertEquals(max, BoardArrivalRate.getUpdateIntervalMillis(0.1, min, max));
+		assertEquals(max, BoardArrivalRate.getUpdateIntervalMillis(0, min, max));
+
+		assertEquals(12 * HOUR, BoardArrivalRate.getCompleteBackloadIntervalMillis(500, min, max));
+		assertEquals(7 * max, BoardArrivalRate.getCompleteBackloadIntervalMillis(0, min, max));
+	}
+}
@@ -0,0 +1,56 @@
+/*
+  SlotProbeWindowTest.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.messaging.frost.threads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class SlotProbeWindowTest {
+
+	@Test
+	public void growsOnFoundAndShrinksBehindLastIndex() {
+		final SlotProbeWindow window = new SlotProbeWindow(6);
+		assertEquals(2, window.getSize());
+
+		for (int i = 0; i < 10; i++) {
+			window.update(true, false, i + 1, (i + 1) * 5000L);
+		}
+		assertEquals(6, window.getSize());
+
+		// a gap between known indices
+		window.update(false, false, 11, 55000L);
+		assertEquals(6, window.getSize());
+
+		window.update(false, true, 12, 60000L);
+		assertEquals(3, window.getSize());
+		window.update(false, true, 13, 65000L);
+		window.update(false, true, 14, 70000L);
+		assertEquals(1, window.getSize());
+	}
+
+	@Test
+	public void staysSmallWhenNodeIsFast() {
+		final SlotProbeWindow window = new SlotProbeWindow(8);
+		for (int i = 0; i < 10; i++) {
+			window.update(true, false, i + 1, (i + 1) * 200L);
+		}
+		assertEquals(2, window.getSize());
+	}
+}
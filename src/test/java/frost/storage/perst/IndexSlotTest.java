@@ -51,5 +51,7 @@ public class IndexSlotTest {
 		assertFalse(gis.isDownloadIndexBehindLastSetIndex(3));
 		assertFalse(gis.isDownloadIndexBehindLastSetIndex(4));
 		assertTrue(gis.isDownloadIndexBehindLastSetIndex(5));
+
+		assertEquals(4, gis.getUsedSlotCount());
 	}
 }
@@ -0,0 +1,42 @@
+/*
+  BoundedLruMapTest.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+public class BoundedLruMapTest {
+
+	@Test
+	public void leastRecentlyUsedEntryIsRemoved() {
+		final BoundedLruMap<String, Integer> map = new BoundedLruMap<String, Integer>(2);
+		map.put("a", 1);
+		map.put("b", 2);
+		assertEquals(1, map.get("a").intValue());
+		// removes b, a was used last
+		map.put("c", 3);
+
+		assertEquals(2, map.size());
+		assertEquals(1, map.get("a").intValue());
+		assertNull(map.get("b"));
+		assertEquals(3, map.get("c").intValue());
+	}
+}
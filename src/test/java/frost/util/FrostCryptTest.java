@@ -1,8 +1,14 @@
 package frost.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -56,4 +62,31 @@ public class FrostCryptTest {
 		isSignatureValid = Core.getCrypto().detachedVerify(message + "test", bob.getPublicKey(), signature);
 		assertEquals(false, isSignatureValid);
 	}
+
+	@Test
+	public void signVerifyAndDecryptConcurrently() throws Exception {
+		LocalIdentity bob = getIdentityBob();
+		FrostCrypt crypt = Core.getCrypto();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < 40; i++) {
+				String text = message + i;
+				results.add(executor.submit(() -> {
+					String signature = crypt.detachedSign(text, bob.getPrivateKey());
+					byte[] encrypted = crypt.encrypt(text.getBytes(StandardCharsets.UTF_8), bob.getPublicKey());
+					byte[] decrypted = crypt.decrypt(encrypted, bob.getPrivateKey());
+					return crypt.detachedVerify(text, bob.getPublicKey(), signature)
+							&& !crypt.detachedVerify(text + "test", bob.getPublicKey(), signature)
+							&& text.equals(new String(decrypted, StandardCharsets.UTF_8));
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
@@ -0,0 +1,47 @@
+/*
+  LatencyHistogramTest.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void reportsBucketOfPercentile() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentileMillis(50));
+
+		for (int i = 0; i < 90; i++) {
+			histogram.record(40, true);
+		}
+		for (int i = 0; i < 9; i++) {
+			histogram.record(4000, false);
+		}
+		histogram.record(Long.MAX_VALUE / 2, false);
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(10, histogram.getFailures());
+		assertEquals(50, histogram.getPercentileMillis(50));
+		assertEquals(50, histogram.getPercentileMillis(90));
+		assertEquals(5000, histogram.getPercentileMillis(99));
+		assertEquals(Long.MAX_VALUE, histogram.getPercentileMillis(100));
+	}
+}
@@ -0,0 +1,58 @@
+/*
+  ParsedKeyCacheTest.java / Frost
+  Copyright (C) 2026  Frost Project <jtcfrost.sourceforge.net>
+
+  This program is free software; you can redistribute it and/or
+  modify it under the terms of the GNU General Public License as
+  published by the Free Software Foundation; either version 2 of
+  the License, or (at your option) any later version.
+
+  This program is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+  General Public License for more details.
+
+  You should have received a copy of the GNU General Public License
+  along with this program; if not, write to the Free Software
+  Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+*/
+package frost.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+public class ParsedKeyCacheTest {
+
+	@Test
+	public void cachedKeyIsNotParsedAgain() {
+		final AtomicInteger parseCount = new AtomicInteger();
+		final Function<String, Integer> parser = key -> {
+			parseCount.incrementAndGet();
+			return Integer.valueOf(key);
+		};
+		final ParsedKeyCache<Integer> cache = new ParsedKeyCache<Integer>(2);
+
+		assertEquals(1, cache.get("1", parser).intValue());
+		assertEquals(2, cache.get("2", parser).intValue());
+		assertEquals(1, cache.get("1", parser).intValue());
+		assertEquals(2, cache.get("2", parser).intValue());
+
+		assertEquals(2, cache.size());
+		assertEquals(2, parseCount.get());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+	}
+
+	@Test
+	public void invalidKeyIsNotCached() {
+		final ParsedKeyCache<Integer> cache = new ParsedKeyCache<Integer>(2);
+
+		assertThrows(NumberFormatException.class, () -> cache.get("x", Integer::valueOf));
+		assertEquals(0, cache.size());
+	}
+}
@@ -19,8 +19,10 @@
 package frost.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 
 import org.junit.jupiter.api.Test;
@@ -59,4 +61,16 @@ public class XMLToolsTest {
 		Element root = dd.getDocumentElement();
 		assertEquals(messageID, XMLTools.getChildElementsCDATAValue(root, "MessageId"));
 	}
+
+	@Test
+	public void parseXmlData() {
+		final byte[] data = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><FrostMessage><Subject><![CDATA[\u00e4]]></Subject></FrostMessage>"
+				.getBytes(StandardCharsets.UTF_8);
+		final Element root = XMLTools.parseXmlData(data).getDocumentElement();
+		assertEquals("FrostMessage", root.getTagName());
+		assertEquals("\u00e4", XMLTools.getChildElementsCDATAValue(root, "Subject"));
+
+		assertThrows(IllegalArgumentException.class,
+				() -> XMLTools.parseXmlData("<FrostMessage>".getBytes(StandardCharsets.UTF_8)));
+	}
 }